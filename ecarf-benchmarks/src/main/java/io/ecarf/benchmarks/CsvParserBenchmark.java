@@ -0,0 +1,136 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.EncodedLubmGenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the {@link CSVParser} and its lexer over compressed query results, with the header handling used 
+ * when reasoning. The gzip decompression and a plain line split are measured as the baselines.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParserBenchmark {
+    
+    @Param({"100"})
+    private int departments;
+    
+    private File file;
+    
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("lubm_query_results_", ".csv.gz");
+        new EncodedLubmGenerator(departments).writeQueryResults(file.getAbsolutePath(), departments, true);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+    
+    @Benchmark
+    public long readLines() throws IOException {
+        
+        long length = 0;
+        
+        try(BufferedReader reader = this.reader()) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                length += line.length();
+            }
+        }
+        
+        return length;
+    }
+    
+    @Benchmark
+    public long splitLines() throws IOException {
+        
+        long length = 0;
+        
+        try(BufferedReader reader = this.reader()) {
+            // skip the header
+            String line = reader.readLine();
+            
+            while((line = reader.readLine()) != null) {
+                for(String value: StringUtils.splitPreserveAllTokens(line, ',')) {
+                    length += value.length();
+                }
+            }
+        }
+        
+        return length;
+    }
+    
+    @Benchmark
+    public long parseRecords() throws IOException {
+        
+        long length = 0;
+        
+        try(BufferedReader reader = this.reader()) {
+            
+            for(CSVRecord record: CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(reader)) {
+                for(String value: record) {
+                    length += value.length();
+                }
+            }
+        }
+        
+        return length;
+    }
+    
+    private BufferedReader reader() throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), "UTF-8"));
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.NTriplesGenerator;
+import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.term.dictionary.TermDictionaryFrontCoded;
+import io.ecarf.core.term.dictionary.TermDictionaryMapped;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes and reads a dictionary with the Kryo serialization of {@link TermDictionary#toFile}, uncompressed and 
+ * gzip compressed, with the memory mapped format of {@link TermDictionaryMapped} and with the gzip compressed 
+ * front coded format of {@link TermDictionaryFrontCoded}. The Kryo file is read the 
+ * same way the load task does.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionarySerializationBenchmark {
+    
+    @Param({"200000"})
+    private int terms;
+    
+    @Param({"Kryo", "KryoGzip", "Mapped", "FrontCodedGzip"})
+    private String format;
+    
+    private TermDictionaryCore dictionary;
+    
+    private File file;
+    
+    @Setup
+    public void setup() throws IOException {
+        
+        dictionary = new TermDictionaryCore();
+        TermDictionary.populateRDFOWLData(dictionary);
+        
+        for(String uri: new NTriplesGenerator(terms).uris(terms)) {
+            for(String part: TermUtils.splitIntoTwo(uri, true, -1)) {
+                dictionary.add(part);
+            }
+        }
+        
+        // the front coded file is gziped based on its name
+        file = File.createTempFile("dictionary_", "." + format.toLowerCase() + 
+                (format.startsWith("FrontCoded") ? Constants.GZIP_EXT : ""));
+        
+        this.toFile();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+    
+    @Benchmark
+    public String toFile() throws IOException {
+        
+        switch(format) {
+            case "Kryo":
+                return dictionary.toFile(file.getAbsolutePath(), false);
+                
+            case "KryoGzip":
+                return dictionary.toFile(file.getAbsolutePath(), true);
+                
+            case "FrontCodedGzip":
+                return TermDictionaryFrontCoded.toFile(dictionary, file.getAbsolutePath());
+                
+            default:
+                return TermDictionaryMapped.toFile(dictionary, file.getAbsolutePath());
+        }
+    }
+    
+    /**
+     * Kryo reads the whole dictionary whereas the mapped dictionary is only mapped, so also do a lookup to 
+     * make sure it's usable
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @Benchmark
+    public Integer fromFile() throws IOException, ClassNotFoundException {
+        
+        TermDictionary loaded;
+        
+        switch(format) {
+            case "Kryo":
+                loaded = Utils.objectFromFile(file.getAbsolutePath(), TermDictionaryCore.class, false, false);
+                break;
+                
+            case "KryoGzip":
+                loaded = Utils.objectFromFile(file.getAbsolutePath(), TermDictionaryCore.class, true, false);
+                break;
+                
+            case "FrontCodedGzip":
+                loaded = TermDictionaryFrontCoded.fromFile(file.getAbsolutePath());
+                break;
+                
+            default:
+                loaded = TermDictionaryMapped.fromFile(file.getAbsolutePath());
+        }
+        
+        return loaded.get(SchemaURIType.RDF_TYPE.uri);
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.core.cloud.task.processor.reason.phase3.DuplicatesBuster;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Feeds the (subject, object) pairs of inferred rdf:type triples to a new {@link DuplicatesBuster}, the exact one 
+ * (zero memory) and a bounded one. Around a third of the pairs are duplicates, a resource is typed with a few 
+ * classes and the same types are inferred again by the following rules.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DuplicatesBusterBenchmark {
+    
+    private static final int SIZE = 1_000_000;
+    
+    @Param({"0", "16777216"})
+    private long maxMemory;
+    
+    private long[] subjects = new long[SIZE];
+    
+    private long[] objects = new long[SIZE];
+    
+    @Setup
+    public void setup() {
+        
+        Random random = new Random(SIZE);
+        
+        for(int i = 0; i < SIZE; i++) {
+            subjects[i] = 1_000_000 + random.nextInt(SIZE / 3);
+            objects[i] = 1_000 + random.nextInt(16);
+        }
+    }
+    
+    @Benchmark
+    public int isDuplicate() {
+        return this.bust(0, SIZE);
+    }
+    
+    /**
+     * Four threads sharing the buster, as done by the reasoning sub tasks
+     * @return
+     * @throws InterruptedException
+     */
+    @Benchmark
+    public int isDuplicateConcurrent() throws InterruptedException {
+        
+        final DuplicatesBuster buster = DuplicatesBuster.create(maxMemory);
+        final int [] duplicates = new int[4];
+        
+        Thread [] threads = new Thread[duplicates.length];
+        
+        int chunk = SIZE / threads.length;
+        
+        for(int i = 0; i < threads.length; i++) {
+            
+            final int index = i;
+            final int start = i * chunk;
+            final int end = (i == threads.length - 1) ? SIZE : start + chunk;
+            
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    duplicates[index] = bust(buster, start, end);
+                }
+            };
+            threads[i].start();
+        }
+        
+        int count = 0;
+        
+        for(int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            count += duplicates[i];
+        }
+        
+        return count;
+    }
+    
+    private int bust(int start, int end) {
+        return this.bust(DuplicatesBuster.create(maxMemory), start, end);
+    }
+    
+    private int bust(DuplicatesBuster buster, int start, int end) {
+        
+        int duplicates = 0;
+        
+        for(int i = start; i < end; i++) {
+            if(buster.isDuplicate(subjects[i], objects[i])) {
+                duplicates++;
+            }
+        }
+        
+        return duplicates;
+    }
+
+}
@@ -0,0 +1,162 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.core.utils.NumberUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the original bit by bit join/disjoin with the magic masks implementation
+ * in {@link NumberUtils}, using pairs of random dictionary ids.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberUtilsBenchmark {
+    
+    private static final int SIZE = 1024;
+    
+    private long [] firsts = new long[SIZE];
+    
+    private long [] seconds = new long[SIZE];
+    
+    private long [] joined = new long[SIZE];
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(SIZE);
+        
+        for(int i = 0; i < SIZE; i++) {
+            // typical dictionary ids
+            firsts[i] = 101 + random.nextInt(50_000_000);
+            seconds[i] = 101 + random.nextInt(50_000_000);
+            joined[i] = NumberUtils.join(firsts[i], seconds[i]);
+        }
+    }
+    
+    @Benchmark
+    public void joinLoop(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(legacyJoin(new long [] {firsts[i], seconds[i]}));
+        }
+    }
+    
+    @Benchmark
+    public void joinMasks(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(NumberUtils.join(firsts[i], seconds[i]));
+        }
+    }
+    
+    @Benchmark
+    public void joinVarargs(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(NumberUtils.join(new long [] {firsts[i], seconds[i]}));
+        }
+    }
+    
+    @Benchmark
+    public void disjoinLoop(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(legacyDisjoin(2, joined[i]));
+        }
+    }
+    
+    @Benchmark
+    public void disjoinMasks(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(NumberUtils.disjoinFirst(joined[i]));
+            blackhole.consume(NumberUtils.disjoinSecond(joined[i]));
+        }
+    }
+    
+    @Benchmark
+    public void disjoinArray(Blackhole blackhole) {
+        for(int i = 0; i < SIZE; i++) {
+            blackhole.consume(NumberUtils.disjoin(2, joined[i]));
+        }
+    }
+    
+    /**
+     * The original bit by bit implementation of NumberUtils.join
+     * @param values
+     * @return
+     */
+    static long legacyJoin(long [] values) {
+        long p = 0;
+        int i = 0;
+        int n = values.length;
+        
+        while(NumberUtils.sum(values) > 0) {
+            
+            for(int j = 0; j < n; j++) {
+                p |= (values[j] & 1) << (i + j);
+                values[j] >>= 1;
+            }
+            
+            i += n;
+        }
+        return p;
+    }
+    
+    /**
+     * The original bit by bit implementation of NumberUtils.disjoin
+     * @param n
+     * @param value
+     * @return
+     */
+    static long [] legacyDisjoin(int n, long value) {
+        long values [] = new long [n];
+        int i = 0;
+        
+        while (value > 0) {
+            
+            for(int j = 0; j < n; j++) {
+                values[j] |= (value & 1) << i;
+                value >>= 1;
+            }
+            
+            i++;
+        }
+        return values;
+    }
+
+}
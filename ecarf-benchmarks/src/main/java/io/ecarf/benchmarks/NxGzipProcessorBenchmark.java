@@ -0,0 +1,168 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.NTriplesGenerator;
+import io.ecarf.core.compress.NxGzipCallback;
+import io.ecarf.core.compress.NxGzipProcessor;
+import io.ecarf.core.compress.callback.CommonsCsvCallback;
+import io.ecarf.core.compress.callback.DictionaryEncodeCallback;
+import io.ecarf.core.compress.callback.ExtractTerms2PartCallback;
+import io.ecarf.core.compress.callback.ExtractTermsCallback;
+import io.ecarf.core.compress.callback.ExtractTermsPartCallback;
+import io.ecarf.core.compress.callback.ExtractTermsTreeCallback;
+import io.ecarf.core.compress.callback.StringEscapeCallback;
+import io.ecarf.core.compress.callback.TermCounterCallback;
+import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Processes a synthetic N-Triples file with each of the {@link NxGzipProcessor} callbacks. The extract and count 
+ * callbacks only read the file, the others also write the compressed output. 
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NxGzipProcessorBenchmark {
+    
+    @Param({"StringEscape", "CommonsCsv", "DictionaryEncode", "TermCounter", "ExtractTerms", "ExtractTermsPart", 
+        "ExtractTerms2Part", "ExtractTermsTree"})
+    private String callback;
+    
+    @Param({"10"})
+    private int departments;
+    
+    private File inFile;
+    
+    private File outFile;
+    
+    private TermDictionary dictionary;
+    
+    @Setup
+    public void setup() throws IOException {
+        
+        inFile = File.createTempFile("lubm_", ".nt.gz");
+        outFile = File.createTempFile("lubm_", "_out.gz");
+        
+        new NTriplesGenerator(departments).write(inFile.getAbsolutePath(), departments);
+        
+        if("DictionaryEncode".equals(callback)) {
+            
+            ExtractTerms2PartCallback extract = new ExtractTerms2PartCallback();
+            extract.setSplitLocation(-1);
+            extract.setCounter(new TermCounter());
+            
+            new NxGzipProcessor(inFile.getAbsolutePath()).read(extract);
+            
+            dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+            
+            for(String part: extract.getResources()) {
+                dictionary.add(part);
+            }
+            
+            for(String blankNode: extract.getBlankNodes()) {
+                dictionary.add(blankNode);
+            }
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        inFile.delete();
+        outFile.delete();
+    }
+    
+    @Benchmark
+    public Object process() throws IOException {
+        
+        NxGzipProcessor processor = new NxGzipProcessor(inFile.getAbsolutePath(), outFile.getAbsolutePath());
+        
+        NxGzipCallback instance;
+        
+        switch(callback) {
+            case "StringEscape":
+                return processor.process(new StringEscapeCallback());
+                
+            case "CommonsCsv":
+                return processor.process(new CommonsCsvCallback());
+                
+            case "DictionaryEncode":
+                DictionaryEncodeCallback encode = new DictionaryEncodeCallback();
+                encode.setDictionary(dictionary);
+                return processor.process(encode);
+                
+            case "TermCounter":
+                instance = new TermCounterCallback();
+                break;
+                
+            case "ExtractTerms":
+                instance = new ExtractTermsCallback();
+                break;
+                
+            case "ExtractTermsPart":
+                instance = new ExtractTermsPartCallback();
+                break;
+                
+            case "ExtractTerms2Part":
+                ExtractTerms2PartCallback extract = new ExtractTerms2PartCallback();
+                extract.setSplitLocation(-1);
+                instance = extract;
+                break;
+                
+            case "ExtractTermsTree":
+                instance = new ExtractTermsTreeCallback();
+                break;
+                
+            default:
+                throw new IllegalArgumentException("Unknown callback: " + callback);
+        }
+        
+        instance.setCounter(new TermCounter());
+        processor.read(instance);
+        
+        return instance;
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.EncodedLubmGenerator;
+import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
+import io.ecarf.core.reason.rulebased.GenericRule;
+import io.ecarf.core.reason.rulebased.Rule;
+import io.ecarf.core.reason.rulebased.RuleTable;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.utils.Constants;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the original per triple {@link GenericRule} reasoning with {@link ReasonUtils#reason} using the compiled 
+ * {@link RuleTable}, over the compressed query results of a synthetic LUBM like dataset.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReasonBenchmark {
+    
+    @Param({"100"})
+    private int departments;
+    
+    private Map<Long, Set<Triple>> schemaTerms;
+    
+    private RuleTable rules;
+    
+    private File inFile;
+    
+    private File outFile;
+    
+    @Setup
+    public void setup() throws IOException {
+        
+        schemaTerms = EncodedLubmGenerator.getSchemaTerms();
+        rules = new RuleTable(schemaTerms);
+        
+        inFile = File.createTempFile("lubm_query_results_", ".csv.gz");
+        outFile = File.createTempFile("lubm_query_results_", ".inf");
+        
+        new EncodedLubmGenerator(departments).writeQueryResults(inFile.getAbsolutePath(), departments, true);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        inFile.delete();
+        outFile.delete();
+    }
+    
+    @Benchmark
+    public int reasonRuleObjects() throws IOException {
+        return legacyReason(inFile.getAbsolutePath(), outFile.getAbsolutePath(), schemaTerms, new HashSet<Long>());
+    }
+    
+    @Benchmark
+    public int reasonRuleTable() throws IOException {
+        return ReasonUtils.reason(inFile.getAbsolutePath(), outFile.getAbsolutePath(), true, rules, 
+                new HashSet<Long>(), null);
+    }
+    
+    /**
+     * The original implementation of ReasonUtils.reason for compressed query results
+     */
+    static int legacyReason(String inFile, String outFile, Map<Long, Set<Triple>> schemaTerms, 
+            Set<Long> productiveTerms) throws IOException {
+        
+        int inferredTriples = 0;
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(inFile), Constants.GZIP_BUF_SIZE)), Constants.GZIP_BUF_SIZE); 
+             PrintWriter writer = new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(
+                    new FileOutputStream(outFile), Constants.GZIP_BUF_SIZE), Constants.GZIP_BUF_SIZE))) {
+            
+            Long term;
+            
+            for (CSVRecord record : CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(reader)) {
+                
+                ETriple instanceTriple = ETriple.fromCSV(record.values());
+                
+                if(SchemaURIType.RDF_TYPE.id == instanceTriple.getPredicate()) {
+                    term = instanceTriple.getObject();
+                    
+                } else {
+                    term = instanceTriple.getPredicate();
+                }
+                
+                Set<Triple> schemaTriples = schemaTerms.get(term);
+                
+                if((schemaTriples != null) && !schemaTriples.isEmpty()) {
+                    productiveTerms.add(term);
+                    
+                    for(Triple schemaTriple: schemaTriples) {
+                        Rule rule = GenericRule.getRule(schemaTriple);
+                        Triple inferredTriple = rule.head(schemaTriple, instanceTriple);
+                        
+                        if(inferredTriple != null) {
+                            writer.println(inferredTriple.toCsv());
+                            inferredTriples++;
+                        }
+                    }
+                }
+            }
+        }
+        
+        return inferredTriples;
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.NTriplesGenerator;
+import io.ecarf.core.term.TermCounter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counting term occurrences with the original boxed HashMap count and with {@link TermCounter}, either only the 
+ * terms to count, all the terms or all the terms approximately. The occurrences are skewed so a few terms are very frequent, 
+ * the long tail case has many more distinct terms so the heavy hitters are replaced more often.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermCounterBenchmark {
+    
+    private static final int SIZE = 4096;
+    
+    private static final int DISTINCT = 1024;
+    
+    private static final int LONG_TAIL_DISTINCT = 65536;
+    
+    @Param({"HashMap", "TermsToCount", "HashMapAll", "All", "Approximate", "ApproximateLongTail"})
+    private String counterType;
+    
+    private String [] terms = new String[SIZE];
+    
+    private Set<String> termsToCount = new HashSet<>();
+    
+    private Map<String, Integer> count;
+    
+    private TermCounter counter;
+    
+    @Setup
+    public void setup() {
+        
+        int size = "ApproximateLongTail".equals(counterType) ? LONG_TAIL_DISTINCT : DISTINCT;
+        
+        List<String> distinct = new NTriplesGenerator(size).uris(size);
+        Random random = new Random(SIZE);
+        
+        for(int i = 0; i < SIZE; i++) {
+            terms[i] = distinct.get((int) Math.pow(size, random.nextDouble()) - 1);
+        }
+        
+        for(int i = 0; i < 64; i++) {
+            termsToCount.add(distinct.get(i));
+        }
+        
+        count = new HashMap<>();
+        
+        switch(counterType) {
+            case "TermsToCount":
+                counter = new TermCounter();
+                counter.setTermsToCount(termsToCount);
+                break;
+                
+            case "All":
+                counter = new TermCounter();
+                break;
+                
+            case "Approximate":
+                counter = new TermCounter(100);
+                break;
+                
+            case "ApproximateLongTail":
+                counter = new TermCounter(1000);
+                break;
+                
+            case "HashMapAll":
+                termsToCount = null;
+                break;
+                
+            default:
+        }
+    }
+    
+    @Benchmark
+    public Object count() {
+        
+        if(counter == null) {
+            
+            for(String term: terms) {
+                
+                if((termsToCount == null) || termsToCount.contains(term)) {
+                    
+                    if(!count.containsKey(term)) {
+                        count.put(term, 0);
+                    }
+                    
+                    count.put(term, count.get(term) + 1);
+                }
+            }
+            
+            return count;
+        }
+        
+        for(String term: terms) {
+            counter.count(term);
+        }
+        
+        return counter;
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.NTriplesGenerator;
+import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.TermDictionaryBidiConcurrent;
+import io.ecarf.core.term.dictionary.TermDictionaryCommons;
+import io.ecarf.core.term.dictionary.TermDictionaryConcurrent;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.term.dictionary.TermDictionaryGuava;
+import io.ecarf.core.term.dictionary.TermDictionaryFrontCoded;
+import io.ecarf.core.term.dictionary.TermDictionaryMapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encodes and decodes URIs with each of the {@link TermDictionary} implementations. All the dictionaries hold the 
+ * same terms, the memory mapped one is loaded from a file written from the core dictionary and 
+ * the front coded ones, with and without a perfect hash index, are created from the core dictionary.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermDictionaryBenchmark {
+    
+    private static final int SIZE = 100_000;
+    
+    private static final int BATCH = 1024;
+    
+    @Param({"Core", "Concurrent", "Guava", "Commons", "BidiConcurrent", "Mapped", "FrontCoded", "FrontCodedIndexed"})
+    private String implementation;
+    
+    private TermDictionary dictionary;
+    
+    private String[] uris;
+    
+    private long[] encoded;
+    
+    private File mappedFile;
+    
+    @Setup
+    public void setup() throws IOException {
+        
+        List<String> generated = new NTriplesGenerator(SIZE).uris(SIZE);
+        
+        TermDictionaryCore core = new TermDictionaryCore();
+        this.populate(core, generated);
+        core.inverse();
+        
+        switch(implementation) {
+            case "Core":
+                dictionary = core;
+                break;
+                
+            case "Concurrent":
+                dictionary = this.populate(new TermDictionaryConcurrent(), generated);
+                break;
+                
+            case "Guava":
+                dictionary = this.populate(new TermDictionaryGuava(), generated);
+                break;
+                
+            case "Commons":
+                dictionary = this.populate(new TermDictionaryCommons(), generated);
+                break;
+                
+            case "BidiConcurrent":
+                dictionary = this.populate(new TermDictionaryBidiConcurrent(), generated);
+                break;
+                
+            case "Mapped":
+                mappedFile = File.createTempFile("dictionary_", ".mapped");
+                TermDictionaryMapped.toFile(core, mappedFile.getAbsolutePath());
+                dictionary = TermDictionaryMapped.fromFile(mappedFile.getAbsolutePath());
+                break;
+                
+            case "FrontCoded":
+                dictionary = TermDictionaryFrontCoded.create(core);
+                break;
+                
+            case "FrontCodedIndexed":
+                dictionary = TermDictionaryFrontCoded.create(core, true);
+                break;
+                
+            default:
+                throw new IllegalArgumentException("Unknown dictionary: " + implementation);
+        }
+        
+        // a batch spread over the whole dictionary
+        uris = new String[BATCH];
+        encoded = new long[BATCH];
+        
+        int step = generated.size() / BATCH;
+        
+        for(int i = 0; i < BATCH; i++) {
+            uris[i] = generated.get(i * step);
+            encoded[i] = dictionary.encode(uris[i]);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        if(mappedFile != null) {
+            mappedFile.delete();
+        }
+    }
+    
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for(String uri: uris) {
+            blackhole.consume(dictionary.encode(uri));
+        }
+    }
+    
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for(long value: encoded) {
+            blackhole.consume(dictionary.decode(value));
+        }
+    }
+    
+    /**
+     * Add the parts of the provided URIs the same way the dictionary assembly does
+     * @param dictionary
+     * @param uris
+     * @return
+     */
+    private TermDictionary populate(TermDictionary dictionary, List<String> uris) {
+        
+        TermDictionary.populateRDFOWLData(dictionary);
+        
+        for(String uri: uris) {
+            for(String part: TermUtils.splitIntoTwo(uri, true, -1)) {
+                dictionary.add(part);
+            }
+        }
+        
+        return dictionary;
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks;
+
+import io.ecarf.benchmarks.data.NTriplesGenerator;
+import io.ecarf.core.term.TermUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splitting URIs into two parts with {@link TermUtils#splitIntoTwo}, the List returning version and the version
+ * that only reports the bounds of the parts.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermUtilsBenchmark {
+    
+    private static final int SIZE = 1024;
+    
+    private String[] uris;
+    
+    private int[] bounds = new int[4];
+    
+    @Setup
+    public void setup() {
+        List<String> generated = new NTriplesGenerator(SIZE).uris(SIZE);
+        uris = generated.toArray(new String[SIZE]);
+    }
+    
+    @Benchmark
+    public void splitIntoTwo(Blackhole blackhole) {
+        for(String uri: uris) {
+            blackhole.consume(TermUtils.splitIntoTwo(uri, true, -1));
+        }
+    }
+    
+    @Benchmark
+    public void splitIntoTwoSecondSlash(Blackhole blackhole) {
+        for(String uri: uris) {
+            blackhole.consume(TermUtils.splitIntoTwo(uri, true, 1));
+        }
+    }
+    
+    @Benchmark
+    public void splitIntoTwoBounds(Blackhole blackhole) {
+        for(String uri: uris) {
+            blackhole.consume(TermUtils.splitIntoTwo(uri, 0, uri.length(), true, -1, bounds));
+        }
+    }
+
+}
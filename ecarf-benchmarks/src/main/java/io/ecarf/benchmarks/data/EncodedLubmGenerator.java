@@ -0,0 +1,281 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks.data;
+
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates reproducible encoded triples shaped like the LUBM university benchmark: departments with faculty, 
+ * students, courses and publications, typed with the most specific LUBM classes. The schema is the RDFS subset of 
+ * the univ-bench ontology used by the reasoning rules.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class EncodedLubmGenerator {
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    // classes
+    public static final long PERSON = 1_000;
+    public static final long EMPLOYEE = 1_001;
+    public static final long FACULTY = 1_002;
+    public static final long PROFESSOR = 1_003;
+    public static final long FULL_PROFESSOR = 1_004;
+    public static final long ASSOCIATE_PROFESSOR = 1_005;
+    public static final long LECTURER = 1_006;
+    public static final long STUDENT = 1_007;
+    public static final long GRADUATE_STUDENT = 1_008;
+    public static final long UNDERGRADUATE_STUDENT = 1_009;
+    public static final long ORGANIZATION = 1_010;
+    public static final long DEPARTMENT = 1_011;
+    public static final long WORK = 1_012;
+    public static final long COURSE = 1_013;
+    public static final long GRADUATE_COURSE = 1_014;
+    public static final long PUBLICATION = 1_015;
+    
+    // properties
+    public static final long MEMBER_OF = 2_000;
+    public static final long WORKS_FOR = 2_001;
+    public static final long HEAD_OF = 2_002;
+    public static final long TEACHER_OF = 2_003;
+    public static final long TAKES_COURSE = 2_004;
+    public static final long ADVISOR = 2_005;
+    public static final long PUBLICATION_AUTHOR = 2_006;
+    public static final long NAME = 2_007;
+    public static final long EMAIL_ADDRESS = 2_008;
+    
+    // instance ids start after the schema terms
+    private static final long FIRST_INSTANCE = 100_000;
+    
+    private final Random random;
+    
+    private long nextId = FIRST_INSTANCE;
+
+    /**
+     * @param seed - the same seed always generates the same triples
+     */
+    public EncodedLubmGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * The encoded RDFS schema keyed by subject, as returned by 
+     * {@link io.ecarf.core.triple.TripleUtils#getRelevantSchemaETriples(String, Set)}
+     * @return
+     */
+    public static Map<Long, Set<Triple>> getSchemaTerms() {
+        
+        Map<Long, Set<Triple>> schema = new HashMap<>();
+        
+        long subClass = SchemaURIType.RDFS_SUBCLASS.id;
+        long subProperty = SchemaURIType.RDFS_SUBPROPERTY.id;
+        long domain = SchemaURIType.RDFS_DOMAIN.id;
+        long range = SchemaURIType.RDFS_RANGE.id;
+        
+        add(schema, EMPLOYEE, subClass, PERSON);
+        add(schema, FACULTY, subClass, EMPLOYEE);
+        add(schema, PROFESSOR, subClass, FACULTY);
+        add(schema, FULL_PROFESSOR, subClass, PROFESSOR);
+        add(schema, ASSOCIATE_PROFESSOR, subClass, PROFESSOR);
+        add(schema, LECTURER, subClass, FACULTY);
+        add(schema, STUDENT, subClass, PERSON);
+        add(schema, GRADUATE_STUDENT, subClass, PERSON);
+        add(schema, UNDERGRADUATE_STUDENT, subClass, STUDENT);
+        add(schema, DEPARTMENT, subClass, ORGANIZATION);
+        add(schema, COURSE, subClass, WORK);
+        add(schema, GRADUATE_COURSE, subClass, COURSE);
+        add(schema, PUBLICATION, subClass, WORK);
+        
+        add(schema, WORKS_FOR, subProperty, MEMBER_OF);
+        add(schema, HEAD_OF, subProperty, WORKS_FOR);
+        add(schema, MEMBER_OF, domain, PERSON);
+        add(schema, MEMBER_OF, range, ORGANIZATION);
+        add(schema, TEACHER_OF, domain, FACULTY);
+        add(schema, TEACHER_OF, range, COURSE);
+        add(schema, TAKES_COURSE, domain, STUDENT);
+        add(schema, ADVISOR, domain, PERSON);
+        add(schema, ADVISOR, range, PROFESSOR);
+        add(schema, PUBLICATION_AUTHOR, domain, PUBLICATION);
+        add(schema, PUBLICATION_AUTHOR, range, PERSON);
+        
+        return schema;
+    }
+    
+    private static void add(Map<Long, Set<Triple>> schema, long subject, long predicate, long object) {
+        
+        Set<Triple> triples = schema.get(subject);
+        
+        if(triples == null) {
+            triples = new HashSet<>();
+            schema.put(subject, triples);
+        }
+        triples.add(new ETriple(subject, predicate, object, null));
+    }
+    
+    /**
+     * Write the triples of the provided number of departments as query results CSV, i.e. 
+     * subject,predicate,object,object_literal
+     * @param file
+     * @param departments
+     * @param compressed - gzip the file and add a header row like the exported BigQuery results
+     * @return the number of triples written
+     * @throws IOException
+     */
+    public int writeQueryResults(String file, int departments, boolean compressed) throws IOException {
+        
+        OutputStream out = new FileOutputStream(file);
+        
+        if(compressed) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        
+        int count = 0;
+        
+        try(PrintWriter writer = new PrintWriter(out)) {
+            
+            if(compressed) {
+                writer.println("subject,predicate,object,object_literal");
+            }
+            
+            for(int i = 0; i < departments; i++) {
+                count += this.department(writer);
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Generate a department, the numbers are close to the LUBM generator ranges
+     * @param writer
+     * @return
+     */
+    private int department(PrintWriter writer) {
+        
+        int count = 0;
+        
+        long department = nextId++;
+        count += this.write(writer, department, TYPE, DEPARTMENT);
+        
+        long[] faculty = new long[this.between(20, 30)];
+        long[] courses = new long[faculty.length * 2];
+        long[] graduateCourses = new long[faculty.length];
+        
+        for(int i = 0; i < courses.length; i++) {
+            courses[i] = nextId++;
+            count += this.write(writer, courses[i], TYPE, COURSE);
+        }
+        
+        for(int i = 0; i < graduateCourses.length; i++) {
+            graduateCourses[i] = nextId++;
+            count += this.write(writer, graduateCourses[i], TYPE, GRADUATE_COURSE);
+        }
+        
+        for(int i = 0; i < faculty.length; i++) {
+            
+            long member = nextId++;
+            faculty[i] = member;
+            
+            long type = (i < 7) ? FULL_PROFESSOR : ((i < 17) ? ASSOCIATE_PROFESSOR : LECTURER);
+            
+            count += this.write(writer, member, TYPE, type);
+            count += this.write(writer, member, (i == 0) ? HEAD_OF : WORKS_FOR, department);
+            count += this.write(writer, member, TEACHER_OF, courses[2 * i]);
+            count += this.write(writer, member, TEACHER_OF, graduateCourses[i]);
+            count += this.write(writer, member, NAME, "FacultyMember" + i);
+            count += this.write(writer, member, EMAIL_ADDRESS, "FacultyMember" + i + "@Department" + department + ".edu");
+            
+            for(int j = this.between(1, 10); j > 0; j--) {
+                long publication = nextId++;
+                count += this.write(writer, publication, TYPE, PUBLICATION);
+                count += this.write(writer, publication, PUBLICATION_AUTHOR, member);
+            }
+        }
+        
+        int undergraduates = faculty.length * this.between(8, 14);
+        
+        for(int i = 0; i < undergraduates; i++) {
+            count += this.student(writer, department, UNDERGRADUATE_STUDENT, courses, faculty, i);
+        }
+        
+        int graduates = faculty.length * this.between(3, 4);
+        
+        for(int i = 0; i < graduates; i++) {
+            count += this.student(writer, department, GRADUATE_STUDENT, graduateCourses, faculty, i);
+        }
+        
+        return count;
+    }
+    
+    private int student(PrintWriter writer, long department, long type, long[] courses, long[] faculty, int index) {
+        
+        int count = 0;
+        long student = nextId++;
+        
+        count += this.write(writer, student, TYPE, type);
+        count += this.write(writer, student, MEMBER_OF, department);
+        count += this.write(writer, student, NAME, "Student" + index);
+        
+        for(int j = this.between(2, 4); j > 0; j--) {
+            count += this.write(writer, student, TAKES_COURSE, courses[random.nextInt(courses.length)]);
+        }
+        
+        if((type == GRADUATE_STUDENT) || (random.nextInt(5) == 0)) {
+            count += this.write(writer, student, ADVISOR, faculty[random.nextInt(Math.min(17, faculty.length))]);
+        }
+        
+        return count;
+    }
+    
+    private int write(PrintWriter writer, long subject, long predicate, long object) {
+        writer.print(subject);
+        writer.print(',');
+        writer.print(predicate);
+        writer.print(',');
+        writer.print(object);
+        writer.println(',');
+        return 1;
+    }
+    
+    private int write(PrintWriter writer, long subject, long predicate, String literal) {
+        writer.println(new ETriple(subject, predicate, null, literal).toCsv());
+        return 1;
+    }
+    
+    private int between(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+}
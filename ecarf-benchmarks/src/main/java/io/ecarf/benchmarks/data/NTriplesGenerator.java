@@ -0,0 +1,242 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.benchmarks.data;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates reproducible N-Triples shaped like the LUBM university benchmark data, the same seed always generates 
+ * the same triples. Besides URIs the output has plain, language tagged and typed literals with escapes, and blank 
+ * nodes, so every branch of the N-Triples handling code is exercised.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class NTriplesGenerator {
+    
+    private static final String UB = "http://swat.cse.lehigh.edu/onto/univ-bench.owl#";
+    
+    private static final String TYPE = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
+    
+    private static final String XSD_INT = "<http://www.w3.org/2001/XMLSchema#int>";
+    
+    private static final String[] FACULTY = {"FullProfessor", "AssociateProfessor", "AssistantProfessor", "Lecturer"};
+    
+    private static final String[] WORDS = {"semantic", "web", "reasoning", "cloud", "query", "triple", "store", 
+        "ontology", "graph", "distributed", "inference", "scalable"};
+    
+    private final Random random;
+    
+    private int blankNodes;
+
+    /**
+     * @param seed
+     */
+    public NTriplesGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Write the triples of the provided number of departments to a gzip compressed N-Triples file
+     * @param file
+     * @param departments
+     * @return the number of triples written
+     * @throws IOException
+     */
+    public int write(String file, int departments) throws IOException {
+        
+        int count = 0;
+        
+        try(PrintWriter writer = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file), 64 * 1024)), "UTF-8"))) {
+            
+            for(int i = 0; i < departments; i++) {
+                count += this.department(writer, i / 15, i % 15);
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Generate URIs of the kind found in the data, e.g. for dictionary and URI splitting benchmarks
+     * @param count
+     * @return
+     */
+    public List<String> uris(int count) {
+        
+        List<String> uris = new ArrayList<>(count);
+        
+        for(int i = 0; i < count; i++) {
+            
+            String department = department(random.nextInt(100), random.nextInt(15));
+            
+            switch(random.nextInt(4)) {
+                case 0:
+                    uris.add(uri(department, "UndergraduateStudent", random.nextInt(500)));
+                    break;
+                    
+                case 1:
+                    uris.add(uri(department, FACULTY[random.nextInt(FACULTY.length)], random.nextInt(10)) + 
+                            "/Publication" + random.nextInt(20) + ">");
+                    break;
+                    
+                case 2:
+                    uris.add(uri(department, "Course", random.nextInt(60)));
+                    break;
+                    
+                default:
+                    uris.add("<" + UB + WORDS[random.nextInt(WORDS.length)] + ">");
+            }
+        }
+        
+        return uris;
+    }
+    
+    private int department(PrintWriter writer, int university, int index) {
+        
+        String department = department(university, index);
+        String departmentUri = "<" + department + ">";
+        String universityUri = "<http://www.University" + university + ".edu>";
+        
+        int count = 0;
+        
+        count += triple(writer, departmentUri, TYPE, ub("Department"));
+        count += triple(writer, departmentUri, ub("subOrganizationOf"), universityUri);
+        
+        int faculty = 20 + random.nextInt(11);
+        int courses = faculty * 2;
+        
+        for(int i = 0; i < courses; i++) {
+            String course = uri(department, "Course", i);
+            count += triple(writer, course, TYPE, ub("Course"));
+            count += triple(writer, course, ub("name"), literal("Course" + i));
+        }
+        
+        for(int i = 0; i < faculty; i++) {
+            
+            String kind = FACULTY[Math.min(i / 7, FACULTY.length - 1)];
+            String member = uri(department, kind, i);
+            
+            count += triple(writer, member, TYPE, ub(kind));
+            count += triple(writer, member, ub((i == 0) ? "headOf" : "worksFor"), departmentUri);
+            count += triple(writer, member, ub("teacherOf"), uri(department, "Course", 2 * i));
+            count += triple(writer, member, ub("name"), literal(kind + i));
+            count += triple(writer, member, ub("emailAddress"), literal(kind + i + "@" + department.substring(11)));
+            count += triple(writer, member, ub("age"), "\"" + (30 + random.nextInt(35)) + "\"^^" + XSD_INT);
+            count += triple(writer, member, ub("researchInterest"), this.sentence() + "@en");
+            
+            // an address as a blank node
+            String address = "_:address" + (blankNodes++);
+            count += triple(writer, member, ub("address"), address);
+            count += triple(writer, address, ub("city"), literal("City " + random.nextInt(100)));
+            
+            for(int j = 1 + random.nextInt(10); j > 0; j--) {
+                String publication = member.substring(0, member.length() - 1) + "/Publication" + j + ">";
+                count += triple(writer, publication, TYPE, ub("Publication"));
+                count += triple(writer, publication, ub("publicationAuthor"), member);
+                count += triple(writer, publication, ub("name"), this.sentence());
+            }
+        }
+        
+        int students = faculty * (8 + random.nextInt(7));
+        
+        for(int i = 0; i < students; i++) {
+            
+            String student = uri(department, "UndergraduateStudent", i);
+            
+            count += triple(writer, student, TYPE, ub("UndergraduateStudent"));
+            count += triple(writer, student, ub("memberOf"), departmentUri);
+            count += triple(writer, student, ub("name"), literal("UndergraduateStudent" + i));
+            
+            for(int j = 2 + random.nextInt(3); j > 0; j--) {
+                count += triple(writer, student, ub("takesCourse"), uri(department, "Course", random.nextInt(courses)));
+            }
+            
+            if(random.nextInt(5) == 0) {
+                count += triple(writer, student, ub("advisor"), 
+                        uri(department, FACULTY[random.nextInt(3)], random.nextInt(Math.min(21, faculty))));
+            }
+        }
+        
+        return count;
+    }
+    
+    private static String department(int university, int index) {
+        return "http://www.Department" + index + ".University" + university + ".edu";
+    }
+    
+    private static String uri(String department, String kind, int index) {
+        return "<" + department + "/" + kind + index + ">";
+    }
+    
+    private static String ub(String name) {
+        return "<" + UB + name + ">";
+    }
+    
+    private static String literal(String value) {
+        return "\"" + value + "\"";
+    }
+    
+    /**
+     * A literal of random words, some quoted with escapes
+     * @return
+     */
+    private String sentence() {
+        
+        StringBuilder sentence = new StringBuilder("\"");
+        
+        for(int i = 3 + random.nextInt(8); i > 0; i--) {
+            
+            String word = WORDS[random.nextInt(WORDS.length)];
+            
+            if(random.nextInt(10) == 0) {
+                sentence.append("\\\"").append(word).append("\\\"");
+                
+            } else {
+                sentence.append(word);
+            }
+            
+            sentence.append((i > 1) ? " " : ", \\u00E9t\\u00E9");
+        }
+        
+        return sentence.append('"').toString();
+    }
+    
+    private static int triple(PrintWriter writer, String subject, String predicate, String object) {
+        writer.print(subject);
+        writer.print(' ');
+        writer.print(predicate);
+        writer.print(' ');
+        writer.print(object);
+        writer.print(" .\n");
+        return 1;
+    }
+
+}
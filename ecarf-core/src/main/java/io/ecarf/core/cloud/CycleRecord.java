@@ -0,0 +1,143 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud;
+
+/**
+ * The number of triples a node has inferred in a reasoning cycle from the triples added since the watermark. 
+ * The record is stored as the name of an empty object, so all the records of a cycle can be read with a single 
+ * listing: [runId]_fixpoint_[cycle]_[inferred]_[watermark]_[node]
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class CycleRecord {
+    
+    private static final String FIXPOINT = "_fixpoint_";
+    
+    private static final char SEPARATOR = '_';
+    
+    private String node;
+    
+    private int cycle;
+    
+    private long inferred;
+    
+    private long watermark;
+
+    /**
+     * @param node - the id of the node
+     * @param cycle - the reasoning cycle, starting at zero
+     * @param inferred - the number of triples inferred and loaded during the cycle
+     * @param watermark - the time in milliseconds from which the cycle query included new triples
+     */
+    public CycleRecord(String node, int cycle, long inferred, long watermark) {
+        super();
+        this.node = node;
+        this.cycle = cycle;
+        this.inferred = inferred;
+        this.watermark = watermark;
+    }
+    
+    /**
+     * Get the name this record is stored as
+     * @param runId - the id of the reasoning job
+     * @return
+     */
+    public String toName(String runId) {
+        return getPrefix(runId, cycle) + inferred + SEPARATOR + watermark + SEPARATOR + node;
+    }
+    
+    /**
+     * Get the prefix of the names of all the records of a cycle
+     * @param runId
+     * @param cycle
+     * @return
+     */
+    public static String getPrefix(String runId, int cycle) {
+        return runId + FIXPOINT + cycle + SEPARATOR;
+    }
+    
+    /**
+     * Parse a record from its stored name
+     * @param runId
+     * @param name
+     * @return the record, or null if the name is not a record of the provided run
+     */
+    public static CycleRecord parse(String runId, String name) {
+        
+        String prefix = runId + FIXPOINT;
+        
+        if((name == null) || !name.startsWith(prefix)) {
+            return null;
+        }
+        
+        // the node id is last so it can contain the separator
+        String [] parts = name.substring(prefix.length()).split(Character.toString(SEPARATOR), 4);
+        
+        if(parts.length != 4) {
+            return null;
+        }
+        
+        try {
+            return new CycleRecord(parts[3], Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the node
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return the cycle
+     */
+    public int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * @return the inferred
+     */
+    public long getInferred() {
+        return inferred;
+    }
+
+    /**
+     * @return the watermark
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CycleRecord [node=" + node + ", cycle=" + cycle + ", inferred=" + inferred + ", watermark=" + watermark + "]";
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A location shared by all the reasoning nodes where each node publishes the number of triples
+ * it has inferred in each cycle
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public interface InferenceLedger {
+    
+    /**
+     * Publish the record of a cycle of this node
+     * @param record
+     * @throws IOException
+     */
+    public void publish(CycleRecord record) throws IOException;
+    
+    /**
+     * Get the records published so far by all the nodes for the provided cycle
+     * @param cycle
+     * @return
+     * @throws IOException
+     */
+    public List<CycleRecord> getRecords(int cycle) throws IOException;
+
+}
@@ -0,0 +1,49 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud;
+
+import io.cloudex.framework.cloud.entities.QueryStats;
+import io.ecarf.core.triple.ETripleBatch;
+
+import java.io.IOException;
+
+/**
+ * The results of a query job fetched one page at a time, so the pages can be processed while the rest of the
+ * results are still being downloaded. The pages are fetched by a single thread.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public interface QueryResultPages {
+    
+    /**
+     * Fetch the next page of results, blocks until the query job has completed
+     * @return the next page or null if there are no more pages
+     * @throws IOException
+     */
+    public ETripleBatch nextPage() throws IOException;
+    
+    /**
+     * @return the total rows and processed bytes of the query, available once the first page has been fetched
+     */
+    public QueryStats getQueryStats();
+
+}
@@ -0,0 +1,105 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.impl.google;
+
+import io.cloudex.framework.cloud.api.CloudService;
+import io.cloudex.framework.cloud.entities.StorageObject;
+import io.ecarf.core.cloud.CycleRecord;
+import io.ecarf.core.cloud.InferenceLedger;
+import io.ecarf.core.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ledger of empty objects in a cloud storage bucket, the records of a cycle are read by listing the bucket. 
+ * The listing can't be limited to a prefix so the cost of each read grows with the bucket, a small bucket 
+ * dedicated to the ledger keeps it cheap
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class CloudStorageInferenceLedger implements InferenceLedger {
+    
+    private CloudService cloud;
+    
+    private String bucket;
+    
+    private String runId;
+
+    /**
+     * @param cloud
+     * @param bucket - the bucket shared by all the nodes, ideally used only for the ledger
+     * @param runId - the id of the reasoning job
+     */
+    public CloudStorageInferenceLedger(CloudService cloud, String bucket, String runId) {
+        super();
+        this.cloud = cloud;
+        this.bucket = bucket;
+        this.runId = runId;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.InferenceLedger#publish(io.ecarf.core.cloud.CycleRecord)
+     */
+    @Override
+    public void publish(CycleRecord record) throws IOException {
+        
+        File file = new File(Utils.TEMP_FOLDER + record.toName(runId));
+        
+        file.createNewFile();
+        
+        try {
+            cloud.uploadFileToCloudStorage(file.getAbsolutePath(), bucket);
+            
+        } finally {
+            file.delete();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.InferenceLedger#getRecords(int)
+     */
+    @Override
+    public List<CycleRecord> getRecords(int cycle) throws IOException {
+        
+        String prefix = CycleRecord.getPrefix(runId, cycle);
+        
+        List<CycleRecord> records = new ArrayList<>();
+        
+        for(StorageObject object: cloud.listCloudStorageObjects(bucket)) {
+            
+            String name = object.getName();
+            
+            if((name != null) && name.startsWith(prefix)) {
+                CycleRecord record = CycleRecord.parse(runId, name);
+                if(record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        
+        return records;
+    }
+
+}
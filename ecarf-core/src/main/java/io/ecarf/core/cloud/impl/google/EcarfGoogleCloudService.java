@@ -22,6 +22,7 @@ package io.ecarf.core.cloud.impl.google;
 
 import io.cloudex.cloud.impl.google.GoogleCloudService;
 import io.cloudex.framework.cloud.entities.BigDataTable;
+import io.ecarf.core.cloud.QueryResultPages;
 import io.ecarf.core.term.TermCounter;
 
 import java.io.IOException;
@@ -69,5 +70,15 @@ public interface EcarfGoogleCloudService extends GoogleCloudService {
      */
     public Set<String> getSetFromCloudStorageFile(String filename, String bucket) throws IOException;
     
+    /**
+     * Get the results of a query job one page at a time instead of saving them to files, the pages can be 
+     * processed while the rest are being downloaded
+     * @param jobId
+     * @param pageSize - the maximum number of rows per page
+     * @return
+     * @throws IOException
+     */
+    public QueryResultPages getQueryResultPages(String jobId, int pageSize) throws IOException;
+    
 
 }
@@ -24,16 +24,21 @@ import io.cloudex.cloud.impl.google.GoogleCloudServiceImpl;
 import io.cloudex.cloud.impl.google.bigquery.BigQueryStreamable;
 import io.cloudex.framework.cloud.api.ApiUtils;
 import io.cloudex.framework.cloud.entities.BigDataTable;
+import io.cloudex.framework.cloud.entities.QueryStats;
 import io.cloudex.framework.utils.FileUtils;
+import io.ecarf.core.cloud.QueryResultPages;
 import io.ecarf.core.compress.NxGzipCallback;
 import io.ecarf.core.compress.NxGzipProcessor;
 import io.ecarf.core.compress.callback.StringEscapeCallback;
 import io.ecarf.core.compress.callback.TermCounterCallback;
 import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.triple.ETripleBatch;
+import io.ecarf.core.triple.TermType;
 import io.ecarf.core.triple.TripleUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -42,9 +47,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.api.client.util.Data;
 import com.google.api.services.bigquery.Bigquery;
+import com.google.api.services.bigquery.model.GetQueryResultsResponse;
+import com.google.api.services.bigquery.model.TableCell;
+import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableList;
 import com.google.api.services.bigquery.model.TableList.Tables;
+import com.google.api.services.bigquery.model.TableRow;
 
 /**
  * @author Omer Dawelbeit (omerio)
@@ -145,6 +155,131 @@ public class EcarfGoogleCloudServiceImpl extends GoogleCloudServiceImpl implemen
         }
     }
     
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService#getQueryResultPages(java.lang.String, int)
+     */
+    @Override
+    public QueryResultPages getQueryResultPages(String jobId, int pageSize) throws IOException {
+        return new BigQueryResultPages(jobId, pageSize);
+    }
+    
+    /**
+     * Pages through the results of a query job using the BigQuery getQueryResults API
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private class BigQueryResultPages implements QueryResultPages {
+        
+        private final String jobId;
+        
+        private final long pageSize;
+        
+        private final QueryStats stats = new QueryStats();
+        
+        private String pageToken;
+        
+        private boolean done;
+        
+        // the positions of the subject, predicate, object and object_literal columns
+        private int [] columns;
+        
+        BigQueryResultPages(String jobId, int pageSize) {
+            this.jobId = jobId;
+            this.pageSize = pageSize;
+        }
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.cloud.QueryResultPages#nextPage()
+         */
+        @Override
+        public ETripleBatch nextPage() throws IOException {
+            
+            if(done) {
+                return null;
+            }
+            
+            GetQueryResultsResponse response;
+            
+            while(true) {
+                
+                response = getBigquery().jobs().getQueryResults(getProjectId(), jobId)
+                        .setPageToken(pageToken).setMaxResults(pageSize)
+                        .setOauthToken(getOAuthToken()).execute();
+                
+                if(Boolean.TRUE.equals(response.getJobComplete())) {
+                    break;
+                }
+                
+                log.info("Query job " + jobId + " is not completed yet, waiting");
+                ApiUtils.block(getApiRecheckDelay());
+            }
+            
+            if(columns == null) {
+                
+                stats.setTotalRows(response.getTotalRows());
+                stats.setTotalProcessedBytes(response.getTotalBytesProcessed());
+                
+                List<String> names = new ArrayList<>();
+                for(TableFieldSchema field: response.getSchema().getFields()) {
+                    names.add(field.getName());
+                }
+                
+                columns = new int [] {names.indexOf(TermType.subject), names.indexOf(TermType.predicate), 
+                        names.indexOf(TermType.object), names.indexOf(TermType.object_literal)};
+            }
+            
+            pageToken = response.getPageToken();
+            done = (pageToken == null);
+            
+            List<TableRow> rows = response.getRows();
+            
+            ETripleBatch page = new ETripleBatch((rows == null) ? 0 : rows.size());
+            
+            if(rows != null) {
+                
+                for(TableRow row: rows) {
+                    
+                    List<TableCell> cells = row.getF();
+                    
+                    long subject = Long.parseLong(this.getValue(cells, columns[0]));
+                    long predicate = Long.parseLong(this.getValue(cells, columns[1]));
+                    String object = this.getValue(cells, columns[2]);
+                    
+                    if(object != null) {
+                        page.add(subject, predicate, Long.parseLong(object));
+                        
+                    } else {
+                        page.addLiteral(subject, predicate, this.getValue(cells, columns[3]));
+                    }
+                }
+            }
+            
+            return page;
+        }
+        
+        /**
+         * @return the value of the cell as a string or null if the column is not selected or the value is null
+         */
+        private String getValue(List<TableCell> cells, int column) {
+            
+            if(column < 0) {
+                return null;
+            }
+            
+            Object value = cells.get(column).getV();
+            
+            return ((value == null) || Data.isNull(value)) ? null : value.toString();
+        }
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.cloud.QueryResultPages#getQueryStats()
+         */
+        @Override
+        public QueryStats getQueryStats() {
+            return stats;
+        }
+    }
+    
     /**
      * Delete BigQuery tables that match the provided string
      * @param datasetId
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.impl.local;
+
+import io.ecarf.core.cloud.CycleRecord;
+import io.ecarf.core.cloud.InferenceLedger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ledger of empty files in a local folder, which can be shared by several processes. A local 
+ * stand-in for {@link io.ecarf.core.cloud.impl.google.CloudStorageInferenceLedger}
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LocalInferenceLedger implements InferenceLedger {
+    
+    private File folder;
+    
+    private String runId;
+
+    /**
+     * @param folder - the shared folder, created if it doesn't exist
+     * @param runId - the id of the reasoning job
+     * @throws IOException 
+     */
+    public LocalInferenceLedger(String folder, String runId) throws IOException {
+        super();
+        this.folder = new File(folder);
+        this.runId = runId;
+        
+        if(!this.folder.isDirectory() && !this.folder.mkdirs()) {
+            throw new IOException("Failed to create ledger folder: " + folder);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.InferenceLedger#publish(io.ecarf.core.cloud.CycleRecord)
+     */
+    @Override
+    public void publish(CycleRecord record) throws IOException {
+        
+        File file = new File(folder, record.toName(runId));
+        
+        if(!file.createNewFile()) {
+            throw new IOException("Record already published: " + record);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.InferenceLedger#getRecords(int)
+     */
+    @Override
+    public List<CycleRecord> getRecords(int cycle) throws IOException {
+        
+        String prefix = CycleRecord.getPrefix(runId, cycle);
+        
+        String [] names = folder.list();
+        
+        if(names == null) {
+            throw new IOException("Failed to list ledger folder: " + folder);
+        }
+        
+        List<CycleRecord> records = new ArrayList<>();
+        
+        for(String name: names) {
+            if(name.startsWith(prefix)) {
+                CycleRecord record = CycleRecord.parse(runId, name);
+                if(record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        
+        return records;
+    }
+
+}
@@ -0,0 +1,621 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.impl.local;
+
+import io.cloudex.framework.cloud.entities.QueryStats;
+import io.ecarf.core.cloud.QueryResultPages;
+import io.ecarf.core.cloud.impl.local.TripleQuery.Condition;
+import io.ecarf.core.triple.ETripleBatch;
+import io.ecarf.core.triple.ETripleReader;
+import io.ecarf.core.triple.TermType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * An embedded, in memory columnar store of encoded triples that can stand in for the BigQuery table used by the 
+ * reasoning tasks, so a whole reasoning run can be done in process on one machine and without any network round 
+ * trips, e.g. for testing or profiling. 
+ * 
+ * It follows the same contract as the cloud service:
+ * - triples are loaded in batches (from objects or encoded CSV files), each batch is kept as an immutable 
+ * {@link TripleSegment} stamped with its load time, so relative table decorators select the triples added 
+ * during the last n milliseconds.
+ * - {@link #startBigDataQuery(String)} runs a query in the shape generated by 
+ * {@link io.ecarf.core.reason.rulebased.query.QueryGenerator} and returns a job id. 
+ * - {@link #saveBigQueryResultsToFile(String, String, int, int)} writes the results as CSV. Up to the direct 
+ * download limit the results are written to one plain file, larger results are written to multiple gzip 
+ * files with a header row, as is the case for results exported through cloud storage. 
+ * {@link #getQueryResultPages(String, int)} returns the results a page at a time instead.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LocalTripleStore {
+    
+    private final static Log log = LogFactory.getLog(LocalTripleStore.class);
+    
+    private static final String JOB_PREFIX = "local_job_";
+    
+    private static final String CSV_GZ = ".csv.gz";
+    
+    private final String table;
+    
+    private final List<TripleSegment> segments = new CopyOnWriteArrayList<>();
+    
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    
+    private final AtomicLong jobCount = new AtomicLong();
+
+    /**
+     * @param table - the name of the table held by this store
+     */
+    public LocalTripleStore(String table) {
+        super();
+        this.table = table;
+    }
+    
+    /**
+     * Load the provided encoded triples
+     * @param triples
+     * @return the number of triples loaded
+     */
+    public int load(Collection<? extends Triple> triples) {
+        
+        SegmentBuilder builder = new SegmentBuilder(triples.size());
+        
+        for(Triple triple: triples) {
+            builder.add(triple);
+        }
+        
+        return this.add(builder);
+    }
+    
+    /**
+     * Load the encoded triples in the provided files, the files can be binary, plain or gzip compressed CSV
+     * @param files
+     * @return the number of triples loaded
+     * @throws IOException
+     */
+    public int loadFiles(List<String> files) throws IOException {
+        
+        SegmentBuilder builder = new SegmentBuilder(1024);
+        
+        for(String file: files) {
+            
+            try(ETripleReader reader = TripleUtils.openEncodedTriples(file, false)) {
+                
+                while(reader.next()) {
+                    builder.add(reader.getTriple());
+                }
+            }
+        }
+        
+        return this.add(builder);
+    }
+    
+    /**
+     * Add a new segment
+     * @param builder
+     * @return
+     */
+    private int add(SegmentBuilder builder) {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        int count = builder.size + builder.literalSize;
+        
+        if(count > 0) {
+            
+            TripleSegment segment = builder.build(System.currentTimeMillis());
+            this.segments.add(segment);
+            
+            log.debug("TIMER# loaded " + count + " triples into local table: " + table + 
+                    ", memory usage: " + segment.getMemoryUsage() + " bytes, in: " + stopwatch);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Run the provided query, the results are kept until saved by calling 
+     * {@link #saveBigQueryResultsToFile(String, String, int, int)}
+     * @param query
+     * @return the job id
+     * @throws IllegalArgumentException if the query is not supported
+     */
+    public String startBigDataQuery(String query) {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        TripleQuery tripleQuery = TripleQuery.parse(query);
+        
+        if(!this.table.equals(tripleQuery.getTable())) {
+            throw new IllegalArgumentException("Unknown table: " + tripleQuery.getTable() + ", expected: " + this.table);
+        }
+        
+        long since = (tripleQuery.getDecoratorMillis() < 0) ? Long.MIN_VALUE : 
+            (System.currentTimeMillis() - tripleQuery.getDecoratorMillis());
+        
+        Job job = new Job(tripleQuery.getSelect());
+        
+        long scanned = 0;
+        
+        for(TripleSegment segment: this.segments) {
+            
+            if(segment.getLoadTime() >= since) {
+                
+                BitSet rows = new BitSet(segment.size());
+                BitSet literalRows = new BitSet(segment.literalSize());
+                
+                for(Condition condition: tripleQuery.getConditions()) {
+                    segment.match(condition, rows, literalRows);
+                }
+                
+                job.segments.add(segment);
+                job.rows.add(rows);
+                job.literalRows.add(literalRows);
+                job.totalRows += rows.cardinality() + literalRows.cardinality();
+                
+                scanned += segment.size() + segment.literalSize();
+            }
+        }
+        
+        // as billed by BigQuery, 8 bytes per integer column for each of the scanned rows
+        job.processedBytes = scanned * 8 * TermType.values().length;
+        
+        String jobId = JOB_PREFIX + this.jobCount.incrementAndGet();
+        
+        this.jobs.put(jobId, job);
+        
+        log.debug("TIMER# completed query job: " + jobId + ", rows: " + job.totalRows + ", in: " + stopwatch);
+        
+        return jobId;
+    }
+    
+    /**
+     * Save the results of the provided query job to local files
+     * @param jobId
+     * @param filename - the results filename prefix
+     * @param files - the number of files to use for results larger than the direct download limit
+     * @param directDownloadLimit - results of more rows than this are compressed and split into files
+     * @return the query stats including the output files
+     * @throws IOException
+     */
+    public QueryStats saveBigQueryResultsToFile(String jobId, String filename, int files, int directDownloadLimit) 
+            throws IOException {
+        
+        Job job = this.jobs.remove(jobId);
+        
+        if(job == null) {
+            throw new IOException("Unknown job id: " + jobId);
+        }
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        List<String> outputFiles = new ArrayList<>();
+        
+        if(job.totalRows > 0) {
+            
+            boolean compressed = job.totalRows > directDownloadLimit;
+            
+            if(compressed) {
+                
+                files = (int) Math.max(1, Math.min(files, job.totalRows));
+                
+                for(int i = 0; i < files; i++) {
+                    outputFiles.add(FilenameUtils.getLocalFilePath(filename + "_" + i + CSV_GZ));
+                }
+                
+            } else {
+                outputFiles.add(FilenameUtils.getLocalFilePath(filename));
+            }
+            
+            this.write(job, outputFiles, compressed);
+        }
+        
+        QueryStats stats = new QueryStats();
+        stats.setTotalRows(BigInteger.valueOf(job.totalRows));
+        stats.setTotalProcessedBytes(job.processedBytes);
+        stats.setOutputFiles(outputFiles);
+        
+        log.debug("TIMER# saved query results of job: " + jobId + " to files: " + outputFiles + ", in: " + stopwatch);
+        
+        return stats;
+    }
+    
+    /**
+     * Get the results of the provided query job one page at a time instead of saving them to files
+     * @param jobId
+     * @param pageSize - the maximum number of rows per page
+     * @return the result pages
+     * @throws IOException
+     */
+    public QueryResultPages getQueryResultPages(String jobId, int pageSize) throws IOException {
+        
+        Job job = this.jobs.remove(jobId);
+        
+        if(job == null) {
+            throw new IOException("Unknown job id: " + jobId);
+        }
+        
+        return new JobResultPages(job, pageSize);
+    }
+    
+    /**
+     * Write the query results to the provided files, the rows are split evenly between the files
+     * @param job
+     * @param files
+     * @param compressed
+     * @throws IOException
+     */
+    private void write(Job job, List<String> files, boolean compressed) throws IOException {
+        
+        String header = StringUtils.join(job.select, ',');
+        
+        long rowsPerFile = (job.totalRows + files.size() - 1) / files.size();
+        long written = 0;
+        
+        PrintWriter writer = null;
+        
+        try {
+            
+            for(int i = 0; i < job.segments.size(); i++) {
+                
+                TripleSegment segment = job.segments.get(i);
+                
+                BitSet rows = job.rows.get(i);
+                
+                for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    
+                    writer = this.getWriter(writer, files, written++, rowsPerFile, compressed, header);
+                    
+                    this.write(writer, job.select, segment.getSubject(row), segment.getPredicate(row), 
+                            segment.getObject(row), null);
+                }
+                
+                rows = job.literalRows.get(i);
+                
+                for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    
+                    writer = this.getWriter(writer, files, written++, rowsPerFile, compressed, header);
+                    
+                    this.write(writer, job.select, segment.getLiteralSubject(row), segment.getLiteralPredicate(row), 
+                            0, segment.getLiteral(row));
+                }
+            }
+            
+        } finally {
+            if(writer != null) {
+                writer.close();
+            }
+        }
+    }
+    
+    /**
+     * Return the writer for the row number, moving to the next file if the current one is full
+     */
+    private PrintWriter getWriter(PrintWriter writer, List<String> files, long row, long rowsPerFile, 
+            boolean compressed, String header) throws IOException {
+        
+        if((row % rowsPerFile) == 0) {
+            
+            if(writer != null) {
+                writer.close();
+            }
+            
+            OutputStream out = new FileOutputStream(files.get((int) (row / rowsPerFile)));
+            
+            if(compressed) {
+                out = new GZIPOutputStream(out, Constants.GZIP_BUF_SIZE);
+            }
+            
+            writer = new PrintWriter(new BufferedOutputStream(out, Constants.GZIP_BUF_SIZE));
+            
+            if(compressed) {
+                writer.println(header);
+            }
+        }
+        
+        return writer;
+    }
+    
+    /**
+     * Write the selected columns of a row as a CSV line
+     */
+    private void write(PrintWriter writer, List<String> select, long subject, long predicate, long object, 
+            String literal) {
+        
+        for(int i = 0; i < select.size(); i++) {
+            
+            if(i > 0) {
+                writer.print(',');
+            }
+            
+            switch(select.get(i)) {
+            
+            case TermType.subject:
+                writer.print(subject);
+                break;
+                
+            case TermType.predicate:
+                writer.print(predicate);
+                break;
+                
+            case TermType.object:
+                if(literal == null) {
+                    writer.print(object);
+                }
+                break;
+                
+            case TermType.object_literal:
+                if(literal != null) {
+                    writer.print(StringEscapeUtils.escapeCsv(literal));
+                }
+                break;
+            }
+        }
+        
+        writer.println();
+    }
+    
+    /**
+     * @return the number of triples in this store
+     */
+    public long size() {
+        
+        long size = 0;
+        
+        for(TripleSegment segment: this.segments) {
+            size += segment.size() + segment.literalSize();
+        }
+        
+        return size;
+    }
+    
+    /**
+     * @return the approximate number of bytes used by this store
+     */
+    public long getMemoryUsage() {
+        
+        long bytes = 0;
+        
+        for(TripleSegment segment: this.segments) {
+            bytes += segment.getMemoryUsage();
+        }
+        
+        return bytes;
+    }
+
+    /**
+     * @return the table
+     */
+    public String getTable() {
+        return table;
+    }
+    
+    /**
+     * Pages through the matched rows of a job, the rows with resource objects of each segment then its literal rows
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class JobResultPages implements QueryResultPages {
+        
+        private final Job job;
+        
+        private final int pageSize;
+        
+        private final QueryStats stats = new QueryStats();
+        
+        private int segment;
+        
+        private boolean literals;
+        
+        private int row;
+        
+        JobResultPages(Job job, int pageSize) {
+            this.job = job;
+            this.pageSize = Math.max(pageSize, 1);
+            this.stats.setTotalRows(BigInteger.valueOf(job.totalRows));
+            this.stats.setTotalProcessedBytes(job.processedBytes);
+        }
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.cloud.QueryResultPages#nextPage()
+         */
+        @Override
+        public ETripleBatch nextPage() {
+            
+            if(segment == job.segments.size()) {
+                return null;
+            }
+            
+            ETripleBatch page = new ETripleBatch((int) Math.min(pageSize, job.totalRows));
+            
+            while((segment < job.segments.size()) && (page.size() < pageSize)) {
+                
+                TripleSegment tripleSegment = job.segments.get(segment);
+                
+                BitSet rows = literals ? job.literalRows.get(segment) : job.rows.get(segment);
+                
+                row = rows.nextSetBit(row);
+                
+                if(row < 0) {
+                    
+                    if(literals) {
+                        segment++;
+                    }
+                    
+                    literals = !literals;
+                    row = 0;
+                    
+                } else {
+                    
+                    if(literals) {
+                        page.addLiteral(tripleSegment.getLiteralSubject(row), tripleSegment.getLiteralPredicate(row), 
+                                tripleSegment.getLiteral(row));
+                        
+                    } else {
+                        page.add(tripleSegment.getSubject(row), tripleSegment.getPredicate(row), 
+                                tripleSegment.getObject(row));
+                    }
+                    
+                    row++;
+                }
+            }
+            
+            return page;
+        }
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.cloud.QueryResultPages#getQueryStats()
+         */
+        @Override
+        public QueryStats getQueryStats() {
+            return stats;
+        }
+    }
+    
+    /**
+     * The results of a query that are yet to be saved
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class Job {
+        
+        private final List<String> select;
+        
+        private final List<TripleSegment> segments = new ArrayList<>();
+        
+        private final List<BitSet> rows = new ArrayList<>();
+        
+        private final List<BitSet> literalRows = new ArrayList<>();
+        
+        private long totalRows;
+        
+        private long processedBytes;
+        
+        Job(List<String> select) {
+            this.select = select;
+        }
+    }
+    
+    /**
+     * Collects the terms of the triples of a new segment in growable arrays
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class SegmentBuilder {
+        
+        private long[] subjects;
+        
+        private long[] predicates;
+        
+        private long[] objects;
+        
+        private int size;
+        
+        private long[] literalSubjects = new long[16];
+        
+        private long[] literalPredicates = new long[16];
+        
+        private String[] literals = new String[16];
+        
+        private int literalSize;
+        
+        SegmentBuilder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            this.subjects = new long[capacity];
+            this.predicates = new long[capacity];
+            this.objects = new long[capacity];
+        }
+        
+        void add(Triple triple) {
+            
+            if(!triple.isEncoded()) {
+                throw new IllegalArgumentException("Only encoded triples are supported: " + triple);
+            }
+            
+            long subject = (Long) triple.getSubject();
+            long predicate = (Long) triple.getPredicate();
+            
+            if(triple.getObject() != null) {
+                
+                if(size == subjects.length) {
+                    int capacity = size << 1;
+                    subjects = Arrays.copyOf(subjects, capacity);
+                    predicates = Arrays.copyOf(predicates, capacity);
+                    objects = Arrays.copyOf(objects, capacity);
+                }
+                
+                subjects[size] = subject;
+                predicates[size] = predicate;
+                objects[size] = (Long) triple.getObject();
+                size++;
+                
+            } else {
+                
+                if(literalSize == literals.length) {
+                    int capacity = literalSize << 1;
+                    literalSubjects = Arrays.copyOf(literalSubjects, capacity);
+                    literalPredicates = Arrays.copyOf(literalPredicates, capacity);
+                    literals = Arrays.copyOf(literals, capacity);
+                }
+                
+                literalSubjects[literalSize] = subject;
+                literalPredicates[literalSize] = predicate;
+                literals[literalSize] = StringUtils.defaultString(triple.getObjectLiteral());
+                literalSize++;
+            }
+        }
+        
+        TripleSegment build(long loadTime) {
+            return new TripleSegment(subjects, predicates, objects, size, literalSubjects, literalPredicates, 
+                    literals, literalSize, loadTime);
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.impl.local;
+
+import io.ecarf.core.triple.TermType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed encoded triples query in the shape generated by {@link io.ecarf.core.reason.rulebased.query.QueryGenerator} 
+ * and {@link io.ecarf.core.reason.rulebased.GenericRule}, i.e.
+ * 
+ * select subject, predicate, object, object_literal from [table@-60000-] where (predicate IN (1,2)) OR 
+ *      (object=3 and predicate=0);
+ *      
+ * The where clause is a disjunction of conjunctions of column=value or column IN (values) conditions on the
+ * subject, predicate and object columns. The table can have a relative time decorator, in which case only 
+ * the triples added during the last n milliseconds are queried.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+class TripleQuery {
+    
+    private static final Pattern QUERY = 
+            Pattern.compile("(?is)^\\s*select\\s+(.+?)\\s+from\\s+(\\S+)\\s+where\\s+(.+?)\\s*;?\\s*$");
+    
+    private static final Pattern TABLE = Pattern.compile("^\\[?([^\\[\\]@]+)(?:@-(\\d+)-)?\\]?$");
+    
+    private static final Pattern IN = Pattern.compile("(?is)^(\\w+)\\s+IN\\s*\\((.*)\\)$");
+    
+    private static final Pattern EQUALS = Pattern.compile("^(\\w+)\\s*=\\s*(\\S+)$");
+    
+    private static final Pattern OR = Pattern.compile("(?i)\\s+OR\\s+");
+    
+    private static final Pattern AND = Pattern.compile("(?i)\\s+AND\\s+");
+    
+    private final List<String> select;
+    
+    private final String table;
+    
+    private final long decoratorMillis;
+    
+    private final List<Condition> conditions;
+
+    /**
+     * @param select
+     * @param table
+     * @param decoratorMillis
+     * @param conditions
+     */
+    private TripleQuery(List<String> select, String table, long decoratorMillis, List<Condition> conditions) {
+        this.select = select;
+        this.table = table;
+        this.decoratorMillis = decoratorMillis;
+        this.conditions = conditions;
+    }
+    
+    /**
+     * Parse the provided query
+     * @param query
+     * @return
+     * @throws IllegalArgumentException if the query is not in a supported shape
+     */
+    static TripleQuery parse(String query) {
+        
+        Matcher matcher = QUERY.matcher(query);
+        
+        if(!matcher.matches()) {
+            throw new IllegalArgumentException("Unsupported query: " + query);
+        }
+        
+        List<String> select = new ArrayList<>();
+        
+        for(String column: matcher.group(1).split(",")) {
+            column = column.trim();
+            
+            if(!isColumn(column) && !TermType.object_literal.equals(column)) {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+            select.add(column);
+        }
+        
+        Matcher table = TABLE.matcher(matcher.group(2));
+        
+        if(!table.matches()) {
+            throw new IllegalArgumentException("Unsupported table: " + matcher.group(2));
+        }
+        
+        long decoratorMillis = (table.group(2) == null) ? -1 : Long.parseLong(table.group(2));
+        
+        List<Condition> conditions = new ArrayList<>();
+        
+        for(String disjunct: OR.split(matcher.group(3))) {
+            conditions.add(Condition.parse(disjunct));
+        }
+        
+        return new TripleQuery(select, table.group(1), decoratorMillis, conditions);
+    }
+    
+    /**
+     * @param column
+     * @return true if the column is one of the encoded subject, predicate or object columns
+     */
+    private static boolean isColumn(String column) {
+        return TermType.subject.equals(column) || TermType.predicate.equals(column) || 
+                TermType.object.equals(column);
+    }
+    
+    /**
+     * @return the select
+     */
+    List<String> getSelect() {
+        return select;
+    }
+
+    /**
+     * @return the table
+     */
+    String getTable() {
+        return table;
+    }
+
+    /**
+     * @return the relative decorator in milliseconds or -1 if the table is not decorated
+     */
+    long getDecoratorMillis() {
+        return decoratorMillis;
+    }
+
+    /**
+     * @return the conditions
+     */
+    List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * A conjunction of conditions, the values of each column are sorted, null if the column has no condition
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    static class Condition {
+        
+        long[] subjects;
+        
+        long[] predicates;
+        
+        long[] objects;
+        
+        /**
+         * Parse a conjunction, e.g. (object=3 and predicate IN (0,1))
+         * @param text
+         * @return
+         */
+        static Condition parse(String text) {
+            
+            text = text.trim();
+            
+            while(isEnclosed(text)) {
+                text = text.substring(1, text.length() - 1).trim();
+            }
+            
+            Map<String, Set<Long>> values = new HashMap<>();
+            
+            for(String part: AND.split(text)) {
+                
+                part = part.trim();
+                
+                String column;
+                String[] terms;
+                
+                Matcher matcher = IN.matcher(part);
+                
+                if(matcher.matches()) {
+                    column = matcher.group(1);
+                    terms = matcher.group(2).split(",");
+                    
+                } else if((matcher = EQUALS.matcher(part)).matches()) {
+                    column = matcher.group(1);
+                    terms = new String[] {matcher.group(2)};
+                    
+                } else {
+                    throw new IllegalArgumentException("Unsupported condition: " + part);
+                }
+                
+                if(!isColumn(column)) {
+                    throw new IllegalArgumentException("Unsupported condition column: " + column);
+                }
+                
+                Set<Long> columnValues = new HashSet<>();
+                
+                for(String term: terms) {
+                    try {
+                        columnValues.add(Long.parseLong(term.trim()));
+                        
+                    } catch(NumberFormatException e) {
+                        throw new IllegalArgumentException("Only encoded terms are supported: " + term, e);
+                    }
+                }
+                
+                Set<Long> existing = values.get(column);
+                
+                if(existing == null) {
+                    values.put(column, columnValues);
+                    
+                } else {
+                    // column = a and column = b
+                    existing.retainAll(columnValues);
+                }
+            }
+            
+            Condition condition = new Condition();
+            condition.subjects = toArray(values.get(TermType.subject));
+            condition.predicates = toArray(values.get(TermType.predicate));
+            condition.objects = toArray(values.get(TermType.object));
+            
+            return condition;
+        }
+        
+        /**
+         * @return true if the text is enclosed in a pair of matching brackets
+         */
+        private static boolean isEnclosed(String text) {
+            
+            if(!text.startsWith("(")) {
+                return false;
+            }
+            
+            int depth = 0;
+            
+            for(int i = 0; i < text.length(); i++) {
+                
+                char chr = text.charAt(i);
+                
+                if(chr == '(') {
+                    depth++;
+                    
+                } else if((chr == ')') && (--depth == 0)) {
+                    return i == (text.length() - 1);
+                }
+            }
+            
+            return false;
+        }
+        
+        /**
+         * Check if the triple matches this condition
+         * @return
+         */
+        boolean matches(long subject, long predicate, long object) {
+            return matches(subjects, subject) && matches(predicates, predicate) && matches(objects, object);
+        }
+        
+        /**
+         * @return true if the values are null (no condition) or contain the value
+         */
+        static boolean matches(long[] values, long value) {
+            return (values == null) || (Arrays.binarySearch(values, value) >= 0);
+        }
+        
+        private static long[] toArray(Set<Long> values) {
+            
+            if(values == null) {
+                return null;
+            }
+            
+            long[] array = new long[values.size()];
+            int i = 0;
+            
+            for(Long value: values) {
+                array[i++] = value;
+            }
+            
+            Arrays.sort(array);
+            
+            return array;
+        }
+    }
+
+}
@@ -0,0 +1,360 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.impl.local;
+
+import io.ecarf.core.cloud.impl.local.TripleQuery.Condition;
+import io.ecarf.core.utils.PackedLongColumn;
+
+import java.util.BitSet;
+
+/**
+ * An immutable batch of encoded triples loaded into a {@link LocalTripleStore} at the same time. The triples
+ * are stored in subject, predicate, object order as compressed columns, two permutation indexes hold the row 
+ * numbers in predicate, object, subject and object, subject, predicate order, so a lookup by any of the terms is 
+ * a binary search. Triples with a literal object are kept separately in predicate, subject order.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+class TripleSegment {
+    
+    private final long loadTime;
+    
+    private final PackedLongColumn subjects;
+    
+    private final PackedLongColumn predicates;
+    
+    private final PackedLongColumn objects;
+    
+    private final int[] pos;
+    
+    private final int[] osp;
+    
+    private final PackedLongColumn literalSubjects;
+    
+    private final PackedLongColumn literalPredicates;
+    
+    private final String[] literals;
+    
+    /**
+     * 
+     * @param subjects
+     * @param predicates
+     * @param objects
+     * @param size - the number of triples with a resource object
+     * @param literalSubjects
+     * @param literalPredicates
+     * @param literals
+     * @param literalSize - the number of triples with a literal object
+     * @param loadTime
+     */
+    TripleSegment(long[] subjects, long[] predicates, long[] objects, int size, 
+            long[] literalSubjects, long[] literalPredicates, String[] literals, int literalSize, long loadTime) {
+        
+        this.loadTime = loadTime;
+        
+        int[] spo = sort(size, subjects, predicates, objects);
+        
+        long[] s = reorder(subjects, spo);
+        long[] p = reorder(predicates, spo);
+        long[] o = reorder(objects, spo);
+        
+        this.pos = sort(size, p, o, s);
+        this.osp = sort(size, o, s, p);
+        
+        this.subjects = new PackedLongColumn(s);
+        this.predicates = new PackedLongColumn(p);
+        this.objects = new PackedLongColumn(o);
+        
+        int[] ps = sort(literalSize, literalPredicates, literalSubjects, null);
+        
+        this.literalSubjects = new PackedLongColumn(reorder(literalSubjects, ps));
+        this.literalPredicates = new PackedLongColumn(reorder(literalPredicates, ps));
+        this.literals = new String[literalSize];
+        
+        for(int i = 0; i < literalSize; i++) {
+            this.literals[i] = literals[ps[i]];
+        }
+    }
+    
+    /**
+     * Find the triples matching the provided condition
+     * @param condition
+     * @param rows - the matching resource triples are set in this bitset
+     * @param literalRows - the matching literal triples are set in this bitset
+     */
+    void match(Condition condition, BitSet rows, BitSet literalRows) {
+        
+        if(condition.subjects != null) {
+            
+            for(long subject: condition.subjects) {
+                
+                int end = bound(null, subjects, subject, null, 0, true);
+                
+                for(int row = bound(null, subjects, subject, null, 0, false); row < end; row++) {
+                    if(Condition.matches(condition.predicates, predicates.get(row)) && 
+                            Condition.matches(condition.objects, objects.get(row))) {
+                        rows.set(row);
+                    }
+                }
+            }
+            
+        } else if(condition.predicates != null) {
+            
+            for(long predicate: condition.predicates) {
+                
+                if(condition.objects == null) {
+                    this.set(pos, predicates, predicate, null, 0, rows);
+                    
+                } else {
+                    
+                    for(long object: condition.objects) {
+                        this.set(pos, predicates, predicate, objects, object, rows);
+                    }
+                }
+            }
+            
+        } else if(condition.objects != null) {
+            
+            for(long object: condition.objects) {
+                this.set(osp, objects, object, null, 0, rows);
+            }
+            
+        } else {
+            rows.set(0, this.size());
+        }
+        
+        // literals can't match an object condition
+        if(condition.objects == null) {
+            
+            if(condition.predicates != null) {
+                
+                for(long predicate: condition.predicates) {
+                    
+                    int end = bound(null, literalPredicates, predicate, null, 0, true);
+                    
+                    for(int row = bound(null, literalPredicates, predicate, null, 0, false); row < end; row++) {
+                        if(Condition.matches(condition.subjects, literalSubjects.get(row))) {
+                            literalRows.set(row);
+                        }
+                    }
+                }
+                
+            } else {
+                
+                for(int row = 0; row < literals.length; row++) {
+                    if(Condition.matches(condition.subjects, literalSubjects.get(row))) {
+                        literalRows.set(row);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Set all the rows of the permutation index that have the provided first (and second) values
+     */
+    private void set(int[] index, PackedLongColumn first, long firstValue, PackedLongColumn second, long secondValue, 
+            BitSet rows) {
+        
+        int end = bound(index, first, firstValue, second, secondValue, true);
+        
+        for(int i = bound(index, first, firstValue, second, secondValue, false); i < end; i++) {
+            rows.set(index[i]);
+        }
+    }
+    
+    /**
+     * Binary search for the first position of the index with values greater than or equal to (or greater than 
+     * if upper is true) the provided values
+     * @param index - the permutation index or null for the natural order
+     * @param first - the first column of the index order
+     * @param firstValue
+     * @param second - the second column of the index order or null to search on the first only
+     * @param secondValue
+     * @param upper - true for the upper bound, false for the lower bound
+     * @return
+     */
+    private static int bound(int[] index, PackedLongColumn first, long firstValue, PackedLongColumn second, 
+            long secondValue, boolean upper) {
+        
+        int low = 0;
+        int high = first.size();
+        
+        while(low < high) {
+            
+            int mid = (low + high) >>> 1;
+            int row = (index == null) ? mid : index[mid];
+            
+            int compare = Long.compare(first.get(row), firstValue);
+            
+            if((compare == 0) && (second != null)) {
+                compare = Long.compare(second.get(row), secondValue);
+            }
+            
+            if((compare < 0) || (upper && (compare == 0))) {
+                low = mid + 1;
+                
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Sort the row numbers by the values of the provided columns using a merge sort
+     * @param size
+     * @param first
+     * @param second
+     * @param third - optional
+     * @return the sorted row numbers
+     */
+    private static int[] sort(int size, long[] first, long[] second, long[] third) {
+        
+        int[] rows = new int[size];
+        
+        for(int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        
+        int[] buffer = new int[size];
+        
+        // bottom up merge sort
+        for(int width = 1; width < size; width <<= 1) {
+            
+            for(int start = 0; start < size; start += width << 1) {
+                
+                int mid = Math.min(start + width, size);
+                int end = Math.min(start + (width << 1), size);
+                
+                int left = start;
+                int right = mid;
+                
+                for(int i = start; i < end; i++) {
+                    
+                    if((left < mid) && ((right >= end) || 
+                            (compare(rows[left], rows[right], first, second, third) <= 0))) {
+                        buffer[i] = rows[left++];
+                        
+                    } else {
+                        buffer[i] = rows[right++];
+                    }
+                }
+            }
+            
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        
+        return rows;
+    }
+    
+    private static int compare(int a, int b, long[] first, long[] second, long[] third) {
+        
+        int compare = Long.compare(first[a], first[b]);
+        
+        if(compare == 0) {
+            compare = Long.compare(second[a], second[b]);
+        }
+        
+        if((compare == 0) && (third != null)) {
+            compare = Long.compare(third[a], third[b]);
+        }
+        
+        return compare;
+    }
+    
+    private static long[] reorder(long[] values, int[] rows) {
+        
+        long[] ordered = new long[rows.length];
+        
+        for(int i = 0; i < rows.length; i++) {
+            ordered[i] = values[rows[i]];
+        }
+        
+        return ordered;
+    }
+    
+    /**
+     * @return the number of triples with a resource object
+     */
+    int size() {
+        return subjects.size();
+    }
+    
+    /**
+     * @return the number of triples with a literal object
+     */
+    int literalSize() {
+        return literals.length;
+    }
+    
+    long getSubject(int row) {
+        return subjects.get(row);
+    }
+    
+    long getPredicate(int row) {
+        return predicates.get(row);
+    }
+    
+    long getObject(int row) {
+        return objects.get(row);
+    }
+    
+    long getLiteralSubject(int row) {
+        return literalSubjects.get(row);
+    }
+    
+    long getLiteralPredicate(int row) {
+        return literalPredicates.get(row);
+    }
+    
+    String getLiteral(int row) {
+        return literals[row];
+    }
+
+    /**
+     * @return the time this segment was loaded
+     */
+    long getLoadTime() {
+        return loadTime;
+    }
+    
+    /**
+     * @return the approximate number of bytes used by this segment
+     */
+    long getMemoryUsage() {
+        
+        long bytes = subjects.getMemoryUsage() + predicates.getMemoryUsage() + objects.getMemoryUsage() + 
+                (((long) pos.length + osp.length) << 2) + literalSubjects.getMemoryUsage() + 
+                literalPredicates.getMemoryUsage();
+        
+        for(String literal: literals) {
+            bytes += 40 + (literal.length() << 1);
+        }
+        
+        return bytes;
+    }
+
+}
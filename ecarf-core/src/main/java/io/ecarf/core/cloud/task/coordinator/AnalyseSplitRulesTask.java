@@ -0,0 +1,189 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.task.coordinator;
+
+import io.cloudex.framework.cloud.entities.StorageObject;
+import io.cloudex.framework.task.CommonTask;
+import io.ecarf.core.compress.NxGzipProcessor;
+import io.ecarf.core.compress.callback.SampleSplitRulesCallback;
+import io.ecarf.core.term.SplitRuleAnalyser;
+import io.ecarf.core.term.SplitRules;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
+import io.ecarf.core.utils.Utils;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Sample the URIs of a few of the N-Triple files on cloud storage and choose the split location of each 
+ * namespace (host) that gives the smallest dictionary. The resulting {@link SplitRules} are saved to cloud 
+ * storage, the same rules file must then be provided to the tasks that extract the dictionary parts, 
+ * assemble the dictionary and encode the triples
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class AnalyseSplitRulesTask extends CommonTask {
+    
+    private final static Log log = LogFactory.getLog(AnalyseSplitRulesTask.class);
+    
+    private static final int DEFAULT_SAMPLE_FILES = 2;
+    
+    private String bucket;
+    
+    private String sourceBucket;
+    
+    // the number of files to sample
+    private Integer sampleFiles;
+    
+    private String splitRulesFile;
+
+    /* (non-Javadoc)
+     * @see io.cloudex.framework.Executable#run()
+     */
+    @Override
+    public void run() throws IOException {
+        
+        if(StringUtils.isBlank(sourceBucket)) {
+            log.warn("sourceBucket is empty, using bucket: " + bucket);
+            this.sourceBucket = bucket;
+        }
+        
+        if(StringUtils.isBlank(splitRulesFile)) {
+            this.splitRulesFile = FilenameUtils.SPLIT_RULES_FILE;
+        }
+        
+        int numFiles = (this.sampleFiles == null) ? DEFAULT_SAMPLE_FILES : this.sampleFiles;
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        List<StorageObject> objects = this.getCloudService().listCloudStorageObjects(sourceBucket);
+        
+        SampleSplitRulesCallback callback = new SampleSplitRulesCallback();
+        SplitRuleAnalyser analyser = callback.getAnalyser();
+        
+        int sampled = 0;
+        
+        for(StorageObject object: objects) {
+            
+            String filename = object.getName();
+            
+            if((sampled >= numFiles) || analyser.isFull()) {
+                break;
+            }
+            
+            if(!filename.endsWith(Constants.COMPRESSED_N_TRIPLES)) {
+                continue;
+            }
+            
+            String localFile = FilenameUtils.getLocalFilePath(filename);
+            
+            if(FilenameUtils.fileExists(localFile)) {
+                log.info("Re-using local file: " + localFile);
+                
+            } else {
+                this.getCloudService().downloadObjectFromCloudStorage(filename, localFile, sourceBucket);
+            }
+            
+            new NxGzipProcessor(localFile).read(callback);
+            
+            sampled++;
+            
+            log.info("Sampled file: " + filename + ", URIs: " + analyser.getNumberOfTerms() + 
+                    ", hosts: " + analyser.getNumberOfHosts() + ", timer: " + stopwatch);
+        }
+        
+        SplitRules rules = analyser.analyse();
+        
+        String localRulesFile = rules.toFile(FilenameUtils.getLocalFilePath(this.splitRulesFile));
+        
+        this.getCloudService().uploadFileToCloudStorage(localRulesFile, bucket);
+        
+        this.addOutput("splitRulesFile", this.splitRulesFile);
+        
+        log.info("TIMER# Successfully analysed split rules of " + sampled + " files, rules: " + rules.size() + 
+                ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
+    }
+
+    /**
+     * @return the bucket
+     */
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * @param bucket the bucket to set
+     */
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    /**
+     * @return the sourceBucket
+     */
+    public String getSourceBucket() {
+        return sourceBucket;
+    }
+
+    /**
+     * @param sourceBucket the sourceBucket to set
+     */
+    public void setSourceBucket(String sourceBucket) {
+        this.sourceBucket = sourceBucket;
+    }
+
+    /**
+     * @return the sampleFiles
+     */
+    public Integer getSampleFiles() {
+        return sampleFiles;
+    }
+
+    /**
+     * @param sampleFiles the sampleFiles to set
+     */
+    public void setSampleFiles(Integer sampleFiles) {
+        this.sampleFiles = sampleFiles;
+    }
+
+    /**
+     * @return the splitRulesFile
+     */
+    public String getSplitRulesFile() {
+        return splitRulesFile;
+    }
+
+    /**
+     * @param splitRulesFile the splitRulesFile to set
+     */
+    public void setSplitRulesFile(String splitRulesFile) {
+        this.splitRulesFile = splitRulesFile;
+    }
+
+}
@@ -24,28 +24,46 @@ import io.cloudex.cloud.impl.google.compute.GoogleMetaData;
 import io.cloudex.framework.partition.entities.Item;
 import io.cloudex.framework.task.CommonTask;
 import io.cloudex.framework.utils.FileUtils;
+import io.ecarf.core.term.dictionary.PartRunMerger;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.common.base.Stopwatch;
+import com.google.gson.stream.JsonWriter;
+
 /**
+ * Combines the term stats of all the processors. Each processor uploads its stats as a sorted, counted run 
+ * (see {@link PartRunWriter}), the runs are downloaded concurrently and k-way merged, so only the current 
+ * term of each run is held in memory rather than the stats of every processor. Processors that uploaded JSON stats 
+ * instead are converted to runs once downloaded.
+ * 
  * @author Omer Dawelbeit (omerio)
  *
  */
 public class CombineTermStatsTask extends CommonTask {
 
     private final static Log log = LogFactory.getLog(CombineTermStatsTask.class);
+    
+    private static final int DOWNLOAD_THREADS = 16;
 
     private String bucket;
 
@@ -64,62 +82,70 @@ public class CombineTermStatsTask extends CommonTask {
 
         // all done, now get the results from cloud storage and combine the schema terms stats
         //if(StringUtils.isNotBlank(this.input.getSchemaTermsFile())) {
-
-        Map<String, Long> allTermStats = new HashMap<String, Long>();
-
-        for(String instanceId: this.processors) {   //this.results.getNodes()) {   
-            String statsFile = instanceId + Constants.DOT_JSON;
-
-            String localStatsFile = Utils.TEMP_FOLDER + statsFile;
-
-            try {
-                this.getCloudService().downloadObjectFromCloudStorage(statsFile, localStatsFile, bucket);
-
-                // convert from JSON
-                Map<String, Long> termStats = FileUtils.jsonFileToMap(localStatsFile);
-
-                for(Entry<String, Long> term: termStats.entrySet()) {
-                    String key = term.getKey();
-                    Long value = term.getValue();
-
-                    if(allTermStats.containsKey(key)) {
-                        value = allTermStats.get(key) + value;
-                    } 
-
-                    allTermStats.put(key, value);
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        List<String> runs = new ArrayList<>();
+        
+        List<Callable<String>> tasks = new ArrayList<>();
+        
+        for(final String instanceId: this.processors) {   //this.results.getNodes()) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return downloadStats(instanceId);
                 }
-
-                log.info("Evms analysed: " + allTermStats.size() + ", terms");
-
-            } catch(IOException e) {
-                // a file not found means the evm didn't find any schema terms so didn't generate any stats
-                log.error("failed to download file: " + localStatsFile, e);
-                if(!(e.getMessage().indexOf(GoogleMetaData.NOT_FOUND) >= 0)) {
-                    throw e;
+            });
+        }
+        
+        if(!tasks.isEmpty()) {
+            
+            ExecutorService executor = Utils.createFixedThreadPool(Math.min(tasks.size(), DOWNLOAD_THREADS));
+            
+            try {
+                
+                for(Future<String> future: executor.invokeAll(tasks)) {
+                    
+                    String run = future.get();
+                    
+                    if(run != null) {
+                        runs.add(run);
+                    }
                 }
+                
+            } catch(Exception e) {
+                log.error("Failed to download the term stats", e);
+                throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e);
+                
+            } finally {
+                executor.shutdown();
             }
-
         }
         
+        log.info("Downloaded the term stats of " + runs.size() + " evms, timer: " + stopwatch);
+        
+        String localFile = null;
+        
         // if we have a term stats file set then serialize the term stats map to cloud storage
         if(StringUtils.isNotBlank(this.termStatsFile)) {
-            log.info("Serializing term stats to file: " + this.termStatsFile);
-            String localFile = Utils.TEMP_FOLDER + this.termStatsFile;
-            
-            // save to file
-            FileUtils.objectToJsonFile(localFile, allTermStats);
-            
+            localFile = Utils.TEMP_FOLDER + this.termStatsFile;
+        }
+        
+        List<Item> items = combine(runs, localFile, Utils.TEMP_FOLDER + "term_stats_");
+        
+        for(String run: runs) {
+            FileUtils.deleteFile(run);
+        }
+        
+        log.info("Combined term stats of " + runs.size() + " evms, terms: " + items.size() + ", timer: " + stopwatch);
+        
+        if(localFile != null) {
+            log.info("Uploading term stats file: " + this.termStatsFile);
             // upload the file to cloud storage
             this.getCloudService().uploadFileToCloudStorage(localFile, bucket);
         }
 
-        if(!allTermStats.isEmpty()) {
-
-            List<Item> items = new ArrayList<>();
-            for(Entry<String, Long> item: allTermStats.entrySet()) {
-                Item anItem = (new Item()).setKey(item.getKey()).setWeight(item.getValue());
-                items.add(anItem);
-            }
+        if(!items.isEmpty()) {
 
             //this.results.setItems(items);
 
@@ -131,6 +157,114 @@ public class CombineTermStatsTask extends CommonTask {
         // }
 
     }
+    
+    /**
+     * Download the term stats of the provided instance, the JSON stats of older processors are converted to a run
+     * @param instanceId
+     * @return the local run file or null if the instance has no stats
+     * @throws IOException
+     */
+    private String downloadStats(String instanceId) throws IOException {
+        
+        String statsFile = FilenameUtils.getTermStatsFilename(instanceId);
+        String localStatsFile = FilenameUtils.getLocalFilePath(statsFile);
+        
+        if(this.download(statsFile, localStatsFile)) {
+            return localStatsFile;
+        }
+        
+        String jsonFile = instanceId + Constants.DOT_JSON;
+        String localJsonFile = FilenameUtils.getLocalFilePath(jsonFile);
+        
+        if(!this.download(jsonFile, localJsonFile)) {
+            return null;
+        }
+        
+        // convert from JSON
+        Map<String, Long> termStats = FileUtils.jsonFileToMap(localJsonFile);
+        
+        PartRunWriter.write(localStatsFile, termStats.keySet(), termStats);
+        
+        FileUtils.deleteFile(localJsonFile);
+        
+        return localStatsFile;
+    }
+    
+    /**
+     * Download a file from cloud storage
+     * @param file
+     * @param localFile
+     * @return false if the file doesn't exist
+     * @throws IOException
+     */
+    private boolean download(String file, String localFile) throws IOException {
+        
+        try {
+            this.getCloudService().downloadObjectFromCloudStorage(file, localFile, bucket);
+            return true;
+            
+        } catch(IOException e) {
+            // a file not found means the evm didn't find any schema terms so didn't generate any stats
+            if((e.getMessage() == null) || (e.getMessage().indexOf(GoogleMetaData.NOT_FOUND) < 0)) {
+                log.error("failed to download file: " + localFile, e);
+                throw e;
+            }
+            
+            log.info("No stats file: " + file);
+            return false;
+        }
+    }
+    
+    /**
+     * K-way merge the provided term stats runs, the counts of each term are summed
+     * @param runs - sorted, counted runs
+     * @param statsFile - optional JSON file to write the combined stats to, null to skip
+     * @param prefix - the prefix of any intermediate runs if there are too many runs to merge at once
+     * @return an item for each term weighted by its count
+     * @throws IOException
+     */
+    public static List<Item> combine(List<String> runs, String statsFile, String prefix) throws IOException {
+        
+        List<Item> items = new ArrayList<>();
+        
+        List<String> merged = PartRunMerger.reduce(runs, PartRunMerger.DEFAULT_FAN_IN, prefix);
+        
+        try(PartRunMerger merger = new PartRunMerger(merged);
+                JsonWriter writer = (statsFile == null) ? null : new JsonWriter(new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(statsFile), StandardCharsets.UTF_8)))) {
+            
+            if(writer != null) {
+                writer.beginObject();
+            }
+            
+            String term;
+            
+            while((term = merger.next()) != null) {
+                
+                long count = merger.getCount();
+                
+                items.add((new Item()).setKey(term).setWeight(count));
+                
+                if(writer != null) {
+                    writer.name(term).value(count);
+                }
+            }
+            
+            if(writer != null) {
+                writer.endObject();
+            }
+            
+        } finally {
+            
+            if(merged != runs) {
+                for(String run: merged) {
+                    FileUtils.deleteFile(run);
+                }
+            }
+        }
+        
+        return items;
+    }
 
 
     /**
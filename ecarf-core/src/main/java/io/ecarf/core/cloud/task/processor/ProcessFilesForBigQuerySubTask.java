@@ -11,6 +11,8 @@ import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import org.apache.commons.logging.Log;
@@ -33,6 +35,7 @@ public class ProcessFilesForBigQuerySubTask implements Callable<TermCounter> {
 	private boolean countOnly;
 	private boolean encode;
 	private TermDictionary dictionary;
+	private int workers = 1;
 
 	public ProcessFilesForBigQuerySubTask(String file, String bucket, String sourceBucket, TermCounter counter, 
 	        TermDictionary dictionary, boolean countOnly, boolean encode, CloudService cloud) {
@@ -71,13 +74,29 @@ public class ProcessFilesForBigQuerySubTask implements Callable<TermCounter> {
 		if(encode) {
 		    
 		    NxGzipProcessor processor = new NxGzipProcessor(localFile);
-
-		    DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
-		    // set the dictionary
-		    callback.setDictionary(dictionary);
-	        callback.setCounter(counter);
-	        
-	        outFile = processor.process(callback);
+		    
+		    if(workers > 1) {
+		        // pipelined processing, each worker gets its own callback, the counter is thread safe so it's shared
+		        List<DictionaryEncodeCallback> callbacks = new ArrayList<>();
+		        
+		        for(int i = 0; i < workers; i++) {
+		            DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
+		            callback.setDictionary(dictionary);
+		            callback.setCounter(counter);
+		            callbacks.add(callback);
+		        }
+		        
+		        outFile = processor.process(callbacks, true);
+		        
+		    } else {
+
+		        DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
+		        // set the dictionary
+		        callback.setDictionary(dictionary);
+		        callback.setCounter(counter);
+
+		        outFile = processor.process(callback);
+		    }
 		    
 		} else {
 		    
@@ -100,5 +119,18 @@ public class ProcessFilesForBigQuerySubTask implements Callable<TermCounter> {
 		return counter;
 	}
 
+	/**
+	 * @return the workers
+	 */
+	public int getWorkers() {
+	    return workers;
+	}
+
+	/**
+	 * @param workers the number of pipeline workers to use when encoding a file
+	 */
+	public void setWorkers(int workers) {
+	    this.workers = workers;
+	}
 
-}
\ No newline at end of file
+}
@@ -21,16 +21,22 @@ package io.ecarf.core.cloud.task.processor;
 import io.cloudex.framework.utils.FileUtils;
 import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
 import io.ecarf.core.cloud.task.processor.files.ProcessFilesTask;
+import io.ecarf.core.term.SplitRules;
 import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.term.dictionary.TermDictionary;
 import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.term.dictionary.TermDictionaryFrontCoded;
+import io.ecarf.core.term.dictionary.TermDictionaryMapped;
 import io.ecarf.core.utils.Constants;
 import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,6 +73,9 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
     private String countOnly;
     
     private String encode;
+    
+    // count all the terms approximately if there are no schema terms to count
+    private Integer heavyHitters;
 
     private Set<String> schemaTerms;
     
@@ -75,6 +84,11 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
     private TermDictionary dictionary;
     
     private String dictionaryFile;
+    
+    // per host split rules created by AnalyseSplitRulesTask
+    private String splitRulesFile;
+    
+    private SplitRules splitRules;
 
     /* 
      * // TODO distinguish between files in cloud storage vs files downloaded from http or https url
@@ -93,6 +107,19 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
         
         this.schemaTerms = cloudService.getSetFromCloudStorageFile(schemaTermsFile, bucket);
         
+        if(StringUtils.isNotBlank(this.splitRulesFile)) {
+            
+            log.info("Downloading split rules file: " + splitRulesFile);
+            
+            String localRulesFile = FilenameUtils.getLocalFilePath(splitRulesFile);
+            
+            this.cloudService.downloadObjectFromCloudStorage(splitRulesFile, localRulesFile, this.bucket);
+            
+            this.splitRules = SplitRules.fromFile(localRulesFile);
+            
+            log.info("Loaded split rules: " + splitRules.size());
+        }
+        
         String localDictionaryFile = null;
         
         if(Boolean.valueOf(encode) && StringUtils.isNotBlank(this.dictionaryFile)) {
@@ -113,16 +140,37 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
                     Utils.getMemoryUsageInGB() + "GB, timer: " + stopwatch);
 
             // 2- Load the dictionary
-            try {
+            if(FilenameUtils.isMappedDictionaryFile(localDictionaryFile)) {
+                
+                // memory mapped dictionary, shared off heap by all the sub tasks
+                if(localDictionaryFile.endsWith(Constants.GZIP_EXT)) {
+                    String compressedFile = localDictionaryFile;
+                    localDictionaryFile = Utils.unCompressFile(compressedFile);
+                    FileUtils.deleteFile(compressedFile);
+                }
+                
+                dictionary = TermDictionaryMapped.fromFile(localDictionaryFile);
                 
-                dictionary = Utils.objectFromFile(localDictionaryFile, TermDictionaryCore.class, true, false);
+            } else if(FilenameUtils.isFrontCodedDictionaryFile(localDictionaryFile)) {
                 
-            } catch (ClassNotFoundException e) {
+                // compact sorted terms on the heap, shared by all the sub tasks
+                dictionary = TermDictionaryFrontCoded.fromFile(localDictionaryFile);
                 
-                log.error("Failed to load the dictionary", e);
-                throw new IOException(e);
+            } else {
+                
+                try {
+
+                    dictionary = Utils.objectFromFile(localDictionaryFile, TermDictionaryCore.class, true, false);
+
+                } catch (ClassNotFoundException e) {
+
+                    log.error("Failed to load the dictionary", e);
+                    throw new IOException(e);
+                }
             }
             
+            dictionary.setSplitRules(this.splitRules);
+            
             log.info("Dictionary loaded successfully, memory usage: " + 
                     Utils.getMemoryUsageInGB() + "GB, timer: " + stopwatch);
         }
@@ -133,8 +181,9 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
         if(!count.isEmpty()) {
             
             log.info("Saving terms stats");
-            String countStatsFile = Utils.TEMP_FOLDER + cloudService.getInstanceId() + Constants.DOT_JSON;
-            FileUtils.objectToJsonFile(countStatsFile, count);
+            String countStatsFile = FilenameUtils.getLocalFilePath(
+                    FilenameUtils.getTermStatsFilename(cloudService.getInstanceId()));
+            PartRunWriter.write(countStatsFile, count.keySet(), count);
 
             cloudService.uploadFileToCloudStorage(countStatsFile, bucket);
         }
@@ -163,18 +212,26 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
             this.sourceBucket = this.bucket;
         }
         
-        for(final String file: files) {
-
-            TermCounter counter = null;
+        // if there are less files than cores then spread the spare cores between the files
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, files.size()));
+        
+        // the counter is thread safe, so it's shared by all the sub tasks
+        TermCounter counter = null;
 
-            if(schemaTerms != null) {
-                counter = new TermCounter();
-                counter.setTermsToCount(schemaTerms);
-            }
+        if(schemaTerms != null) {
+            counter = new TermCounter();
+            counter.setTermsToCount(schemaTerms);
+            
+        } else if(heavyHitters != null) {
+            counter = new TermCounter(heavyHitters);
+        }
+        
+        for(final String file: files) {
 
             ProcessFilesForBigQuerySubTask task = 
                     new ProcessFilesForBigQuerySubTask(file, bucket, sourceBucket, 
                             counter, this.dictionary, Boolean.valueOf(countOnly), Boolean.valueOf(encode), this.getCloudService());
+            task.setWorkers(workers);
             tasks.add(task);
 
         }
@@ -200,8 +257,12 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
      */
     @Override
     public void processMultiOutput(List<TermCounter> counters) {
+        
+        // the sub tasks return the same shared counter
+        Set<TermCounter> merged = Collections.newSetFromMap(new IdentityHashMap<TermCounter, Boolean>());
+        
         for(TermCounter counter: counters) {
-            if(counter != null) {
+            if((counter != null) && merged.add(counter)) {
                 Utils.mergeCountMaps(count, counter.getCount());
             }
         }
@@ -305,4 +366,39 @@ public class ProcessLoadTask extends ProcessFilesTask<TermCounter> {
         this.dictionaryFile = dictionaryFile;
     }
 
+    /**
+     * @return the heavyHitters
+     */
+    public Integer getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    /**
+     * @param heavyHitters the number of terms with the largest counts to keep when all the terms are counted
+     */
+    public void setHeavyHitters(Integer heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * @return the splitRulesFile
+     */
+    public String getSplitRulesFile() {
+        return splitRulesFile;
+    }
+
+    /**
+     * @param splitRulesFile the splitRulesFile to set
+     */
+    public void setSplitRulesFile(String splitRulesFile) {
+        this.splitRulesFile = splitRulesFile;
+    }
+
+    /**
+     * @return the split rules loaded from the splitRulesFile, null if not provided
+     */
+    public SplitRules getSplitRules() {
+        return splitRules;
+    }
+
 }
@@ -21,16 +21,18 @@
 package io.ecarf.core.cloud.task.processor.analyze;
 
 import io.cloudex.framework.task.CommonTask;
-import io.cloudex.framework.utils.FileUtils;
 import io.cloudex.framework.utils.ObjectUtils;
 import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
 import io.ecarf.core.compress.NxGzipProcessor;
 import io.ecarf.core.compress.callback.ExtractTermsCallback;
 import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -119,8 +121,10 @@ public class ExtractAndCountTermsTask extends CommonTask {
         if(counter != null) {
 
             log.info("Saving terms stats");
-            String countStatsFile = Utils.TEMP_FOLDER + cloudService.getInstanceId() + Constants.DOT_JSON;
-            FileUtils.objectToJsonFile(countStatsFile, counter.getCount());
+            String countStatsFile = FilenameUtils.getLocalFilePath(
+                    FilenameUtils.getTermStatsFilename(cloudService.getInstanceId()));
+            Map<String, Integer> count = counter.getCount();
+            PartRunWriter.write(countStatsFile, count.keySet(), count);
             cloudService.uploadFileToCloudStorage(countStatsFile, bucket);
         }
 
@@ -4,12 +4,14 @@ import io.cloudex.framework.cloud.api.CloudService;
 import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
 import io.ecarf.core.compress.NxGzipProcessor;
 import io.ecarf.core.compress.callback.ExtractTerms2PartCallback;
+import io.ecarf.core.term.SplitRules;
 import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.Utf8SlabSet;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
-import java.util.Set;
 import java.util.concurrent.Callable;
 
 import org.apache.commons.logging.Log;
@@ -20,7 +22,7 @@ import com.google.common.base.Stopwatch;
 /**
  * 1- Download a gziped N-Triple file from cloud storage
  * 2- Process the file in memory, extract and blank nodes and build the resources tree and count the literals
- * 3- Serialize the blank nodes and resource tree and upload to cloud storage
+ * 3- Write the blank nodes and resource parts as sorted runs and upload to cloud storage
  * 
  * @author Omer Dawelbeit (omerio)
  *
@@ -35,8 +37,15 @@ public class ExtractCountTerms2PartSubTask implements Callable<TermCounter> {
     private String bucket;
     private String sourceBucket;
     private int splitLocation;
+    private boolean countParts;
+    private SplitRules splitRules;
 
     public ExtractCountTerms2PartSubTask(String file, String bucket, String sourceBucket, TermCounter counter, int splitLocation, CloudService cloud) {
+        this(file, bucket, sourceBucket, counter, splitLocation, false, cloud);
+    }
+    
+    public ExtractCountTerms2PartSubTask(String file, String bucket, String sourceBucket, TermCounter counter, int splitLocation, 
+            boolean countParts, CloudService cloud) {
         super();
         this.file = file;
         this.cloud = (EcarfGoogleCloudService) cloud;
@@ -44,6 +53,7 @@ public class ExtractCountTerms2PartSubTask implements Callable<TermCounter> {
         this.bucket = bucket;
         this.sourceBucket = sourceBucket;
         this.splitLocation = splitLocation;
+        this.countParts = countParts;
 
     }
 
@@ -72,11 +82,13 @@ public class ExtractCountTerms2PartSubTask implements Callable<TermCounter> {
             NxGzipProcessor processor = new NxGzipProcessor(localFile);
             ExtractTerms2PartCallback callback = new ExtractTerms2PartCallback();
             callback.setSplitLocation(this.splitLocation);
+            callback.setSplitRules(this.splitRules);
             callback.setCounter(counter);
+            callback.setCountParts(this.countParts);
             processor.read(callback);
             
-            Set<String> blankNodes = callback.getBlankNodes();
-            Set<String> resources = callback.getResources();
+            Utf8SlabSet blankNodes = callback.getBlankNodes();
+            Utf8SlabSet resources = callback.getResources();
 
             stopwatch1.stop();
             // once the processing is done then delete the local file
@@ -90,14 +102,13 @@ public class ExtractCountTerms2PartSubTask implements Callable<TermCounter> {
             callback = null;
             processor = null;
             
-            // upload the terms tree
-            String termsFile = FilenameUtils.getLocalSerializedGZipedFilePath(file, false);
-            this.serializeAndUploadObject(termsFile, resources, stopwatch);
+            // upload the sorted, front coded runs of the resource parts and blank nodes
+            String termsFile = FilenameUtils.getLocalPartRunFilePath(file);
+            this.writeAndUploadRun(termsFile, resources, stopwatch);
             
-            // upload the blank nodes
             if(!blankNodes.isEmpty()) {
-                String blankNodesFile = FilenameUtils.getLocalSerializedGZipedBNFilePath(file, false);
-                this.serializeAndUploadObject(blankNodesFile, blankNodes, stopwatch);
+                String blankNodesFile = FilenameUtils.getLocalPartRunBNFilePath(file);
+                this.writeAndUploadRun(blankNodesFile, blankNodes, stopwatch);
             }
             
             blankNodes = null;
@@ -124,16 +135,24 @@ public class ExtractCountTerms2PartSubTask implements Callable<TermCounter> {
     }
     
     /**
-     * Serialize the provided object and upload the file to cloud storage
+     * @param splitRules per host split rules that override the split location, can be null
+     */
+    public void setSplitRules(SplitRules splitRules) {
+        this.splitRules = splitRules;
+    }
+    
+    /**
+     * Write the provided parts to a sorted run file and upload the file to cloud storage
      * @param file
-     * @param object
+     * @param parts - written as a counted run if the parts are counted
      * @param stopwatch
      * @throws IOException
      */
-    private void serializeAndUploadObject(String file, Object object, Stopwatch stopwatch) throws IOException {
-        Utils.objectToFile(file, object, true, false);
+    private void writeAndUploadRun(String file, Utf8SlabSet parts, Stopwatch stopwatch) throws IOException {
+        
+        PartRunWriter.write(file, parts);
         
-        log.info("Serialized file: " + file + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
+        log.info("Written part run file: " + file + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
 
         this.cloud.uploadFileToCloudStorage(file, bucket);
 
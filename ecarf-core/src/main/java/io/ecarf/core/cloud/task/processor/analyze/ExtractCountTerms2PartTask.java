@@ -47,6 +47,9 @@ public class ExtractCountTerms2PartTask extends ProcessLoadTask {
     private String sourceBucket;
     
     private Integer splitLocation;
+    
+    // count the occurrences of each part so the dictionary can be frequency ordered
+    private Boolean countParts;
 
 
     /*
@@ -66,7 +69,10 @@ public class ExtractCountTerms2PartTask extends ProcessLoadTask {
             this.splitLocation = -1;
         }
         
-        log.info("Using split location: " + splitLocation);
+        log.info("Using split location: " + splitLocation + ", split rules: " + this.getSplitRules() + 
+                ", count parts: " + countParts);
+        
+        boolean count = Boolean.TRUE.equals(this.countParts);
         
         Set<String> schemaTerms = this.getSchemaTerms();
 
@@ -81,7 +87,8 @@ public class ExtractCountTerms2PartTask extends ProcessLoadTask {
 
             ExtractCountTerms2PartSubTask task = 
                     new ExtractCountTerms2PartSubTask(file, this.getBucket(), 
-                            this.sourceBucket, counter, this.splitLocation, this.getCloudService());
+                            this.sourceBucket, counter, this.splitLocation, count, this.getCloudService());
+            task.setSplitRules(this.getSplitRules());
 
             tasks.add(task);
 
@@ -118,4 +125,18 @@ public class ExtractCountTerms2PartTask extends ProcessLoadTask {
         this.splitLocation = splitLocation;
     }
 
+    /**
+     * @return the countParts
+     */
+    public Boolean getCountParts() {
+        return countParts;
+    }
+
+    /**
+     * @param countParts the countParts to set
+     */
+    public void setCountParts(Boolean countParts) {
+        this.countParts = countParts;
+    }
+
 }
@@ -1,11 +1,12 @@
 package io.ecarf.core.cloud.task.processor.analyze;
 
 import io.cloudex.framework.cloud.api.CloudService;
+import io.cloudex.framework.utils.FileUtils;
 import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
 import io.ecarf.core.compress.NxGzipProcessor;
 import io.ecarf.core.compress.callback.ExtractTermsTreeCallback;
 import io.ecarf.core.term.TermCounter;
-import io.ecarf.core.term.TermRoot;
+import io.ecarf.core.term.UriTrie;
 import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
@@ -21,7 +22,7 @@ import com.google.common.base.Stopwatch;
 /**
  * 1- Download a gziped N-Triple file from cloud storage
  * 2- Process the file in memory, extract and blank nodes and build the resources tree and count the literals
- * 3- Serialize the blank nodes and resource tree and upload to cloud storage
+ * 3- Write the resource trie in its flat form, serialize the blank nodes and upload both to cloud storage
  * 
  * @author Omer Dawelbeit (omerio)
  *
@@ -68,23 +69,30 @@ public class ExtractCountTermsTreeSubTask implements Callable<TermCounter> {
             processor.read(callback);
             
             Set<String> blankNodes = callback.getBlankNodes();
-            TermRoot resources = callback.getRoot();
+            UriTrie resources = callback.getTrie();
 
             // once the processing is done then delete the local file
             //FileUtils.deleteFile(localFile);
 
             log.info("TIMER# Finished processing file: " + localFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
             log.info("Number of resource URIs: " + callback.getResourceCount());
-            log.info("Number of top level domains: " + resources.size());
+            log.info("Number of unique resource URIs: " + resources.size() + ", trie nodes: " + resources.getNodeCount());
             log.info("Number of blank nodes: " + callback.getBlankNodes().size());
             log.info("Number of literals: " + callback.getLiteralCount());
             
             callback = null;
             processor = null;
             
-            // upload the terms tree
-            String termsFile = FilenameUtils.getLocalSerializedGZipedFilePath(file, false);
-            this.serializeAndUploadObject(termsFile, resources, stopwatch);
+            // upload the flat terms trie, gziped for the upload and uncompressed again before it's mapped
+            String termsFile = resources.toFile(FilenameUtils.getLocalUriTrieFilePath(file));
+            resources = null;
+            
+            String compressedFile = Utils.compressFile(termsFile);
+            FileUtils.deleteFile(termsFile);
+            
+            log.info("Written trie file: " + compressedFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
+            
+            this.cloud.uploadFileToCloudStorage(compressedFile, bucket);
             
             // upload the blank nodes
             if(!blankNodes.isEmpty()) {
@@ -93,7 +101,6 @@ public class ExtractCountTermsTreeSubTask implements Callable<TermCounter> {
             }
             
             blankNodes = null;
-            resources = null;
 
         } catch(Exception e) {
             // because this sub task is run in an executor the exception will be stored and thrown in the
@@ -34,7 +34,7 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * A multi-threaded version that extract and counts all the terms using executor service
- * Terms are extracted into a TermRoot term tree which is then saved to a file. Blank nodes
+ * Terms are extracted into a UriTrie which is then saved to a file in its flat form. Blank nodes
  * are also saved separately for each processed file
  * @author Omer Dawelbeit (omerio)
  *
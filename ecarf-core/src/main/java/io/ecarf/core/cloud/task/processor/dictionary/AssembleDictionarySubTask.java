@@ -24,46 +24,45 @@ import io.cloudex.framework.cloud.api.ApiUtils;
 import io.cloudex.framework.partition.entities.Item;
 import io.cloudex.framework.utils.FileUtils;
 import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
-import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.google.common.base.Stopwatch;
 
 /**
- * The underlying sub task that is assembling the dictionary
+ * The underlying sub task that downloads the sorted part runs to be merged into the dictionary. Files that 
+ * hold a Kryo serialized set of parts are converted to a local run
  * @author Omer Dawelbeit (omerio)
  *
  */
-public class AssembleDictionarySubTask implements Callable<Void> {
+public class AssembleDictionarySubTask implements Callable<List<String>> {
 
     private final static Log log = LogFactory.getLog(AssembleDictionarySubTask.class);
 
-    private TermDictionary dictionary;
     private EcarfGoogleCloudService cloud;
     private String bucket;
     private List<Item> files;
 
     /**
-     * @param dictionary
      * @param cloud
      * @param bucket
      * @param files
      */
-    public AssembleDictionarySubTask(TermDictionary dictionary,
-            EcarfGoogleCloudService cloud, String bucket, List<Item> files) {
+    public AssembleDictionarySubTask(EcarfGoogleCloudService cloud, String bucket, List<Item> files) {
         super();
-        this.dictionary = dictionary;
         this.cloud = cloud;
         this.bucket = bucket;
         this.files = files;
@@ -71,7 +70,9 @@ public class AssembleDictionarySubTask implements Callable<Void> {
 
     @SuppressWarnings("unchecked")
     @Override
-    public Void call() throws Exception {
+    public List<String> call() throws Exception {
+        
+        List<String> runs = new ArrayList<>();
 
         for(Item item: this.files) {
             
@@ -85,26 +86,29 @@ public class AssembleDictionarySubTask implements Callable<Void> {
             try {
 
                 this.downloadFile(file, localFile, 1);
-
-                // all downloaded, carryon now, process the files
-                log.info("Processing file: " + localFile + ", dictionary items: " + dictionary.size() + 
-                        ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
-                
-                Set<String> parts = Utils.objectFromFile(localFile, HashSet.class, true, false);
                 
-                log.info("Processing: " + parts.size() + " term parts , memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
-
-                for(String part: parts) {
-                    dictionary.add(part);
+                if(file.endsWith(FilenameUtils.KRYO_SERIALIZED_EXT)) {
+                    
+                    Set<String> parts = Utils.objectFromFile(localFile, HashSet.class, true, false);
+                    
+                    log.info("Converting: " + parts.size() + " term parts to a sorted run, memory usage: " + 
+                            Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
+                    
+                    String runFile = StringUtils.removeEnd(localFile, FilenameUtils.KRYO_SERIALIZED_EXT) + 
+                            FilenameUtils.PART_RUN_EXT;
+                    
+                    PartRunWriter.write(runFile, parts);
+                    
+                    // immediately release parts
+                    parts = null;
+                    
+                    FileUtils.deleteFile(localFile);
+                    localFile = runFile;
                 }
                 
-                // immediately release parts
-                parts = null;
+                runs.add(localFile);
 
-                log.info("TIMER# Finished processing file: " + localFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
-                log.info("Dictionary size: " + dictionary.size());
-                
-                FileUtils.deleteFile(localFile);
+                log.info("TIMER# Finished downloading file: " + localFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
 
             } catch(Exception e) {
                 // because this sub task is run in an executor the exception will be stored and thrown in the
@@ -119,7 +123,7 @@ public class AssembleDictionarySubTask implements Callable<Void> {
             } 
         }
 
-        return null;
+        return runs;
     }
     
     /**
@@ -30,10 +30,16 @@ import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
 import io.ecarf.core.compress.NxGzipProcessor;
 import io.ecarf.core.compress.callback.DictionaryEncodeCallback;
 import io.ecarf.core.compress.callback.ExtractTerms2PartCallback;
+import io.ecarf.core.term.SplitRules;
 import io.ecarf.core.term.TermCounter;
-import io.ecarf.core.term.dictionary.ConcurrentDictionary;
+import io.ecarf.core.term.Utf8SlabSet;
+import io.ecarf.core.term.dictionary.PartRunMerger;
+import io.ecarf.core.term.dictionary.PartRunWriter;
 import io.ecarf.core.term.dictionary.TermDictionary;
-import io.ecarf.core.term.dictionary.TermDictionaryConcurrent;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.term.dictionary.TermDictionaryFrontCoded;
+import io.ecarf.core.term.dictionary.TermDictionaryMapped;
+import io.ecarf.core.utils.Constants;
 import io.ecarf.core.utils.FilenameUtils;
 import io.ecarf.core.utils.Utils;
 
@@ -43,10 +49,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.apache.commons.compress.compressors.gzip.GzipUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -76,6 +83,17 @@ public class AssembleDictionaryTask extends CommonTask {
     private String encodedTermStatsFile;
     
     private String dictionaryFile;
+    
+    // give the smallest ids to the most frequent parts, requires counted part runs
+    private Boolean frequencyOrdered;
+    
+    // build a perfect hash index for the front coded dictionary
+    private Boolean perfectHashIndex;
+    
+    // per host split rules created by AnalyseSplitRulesTask, the same rules used to extract the parts
+    private String splitRulesFile;
+    
+    private SplitRules splitRules;
 
     /* (non-Javadoc)
      * @see io.cloudex.framework.Executable#run()
@@ -83,13 +101,23 @@ public class AssembleDictionaryTask extends CommonTask {
     @Override
     public void run() throws IOException {
         
-        log.info("Assembling dictionary, memory usage: " + Utils.getMemoryUsageInGB() + "GB");
+        log.info("Assembling dictionary, frequency ordered: " + this.isFrequencyOrdered() + 
+                ", memory usage: " + Utils.getMemoryUsageInGB() + "GB");
         
         Stopwatch stopwatch = Stopwatch.createStarted();
         
-        List<StorageObject> objects = this.cloudService.listCloudStorageObjects(bucket);
+        if(StringUtils.isNotBlank(this.splitRulesFile)) {
+            
+            String localRulesFile = FilenameUtils.getLocalFilePath(splitRulesFile);
+            
+            this.cloudService.downloadObjectFromCloudStorage(splitRulesFile, localRulesFile, this.bucket);
+            
+            this.splitRules = SplitRules.fromFile(localRulesFile);
+            
+            log.info("Loaded split rules: " + splitRules.size());
+        }
         
-        //Set<String> files = new HashSet<>();
+        List<StorageObject> objects = this.cloudService.listCloudStorageObjects(bucket);
         
         List<Item> items = new ArrayList<>();
          
@@ -97,13 +125,13 @@ public class AssembleDictionaryTask extends CommonTask {
             
             String filename = object.getName();
             
-            if(filename.endsWith(FilenameUtils.KRYO_SERIALIZED_EXT)) {
-                //files.add(filename);
+            // sorted part runs, or Kryo serialized sets of parts created by older analysis tasks 
+            if(filename.endsWith(FilenameUtils.PART_RUN_EXT) || filename.endsWith(FilenameUtils.KRYO_SERIALIZED_EXT)) {
                 items.add(new Item(filename, object.getSize().longValue()));
             }
         }
         
-        log.info("Found " + items.size() + ", serialized files");
+        log.info("Found " + items.size() + ", part run files");
         
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -111,22 +139,22 @@ public class AssembleDictionaryTask extends CommonTask {
         function.setMaxBinItems((long) processors);
         List<Partition> partitions = function.partition();
         
-        TermDictionary dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryConcurrent());
+        List<Callable<List<String>>> tasks = getSubTasks(partitions);
         
-        List<Callable<Void>> tasks = getSubTasks(partitions, dictionary);
+        List<String> runs = new ArrayList<>();
 
         try {
 
             // check if we only have one file to process
             if(tasks.size() == 1) {
 
-                tasks.get(0).call();
+                runs.addAll(tasks.get(0).call());
 
             } else if(processors == 1) {
                 // only one process then process synchronously
                
-                for(Callable<Void> task: tasks) {
-                   task.call();
+                for(Callable<List<String>> task: tasks) {
+                    runs.addAll(task.call());
                 }
 
             } else {
@@ -136,7 +164,9 @@ public class AssembleDictionaryTask extends CommonTask {
 
                 try {
 
-                    executor.invokeAll(tasks);
+                    for(Future<List<String>> future: executor.invokeAll(tasks)) {
+                        runs.addAll(future.get());
+                    }
                     
                 } finally {
                     executor.shutdown();
@@ -151,13 +181,28 @@ public class AssembleDictionaryTask extends CommonTask {
 
         }
         
+        log.info("Downloaded " + runs.size() + " part runs, memory usage: " + Utils.getMemoryUsageInGB() + "GB" + 
+                ", timer: " + stopwatch);
+        
+        // extract the schema terms, these are merged with the other parts
+        boolean schema = StringUtils.isNotBlank(this.schemaFile) && StringUtils.isNotBlank(this.schemaBucket);
+        
+        if(schema) {
+            runs.addAll(this.extractSchemaParts());
+        }
+        
+        TermDictionary dictionary = this.mergeRuns(runs);
+        
+        // the schema and term stats are encoded using the rules the parts were extracted with
+        dictionary.setSplitRules(this.splitRules);
+        
         int dicSize = dictionary.size();
         
         log.info("Successfully assembled dictionary with size: " + dicSize + ", max resourceId: " + dictionary.getLargestResourceId() +
                 ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
         
-        // extract the terms and encode the schema if needed
-        if(StringUtils.isNotBlank(this.schemaFile) && StringUtils.isNotBlank(this.schemaBucket))   {
+        // encode the schema if needed
+        if(schema && StringUtils.isNotBlank(this.encodedSchemaFile)) {
             this.encodeSchema(dictionary);
         }
         
@@ -173,12 +218,25 @@ public class AssembleDictionaryTask extends CommonTask {
         
         this.dictionaryFile = FilenameUtils.getLocalFilePath(this.dictionaryFile);
         
-        dictionary = ((ConcurrentDictionary) dictionary).getNonConcurrentDictionary();
-        
-        log.info("Successfully created non concurrent dictionary for serialization, memory usage: " + 
-                Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
-        
-        dictionary.toFile(dictionaryFile, true);
+        if(FilenameUtils.isMappedDictionaryFile(this.dictionaryFile)) {
+            // memory mapped dictionary format, gziped for upload
+            String mappedFile = GzipUtils.getUncompressedFilename(this.dictionaryFile);
+            
+            TermDictionaryMapped.toFile((TermDictionaryCore) dictionary, mappedFile);
+            
+            if(this.dictionaryFile.endsWith(Constants.GZIP_EXT)) {
+                Utils.compressFile(mappedFile);
+                FileUtils.deleteFile(mappedFile);
+            }
+            
+        } else if(FilenameUtils.isFrontCodedDictionaryFile(this.dictionaryFile)) {
+            // sorted front coded format, gziped by the writer if the name ends with .gz
+            TermDictionaryFrontCoded.toFile((TermDictionaryCore) dictionary, this.dictionaryFile, 
+                    Boolean.TRUE.equals(this.perfectHashIndex));
+            
+        } else {
+            dictionary.toFile(dictionaryFile, true);
+        }
         
         dictionary = null;
         
@@ -197,14 +255,50 @@ public class AssembleDictionaryTask extends CommonTask {
     }
     
     /**
-     * Encode the schema file and term stats
-     * @param dictionary
+     * K-way merge the sorted part runs and add each unique part to a new dictionary, so ids are assigned
+     * densely in a single pass. When frequency ordered the most frequent parts are given the smallest ids 
+     * so they encode to shorter numbers. The local run files are deleted once merged
+     * @param runs
+     * @return
+     * @throws IOException
+     */
+    private TermDictionary mergeRuns(List<String> runs) throws IOException {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        TermDictionary dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+        
+        List<String> merged = PartRunMerger.reduce(runs, PartRunMerger.DEFAULT_FAN_IN, 
+                FilenameUtils.getLocalFilePath(FilenameUtils.DICTIONARY + '_'));
+        
+        try(PartRunMerger merger = new PartRunMerger(merged)) {
+            merger.addTo(dictionary, this.isFrequencyOrdered());
+        }
+        
+        for(String run: runs) {
+            FileUtils.deleteFile(run);
+        }
+        
+        if(merged != runs) {
+            for(String run: merged) {
+                FileUtils.deleteFile(run);
+            }
+        }
+        
+        log.info("TIMER# Merged " + runs.size() + " part runs, dictionary size: " + dictionary.size() + 
+                ", memory usage: " + Utils.getMemoryUsageInGB() + "GB" + ", timer: " + stopwatch);
+        
+        return dictionary;
+    }
+    
+    /**
+     * Extract the schema resource parts and blank nodes to sorted runs
+     * @return the local run files
      * @throws IOException 
      */
-    private void encodeSchema(TermDictionary dictionary) throws IOException {
+    private List<String> extractSchemaParts() throws IOException {
 
-
-        log.info("Extracting schema terms and encoding from file: " + this.schemaFile);
+        log.info("Extracting schema terms from file: " + this.schemaFile);
 
         String localFile = Utils.TEMP_FOLDER + schemaFile;
         
@@ -223,47 +317,57 @@ public class AssembleDictionaryTask extends CommonTask {
         NxGzipProcessor processor = new NxGzipProcessor(localFile);
         ExtractTerms2PartCallback callback = new ExtractTerms2PartCallback();
         callback.setSplitLocation(-1);
+        callback.setSplitRules(this.splitRules);
         callback.setCounter(new TermCounter());
+        callback.setCountParts(this.isFrequencyOrdered());
         processor.read(callback);
 
-        Set<String> blankNodes = callback.getBlankNodes();
-        Set<String> resources = callback.getResources();
+        Utf8SlabSet blankNodes = callback.getBlankNodes();
+        Utf8SlabSet resources = callback.getResources();
 
         log.info("Number of schema resource URIs unique parts: " + resources.size());
         log.info("Number of schema blank nodes: " + blankNodes.size());
         log.info("Number of schema literals: " + callback.getLiteralCount());
 
-        resources.addAll(blankNodes);
-
-        for(String part: resources) {
-            dictionary.add(part);
+        List<String> runFiles = new ArrayList<>();
+        
+        String runFile = FilenameUtils.getLocalPartRunFilePath("schema_" + schemaFile);
+        PartRunWriter.write(runFile, resources);
+        runFiles.add(runFile);
+        
+        if(!blankNodes.isEmpty()) {
+            runFile = FilenameUtils.getLocalPartRunBNFilePath("schema_" + schemaFile);
+            PartRunWriter.write(runFile, blankNodes);
+            runFiles.add(runFile);
         }
+        
+        return runFiles;
+    }
+    
+    /**
+     * Encode the schema file, the schema terms are already in the dictionary
+     * @param dictionary
+     * @throws IOException 
+     */
+    private void encodeSchema(TermDictionary dictionary) throws IOException {
+        
+        log.info("Encoding the schema file to: " + this.encodedSchemaFile);
+        
+        String localFile = Utils.TEMP_FOLDER + schemaFile;
+        
+        String encLocalFile = Utils.TEMP_FOLDER + this.encodedSchemaFile;
+        
+        // NxGzip processor can write unzipped files
+        NxGzipProcessor processor = new NxGzipProcessor(localFile, encLocalFile);
 
-        log.info("Schema terms added to the dictionary, final size: " + dictionary.size() + 
-                " , memory usage: " + Utils.getMemoryUsageInGB() + "GB");
-
-        // now encode the schema
-        if(StringUtils.isNotBlank(this.encodedSchemaFile)) {
-            
-            log.info("Encoding the schema file to: " + this.encodedSchemaFile);
-            
-            String encLocalFile = Utils.TEMP_FOLDER + this.encodedSchemaFile;
-            
-            // NxGzip processor can write unzipped files
-            processor = new NxGzipProcessor(localFile, encLocalFile);
-
-            DictionaryEncodeCallback callback1 = new DictionaryEncodeCallback();
-
-            callback1.setDictionary(dictionary);
-
-            processor.process(callback1);
-           
-            // upload the file
-            this.getCloudService().uploadFileToCloudStorage(encLocalFile, targetBucket);
-            
-        }
+        DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
 
+        callback.setDictionary(dictionary);
 
+        processor.process(callback);
+       
+        // upload the file
+        this.getCloudService().uploadFileToCloudStorage(encLocalFile, targetBucket);
     }
     
     /**
@@ -313,16 +417,16 @@ public class AssembleDictionaryTask extends CommonTask {
     
     /**
      * Get a list of callable tasks
-     * @param files
+     * @param partitions
      * @return
      */
-    public List<Callable<Void>> getSubTasks(List<Partition> partitions, TermDictionary dictionary) {
-        List<Callable<Void>> tasks = new ArrayList<>();
+    public List<Callable<List<String>>> getSubTasks(List<Partition> partitions) {
+        List<Callable<List<String>>> tasks = new ArrayList<>();
         
         for(Partition partition: partitions) {
 
             AssembleDictionarySubTask task = 
-                    new AssembleDictionarySubTask(dictionary, (EcarfGoogleCloudService) this.cloudService, this.bucket, partition.getItems());
+                    new AssembleDictionarySubTask((EcarfGoogleCloudService) this.cloudService, this.bucket, partition.getItems());
 
             tasks.add(task);
 
@@ -442,5 +546,54 @@ public class AssembleDictionaryTask extends CommonTask {
     public void setDictionaryFile(String dictionaryFile) {
         this.dictionaryFile = dictionaryFile;
     }
+    
+    /**
+     * @return true if the dictionary ids are assigned by descending part frequency
+     */
+    private boolean isFrequencyOrdered() {
+        return Boolean.TRUE.equals(this.frequencyOrdered);
+    }
+
+    /**
+     * @return the frequencyOrdered
+     */
+    public Boolean getFrequencyOrdered() {
+        return frequencyOrdered;
+    }
+
+    /**
+     * @param frequencyOrdered the frequencyOrdered to set
+     */
+    public void setFrequencyOrdered(Boolean frequencyOrdered) {
+        this.frequencyOrdered = frequencyOrdered;
+    }
+
+    /**
+     * @return the perfectHashIndex
+     */
+    public Boolean getPerfectHashIndex() {
+        return perfectHashIndex;
+    }
+
+    /**
+     * @param perfectHashIndex the perfectHashIndex to set
+     */
+    public void setPerfectHashIndex(Boolean perfectHashIndex) {
+        this.perfectHashIndex = perfectHashIndex;
+    }
+
+    /**
+     * @return the splitRulesFile
+     */
+    public String getSplitRulesFile() {
+        return splitRulesFile;
+    }
+
+    /**
+     * @param splitRulesFile the splitRulesFile to set
+     */
+    public void setSplitRulesFile(String splitRulesFile) {
+        this.splitRulesFile = splitRulesFile;
+    }
 
 }
@@ -25,6 +25,14 @@ import io.cloudex.framework.cloud.entities.QueryStats;
 import io.cloudex.framework.cloud.entities.StorageObject;
 import io.cloudex.framework.task.CommonTask;
 import io.cloudex.framework.utils.ObjectUtils;
+import io.ecarf.core.cloud.QueryResultPages;
+import io.ecarf.core.cloud.impl.google.CloudStorageInferenceLedger;
+import io.ecarf.core.cloud.impl.google.EcarfGoogleCloudService;
+import io.ecarf.core.cloud.task.processor.reason.phase3.DuplicatesBuster;
+import io.ecarf.core.cloud.task.processor.reason.phase3.FixpointDetector;
+import io.ecarf.core.cloud.task.processor.reason.phase3.PagedReasoner;
+import io.ecarf.core.reason.rulebased.RuleTable;
+import io.ecarf.core.reason.rulebased.SchemaClosure;
 import io.ecarf.core.reason.rulebased.query.QueryGenerator;
 import io.ecarf.core.term.TermUtils;
 import io.ecarf.core.triple.Triple;
@@ -89,19 +97,42 @@ public class DoReasonTask9 extends CommonTask {
 	protected int ddLimit;
 	
 	protected Map<Long, Set<Triple>> schemaTerms;
+	
+	// the schema terms compiled for reasoning
+	protected RuleTable rules;
     
     protected ExecutorService executor;
     
     private Integer retries;
     
     private Integer sleep;
+    
+    // close the schema so that a single pass infers all the consequences of an instance triple
+    private Boolean closeSchema;
+    
+    // reason over the query result pages as they are downloaded rather than after saving them to files
+    private Boolean streamResults;
+    
+    // the encoded term stats, used to split the schema terms between queries of similar result sizes
+    private String encodedTermStatsFile;
+    
+    // the number of triples each schema term appears in, null if not known
+    protected Map<Long, Long> termStats;
+    
+    // when both are set the nodes publish their inferred triples counts to detect the fixpoint instead of retrying 
+    private String jobId;
+    
+    private Integer numberOfProcessors;
+    
+    // the bucket of the fixpoint records, every read lists the whole bucket so defaults to the bucket if not set 
+    private String fixpointBucket;
 
 	/**
 	 * Carryout the setup of the schema terms
 	 * @param cloud
 	 * @throws IOException
 	 */
-	private void setup(GoogleCloudService cloud) throws IOException {
+	protected void setup(GoogleCloudService cloud) throws IOException {
 	    
 	    Set<String> termsSet;
         
@@ -132,6 +163,11 @@ public class DoReasonTask9 extends CommonTask {
 
         Map<Long, Set<Triple>> allSchemaTriples = 
                 TripleUtils.getRelevantSchemaETriples(localSchemaFile, TermUtils.RDFS_TBOX);
+        
+        if(Boolean.TRUE.equals(this.closeSchema)) {
+            // must be done before filtering by the terms of the instance data
+            allSchemaTriples = SchemaClosure.close(allSchemaTriples);
+        }
 
         // get all the triples we care about
         schemaTerms = new HashMap<>();
@@ -144,6 +180,25 @@ public class DoReasonTask9 extends CommonTask {
                 schemaTerms.put(term, allSchemaTriples.get(term));
             }
         }
+        
+        this.rules = new RuleTable(schemaTerms);
+        
+        if(encodedTermStatsFile != null) {
+            
+            String localTermStatsFile = Utils.TEMP_FOLDER + encodedTermStatsFile;
+            cloud.downloadObjectFromCloudStorage(encodedTermStatsFile, localTermStatsFile, bucket);
+            
+            Map<String, Long> stats = io.cloudex.framework.utils.FileUtils.jsonFileToMap(localTermStatsFile);
+            
+            this.termStats = new HashMap<>();
+            
+            for(Long term: schemaTerms.keySet()) {
+                Long rows = stats.get(term.toString());
+                if(rows != null) {
+                    this.termStats.put(term, rows);
+                }
+            }
+        }
 	    
 	}
 	
@@ -186,11 +241,31 @@ public class DoReasonTask9 extends CommonTask {
 		
 		int processors = Runtime.getRuntime().availableProcessors();
 		
-		if(processors > 1) {
+		boolean streaming = Boolean.TRUE.equals(this.streamResults);
+		int pageSize = Config.getIntegerProperty(Constants.REASON_STREAM_PAGE_SIZE, 100_000);
+		long maxQueryRows = Config.getLongProperty(Constants.REASON_QUERY_MAX_ROWS, 50_000_000L);
+		
+		// streaming always needs a worker thread, so the download can continue while reasoning
+		if((processors > 1) || streaming) {
 		    this.executor = Utils.createFixedThreadPool(processors);
 		}
 		
 		int count = 0;
+		boolean done = false;
+		
+		FixpointDetector fixpoint = null;
+		
+		if((this.jobId != null) && (this.numberOfProcessors != null)) {
+		    
+		    String ledgerBucket = (this.fixpointBucket != null) ? this.fixpointBucket : bucket;
+		    
+		    fixpoint = new FixpointDetector(new CloudStorageInferenceLedger(cloud, ledgerBucket, jobId), instanceId, numberOfProcessors, 
+		            Config.getIntegerProperty(Constants.REASON_FIXPOINT_POLL_DELAY, 2) * 1000L, 
+		            Config.getIntegerProperty(Constants.REASON_FIXPOINT_MAX_POLL_DELAY, 30) * 1000L, 
+		            Config.getIntegerProperty(Constants.REASON_FIXPOINT_TIMEOUT, 3600) * 1000L);
+		    
+		    log.info("Detecting the fixpoint with " + numberOfProcessors + " nodes for job: " + jobId + ", in bucket: " + ledgerBucket);
+		}
 		
 		QueryGenerator<Long> generator = new QueryGenerator<Long>(schemaTerms, null);
 		
@@ -200,40 +275,78 @@ public class DoReasonTask9 extends CommonTask {
 			// First of all run all the queries asynchronously and remember the jobId and filename for each term
 			generator.setDecoratedTable(decoratedTable);
 			
-			String query = generator.getQuery();
-			log.debug("Generated Query: " + query);
+			// the term stats only describe the whole table, the decorated tables of the later cycles are much 
+			// smaller so their queries are only split if they are too long
+			List<String> queries = (count == 0) ? generator.getQueries(termStats, maxQueryRows) : generator.getQueries();
+			log.debug("Generated Queries: " + queries);
 			
 			String queryResultFilePrefix = instanceId + "_QueryResults_" + count;
-
-			String jobId = cloud.startBigDataQuery(query, new BigDataTable(this.table));
-			//QueryResult	queryResult = QueryResult.create().setFilename(queryResultFilePrefix).setJobId(jobId);
-			
-			long start = System.currentTimeMillis();
 			
-			// block and wait for each job to complete then save results to a file
-			QueryStats stats = cloud.saveBigQueryResultsToFile(jobId, queryResultFilePrefix, this.bucket, processors, this.ddLimit);
+			// start all the queries so they run concurrently, then process their results in turn
+			List<QueryResult> queryResults = new ArrayList<>();
 			
-			BigInteger rows = stats.getTotalRows();
+			for(int i = 0; i < queries.size(); i++) {
+			    String queryJobId = cloud.startBigDataQuery(queries.get(i), new BigDataTable(this.table));
+			    String filename = (queries.size() == 1) ? queryResultFilePrefix : queryResultFilePrefix + '_' + i;
+			    queryResults.add(QueryResult.create().setFilename(filename).setJobId(queryJobId));
+			}
 			
-			this.totalBytes = this.totalBytes + stats.getTotalProcessedBytes();
+			long start = System.currentTimeMillis();
 			
 			Set<Long> productiveTerms = new HashSet<>();
 			Set<String> inferredTriplesFiles =  new HashSet<>();
 			int interimInferredTriples = 0;
 			
-			// only process if triples are found matching this term
-			if((rows != null) && !BigInteger.ZERO.equals(rows)) {
-
-			    stopwatch1.start();
-
-			    interimInferredTriples = this.inferAndSaveTriplesToFile(stats, productiveTerms, processors, inferredTriplesFiles);
-
-			    this.totalRows = this.totalRows.add(rows);
-
-			    stopwatch1.stop();
-
-			} else {
-			    log.info("Skipping query as no data is found");
+			for(QueryResult queryResult: queryResults) {
+			    
+			    String queryJobId = queryResult.getJobId();
+			    
+			    QueryStats stats;
+			    
+			    if(streaming) {
+			        
+			        stopwatch1.start();
+			        
+			        QueryResultPages pages = ((EcarfGoogleCloudService) cloud).getQueryResultPages(queryJobId, pageSize);
+			        
+			        interimInferredTriples += this.inferAndSaveTriplesToFile(pages, queryResult.getFilename(), 
+			                productiveTerms, processors, inferredTriplesFiles);
+			        
+			        stats = pages.getQueryStats();
+			        
+			        stopwatch1.stop();
+			        
+			    } else {
+			        // block and wait for each job to complete then save results to a file
+			        stats = cloud.saveBigQueryResultsToFile(queryJobId, queryResult.getFilename(), this.bucket, processors, this.ddLimit);
+			    }
+			    
+			    BigInteger rows = stats.getTotalRows();
+			    
+			    if(stats.getTotalProcessedBytes() != null) {
+			        this.totalBytes = this.totalBytes + stats.getTotalProcessedBytes();
+			    }
+			    
+			    if(streaming) {
+			        
+			        if(rows != null) {
+			            this.totalRows = this.totalRows.add(rows);
+			        }
+			        
+			    } else if((rows != null) && !BigInteger.ZERO.equals(rows)) {
+			        // only process if triples are found matching this term
+			        
+			        stopwatch1.start();
+			        
+			        interimInferredTriples += this.inferAndSaveTriplesToFile(stats, productiveTerms, processors, inferredTriplesFiles);
+			        
+			        this.totalRows = this.totalRows.add(rows);
+			        
+			        stopwatch1.stop();
+			        
+			    } else {
+			        log.info("Skipping query as no data is found");
+			    }
 			}
 
 			totalInferredTriples += interimInferredTriples;
@@ -246,7 +359,8 @@ public class DoReasonTask9 extends CommonTask {
 				log.info("Inserting " + interimInferredTriples + 
 						", inferred triples into Big Data table for " + productiveTerms.size() + " productive terms. Filename: " + inferredTriplesFiles);
 				
-				if(interimInferredTriples <= streamingThreshold) {
+				// streamed rows might not be visible yet to the other nodes' next queries, so load them when detecting the fixpoint
+				if((interimInferredTriples <= streamingThreshold) && (fixpoint == null)) {
 					// stream the data
 					
 					Set<Triple> inferredTriples = new HashSet<>();
@@ -271,9 +385,9 @@ public class DoReasonTask9 extends CommonTask {
 				        cloudStorageFiles.add(file.getUri());
 				    }
 					
-					jobId = cloud.loadCloudStorageFilesIntoBigData(cloudStorageFiles, TableUtils.getBigQueryEncodedTripleTable(table), false);
+					String loadJobId = cloud.loadCloudStorageFilesIntoBigData(cloudStorageFiles, TableUtils.getBigQueryEncodedTripleTable(table), false);
 					
-					log.info("All inferred triples are loaded into Big Data table through cloud storage, completed jobId: " + jobId);
+					log.info("All inferred triples are loaded into Big Data table through cloud storage, completed jobId: " + loadJobId);
 					
 				}
 				
@@ -294,8 +408,18 @@ public class DoReasonTask9 extends CommonTask {
 
 			log.info("Total inferred triples so far = " + totalInferredTriples + ", current retry count: " + emptyRetries);
 			
-			if(emptyRetries < maxRetries) {
-				ApiUtils.block(cycleSleep);
+			if(fixpoint != null) {
+			    done = fixpoint.isFixpoint(count, interimInferredTriples, start);
+			    
+			} else {
+			    done = emptyRetries >= maxRetries;
+			    
+			    if(!done) {
+			        ApiUtils.block(cycleSleep);
+			    }
+			}
+			
+			if(!done) {
 
 				// FIXME move into the particular cloud implementation service
 				long elapsed = System.currentTimeMillis() - start;
@@ -306,9 +430,12 @@ public class DoReasonTask9 extends CommonTask {
 			
 			count++;
 
-		} while(emptyRetries < maxRetries); // end timestamp loop
+		} while(!done); // end timestamp loop
+		
+		if(executor != null) {
+		    executor.shutdown();
+		}
 		
-		executor.shutdown();
 		log.info("Finished reasoning, total inferred triples = " + totalInferredTriples);
 		//log.info("Number of avoided duplicate terms = " + this.duplicates);
 		log.info("Total rows retrieved from big data = " + this.totalRows);
@@ -318,6 +445,31 @@ public class DoReasonTask9 extends CommonTask {
 	}
 	
 
+	/**
+	 * Reason over the query results pages as they are fetched and save the inferred triples to files
+	 * @param pages - the query results
+	 * @param filename - the prefix of the inferred triples files
+	 * @param productiveTerms
+	 * @param processors
+	 * @param inferredTriplesFiles
+	 * @return the number of inferred triples
+	 * @throws IOException
+	 */
+	protected int inferAndSaveTriplesToFile(QueryResultPages pages, String filename, Set<Long> productiveTerms, 
+	        int processors, Set<String> inferredTriplesFiles) throws IOException {
+	    
+	    PagedReasoner reasoner = new PagedReasoner(rules, this.getDuplicatesBuster(), executor, processors);
+	    
+	    return reasoner.reason(pages, Utils.TEMP_FOLDER + filename, productiveTerms, inferredTriplesFiles);
+	}
+	
+	/**
+	 * @return the duplicates buster used to skip duplicate inferred triples, null if none
+	 */
+	protected DuplicatesBuster getDuplicatesBuster() {
+	    return null;
+	}
+	
 	/**
 	 * 
 	 * @param term
@@ -351,7 +503,7 @@ public class DoReasonTask9 extends CommonTask {
 
                     outFile =  file + Constants.DOT_INF;
 
-                    int inferred = ReasonUtils.reason(file, outFile, compressed,  schemaTerms, productiveTerms);
+                    int inferred = ReasonUtils.reason(file, outFile, compressed, rules, productiveTerms, null);
 
                     if(inferred > 0) {
                         inferredTriplesFiles.add(outFile);
@@ -366,7 +518,7 @@ public class DoReasonTask9 extends CommonTask {
                 List<ReasonSubTask> tasks = new ArrayList<>();
                 
                 for(String file: files) {
-                    tasks.add(new ReasonSubTask(compressed, file, schemaTerms));
+                    tasks.add(new ReasonSubTask(compressed, file, rules));
                 }
                 
                 try {
@@ -493,6 +645,7 @@ public class DoReasonTask9 extends CommonTask {
      */
     protected void setSchemaTerms(Map<Long, Set<Triple>> schemaTerms) {
         this.schemaTerms = schemaTerms;
+        this.rules = new RuleTable(schemaTerms);
     }
 
     /**
@@ -522,5 +675,89 @@ public class DoReasonTask9 extends CommonTask {
     public void setSleep(Integer sleep) {
         this.sleep = sleep;
     }
+
+    /**
+     * @return the streamResults
+     */
+    public Boolean getStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * @param streamResults the streamResults to set
+     */
+    public void setStreamResults(Boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    /**
+     * @return the jobId
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * @param jobId the jobId to set
+     */
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    /**
+     * @return the numberOfProcessors
+     */
+    public Integer getNumberOfProcessors() {
+        return numberOfProcessors;
+    }
+
+    /**
+     * @param numberOfProcessors the numberOfProcessors to set
+     */
+    public void setNumberOfProcessors(Integer numberOfProcessors) {
+        this.numberOfProcessors = numberOfProcessors;
+    }
+
+    /**
+     * @return the fixpointBucket
+     */
+    public String getFixpointBucket() {
+        return fixpointBucket;
+    }
+
+    /**
+     * @param fixpointBucket the fixpointBucket to set
+     */
+    public void setFixpointBucket(String fixpointBucket) {
+        this.fixpointBucket = fixpointBucket;
+    }
+
+    /**
+     * @return the encodedTermStatsFile
+     */
+    public String getEncodedTermStatsFile() {
+        return encodedTermStatsFile;
+    }
+
+    /**
+     * @param encodedTermStatsFile the encodedTermStatsFile to set
+     */
+    public void setEncodedTermStatsFile(String encodedTermStatsFile) {
+        this.encodedTermStatsFile = encodedTermStatsFile;
+    }
+
+    /**
+     * @return the closeSchema
+     */
+    public Boolean getCloseSchema() {
+        return closeSchema;
+    }
+
+    /**
+     * @param closeSchema the closeSchema to set
+     */
+    public void setCloseSchema(Boolean closeSchema) {
+        this.closeSchema = closeSchema;
+    }
 	
 }
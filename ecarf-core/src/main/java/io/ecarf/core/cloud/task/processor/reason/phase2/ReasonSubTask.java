@@ -20,11 +20,10 @@
 
 package io.ecarf.core.cloud.task.processor.reason.phase2;
 
-import io.ecarf.core.triple.Triple;
+import io.ecarf.core.reason.rulebased.RuleTable;
 import io.ecarf.core.utils.Constants;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -40,19 +39,19 @@ public class ReasonSubTask implements Callable<ReasonResult> {
     
     private String inFile;
     
-    private Map<Long, Set<Triple>> schemaTerms;
+    private RuleTable rules;
 
     /**
      * @param compressed
      * @param inFile
-     * @param schemaTerms
+     * @param rules
      */
     public ReasonSubTask(boolean compressed, String inFile,
-            Map<Long, Set<Triple>> schemaTerms) {
+            RuleTable rules) {
         super();
         this.compressed = compressed;
         this.inFile = inFile;
-        this.schemaTerms = schemaTerms;
+        this.rules = rules;
     }
 
     /* (non-Javadoc)
@@ -65,7 +64,7 @@ public class ReasonSubTask implements Callable<ReasonResult> {
         
         Set<Long> productiveTerms = new HashSet<>();
 
-        int inferred = ReasonUtils.reason(inFile, outFile, compressed,  schemaTerms, productiveTerms);
+        int inferred = ReasonUtils.reason(inFile, outFile, compressed, rules, productiveTerms, null);
         
         return new ReasonResult(outFile, productiveTerms, inferred);
     }
@@ -21,29 +21,19 @@
 package io.ecarf.core.cloud.task.processor.reason.phase2;
 
 import io.ecarf.core.cloud.task.processor.reason.phase3.DuplicatesBuster;
-import io.ecarf.core.reason.rulebased.GenericRule;
-import io.ecarf.core.reason.rulebased.Rule;
-import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.reason.rulebased.RuleTable;
+import io.ecarf.core.triple.ETripleReader;
+import io.ecarf.core.triple.ETripleWriter;
 import io.ecarf.core.triple.SchemaURIType;
 import io.ecarf.core.triple.Triple;
-import io.ecarf.core.utils.Constants;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.LongTripleSink;
 import io.ecarf.core.utils.Utils;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -66,63 +56,7 @@ public class ReasonUtils {
     public static int reason(String inFile, String outFile, boolean compressed, 
             Map<Long, Set<Triple>> schemaTerms, Set<Long> productiveTerms) throws IOException {
         
-        log.info("Reasoning for file: " + inFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB");
-
-        int inferredTriples = 0;
-
-        // loop through the instance triples probably stored in a file and generate all the triples matching the schema triples set
-        try (BufferedReader reader = getQueryResultsReader(inFile, compressed); 
-             PrintWriter writer = 
-                        new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(
-                                new FileOutputStream(outFile), Constants.GZIP_BUF_SIZE), Constants.GZIP_BUF_SIZE));) {
-
-            Iterable<CSVRecord> records;
-
-            if(compressed) {
-                // ignore first row subject,predicate,object
-                records = CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(reader);
-
-            } else {
-                records = CSVFormat.DEFAULT.parse(reader);
-            }
-
-            Long term;
-
-            for (CSVRecord record : records) {
-
-                ETriple instanceTriple = ETriple.fromCSV(record.values());
-
-                // TODO review for OWL ruleset
-                if(SchemaURIType.RDF_TYPE.id == instanceTriple.getPredicate()) {
-
-                    term = instanceTriple.getObject(); // object
-
-                } else {
-
-                    term = instanceTriple.getPredicate(); // predicate
-                }
-
-                Set<Triple> schemaTriples = schemaTerms.get(term);
-
-                if((schemaTriples != null) && !schemaTriples.isEmpty()) {
-                    productiveTerms.add(term);
-
-                    for(Triple schemaTriple: schemaTriples) {
-                        Rule rule = GenericRule.getRule(schemaTriple);
-                        Triple inferredTriple = rule.head(schemaTriple, instanceTriple);
-
-                        if(inferredTriple != null) {
-                            writer.println(inferredTriple.toCsv());
-                            inferredTriples++;
-                        }
-                    }
-                }
-
-            }
-
-        }
-
-        return inferredTriples;
+        return reason(inFile, outFile, compressed, new RuleTable(schemaTerms), productiveTerms, null);
     }
     
     /**
@@ -136,85 +70,112 @@ public class ReasonUtils {
     public static int reason(String inFile, String outFile, boolean compressed, 
             Map<Long, Set<Triple>> schemaTerms, Set<Long> productiveTerms, DuplicatesBuster duplicatesBuster) throws IOException {
         
+        return reason(inFile, outFile, compressed, new RuleTable(schemaTerms), productiveTerms, duplicatesBuster);
+    }
+    
+    /**
+     * Apply the compiled rules to the instance triples in inFile and save the inferred triples to outFile
+     * @param inFile - the query results file, CSV or binary
+     * @param outFile - binary if it has a {@link io.ecarf.core.utils.Constants#DOT_BIN} extension, otherwise compressed CSV
+     * @param compressed - true if the query results are compressed with a header row
+     * @param rules - the compiled schema
+     * @param productiveTerms - populated with the terms that triggered any rules
+     * @param duplicatesBuster - optional, used to skip duplicate rdf:type triples
+     * @return the number of inferred triples
+     * @throws IOException
+     */
+    public static int reason(String inFile, String outFile, boolean compressed, 
+            RuleTable rules, Set<Long> productiveTerms, DuplicatesBuster duplicatesBuster) throws IOException {
+        
         log.info("Reasoning for file: " + inFile + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB");
 
         int inferredTriples = 0;
+        
+        boolean [] productive = new boolean[rules.getCapacity()];
 
         // loop through the instance triples probably stored in a file and generate all the triples matching the schema triples set
-        try (BufferedReader reader = getQueryResultsReader(inFile, compressed); 
-             PrintWriter writer = 
-                        new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(
-                                new FileOutputStream(outFile), Constants.GZIP_BUF_SIZE), Constants.GZIP_BUF_SIZE));) {
-
-            Iterable<CSVRecord> records;
-
-            if(compressed) {
-                // ignore first row subject,predicate,object
-                records = CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(reader);
-
-            } else {
-                records = CSVFormat.DEFAULT.parse(reader);
-            }
-
-            Long term;
-
-            for (CSVRecord record : records) {
-
-                ETriple instanceTriple = ETriple.fromCSV(record.values());
-
-                // TODO review for OWL ruleset
-                if(SchemaURIType.RDF_TYPE.id == instanceTriple.getPredicate()) {
-
-                    term = instanceTriple.getObject(); // object
-
-                } else {
-
-                    term = instanceTriple.getPredicate(); // predicate
-                }
-
-                Set<Triple> schemaTriples = schemaTerms.get(term);
-
-                if((schemaTriples != null) && !schemaTriples.isEmpty()) {
-                    productiveTerms.add(term);
-
-                    for(Triple schemaTriple: schemaTriples) {
-                        Rule rule = GenericRule.getRule(schemaTriple);
-                        Triple inferredTriple = rule.head(schemaTriple, instanceTriple);
-
-                        if((inferredTriple != null) && !duplicatesBuster.isDuplicate(inferredTriple)) {
-                            writer.println(inferredTriple.toCsv());
-                            inferredTriples++;
-                        }
-                    }
-                }
-
-            }
+        // the compressed query results have a subject,predicate,object header row
+        try (ETripleReader reader = TripleUtils.openEncodedTriples(inFile, compressed); 
+             ETripleWriter writer = TripleUtils.createEncodedTriplesWriter(outFile)) {
 
+            reason(reader, writer, rules, productive, duplicatesBuster);
+            
+            inferredTriples = writer.getCount();
         }
+        
+        addProductiveTerms(rules, productive, productiveTerms);
 
         return inferredTriples;
     }
-
+    
     /**
-     * Get a reader based on if the query results are compressed or not
-     * @param filename
-     * @param compressed
-     * @return
+     * Apply the compiled rules to the instance triples of the reader and write the inferred triples
+     * @param reader - the instance triples
+     * @param writer - receives the inferred triples
+     * @param rules - the compiled schema
+     * @param productive - the slots of the rules that have been triggered are set to true, must be of the
+     * rules capacity
+     * @param duplicatesBuster - optional, used to skip duplicate rdf:type triples
      * @throws IOException
      */
-    private static BufferedReader getQueryResultsReader(String filename, boolean compressed) throws IOException {
-
-        BufferedReader reader;
-
-        if(compressed) {
-            reader = new BufferedReader(new InputStreamReader(
-                    new GZIPInputStream(new FileInputStream(filename), Constants.GZIP_BUF_SIZE)), Constants.GZIP_BUF_SIZE);
+    public static void reason(ETripleReader reader, ETripleWriter writer, RuleTable rules, boolean [] productive, 
+            DuplicatesBuster duplicatesBuster) throws IOException {
+        
+        LongTripleSink sink = (duplicatesBuster == null) ? writer : new DuplicatesFilter(writer, duplicatesBuster);
+        
+        while(reader.next()) {
+            
+            if(!reader.hasObject()) {
+                writer.setLiteral(reader.getLiteral());
+            }
+            
+            int slot = rules.apply(reader.getSubject(), reader.getPredicate(), reader.getObject(), sink);
+            
+            if(slot >= 0) {
+                productive[slot] = true;
+            }
+        }
+    }
+    
+    /**
+     * Add the terms of the triggered rules to productiveTerms
+     * @param rules
+     * @param productive - the flags populated by {@link #reason(ETripleReader, ETripleWriter, RuleTable, boolean[], DuplicatesBuster)}
+     * @param productiveTerms
+     */
+    public static void addProductiveTerms(RuleTable rules, boolean [] productive, Set<Long> productiveTerms) {
+        
+        for(int i = 0; i < productive.length; i++) {
+            if(productive[i]) {
+                productiveTerms.add(rules.getTerm(i));
+            }
+        }
+    }
+    
+    /**
+     * Drops the rdf:type triples that have been seen before
+     */
+    private static class DuplicatesFilter implements LongTripleSink {
+        
+        private final LongTripleSink sink;
+        
+        private final DuplicatesBuster duplicatesBuster;
 
-        } else {
-            reader = new BufferedReader(new FileReader(filename), Constants.GZIP_BUF_SIZE);
+        DuplicatesFilter(LongTripleSink sink, DuplicatesBuster duplicatesBuster) {
+            this.sink = sink;
+            this.duplicatesBuster = duplicatesBuster;
         }
 
-        return reader;
+        /* (non-Javadoc)
+         * @see io.ecarf.core.utils.LongTripleSink#add(long, long, long)
+         */
+        @Override
+        public void add(long subject, long predicate, long object) {
+            
+            if((predicate != SchemaURIType.RDF_TYPE.id) || !duplicatesBuster.isDuplicate(subject, object)) {
+                sink.add(subject, predicate, object);
+            }
+        }
     }
 
 }
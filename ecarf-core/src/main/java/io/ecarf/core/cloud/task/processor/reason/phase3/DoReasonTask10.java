@@ -33,6 +33,7 @@ import io.cloudex.framework.cloud.entities.QueryStats;
 import io.ecarf.core.cloud.task.processor.reason.phase2.DoReasonTask9;
 import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonResult;
 import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
+import io.ecarf.core.utils.Config;
 import io.ecarf.core.utils.Constants;
 
 /**
@@ -43,7 +44,16 @@ public class DoReasonTask10 extends DoReasonTask9 {
     
     private final static Log log = LogFactory.getLog(DoReasonTask10.class);
     
-    private DuplicatesBuster duplicatesBuster = new DuplicatesBuster();
+    private DuplicatesBuster duplicatesBuster = DuplicatesBuster.create(
+            Config.getLongProperty(Constants.REASON_DUPLICATES_MAX_MEMORY, 0L) * 1024 * 1024);
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.task.processor.reason.phase2.DoReasonTask9#getDuplicatesBuster()
+     */
+    @Override
+    protected DuplicatesBuster getDuplicatesBuster() {
+        return duplicatesBuster;
+    }
 
     /* (non-Javadoc)
      * @see io.ecarf.core.cloud.task.processor.reason.phase2.DoReasonTask9#inferAndSaveTriplesToFile(io.cloudex.framework.cloud.entities.QueryStats, java.util.Set, int, java.util.Set)
@@ -70,7 +80,7 @@ public class DoReasonTask10 extends DoReasonTask9 {
 
                     outFile =  file + Constants.DOT_INF;
 
-                    int inferred = ReasonUtils.reason(file, outFile, compressed,  schemaTerms, productiveTerms, duplicatesBuster);
+                    int inferred = ReasonUtils.reason(file, outFile, compressed, rules, productiveTerms, duplicatesBuster);
 
                     if(inferred > 0) {
                         inferredTriplesFiles.add(outFile);
@@ -85,7 +95,7 @@ public class DoReasonTask10 extends DoReasonTask9 {
                 List<ReasonSubTask> tasks = new ArrayList<>();
 
                 for(String file: files) {
-                    tasks.add(new ReasonSubTask(compressed, file, schemaTerms, duplicatesBuster));
+                    tasks.add(new ReasonSubTask(compressed, file, rules, duplicatesBuster));
                 }
 
                 try {
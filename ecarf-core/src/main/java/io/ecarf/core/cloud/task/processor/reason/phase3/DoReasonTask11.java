@@ -0,0 +1,123 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.task.processor.reason.phase3;
+
+import io.cloudex.cloud.impl.google.GoogleCloudService;
+import io.cloudex.framework.cloud.entities.BigDataTable;
+import io.cloudex.framework.cloud.entities.QueryStats;
+import io.cloudex.framework.cloud.entities.StorageObject;
+import io.ecarf.core.cloud.task.processor.reason.phase2.DoReasonTask9;
+import io.ecarf.core.reason.rulebased.SemiNaiveReasoner;
+import io.ecarf.core.reason.rulebased.query.QueryGenerator;
+import io.ecarf.core.utils.Config;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.TableUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+
+/**
+ * Reason task that runs the schema query once and computes the full closure of the results locally using the 
+ * {@link SemiNaiveReasoner}, the rules only ever join one instance triple with the schema so the closure of the 
+ * query results is the complete set of inferred triples. This avoids the repeated table decorator queries and the 
+ * empty retries used by {@link DoReasonTask9} to detect the fixpoint.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class DoReasonTask11 extends DoReasonTask9 {
+    
+    private final static Log log = LogFactory.getLog(DoReasonTask11.class);
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.cloud.task.processor.reason.phase2.DoReasonTask9#run()
+     */
+    @Override
+    public void run() throws IOException {
+        
+        GoogleCloudService cloud = (GoogleCloudService) this.getCloudService();
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        // with a closed schema the first iteration of the reasoner infers everything, the second confirms the fixpoint
+        this.setCloseSchema(true);
+        this.setup(cloud);
+        
+        this.ddLimit = Config.getIntegerProperty(Constants.REASON_DATA_DIRECT_DOWNLOAD_LIMIT, 1_200_000);
+        
+        String table = this.getTable();
+        String bucket = this.getBucket();
+        
+        int processors = Runtime.getRuntime().availableProcessors();
+        
+        QueryGenerator<Long> generator = new QueryGenerator<Long>(schemaTerms, table);
+        
+        String query = generator.getQuery();
+        log.debug("Generated Query: " + query);
+        
+        String jobId = cloud.startBigDataQuery(query, new BigDataTable(table));
+        
+        QueryStats stats = cloud.saveBigQueryResultsToFile(jobId, cloud.getInstanceId() + "_QueryResults_0", 
+                bucket, processors, this.ddLimit);
+        
+        BigInteger rows = stats.getTotalRows();
+        
+        log.info("TIMER# Query completed in: " + stopwatch + ", rows: " + rows + 
+                ", processed GBytes: " + ((double) stats.getTotalProcessedBytes() / FileUtils.ONE_GB));
+        
+        if((rows == null) || BigInteger.ZERO.equals(rows)) {
+            log.info("No instance triples match the schema, nothing to infer");
+            return;
+        }
+        
+        List<String> files = stats.getOutputFiles();
+        String outFile = files.get(0) + Constants.DOT_INF;
+        
+        SemiNaiveReasoner reasoner = new SemiNaiveReasoner(schemaTerms, processors);
+        
+        int inferred = reasoner.reason(files, rows.intValue() > this.ddLimit, outFile);
+        
+        log.info("TIMER# Closure computed in: " + stopwatch + ", inferred triples: " + inferred + 
+                ", cycles: " + reasoner.getCycles());
+        
+        if(inferred > 0) {
+            
+            log.info("Uploading inferred triples file into cloud storage: " + outFile);
+            StorageObject file = cloud.uploadFileToCloudStorage(outFile, bucket);
+            
+            jobId = cloud.loadCloudStorageFilesIntoBigData(Lists.newArrayList(file.getUri()), 
+                    TableUtils.getBigQueryEncodedTripleTable(table), false);
+            
+            log.info("All inferred triples are loaded into Big Data table through cloud storage, completed jobId: " + jobId);
+        }
+        
+        log.info("TIMER# Finished reasoning in: " + stopwatch + ", total inferred triples = " + inferred);
+    }
+
+}
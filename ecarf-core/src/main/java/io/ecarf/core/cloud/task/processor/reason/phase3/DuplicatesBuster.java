@@ -22,134 +22,175 @@ package io.ecarf.core.cloud.task.processor.reason.phase3;
 
 import io.ecarf.core.triple.SchemaURIType;
 import io.ecarf.core.triple.Triple;
+import io.ecarf.core.utils.BlockedBloomFilter;
+import io.ecarf.core.utils.ConcurrentLongPairSet;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 /**
+ * Detects inferred rdf:type triples that have already been inferred, the (subject, object) pairs are kept
+ * in a primitive {@link ConcurrentLongPairSet} which is safe to use from the parallel reasoning threads.
+ * 
+ * In bounded mode memory is fixed regardless of how many triples are inferred across the reasoning cycles. 
+ * An exact window holds the most recently seen pairs in two generations and a triple is reported as a duplicate 
+ * exactly when it's in the window, so a triple is never wrongly dropped. Duplicates that have dropped out of the 
+ * window are inferred again, which is harmless for the closure. As only the window removes duplicates it gets 
+ * most of the memory, a small {@link BlockedBloomFilter} of all the pairs seen is only a fast path that skips the 
+ * window lookups for pairs that are definitely new.
+ * 
  * @author Omer Dawelbeit (omerio)
  *
  */
 public class DuplicatesBuster {
     
-    private static final Long RDF_TYPE = (long) SchemaURIType.RDF_TYPE.id;
+    private final static Log log = LogFactory.getLog(DuplicatesBuster.class);
     
-    // hashmap keyed by the object of rdf:type vs Set of subjects
-    private ConcurrentHashMap<Long, Set<Long>> rdfTypeMap = new ConcurrentHashMap<>();
+    private static final long RDF_TYPE = SchemaURIType.RDF_TYPE.id;
     
-    // hashmap keyed by the predicate with a subject, object tuple
-    //private ConcurrentHashMap<Long, Set<Tuple>> rdfSubPropertyMap = new ConcurrentHashMap<>();
+    // approx. bytes per window entry, 16 bytes at 0.6 load factor and the segments doubling
+    private static final int WINDOW_ENTRY_BYTES = 32;
     
-    public boolean isDuplicate(Triple triple) {
-        boolean duplicate = false;
-        // ?x, rdf:type, ?c
+    // the bloom filter gets 1/8 of the memory in bounded mode, the window generations the rest
+    private static final int FILTER_MEMORY_SHIFT = 3;
+    
+    private static final int DEFAULT_EXPECTED_SIZE = 1_000_000;
+    
+    // (subject, object) pairs of rdf:type triples, in bounded mode this is the current window generation
+    private volatile ConcurrentLongPairSet rdfTypes;
+    
+    private volatile ConcurrentLongPairSet previous;
+    
+    private final BlockedBloomFilter filter;
+    
+    private final long windowCapacity;
+    
+    private final AtomicLong windowSize = new AtomicLong();
+    
+    /**
+     * An exact duplicates buster that grows with the number of inferred triples
+     */
+    public DuplicatesBuster() {
+        this.rdfTypes = new ConcurrentLongPairSet(DEFAULT_EXPECTED_SIZE);
+        this.filter = null;
+        this.windowCapacity = 0;
+    }
+    
+    /**
+     * A bounded duplicates buster that uses at most the provided memory, 7/8 of which is used by 
+     * the two window generations, each holding maxMemory * 7 / 512 pairs, and the rest by the bloom filter
+     * @param maxMemory - the maximum memory in bytes
+     */
+    public DuplicatesBuster(long maxMemory) {
+        long filterMemory = maxMemory >> FILTER_MEMORY_SHIFT;
         
-        Long predicate = (Long) triple.getPredicate();
-        Long subject = (Long) triple.getSubject();
-        Long object = (Long) triple.getObject();
+        this.windowCapacity = Math.max((maxMemory - filterMemory) / (2 * WINDOW_ENTRY_BYTES), 1);
         
-        if(RDF_TYPE.equals(predicate)) {
-
-            if(rdfTypeMap.containsKey(object)) {
-                
-                Set<Long> subjects = rdfTypeMap.get(object);
-                if(subjects.contains(subject)) {
-                    duplicate = true;
-                    
-                } else {
-                    subjects.add(subject);
-                }
-                
-            } else {
-                Set<Long> subjects = new HashSet<>(100000);
-                subjects.add(subject);
-                rdfTypeMap.putIfAbsent(object, subjects);
-            }
-            
-        } 
+        int expectedSize = (int) Math.min(windowCapacity, Integer.MAX_VALUE);
+        this.rdfTypes = new ConcurrentLongPairSet(expectedSize);
+        this.previous = new ConcurrentLongPairSet(expectedSize);
+        this.filter = new BlockedBloomFilter(filterMemory);
         
-        // Our source of duplicates is well and truley triples with rdf:type
+        log.info("Created bounded duplicates buster, window capacity: " + windowCapacity + 
+                " pairs in each of 2 generations, window bytes: " + (2 * windowCapacity * WINDOW_ENTRY_BYTES) + 
+                ", bloom filter bytes: " + filter.getMemoryUsage());
+    }
+    
+    /**
+     * Create a duplicates buster, bounded if a max memory is provided
+     * @param maxMemory - the max memory in bytes or zero for an exact, unbounded duplicates buster
+     * @return
+     */
+    public static DuplicatesBuster create(long maxMemory) {
+        return (maxMemory > 0) ? new DuplicatesBuster(maxMemory) : new DuplicatesBuster();
+    }
+    
+    /**
+     * Check if the triple has been seen before
+     * @param triple
+     * @return
+     */
+    public boolean isDuplicate(Triple triple) {
         
-        /*else {
-            
-            Tuple tuple = new Tuple(subject, object);
-            
-            if(rdfSubPropertyMap.containsKey(predicate)) {
-                
-                Set<Tuple> subjectObjects = rdfSubPropertyMap.get(predicate);
-                
-                if(subjectObjects.contains(tuple)) {
-                    duplicate = true;
-                    
-                } else {
-                    subjectObjects.add(tuple);
-                }
-                
-            } else {
-                
-                Set<Tuple> subjectObjects = new HashSet<>();
-                subjectObjects.add(tuple);
-                rdfSubPropertyMap.putIfAbsent(object, subjectObjects);
-            }
-            
-        }*/
+        // Our source of duplicates is well and truly triples with rdf:type
+        // ?x, rdf:type, ?c
+        Long predicate = (Long) triple.getPredicate();
         
-        return duplicate;
+        if((predicate == null) || (predicate != RDF_TYPE)) {
+            return false;
+        }
+        
+        return this.isDuplicate((Long) triple.getSubject(), (Long) triple.getObject());
     }
     
-    
     /**
-     * using primitives, although there is unboxing hit, we should save memory
-     * @author Omer Dawelbeit (omerio)
-     *
+     * Check if the (subject, object) pair of an rdf:type triple has been seen before
+     * @param subject
+     * @param object
+     * @return
      */
-   /* public class Tuple { 
-        private long subject; 
-        private long object;
+    public boolean isDuplicate(long subject, long object) {
         
-        *//**
-         * @param subject
-         * @param object
-         *//*
-        public Tuple(long subject, long object) {
-            super();
-            this.subject = subject;
-            this.object = object;
+        if(filter == null) {
+            return !rdfTypes.add(subject, object);
         }
-
-         (non-Javadoc)
-         * @see java.lang.Object#hashCode()
-         
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + (int) (object ^ (object >>> 32));
-            result = prime * result + (int) (subject ^ (subject >>> 32));
-            return result;
+        
+        ConcurrentLongPairSet window = this.rdfTypes;
+        
+        if(filter.put(subject, object)) {
+            // definitely not seen before
+            this.addToWindow(window, subject, object);
+            return false;
         }
-
-         (non-Javadoc)
-         * @see java.lang.Object#equals(java.lang.Object)
-         
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (!(obj instanceof Tuple))
-                return false;
-            Tuple other = (Tuple) obj;
-            if (object != other.object)
-                return false;
-            if (subject != other.subject)
-                return false;
+        
+        if(window.contains(subject, object) || previous.contains(subject, object)) {
             return true;
         }
+        
+        // either a bloom filter false positive or seen before the window, keep it
+        this.addToWindow(window, subject, object);
+        return false;
+    }
+    
+    /**
+     * Add the pair to the current window generation, rotating the generations when it's full
+     * @param window
+     * @param subject
+     * @param object
+     */
+    private void addToWindow(ConcurrentLongPairSet window, long subject, long object) {
+        
+        if(window.add(subject, object) && (windowSize.incrementAndGet() >= windowCapacity)) {
+            
+            synchronized(this) {
+                
+                if(window == this.rdfTypes) {
+                    // reuse the oldest generation
+                    ConcurrentLongPairSet oldest = this.previous;
+                    this.previous = window;
+                    oldest.clear();
+                    this.rdfTypes = oldest;
+                    this.windowSize.set(0);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the number of pairs each window generation holds before the generations are rotated, 
+     * zero if unbounded
+     */
+    public long getWindowCapacity() {
+        return windowCapacity;
+    }
     
+    /**
+     * @return true if this duplicates buster uses a fixed amount of memory
+     */
+    public boolean isBounded() {
+        return filter != null;
     }
-    */
  
 }
@@ -0,0 +1,145 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.task.processor.reason.phase3;
+
+import io.ecarf.core.cloud.CycleRecord;
+import io.ecarf.core.cloud.InferenceLedger;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Detects when the reasoning of all the nodes has reached a global fixpoint. At the end of each cycle every node 
+ * publishes how many triples it has inferred and loaded, then waits for the records of the other nodes. Once all 
+ * the nodes have published, a cycle in which none of them has inferred anything means none of the next queries 
+ * can find new triples, so all the nodes stop after the same cycle without any empty retries
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class FixpointDetector {
+    
+    private final static Log log = LogFactory.getLog(FixpointDetector.class);
+    
+    private InferenceLedger ledger;
+    
+    private String node;
+    
+    private int nodes;
+    
+    private long pollDelay;
+    
+    private long maxPollDelay;
+    
+    private long timeout;
+
+    /**
+     * @param ledger - shared by all the nodes
+     * @param node - the id of this node
+     * @param nodes - the total number of nodes
+     * @param pollDelay - the delay in milliseconds between the reads of the ledger
+     * @param timeout - the maximum time in milliseconds to wait for the other nodes in each cycle
+     */
+    public FixpointDetector(InferenceLedger ledger, String node, int nodes, long pollDelay, long timeout) {
+        this(ledger, node, nodes, pollDelay, pollDelay, timeout);
+    }
+    
+    /**
+     * @param ledger - shared by all the nodes
+     * @param node - the id of this node
+     * @param nodes - the total number of nodes
+     * @param pollDelay - the delay in milliseconds before the second read of the ledger in each cycle
+     * @param maxPollDelay - the delay is doubled after each read that doesn't have all the records up to this 
+     * maximum, so slow nodes don't cause many reads
+     * @param timeout - the maximum time in milliseconds to wait for the other nodes in each cycle
+     */
+    public FixpointDetector(InferenceLedger ledger, String node, int nodes, long pollDelay, long maxPollDelay, 
+            long timeout) {
+        super();
+        this.ledger = ledger;
+        this.node = node;
+        this.nodes = nodes;
+        this.pollDelay = pollDelay;
+        this.maxPollDelay = Math.max(pollDelay, maxPollDelay);
+        this.timeout = timeout;
+    }
+    
+    /**
+     * Publish the record of this node for the cycle then block until all the nodes have published theirs. 
+     * The inferred triples must be loaded before calling this method so they are visible to the next cycle 
+     * of all the nodes
+     * @param cycle - the reasoning cycle
+     * @param inferred - the number of triples this node has inferred and loaded in the cycle
+     * @param watermark - the time in milliseconds from which this cycle query included new triples
+     * @return true if no node has inferred any triples in the cycle
+     * @throws IOException if the ledger fails or not all the nodes have published before the timeout
+     */
+    public boolean isFixpoint(int cycle, long inferred, long watermark) throws IOException {
+        
+        ledger.publish(new CycleRecord(node, cycle, inferred, watermark));
+        
+        long deadline = System.currentTimeMillis() + timeout;
+        long delay = pollDelay;
+        
+        while(true) {
+            
+            // keyed by node in case a record is listed more than once
+            Map<String, Long> published = new HashMap<>();
+            
+            for(CycleRecord record: ledger.getRecords(cycle)) {
+                published.put(record.getNode(), record.getInferred());
+            }
+            
+            if(published.size() >= nodes) {
+                
+                long total = 0;
+                for(Long count: published.values()) {
+                    total += count;
+                }
+                
+                log.info("All nodes have completed cycle: " + cycle + ", total inferred triples: " + total);
+                
+                return total == 0;
+            }
+            
+            long remaining = deadline - System.currentTimeMillis();
+            
+            if(remaining <= 0) {
+                throw new IOException("Timed out waiting for cycle: " + cycle + " records, published nodes: " + 
+                        published.keySet() + " out of: " + nodes);
+            }
+            
+            try {
+                Thread.sleep(Math.min(delay, remaining));
+                delay = Math.min(delay * 2, maxPollDelay);
+                
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted whilst waiting for cycle: " + cycle + " records", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,230 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.cloud.task.processor.reason.phase3;
+
+import io.ecarf.core.cloud.QueryResultPages;
+import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonResult;
+import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
+import io.ecarf.core.reason.rulebased.RuleTable;
+import io.ecarf.core.triple.ETripleBatch;
+import io.ecarf.core.triple.ETripleWriter;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.Constants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Reasons over the pages of query results as they are fetched rather than after all the results have been saved 
+ * to files. The calling thread fetches the pages and hands them to the reasoning workers through a bounded queue, 
+ * so downloading overlaps with reasoning and only a few pages are held in memory at any time. Each worker writes 
+ * its inferred triples incrementally to its own file.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PagedReasoner {
+    
+    private final static Log log = LogFactory.getLog(PagedReasoner.class);
+    
+    // tells a worker there are no more pages
+    private static final ETripleBatch END = new ETripleBatch(0);
+    
+    private final RuleTable rules;
+    
+    private final DuplicatesBuster duplicatesBuster;
+    
+    private final ExecutorService executor;
+    
+    private final int workers;
+
+    /**
+     * @param rules - the compiled schema
+     * @param duplicatesBuster - optional, used to skip duplicate rdf:type triples
+     * @param executor - runs the workers
+     * @param workers - the number of reasoning workers
+     */
+    public PagedReasoner(RuleTable rules, DuplicatesBuster duplicatesBuster, ExecutorService executor, int workers) {
+        super();
+        this.rules = rules;
+        this.duplicatesBuster = duplicatesBuster;
+        this.executor = executor;
+        this.workers = Math.max(workers, 1);
+    }
+    
+    /**
+     * Reason over all the pages of the provided query results
+     * @param pages - the query results
+     * @param outFilePrefix - each worker writes to outFilePrefix_[worker].inf
+     * @param productiveTerms - populated with the terms that triggered any rules
+     * @param inferredTriplesFiles - populated with the files that have any inferred triples
+     * @return the number of inferred triples
+     * @throws IOException
+     */
+    public int reason(QueryResultPages pages, String outFilePrefix, Set<Long> productiveTerms, 
+            Set<String> inferredTriplesFiles) throws IOException {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        BlockingQueue<ETripleBatch> queue = new ArrayBlockingQueue<>(workers * 2);
+        
+        List<Future<ReasonResult>> results = new ArrayList<>();
+        
+        try {
+            
+            for(int i = 0; i < workers; i++) {
+                results.add(executor.submit(new Worker(queue, outFilePrefix + "_" + i + Constants.DOT_INF)));
+            }
+            
+            int numPages = 0;
+            long rows = 0;
+            
+            ETripleBatch page;
+            
+            while((page = pages.nextPage()) != null) {
+                
+                if(page.size() > 0) {
+                    this.put(queue, page, results);
+                    numPages++;
+                    rows += page.size();
+                }
+            }
+            
+            for(int i = 0; i < workers; i++) {
+                this.put(queue, END, results);
+            }
+            
+            int inferred = 0;
+            
+            for(Future<ReasonResult> result: results) {
+                
+                ReasonResult reasonResult = result.get();
+                
+                productiveTerms.addAll(reasonResult.getProductiveTerms());
+                
+                if(reasonResult.getInferred() > 0) {
+                    inferredTriplesFiles.add(reasonResult.getOutFile());
+                }
+                
+                inferred += reasonResult.getInferred();
+            }
+            
+            log.info("Reasoned over " + rows + " rows in " + numPages + " pages, inferred: " + inferred + 
+                    ", in: " + stopwatch);
+            
+            return inferred;
+            
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reasoning over query results", e);
+            
+        } catch(ExecutionException e) {
+            log.error("Failed to reason over query results", e);
+            throw new IOException(e.getCause());
+            
+        } finally {
+            // stops any workers left waiting for pages if fetching has failed
+            for(Future<ReasonResult> result: results) {
+                result.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * Queue the page, checking while the queue is full that the workers haven't failed
+     * @param queue
+     * @param page
+     * @param results
+     * @throws InterruptedException
+     * @throws ExecutionException if a worker has failed
+     */
+    private void put(BlockingQueue<ETripleBatch> queue, ETripleBatch page, List<Future<ReasonResult>> results) 
+            throws InterruptedException, ExecutionException {
+        
+        while(!queue.offer(page, 1, TimeUnit.SECONDS)) {
+            
+            for(Future<ReasonResult> result: results) {
+                if(result.isDone()) {
+                    // a worker only finishes before the end of the pages if it has failed
+                    result.get();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reasons over the pages taken from the queue until the end
+     */
+    private class Worker implements Callable<ReasonResult> {
+        
+        private final BlockingQueue<ETripleBatch> queue;
+        
+        private final String outFile;
+        
+        Worker(BlockingQueue<ETripleBatch> queue, String outFile) {
+            this.queue = queue;
+            this.outFile = outFile;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public ReasonResult call() throws Exception {
+            
+            boolean [] productive = new boolean[rules.getCapacity()];
+            
+            int inferred;
+            
+            try(ETripleWriter writer = TripleUtils.createEncodedTriplesWriter(outFile)) {
+                
+                ETripleBatch page;
+                
+                while((page = queue.take()) != END) {
+                    ReasonUtils.reason(page, writer, rules, productive, duplicatesBuster);
+                }
+                
+                inferred = writer.getCount();
+            }
+            
+            Set<Long> productiveTerms = new HashSet<>();
+            ReasonUtils.addProductiveTerms(rules, productive, productiveTerms);
+            
+            return new ReasonResult(outFile, productiveTerms, inferred);
+        }
+    }
+
+}
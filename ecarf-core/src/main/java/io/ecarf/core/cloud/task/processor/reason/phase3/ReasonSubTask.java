@@ -22,11 +22,10 @@ package io.ecarf.core.cloud.task.processor.reason.phase3;
 
 import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonResult;
 import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
-import io.ecarf.core.triple.Triple;
+import io.ecarf.core.reason.rulebased.RuleTable;
 import io.ecarf.core.utils.Constants;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -42,21 +41,21 @@ public class ReasonSubTask implements Callable<ReasonResult> {
     
     private String inFile;
     
-    private Map<Long, Set<Triple>> schemaTerms;
+    private RuleTable rules;
     
     private DuplicatesBuster duplicatesBuster;
 
     /**
      * @param compressed
      * @param inFile
-     * @param schemaTerms
+     * @param rules
      */
     public ReasonSubTask(boolean compressed, String inFile,
-            Map<Long, Set<Triple>> schemaTerms, DuplicatesBuster duplicatesBuster) {
+            RuleTable rules, DuplicatesBuster duplicatesBuster) {
         super();
         this.compressed = compressed;
         this.inFile = inFile;
-        this.schemaTerms = schemaTerms;
+        this.rules = rules;
         this.duplicatesBuster = duplicatesBuster;
     }
 
@@ -70,7 +69,7 @@ public class ReasonSubTask implements Callable<ReasonResult> {
         
         Set<Long> productiveTerms = new HashSet<>();
 
-        int inferred = ReasonUtils.reason(inFile, outFile, compressed,  schemaTerms, productiveTerms, duplicatesBuster);
+        int inferred = ReasonUtils.reason(inFile, outFile, compressed, rules, productiveTerms, duplicatesBuster);
         
         return new ReasonResult(outFile, productiveTerms, inferred);
     }
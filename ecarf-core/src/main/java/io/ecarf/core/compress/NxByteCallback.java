@@ -0,0 +1,46 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.compress;
+
+import java.io.IOException;
+
+/**
+ * A callback that works on the raw UTF-8 bytes of the N-Triples rather than on the {@link org.semanticweb.yars.nx.Node}s
+ * created by the NxParser. When an {@link NxGzipCallback} also implements this interface {@link NxGzipProcessor} 
+ * reads the input as bytes and passes the callback an {@link NxTokenizer} positioned on each triple, the callback 
+ * only creates a String for a term when it really needs one.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public interface NxByteCallback {
+    
+    /**
+     * Process the triple the tokenizer is positioned on and append the output (if any) to out without the 
+     * line separator
+     * @param tokenizer - the tokenizer positioned on the triple
+     * @param out - the output buffer, null if the input is only being read
+     * @return true if an output line was appended to out, false otherwise
+     * @throws IOException
+     */
+    public boolean processTriple(NxTokenizer tokenizer, StringBuilder out) throws IOException;
+
+}
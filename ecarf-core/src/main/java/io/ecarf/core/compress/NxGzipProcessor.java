@@ -18,18 +18,39 @@
  */
 package io.ecarf.core.compress;
 
+import io.ecarf.core.term.TermCounter;
 import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.Utils;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -44,6 +65,8 @@ import org.apache.commons.logging.LogFactory;
 import org.semanticweb.yars.nx.Node;
 import org.semanticweb.yars.nx.parser.NxParser;
 
+import com.google.common.base.Stopwatch;
+
 /**
  * Processes a normal/gzip input file and outputs
  * to a gzip file
@@ -55,9 +78,15 @@ public class NxGzipProcessor {
 
     private final static Log log = LogFactory.getLog(NxGzipProcessor.class);
 
+    private static final int DEFAULT_BATCH_SIZE = 4 * 1024 * 1024;
+    
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     private String inputFile;
 
     private String outputFile;
+    
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
     /**
      * 
@@ -95,6 +124,11 @@ public class NxGzipProcessor {
      * @throws IOException
      */
     public void read(NxGzipCallback callback) throws IOException {
+        
+        if(callback instanceof NxByteCallback) {
+            this.processTriples(callback, false);
+            return;
+        }
 
         try(BufferedReader deflated = new BufferedReader(new InputStreamReader(
                 this.getDeflatedInputStream(new FileInputStream(this.inputFile))), Constants.GZIP_BUF_SIZE);) {
@@ -124,6 +158,10 @@ public class NxGzipProcessor {
      * @throws IOException 
      */
     public String process(NxGzipCallback callback) throws IOException {
+        
+        if(callback instanceof NxByteCallback) {
+            return this.processTriples(callback, true);
+        }
 
         try(BufferedReader deflated = new BufferedReader(new InputStreamReader(
                 this.getDeflatedInputStream(new FileInputStream(this.inputFile))), Constants.GZIP_BUF_SIZE);) {
@@ -166,6 +204,465 @@ public class NxGzipProcessor {
         }
     }
 
+    /**
+     * Version of {@link NxGzipProcessor#process(NxGzipCallback)} and {@link NxGzipProcessor#read(NxGzipCallback)} 
+     * for callbacks that also implement {@link NxByteCallback}. The decompressed input is read into a reusable byte 
+     * buffer, the whole lines of the buffer are tokenized in place and the output is collected in a reusable buffer
+     * @param callback
+     * @param write - true if the output of the callback should be written to the output file
+     * @return the output file or null if nothing is written
+     * @throws IOException
+     */
+    private String processTriples(NxGzipCallback callback, boolean write) throws IOException {
+        
+        NxByteCallback tripleCallback = (NxByteCallback) callback;
+        
+        try(InputStream deflated = this.getDeflatedInputStream(new FileInputStream(this.inputFile));
+                Writer writer = write ? new OutputStreamWriter(new BufferedOutputStream(
+                    this.getInflatedOutputStream(new FileOutputStream(this.outputFile)), Constants.GZIP_BUF_SIZE)) 
+                    : null) {
+            
+            StringBuilder out = null;
+            char[] outBuffer = null;
+            
+            if(write) {
+                callback.setOutput(writer);
+                out = new StringBuilder(Utils.BUFFER_SIZE << 1);
+                outBuffer = new char[Utils.BUFFER_SIZE << 1];
+            }
+            
+            NxTokenizer tokenizer = new NxTokenizer();
+            
+            byte[] buffer = new byte[Utils.BUFFER_SIZE << 3];
+            int length = 0;
+            int read;
+            boolean last = false;
+            
+            while(!last) {
+                
+                // a line that is longer than the buffer
+                if(length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                }
+                
+                read = deflated.read(buffer, length, buffer.length - length);
+                
+                if(read == -1) {
+                    last = true;
+                    
+                } else {
+                    length += read;
+                }
+                
+                // only whole lines are processed, the remainder is kept for the next read
+                int end = last ? length : (lastIndexOf(buffer, (byte) '\n', length) + 1);
+                
+                if(end > 0) {
+                    
+                    tokenizer.reset(ByteBuffer.wrap(buffer, 0, end));
+                    
+                    while(tokenizer.next()) {
+                        if(tripleCallback.processTriple(tokenizer, out) && write) {
+                            out.append(LINE_SEPARATOR);
+                        }
+                    }
+                    
+                    length -= end;
+                    System.arraycopy(buffer, end, buffer, 0, length);
+                }
+                
+                if(write && ((out.length() >= Utils.BUFFER_SIZE) || last)) {
+                    
+                    if(outBuffer.length < out.length()) {
+                        outBuffer = new char[out.length()];
+                    }
+                    
+                    out.getChars(0, out.length(), outBuffer, 0);
+                    writer.write(outBuffer, 0, out.length());
+                    out.setLength(0);
+                }
+            }
+        }
+        
+        return write ? this.outputFile : null;
+    }
+    
+    /**
+     * @return the index of the last occurrence of value in the first length bytes or -1 if not found
+     */
+    private static int lastIndexOf(byte[] bytes, byte value, int length) {
+        for(int i = length - 1; i >= 0; i--) {
+            if(bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Pipelined version of {@link NxGzipProcessor#process(NxGzipCallback)}. The calling thread
+     * decompresses the input and splits it into batches of whole lines, each of the provided callbacks
+     * is driven by its own worker thread that parses a batch and collects the callback output, and a writer
+     * thread writes the output batches to the output file. The stages are connected by bounded queues and
+     * the number of batches in flight is capped, so memory usage is bounded regardless of the input size.
+     * 
+     * The callbacks are never shared between threads, so callbacks that keep state need to be merged by the caller 
+     * afterwards, a {@link TermCounter} is thread safe and can be shared by the callbacks instead. For gzip output the workers also do the compression, each
+     * batch is written as a separate gzip member, the concatenated members form a valid gzip file.
+     * 
+     * @param callbacks - one callback per worker thread
+     * @param ordered - true if the output lines should be in the same order as the input, if false
+     * batches are written as soon as they are processed
+     * @return the output file
+     * @throws IOException
+     */
+    public String process(List<? extends NxGzipCallback> callbacks, boolean ordered) throws IOException {
+        
+        if(callbacks.size() == 1) {
+            return this.process(callbacks.get(0));
+        }
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        int workers = callbacks.size();
+        
+        boolean gzip = GzipUtils.isCompressedFilename(this.inputFile);
+        
+        // caps the number of batches that are either queued, being processed or waiting to be written
+        Semaphore inFlight = new Semaphore(2 * workers + 2);
+        
+        BlockingQueue<Batch> input = new ArrayBlockingQueue<>(workers);
+        
+        BlockingQueue<Batch> output = new LinkedBlockingQueue<>();
+        
+        ExecutorService executor = Utils.createFixedThreadPool(workers + 1);
+        
+        List<Future<Void>> futures = new ArrayList<>();
+        
+        long batches = 0;
+
+        try(InputStream deflated = this.getDeflatedInputStream(new FileInputStream(this.inputFile));
+                OutputStream out = new BufferedOutputStream(gzip ? new FileOutputStream(this.outputFile) :
+                    this.getInflatedOutputStream(new FileOutputStream(this.outputFile)), Constants.GZIP_BUF_SIZE)) {
+            
+            futures.add(executor.submit(new BatchWriter(out, output, inFlight, workers, ordered)));
+            
+            for(NxGzipCallback callback: callbacks) {
+                futures.add(executor.submit(new BatchProcessor(callback, input, output, gzip, batchSize)));
+            }
+
+            // read and split the raw input into batches of whole lines, in UTF-8 a new line byte is never part 
+            // of a multi-byte char
+            byte[] buffer = new byte[batchSize + Utils.BUFFER_SIZE];
+            int length = 0;
+            int read;
+            
+            while((read = deflated.read(buffer, length, buffer.length - length)) != -1) {
+                
+                length += read;
+                
+                if(length >= batchSize) {
+                    
+                    int end = lastIndexOf(buffer, (byte) '\n', length) + 1;
+                    
+                    if(end > 0) {
+                        this.submit(new Batch(batches++, Arrays.copyOf(buffer, end)), input, inFlight, futures);
+                        length -= end;
+                        System.arraycopy(buffer, end, buffer, 0, length);
+                        
+                    } else if(length == buffer.length) {
+                        // a line that is longer than the buffer
+                        buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                    }
+                }
+            }
+            
+            if(length > 0) {
+                this.submit(new Batch(batches++, Arrays.copyOf(buffer, length)), input, inFlight, futures);
+            }
+            
+            // one end of input marker per worker
+            for(int i = 0; i < workers; i++) {
+                this.put(Batch.END, input, futures);
+            }
+            
+            for(Future<Void> future: futures) {
+                future.get();
+            }
+            
+        } catch(InterruptedException | ExecutionException e) {
+            log.error("Failed to process file: " + this.inputFile, e);
+            throw new IOException(e);
+            
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        log.debug("TIMER# processed file: " + this.inputFile + ", batches: " + batches + 
+                ", workers: " + workers + ", in: " + stopwatch);
+
+        return this.outputFile;
+    }
+    
+    /**
+     * Acquire an in flight permit then put the batch on the input queue
+     * @param batch
+     * @param input
+     * @param inFlight
+     * @param futures
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private void submit(Batch batch, BlockingQueue<Batch> input, Semaphore inFlight, List<Future<Void>> futures) 
+            throws InterruptedException, ExecutionException {
+        
+        while(!inFlight.tryAcquire(1, TimeUnit.SECONDS)) {
+            checkFailures(futures);
+        }
+        
+        this.put(batch, input, futures);
+    }
+    
+    /**
+     * Put the batch on the input queue, waiting if the queue is full
+     * @param batch
+     * @param input
+     * @param futures
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private void put(Batch batch, BlockingQueue<Batch> input, List<Future<Void>> futures) 
+            throws InterruptedException, ExecutionException {
+        
+        while(!input.offer(batch, 1, TimeUnit.SECONDS)) {
+            checkFailures(futures);
+        }
+    }
+    
+    /**
+     * Rethrow the exception of any worker or writer thread that has failed, rather than waiting forever 
+     * for the queue or permits to be freed
+     * @param futures
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private static void checkFailures(List<Future<Void>> futures) throws InterruptedException, ExecutionException {
+        for(Future<Void> future: futures) {
+            if(future.isDone()) {
+                future.get();
+            }
+        }
+    }
+    
+    /**
+     * A batch of the raw bytes of whole input lines and the processed output of these lines
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class Batch {
+        
+        private static final Batch END = new Batch(-1, null);
+        
+        // posted instead of END by a worker that has failed
+        private static final Batch FAILED = new Batch(-2, null);
+        
+        private final long sequence;
+        
+        private byte[] input;
+        
+        private byte[] output;
+
+        Batch(long sequence, byte[] input) {
+            this.sequence = sequence;
+            this.input = input;
+        }
+    }
+    
+    /**
+     * Parses the batches taken from the input queue, calls the callback for each line then
+     * adds the (optionally gziped) output to the output queue. Callbacks that implement {@link NxByteCallback} 
+     * are given the triples found by an {@link NxTokenizer} in the raw bytes, the same as when processing 
+     * with a single thread
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class BatchProcessor implements Callable<Void> {
+        
+        private final NxGzipCallback callback;
+        
+        private final BlockingQueue<Batch> input;
+        
+        private final BlockingQueue<Batch> output;
+        
+        private final boolean gzip;
+        
+        private final int batchSize;
+
+        BatchProcessor(NxGzipCallback callback, BlockingQueue<Batch> input, BlockingQueue<Batch> output, 
+                boolean gzip, int batchSize) {
+            this.callback = callback;
+            this.input = input;
+            this.output = output;
+            this.gzip = gzip;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            
+            StringBuilder lines = new StringBuilder(batchSize + (batchSize >> 1));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(batchSize);
+            NxTokenizer tokenizer = new NxTokenizer();
+            
+            Batch batch;
+            
+            boolean completed = false;
+            
+            try {
+                
+                while((batch = input.take()) != Batch.END) {
+                    
+                    lines.setLength(0);
+                    callback.setOutput(lines);
+                    
+                    if(callback instanceof NxByteCallback) {
+                        
+                        NxByteCallback tripleCallback = (NxByteCallback) callback;
+                        
+                        tokenizer.reset(ByteBuffer.wrap(batch.input));
+                        
+                        while(tokenizer.next()) {
+                            if(tripleCallback.processTriple(tokenizer, lines)) {
+                                lines.append(LINE_SEPARATOR);
+                            }
+                        }
+                        
+                    } else {
+                    
+                        NxParser nxp = new NxParser(new InputStreamReader(new ByteArrayInputStream(batch.input)));
+
+                        String outLine;
+
+                        while (nxp.hasNext())  {
+
+                            Node[] ns = nxp.next();
+
+                            //We are only interested in triples, no quads
+                            if (ns.length == 3) {
+                                outLine = callback.processNTriple(ns);
+
+                            } else {
+                                outLine = callback.processNQuad(ns);
+                            }
+
+                            if(outLine != null) {
+                                lines.append(outLine).append(LINE_SEPARATOR);
+                            }
+                        }
+                    }
+                    
+                    batch.input = null;
+                    bytes.reset();
+                    
+                    try(OutputStream out = gzip ? new GZIPOutputStream(bytes, Utils.BUFFER_SIZE) : bytes;
+                            Writer writer = new OutputStreamWriter(out)) {
+                        writer.append(lines);
+                    }
+                    
+                    batch.output = bytes.toByteArray();
+                    output.put(batch);
+                }
+                
+                completed = true;
+                
+            } catch(Exception e) {
+                log.error("Failed to process batch", e);
+                throw e;
+                
+            } finally {
+                // always signal the writer, otherwise it waits forever for this worker to finish
+                output.put(completed ? Batch.END : Batch.FAILED);
+            }
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Writes the processed batches, in order if required
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class BatchWriter implements Callable<Void> {
+        
+        private final OutputStream out;
+        
+        private final BlockingQueue<Batch> output;
+        
+        private final Semaphore inFlight;
+        
+        private final int workers;
+        
+        private final boolean ordered;
+
+        BatchWriter(OutputStream out, BlockingQueue<Batch> output, Semaphore inFlight, int workers, boolean ordered) {
+            this.out = out;
+            this.output = output;
+            this.inFlight = inFlight;
+            this.workers = workers;
+            this.ordered = ordered;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            
+            Map<Long, Batch> pending = new HashMap<>();
+            long next = 0;
+            int finished = 0;
+            
+            while(finished < workers) {
+                
+                Batch batch = output.take();
+                
+                if(batch == Batch.END) {
+                    finished++;
+                    
+                } else if(batch == Batch.FAILED) {
+                    // the batches of the failed worker are lost, so don't wait for their sequence
+                    throw new IOException("A batch processor has failed");
+                    
+                } else if(!ordered) {
+                    this.write(batch);
+                    
+                } else {
+                    
+                    pending.put(batch.sequence, batch);
+                    
+                    while((batch = pending.remove(next)) != null) {
+                        this.write(batch);
+                        next++;
+                    }
+                }
+            }
+            
+            if(!pending.isEmpty()) {
+                throw new IllegalStateException("Batches were not written: " + pending.keySet());
+            }
+            
+            return null;
+        }
+        
+        /**
+         * Write the batch output and release its in flight permit
+         * @param batch
+         * @throws IOException
+         */
+        private void write(Batch batch) throws IOException {
+            out.write(batch.output);
+            inFlight.release();
+        }
+    }
+
     /**
      * Get a deflated stream from the provided input
      * @param input
@@ -225,4 +722,11 @@ public class NxGzipProcessor {
         this.outputFile = outputFile;
     }
 
+    /**
+     * @param batchSize the approximate number of chars per batch when processing in pipelined mode
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
 }
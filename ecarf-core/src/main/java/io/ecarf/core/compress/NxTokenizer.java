@@ -0,0 +1,456 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.compress;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Tokenizes N-Triples straight from their UTF-8 bytes. The tokenizer is reset with a buffer of whole lines, each 
+ * call to {@link NxTokenizer#next()} moves to the next triple and reports the start and end offsets and the type of 
+ * its subject, predicate and object. Blank lines, comments and quads are skipped, malformed lines are logged and 
+ * skipped.
+ * 
+ * No objects are created per triple, the chars of a term are available through a reusable {@link CharSequence} 
+ * view that reads ASCII terms directly from the buffer and only decodes the terms that have multi-byte chars. 
+ * Tokenizers are not thread safe, each thread should use its own.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class NxTokenizer {
+    
+    private final static Log log = LogFactory.getLog(NxTokenizer.class);
+    
+    public static final int URI = 0;
+    
+    public static final int BLANK_NODE = 1;
+    
+    public static final int LITERAL = 2;
+    
+    private ByteBuffer bytes;
+    
+    private int position;
+    
+    private int limit;
+    
+    private int lineStart;
+    
+    private int lineEnd;
+    
+    private final int [] starts = new int[3];
+    
+    private final int [] ends = new int[3];
+    
+    private final int [] types = new int[3];
+    
+    private final boolean [] ascii = new boolean[3];
+    
+    private final Utf8Chars [] chars = {new Utf8Chars(), new Utf8Chars(), new Utf8Chars()};
+    
+    /**
+     * Tokenize the bytes between the position and the limit of the provided buffer, the buffer position
+     * is not changed
+     * @param bytes - UTF-8 N-Triples, the last line may or may not end with a new line
+     * @return this tokenizer
+     */
+    public NxTokenizer reset(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.position = bytes.position();
+        this.limit = bytes.limit();
+        this.lineStart = this.position;
+        this.lineEnd = this.position;
+        return this;
+    }
+    
+    /**
+     * Move to the next triple
+     * @return true if a triple was found, false if the end of the buffer is reached
+     */
+    public boolean next() {
+        
+        while(position < limit) {
+            
+            lineStart = position;
+            lineEnd = position;
+            
+            while((lineEnd < limit) && (bytes.get(lineEnd) != '\n')) {
+                lineEnd++;
+            }
+            
+            position = lineEnd + 1;
+            
+            int index = skipWhitespace(lineStart);
+            
+            // blank lines and comments
+            if((index == lineEnd) || (bytes.get(index) == '#')) {
+                continue;
+            }
+            
+            boolean valid = true;
+            
+            for(int i = 0; (i < 3) && valid; i++) {
+                
+                // only the object can be a literal
+                int termEnd = ((index < lineEnd) && ((i == 2) || (bytes.get(index) != '"'))) ? 
+                        this.termEnd(i, index) : -1;
+                
+                if(termEnd == -1) {
+                    log.warn("Ignoring malformed line: " + this.getLine());
+                    valid = false;
+                    
+                } else {
+                    starts[i] = index;
+                    ends[i] = termEnd;
+                    chars[i].reset();
+                    
+                    index = skipWhitespace(termEnd);
+                }
+            }
+            
+            if(valid) {
+                
+                if((index < lineEnd) && (bytes.get(index) == '.')) {
+                    return true;
+                }
+                
+                // we are only interested in triples, no quads
+                log.warn("Ignoring quad or unterminated line: " + this.getLine());
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Find the end of the term starting at index, a URI <...>, a blank node _:... or a literal "..." 
+     * optionally followed by a language tag or a datatype 
+     * @param term - the term number, 0 for the subject, 1 for the predicate and 2 for the object
+     * @param index
+     * @return the end of the term, exclusive or -1 if the term is malformed
+     */
+    private int termEnd(int term, int index) {
+        
+        boolean isAscii = true;
+        int end = -1;
+        byte value;
+        
+        switch(bytes.get(index)) {
+        
+        case '<':
+            types[term] = URI;
+            
+            for(int i = index + 1; i < lineEnd; i++) {
+                
+                value = bytes.get(i);
+                isAscii &= value >= 0;
+                
+                if(value == '>') {
+                    end = i + 1;
+                    break;
+                }
+            }
+            break;
+            
+        case '"':
+            types[term] = LITERAL;
+            
+            for(int i = index + 1; i < lineEnd; i++) {
+                
+                value = bytes.get(i);
+                isAscii &= value >= 0;
+                
+                if(value == '\\') {
+                    // skip the escaped char
+                    i++;
+                    
+                } else if(value == '"') {
+                    // language tag or datatype
+                    end = i + 1;
+                    
+                    while((end < lineEnd) && !isWhitespace(value = bytes.get(end)) && !this.isFinalDot(end)) {
+                        isAscii &= value >= 0;
+                        end++;
+                    }
+                    break;
+                }
+            }
+            break;
+            
+        case '_':
+            types[term] = BLANK_NODE;
+            end = index;
+            
+            while((end < lineEnd) && !isWhitespace(value = bytes.get(end)) && !this.isFinalDot(end)) {
+                isAscii &= value >= 0;
+                end++;
+            }
+            break;
+        }
+        
+        ascii[term] = isAscii;
+        
+        return end;
+    }
+    
+    /**
+     * A dot that is only followed by whitespace ends the triple, even without whitespace before it e.g. _:b1.
+     * @param index
+     * @return true if the byte at index is the final dot of the line
+     */
+    private boolean isFinalDot(int index) {
+        return (bytes.get(index) == '.') && (skipWhitespace(index + 1) == lineEnd);
+    }
+    
+    /**
+     * @return the index of the first non whitespace byte from index or the line end if none
+     */
+    private int skipWhitespace(int index) {
+        while((index < lineEnd) && isWhitespace(bytes.get(index))) {
+            index++;
+        }
+        return index;
+    }
+    
+    /**
+     * Same whitespace as {@link Character#isWhitespace(char)} for single byte chars
+     * @param value
+     * @return
+     */
+    private static boolean isWhitespace(byte value) {
+        return (value == ' ') || ((value >= 0x09) && (value <= 0x0D)) || ((value >= 0x1C) && (value <= 0x1F));
+    }
+    
+    /**
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return the offset of the first byte of the term in the buffer
+     */
+    public int getStart(int term) {
+        return starts[term];
+    }
+    
+    /**
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return the offset after the last byte of the term in the buffer
+     */
+    public int getEnd(int term) {
+        return ends[term];
+    }
+    
+    /**
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return {@link NxTokenizer#URI}, {@link NxTokenizer#BLANK_NODE} or {@link NxTokenizer#LITERAL}
+     */
+    public int getType(int term) {
+        return types[term];
+    }
+    
+    /**
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return true if all the bytes of the term are ASCII chars
+     */
+    public boolean isAscii(int term) {
+        return ascii[term];
+    }
+    
+    /**
+     * The chars of the provided term, the returned view is reused and is only valid until the next triple
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return
+     */
+    public CharSequence getChars(int term) {
+        Utf8Chars view = chars[term];
+        
+        if(view.length < 0) {
+            view.set(bytes, starts[term], ends[term], ascii[term]);
+        }
+        return view;
+    }
+    
+    /**
+     * @param term - 0 for the subject, 1 for the predicate and 2 for the object
+     * @return the term as a String, e.g. <http://dbpedia.org/resource/Team_handball>
+     */
+    public String getString(int term) {
+        return this.getChars(term).toString();
+    }
+    
+    /**
+     * @return the buffer being tokenized
+     */
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+    
+    /**
+     * @return the current line, excluding the new line char
+     */
+    public String getLine() {
+        Utf8Chars line = new Utf8Chars();
+        line.set(bytes, lineStart, lineEnd, false);
+        return line.toString();
+    }
+    
+    /**
+     * A reusable view of the chars of a range of UTF-8 bytes. ASCII bytes are read directly from the buffer,
+     * otherwise the bytes are decoded into a reusable char array, malformed bytes are replaced with U+FFFD
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static class Utf8Chars implements CharSequence {
+        
+        private ByteBuffer bytes;
+        
+        private int start;
+        
+        private int length = -1;
+        
+        private boolean ascii;
+        
+        private char [] decoded = new char[256];
+        
+        void reset() {
+            this.length = -1;
+        }
+        
+        void set(ByteBuffer bytes, int start, int end, boolean ascii) {
+            this.bytes = bytes;
+            this.start = start;
+            this.ascii = ascii;
+            
+            if(ascii) {
+                this.length = end - start;
+                
+            } else {
+                this.length = this.decode(end);
+            }
+        }
+        
+        private int decode(int end) {
+            
+            if(decoded.length < (end - start)) {
+                decoded = new char[end - start];
+            }
+            
+            int count = 0;
+            int index = start;
+            
+            while(index < end) {
+                
+                int value = bytes.get(index++);
+                
+                if(value >= 0) {
+                    decoded[count++] = (char) value;
+                    continue;
+                }
+                
+                int extra;
+                int codePoint;
+                
+                if((value & 0xE0) == 0xC0) {
+                    extra = 1;
+                    codePoint = value & 0x1F;
+                    
+                } else if((value & 0xF0) == 0xE0) {
+                    extra = 2;
+                    codePoint = value & 0x0F;
+                    
+                } else if((value & 0xF8) == 0xF0) {
+                    extra = 3;
+                    codePoint = value & 0x07;
+                    
+                } else {
+                    decoded[count++] = '\uFFFD';
+                    continue;
+                }
+                
+                int next = index;
+                
+                while((extra > 0) && (next < end) && ((bytes.get(next) & 0xC0) == 0x80)) {
+                    codePoint = (codePoint << 6) | (bytes.get(next++) & 0x3F);
+                    extra--;
+                }
+                
+                index = next;
+                
+                if(extra > 0) {
+                    decoded[count++] = '\uFFFD';
+                    
+                } else if(Character.isSupplementaryCodePoint(codePoint)) {
+                    decoded[count++] = Character.highSurrogate(codePoint);
+                    decoded[count++] = Character.lowSurrogate(codePoint);
+                    
+                } else {
+                    decoded[count++] = (char) codePoint;
+                }
+            }
+            
+            return count;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.CharSequence#length()
+         */
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.CharSequence#charAt(int)
+         */
+        @Override
+        public char charAt(int index) {
+            return ascii ? (char) bytes.get(start + index) : decoded[index];
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.CharSequence#subSequence(int, int)
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            
+            if(!ascii) {
+                return new String(decoded, start, end - start);
+            }
+            
+            char [] value = new char[end - start];
+            
+            for(int i = 0; i < value.length; i++) {
+                value[i] = (char) bytes.get(this.start + start + i);
+            }
+            
+            return new String(value);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return this.subSequence(0, length).toString();
+        }
+        
+    }
+
+}
@@ -20,7 +20,10 @@
 
 package io.ecarf.core.compress.callback;
 
+import io.ecarf.core.compress.NxByteCallback;
 import io.ecarf.core.compress.NxGzipCallback;
+import io.ecarf.core.compress.NxTokenizer;
+import io.ecarf.core.term.CharWindow;
 import io.ecarf.core.term.TermCounter;
 import io.ecarf.core.term.dictionary.TermDictionary;
 
@@ -36,12 +39,19 @@ import org.semanticweb.yars.nx.Node;
  * An implementation of {@link NxGzipCallback} that performs dictionary encoding, creates
  * a CSV line of 4 values: subject, predicate, object, object_literal
  * 
+ * As an {@link NxByteCallback} the terms found by the {@link NxTokenizer} in the raw bytes are encoded in place and 
+ * the CSV line is written straight to the output buffer, the only objects created per triple are for unknown terms
+ * 
  * @author Omer Dawelbeit (omerio)
  *
  */
-public class DictionaryEncodeCallback implements NxGzipCallback {
+public class DictionaryEncodeCallback implements NxGzipCallback, NxByteCallback {
 
     private TermDictionary dictionary;
+    
+    private final CharWindow window = new CharWindow();
+    
+    private final int [] bounds = new int[4];
 
     /* (non-Javadoc)
      * @see io.ecarf.core.compress.NTripleGzipCallback#setOutput(java.lang.Appendable)
@@ -94,6 +104,59 @@ public class DictionaryEncodeCallback implements NxGzipCallback {
         return StringUtils.join(terms, ',');
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxByteCallback#processTriple(io.ecarf.core.compress.NxTokenizer, java.lang.StringBuilder)
+     */
+    @Override
+    public boolean processTriple(NxTokenizer tokenizer, StringBuilder out) throws IOException {
+        
+        for(int i = 0; i < 3; i++) {
+            CharSequence term = tokenizer.getChars(i);
+            this.appendTerm(term, 0, term.length(), out);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Append the encoded URI or blank node followed by a comma, or a comma followed by the CSV escaped literal
+     * @param chars
+     * @param termStart
+     * @param termEnd
+     * @param out
+     */
+    private void appendTerm(CharSequence chars, int termStart, int termEnd, StringBuilder out) {
+        
+        char first = chars.charAt(termStart);
+        
+        if(first == '"') {
+            // the literal is CSV escaped, it always contains a quote so it's always quoted
+            out.append(',').append('"');
+            
+            for(int j = termStart; j < termEnd; j++) {
+                char chr = chars.charAt(j);
+                if(chr == '"') {
+                    out.append('"');
+                }
+                out.append(chr);
+            }
+            
+            out.append('"');
+            
+        } else {
+            
+            if(first == '_') {
+                out.append(dictionary.encodeBlankNode(chars, termStart, termEnd, window));
+                
+            } else {
+                out.append(dictionary.encode(chars, termStart, termEnd, window, bounds));
+            }
+            
+            // after the object this leaves the object_literal empty
+            out.append(',');
+        }
+    }
+    
     @Override
     public void setCounter(TermCounter counter) {
 
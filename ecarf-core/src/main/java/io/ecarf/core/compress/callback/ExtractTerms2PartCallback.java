@@ -19,29 +19,37 @@
 
 package io.ecarf.core.compress.callback;
 
+import io.ecarf.core.compress.NxByteCallback;
 import io.ecarf.core.compress.NxGzipCallback;
+import io.ecarf.core.compress.NxTokenizer;
+import io.ecarf.core.term.CharWindow;
+import io.ecarf.core.term.SplitRules;
 import io.ecarf.core.term.TermCounter;
 import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.term.Utf8SlabSet;
 import io.ecarf.core.triple.SchemaURIType;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.semanticweb.yars.nx.BNode;
 import org.semanticweb.yars.nx.Literal;
 import org.semanticweb.yars.nx.Node;
 
 /**
+ * Extracts the blank nodes and the two parts of each URI. As an {@link NxByteCallback} the terms and parts are 
+ * looked up through windows over the tokenized bytes, so only the terms and parts that are seen for the first 
+ * time are copied into the compact {@link Utf8SlabSet}s. Optionally the occurrences of each part and blank node are 
+ * also counted, these are used to give the smallest dictionary ids to the most frequent parts
+ * 
  * @author Omer Dawelbeit (omerio)
  *
  */
-public class ExtractTerms2PartCallback implements NxGzipCallback {
+public class ExtractTerms2PartCallback implements NxGzipCallback, NxByteCallback {
 
-    private Set<String> resources = new HashSet<>();
+    private Utf8SlabSet resources = new Utf8SlabSet();
 
-    private Set<String> blankNodes = new HashSet<>();
+    private Utf8SlabSet blankNodes = new Utf8SlabSet();
 
     private TermCounter counter;
     
@@ -49,6 +57,14 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
     
     private int splitLocation;
     
+    private SplitRules splitRules;
+    
+    private final CharWindow window = new CharWindow();
+    
+    private final CharWindow partWindow = new CharWindow();
+    
+    private final int [] bounds = new int[4];
+    
 
     /* (non-Javadoc)
      * @see io.ecarf.core.compress.NTripleGzipCallback#process(org.semanticweb.yars.nx.Node[])
@@ -74,17 +90,18 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
                 term = nodes[i].toN3();
 
                 if(nodes[i] instanceof BNode) {
+                    
                     blankNodes.add(term);
 
                 } else {
                     
                     if(!SchemaURIType.RDF_OWL_TERMS.contains(term)) {
                         
-                        List<String> parts = TermUtils.splitIntoTwo(term, true, splitLocation);
+                        List<String> parts = TermUtils.splitIntoTwo(term, true, splitLocation, splitRules);
                         
                         // invalid URIs, e.g. <http:///www.taotraveller.com> is parsed by NxParser as http:///
-                        if(!parts.isEmpty()) {
-                            resources.addAll(parts);
+                        for(String part: parts) {
+                            resources.add(part);
                         }
                     }
                    
@@ -99,6 +116,48 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
         return null;
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxByteCallback#processTriple(io.ecarf.core.compress.NxTokenizer, java.lang.StringBuilder)
+     */
+    @Override
+    public boolean processTriple(NxTokenizer tokenizer, StringBuilder out) throws IOException {
+        
+        for(int i = 0; i < 3; i++) {
+            
+            int type = tokenizer.getType(i);
+            
+            if(type == NxTokenizer.LITERAL) {
+                
+                literalCount++;
+                
+            } else {
+                
+                CharSequence term = tokenizer.getChars(i);
+                window.set(term, 0, term.length());
+                
+                if(type == NxTokenizer.BLANK_NODE) {
+                    
+                    blankNodes.add(window);
+                    
+                } else if(!SchemaURIType.RDF_OWL_TERMS.contains(window)) {
+                    
+                    // invalid URIs have no parts, e.g. <http:///www.taotraveller.com>
+                    int parts = TermUtils.splitIntoTwo(term, 0, term.length(), true, splitLocation, splitRules, bounds);
+                    
+                    for(int j = 0; j < parts; j++) {
+                        
+                        partWindow.set(term, bounds[j << 1], bounds[(j << 1) + 1]);
+                        resources.add(partWindow);
+                    }
+                }
+                
+                counter.count(window);
+            }
+        }
+        
+        return false;
+    }
+
     /* (non-Javadoc)
      * @see io.ecarf.core.compress.NTripleGzipCallback#setCounter(io.ecarf.core.term.TermCounter)
      */
@@ -110,7 +169,7 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
     /**
      * @return the blankNodes
      */
-    public Set<String> getBlankNodes() {
+    public Utf8SlabSet getBlankNodes() {
         return blankNodes;
     }
 
@@ -131,7 +190,7 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
     /**
      * @return the resources
      */
-    public Set<String> getResources() {
+    public Utf8SlabSet getResources() {
         return resources;
     }
 
@@ -143,5 +202,21 @@ public class ExtractTerms2PartCallback implements NxGzipCallback {
     public void setSplitLocation(int splitLocation) {
         this.splitLocation = splitLocation;
     }
+    
+    /**
+     * @param splitRules per host split rules that override the split location, can be null
+     */
+    public void setSplitRules(SplitRules splitRules) {
+        this.splitRules = splitRules;
+    }
+    
+    /**
+     * Must be set before any triple is processed
+     * @param countParts true to count the occurrences of each part and blank node
+     */
+    public void setCountParts(boolean countParts) {
+        this.resources = new Utf8SlabSet(16, countParts);
+        this.blankNodes = new Utf8SlabSet(16, countParts);
+    }
 
 }
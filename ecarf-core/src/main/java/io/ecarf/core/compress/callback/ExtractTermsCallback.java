@@ -21,10 +21,9 @@ package io.ecarf.core.compress.callback;
 
 import io.ecarf.core.compress.NxGzipCallback;
 import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.Utf8SlabSet;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.semanticweb.yars.nx.BNode;
 import org.semanticweb.yars.nx.Literal;
@@ -36,9 +35,9 @@ import org.semanticweb.yars.nx.Node;
  */
 public class ExtractTermsCallback implements NxGzipCallback {
 
-    private Set<String> resources = new HashSet<>();
+    private Utf8SlabSet resources = new Utf8SlabSet();
 
-    private Set<String> blankNodes = new HashSet<>();
+    private Utf8SlabSet blankNodes = new Utf8SlabSet();
 
     private TermCounter counter;
 
@@ -101,14 +100,14 @@ public class ExtractTermsCallback implements NxGzipCallback {
     /**
      * @return the resources
      */
-    public Set<String> getResources() {
+    public Utf8SlabSet getResources() {
         return resources;
     }
 
     /**
      * @return the blankNodes
      */
-    public Set<String> getBlankNodes() {
+    public Utf8SlabSet getBlankNodes() {
         return blankNodes;
     }
 
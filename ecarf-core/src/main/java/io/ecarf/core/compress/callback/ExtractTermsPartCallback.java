@@ -22,12 +22,11 @@ package io.ecarf.core.compress.callback;
 import io.ecarf.core.compress.NxGzipCallback;
 import io.ecarf.core.term.TermCounter;
 import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.term.Utf8SlabSet;
 import io.ecarf.core.triple.SchemaURIType;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.semanticweb.yars.nx.BNode;
 import org.semanticweb.yars.nx.Literal;
@@ -39,9 +38,9 @@ import org.semanticweb.yars.nx.Node;
  */
 public class ExtractTermsPartCallback implements NxGzipCallback {
 
-    private Set<String> resources = new HashSet<>();
+    private Utf8SlabSet resources = new Utf8SlabSet();
 
-    private Set<String> blankNodes = new HashSet<>();
+    private Utf8SlabSet blankNodes = new Utf8SlabSet();
 
     private TermCounter counter;
     
@@ -81,8 +80,8 @@ public class ExtractTermsPartCallback implements NxGzipCallback {
                         List<String> parts = TermUtils.split(term);
                         
                         // invalid URIs, e.g. <http:///www.taotraveller.com> is parsed by NxParser as http:///
-                        if(!parts.isEmpty()) {
-                            resources.addAll(parts);
+                        for(String part: parts) {
+                            resources.add(part);
                         }
                     }
                    
@@ -108,7 +107,7 @@ public class ExtractTermsPartCallback implements NxGzipCallback {
     /**
      * @return the blankNodes
      */
-    public Set<String> getBlankNodes() {
+    public Utf8SlabSet getBlankNodes() {
         return blankNodes;
     }
 
@@ -129,7 +128,7 @@ public class ExtractTermsPartCallback implements NxGzipCallback {
     /**
      * @return the resources
      */
-    public Set<String> getResources() {
+    public Utf8SlabSet getResources() {
         return resources;
     }
 
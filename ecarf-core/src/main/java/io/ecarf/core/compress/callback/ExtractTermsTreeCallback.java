@@ -21,7 +21,7 @@ package io.ecarf.core.compress.callback;
 
 import io.ecarf.core.compress.NxGzipCallback;
 import io.ecarf.core.term.TermCounter;
-import io.ecarf.core.term.TermRoot;
+import io.ecarf.core.term.UriTrie;
 
 import java.io.IOException;
 import java.util.HashSet;
@@ -43,7 +43,7 @@ public class ExtractTermsTreeCallback implements NxGzipCallback {
 
     private TermCounter counter;
     
-    private TermRoot root;
+    private UriTrie trie;
 
     private int literalCount;
     
@@ -56,7 +56,7 @@ public class ExtractTermsTreeCallback implements NxGzipCallback {
      */
     public ExtractTermsTreeCallback() {
         super();
-        this.root = new TermRoot();
+        this.trie = new UriTrie();
     }
 
     /* (non-Javadoc)
@@ -87,7 +87,7 @@ public class ExtractTermsTreeCallback implements NxGzipCallback {
 
                 } else {
                     //resources.add(term);
-                    root.addTerm(term);
+                    trie.addTerm(term);
                     resourceCount++;
                 }
                 
@@ -131,10 +131,10 @@ public class ExtractTermsTreeCallback implements NxGzipCallback {
     
 
     /**
-     * @return the root
+     * @return the trie
      */
-    public TermRoot getRoot() {
-        return root;
+    public UriTrie getTrie() {
+        return trie;
     }
 
     /* (non-Javadoc)
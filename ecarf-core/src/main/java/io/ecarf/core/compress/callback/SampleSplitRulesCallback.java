@@ -0,0 +1,114 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.compress.callback;
+
+import io.ecarf.core.compress.NxByteCallback;
+import io.ecarf.core.compress.NxGzipCallback;
+import io.ecarf.core.compress.NxTokenizer;
+import io.ecarf.core.term.SplitRuleAnalyser;
+import io.ecarf.core.term.TermCounter;
+
+import java.io.IOException;
+
+import org.semanticweb.yars.nx.BNode;
+import org.semanticweb.yars.nx.Literal;
+import org.semanticweb.yars.nx.Node;
+
+/**
+ * Samples the URIs of the triples into a {@link SplitRuleAnalyser}, blank nodes and literals are ignored
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SampleSplitRulesCallback implements NxGzipCallback, NxByteCallback {
+    
+    private SplitRuleAnalyser analyser = new SplitRuleAnalyser();
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxGzipCallback#processNTriple(org.semanticweb.yars.nx.Node[])
+     */
+    @Override
+    public String processNTriple(Node[] nodes) throws IOException {
+        
+        for(Node node: nodes) {
+            if(!((node instanceof Literal) || (node instanceof BNode))) {
+                analyser.addTerm(node.toN3());
+            }
+        }
+        
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxByteCallback#processTriple(io.ecarf.core.compress.NxTokenizer, java.lang.StringBuilder)
+     */
+    @Override
+    public boolean processTriple(NxTokenizer tokenizer, StringBuilder out) throws IOException {
+        
+        for(int i = 0; i < 3; i++) {
+            
+            if(tokenizer.getType(i) == NxTokenizer.URI) {
+                
+                CharSequence term = tokenizer.getChars(i);
+                analyser.addTerm(term, 0, term.length());
+            }
+        }
+        
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxGzipCallback#processNQuad(org.semanticweb.yars.nx.Node[])
+     */
+    @Override
+    public String processNQuad(Node[] nodes) throws IOException {
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxGzipCallback#setOutput(java.lang.Appendable)
+     */
+    @Override
+    public void setOutput(Appendable out) throws IOException {
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.compress.NxGzipCallback#setCounter(io.ecarf.core.term.TermCounter)
+     */
+    @Override
+    public void setCounter(TermCounter counter) {
+    }
+
+    /**
+     * @return the analyser
+     */
+    public SplitRuleAnalyser getAnalyser() {
+        return analyser;
+    }
+
+    /**
+     * @param analyser the analyser to set
+     */
+    public void setAnalyser(SplitRuleAnalyser analyser) {
+        this.analyser = analyser;
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.reason.rulebased;
+
+import io.ecarf.core.reason.rulebased.owl2rl.rdfs.CaxScoRule;
+import io.ecarf.core.reason.rulebased.owl2rl.rdfs.PrpDomRule;
+import io.ecarf.core.reason.rulebased.owl2rl.rdfs.PrpRngRule;
+import io.ecarf.core.reason.rulebased.owl2rl.rdfs.PrpSpo1Rule;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.utils.LongTripleSink;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The encoded RDFS schema compiled into a primitive dispatch table. Each trigger term (the object of rdf:type 
+ * triples, the predicate otherwise) is mapped using open addressing to a run of (rule kind, schema triple object) 
+ * pairs stored next to each other in a single array. Applying the rules to an instance triple does one lookup and 
+ * emits the heads as longs to a {@link LongTripleSink}, no objects are created.
+ * 
+ * The table is immutable once compiled and can be shared between threads.
+ * 
+ * Encoded terms are non negative, a negative object is treated as a literal, it's never used as a subject and is 
+ * passed through as is by prp-spo1.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class RuleTable {
+    
+    public static final int SUB_CLASS = 0;
+    
+    public static final int DOMAIN = 1;
+    
+    public static final int RANGE = 2;
+    
+    public static final int SUB_PROPERTY = 3;
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private final long[] terms;
+    
+    // the rules of a slot are pairs[starts[slot]] ... pairs[starts[slot + 1] - 1], empty slots have no rules
+    private final int[] starts;
+    
+    private final long[] pairs;
+    
+    private final int mask;
+    
+    private final int size;
+
+    /**
+     * @param schemaTerms - the encoded schema triples keyed by the term that triggers them, 
+     * see {@link GenericRule#getRule(Triple)}
+     */
+    public RuleTable(Map<Long, Set<Triple>> schemaTerms) {
+        
+        int capacity = Integer.highestOneBit(Math.max(schemaTerms.size(), 2) * 2 - 1) << 1;
+        
+        this.terms = new long[capacity];
+        this.starts = new int[capacity + 1];
+        this.mask = capacity - 1;
+        
+        boolean[] used = new boolean[capacity];
+        int[] counts = new int[capacity];
+        int size = 0;
+        
+        for(Map.Entry<Long, Set<Triple>> entry: schemaTerms.entrySet()) {
+            
+            if(!entry.getValue().isEmpty()) {
+                
+                int slot = slot(entry.getKey(), used);
+                
+                used[slot] = true;
+                terms[slot] = entry.getKey();
+                counts[slot] = entry.getValue().size() << 1;
+                size++;
+            }
+        }
+        
+        for(int i = 0; i < capacity; i++) {
+            starts[i + 1] = starts[i] + counts[i];
+        }
+        
+        this.pairs = new long[starts[capacity]];
+        this.size = size;
+        
+        for(Map.Entry<Long, Set<Triple>> entry: schemaTerms.entrySet()) {
+            
+            if(!entry.getValue().isEmpty()) {
+                
+                int index = starts[slot(entry.getKey(), used)];
+                
+                for(Triple triple: entry.getValue()) {
+                    pairs[index++] = getKind(triple);
+                    pairs[index++] = (Long) triple.getObject();
+                }
+            }
+        }
+    }
+    
+    /**
+     * The slot of the term or the free slot where it should go, used while compiling the table
+     * @param term
+     * @param used
+     * @return
+     */
+    private int slot(long term, boolean[] used) {
+        
+        int slot = hash(term) & mask;
+        
+        while(used[slot] && (terms[slot] != term)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static int hash(long term) {
+        long hash = term * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+    
+    /**
+     * The kind of rule the schema triple is used by
+     * @param schemaTriple
+     * @return
+     */
+    private static int getKind(Triple schemaTriple) {
+        
+        Rule rule = GenericRule.getRule(schemaTriple);
+        
+        if(rule instanceof CaxScoRule) {
+            return SUB_CLASS;
+            
+        } else if(rule instanceof PrpDomRule) {
+            return DOMAIN;
+            
+        } else if(rule instanceof PrpRngRule) {
+            return RANGE;
+            
+        } else if(rule instanceof PrpSpo1Rule) {
+            return SUB_PROPERTY;
+            
+        } else {
+            throw new IllegalArgumentException("Unsupported schema triple: " + schemaTriple);
+        }
+    }
+    
+    /**
+     * Find the slot of a trigger term
+     * @param term
+     * @return the slot or -1 if the term doesn't trigger any rule
+     */
+    public int find(long term) {
+        
+        int slot = hash(term) & mask;
+        
+        while(starts[slot] != starts[slot + 1]) {
+            
+            if(terms[slot] == term) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Apply the rules triggered by the instance triple
+     * @param subject
+     * @param predicate
+     * @param object
+     * @param sink - receives the inferred triples
+     * @return the slot of the trigger term or -1 if no rules were triggered
+     */
+    public int apply(long subject, long predicate, long object, LongTripleSink sink) {
+        
+        int slot = this.find((predicate == TYPE) ? object : predicate);
+        
+        if(slot >= 0) {
+            
+            for(int i = starts[slot], end = starts[slot + 1]; i < end; i += 2) {
+                
+                long constant = pairs[i + 1];
+                
+                switch((int) pairs[i]) {
+                    case SUB_CLASS:
+                    case DOMAIN:
+                        sink.add(subject, TYPE, constant);
+                        break;
+                        
+                    case RANGE:
+                        // literals can't be subjects
+                        if(object >= 0) {
+                            sink.add(object, TYPE, constant);
+                        }
+                        break;
+                        
+                    default:
+                        sink.add(subject, constant, object);
+                }
+            }
+        }
+        
+        return slot;
+    }
+    
+    /**
+     * @param slot - a slot returned by {@link #find(long)} or {@link #apply(long, long, long, LongTripleSink)}
+     * @return the trigger term of the slot
+     */
+    public long getTerm(int slot) {
+        return terms[slot];
+    }
+    
+    /**
+     * @return the number of slots, i.e. the bound of the slots returned by {@link #find(long)}
+     */
+    public int getCapacity() {
+        return terms.length;
+    }
+    
+    /**
+     * @return the number of trigger terms
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.reason.rulebased;
+
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the closure of encoded RDFS schema triples so that applying the rules once to an instance triple yields 
+ * all of its RDFS consequences:
+ * 
+ * <ul>
+ * <li>a class gets a subClassOf triple for each of its direct and indirect superclasses</li>
+ * <li>a property gets a subPropertyOf triple for each of its direct and indirect superproperties</li>
+ * <li>a property gets a domain (range) triple for each domain (range) of itself and its superproperties 
+ * and for each superclass of these</li>
+ * </ul>
+ * 
+ * Reflexive triples, e.g. A subClassOf A, are dropped as they can only infer the instance triple itself.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SchemaClosure {
+    
+    private static final Long SUB_CLASS = (long) SchemaURIType.RDFS_SUBCLASS.id;
+    
+    private static final Long SUB_PROPERTY = (long) SchemaURIType.RDFS_SUBPROPERTY.id;
+    
+    private static final Long DOMAIN = (long) SchemaURIType.RDFS_DOMAIN.id;
+    
+    private static final Long RANGE = (long) SchemaURIType.RDFS_RANGE.id;
+    
+    /**
+     * Close the provided schema triples. Schema triples other than subClassOf, subPropertyOf, domain and range are 
+     * kept unchanged. The closure must be done before the schema is filtered by the terms of the instance data, 
+     * otherwise the chains going through terms that don't appear in the data are lost
+     * @param schemaTerms - the encoded schema triples keyed by subject as returned by 
+     * {@link io.ecarf.core.triple.TripleUtils#getRelevantSchemaETriples(String, Set)}
+     * @return the closed schema triples keyed by subject
+     */
+    public static Map<Long, Set<Triple>> close(Map<Long, Set<Triple>> schemaTerms) {
+        
+        Map<Long, Set<Long>> superClasses = new HashMap<>();
+        Map<Long, Set<Long>> superProperties = new HashMap<>();
+        Map<Long, Set<Long>> domains = new HashMap<>();
+        Map<Long, Set<Long>> ranges = new HashMap<>();
+        
+        Map<Long, Set<Triple>> closed = new HashMap<>();
+        
+        for(Set<Triple> triples: schemaTerms.values()) {
+            
+            for(Triple triple: triples) {
+                
+                Long subject = (Long) triple.getSubject();
+                Object predicate = triple.getPredicate();
+                Long object = (Long) triple.getObject();
+                
+                if(SUB_CLASS.equals(predicate)) {
+                    add(superClasses, subject, object);
+                    
+                } else if(SUB_PROPERTY.equals(predicate)) {
+                    add(superProperties, subject, object);
+                    
+                } else if(DOMAIN.equals(predicate)) {
+                    add(domains, subject, object);
+                    
+                } else if(RANGE.equals(predicate)) {
+                    add(ranges, subject, object);
+                    
+                } else {
+                    add(closed, subject, triple);
+                }
+            }
+        }
+        
+        // memoise the superclasses closure as it's needed for the domains and ranges of many properties
+        Map<Long, Set<Long>> allSuperClasses = new HashMap<>();
+        
+        for(Long term: schemaTerms.keySet()) {
+            
+            for(Long superClass: reach(superClasses, term, allSuperClasses)) {
+                if(!term.equals(superClass)) {
+                    add(closed, term, new ETriple(term, SUB_CLASS, superClass, null));
+                }
+            }
+            
+            Set<Long> properties = new HashSet<>(reach(superProperties, term, null));
+            
+            for(Long superProperty: properties) {
+                if(!term.equals(superProperty)) {
+                    add(closed, term, new ETriple(term, SUB_PROPERTY, superProperty, null));
+                }
+            }
+            
+            properties.add(term);
+            
+            for(Long property: properties) {
+                addClasses(closed, term, DOMAIN, domains.get(property), superClasses, allSuperClasses);
+                addClasses(closed, term, RANGE, ranges.get(property), superClasses, allSuperClasses);
+            }
+        }
+        
+        return closed;
+    }
+    
+    /**
+     * Add a domain or range triple for each of the provided classes and their superclasses
+     */
+    private static void addClasses(Map<Long, Set<Triple>> closed, Long property, Long predicate, Set<Long> classes, 
+            Map<Long, Set<Long>> superClasses, Map<Long, Set<Long>> allSuperClasses) {
+        
+        if(classes != null) {
+            for(Long clazz: classes) {
+                
+                add(closed, property, new ETriple(property, predicate, clazz, null));
+                
+                for(Long superClass: reach(superClasses, clazz, allSuperClasses)) {
+                    add(closed, property, new ETriple(property, predicate, superClass, null));
+                }
+            }
+        }
+    }
+    
+    /**
+     * All the terms reachable from the provided term, the hierarchies might have cycles
+     * @param edges
+     * @param term
+     * @param cache - optional cache of the terms already visited
+     * @return
+     */
+    private static Set<Long> reach(Map<Long, Set<Long>> edges, Long term, Map<Long, Set<Long>> cache) {
+        
+        Set<Long> reached = (cache != null) ? cache.get(term) : null;
+        
+        if(reached == null) {
+            
+            reached = new HashSet<>();
+            
+            Deque<Long> pending = new ArrayDeque<>();
+            pending.push(term);
+            
+            while(!pending.isEmpty()) {
+                
+                Set<Long> next = edges.get(pending.pop());
+                
+                if(next != null) {
+                    for(Long reachable: next) {
+                        if(reached.add(reachable)) {
+                            pending.push(reachable);
+                        }
+                    }
+                }
+            }
+            
+            if(cache != null) {
+                cache.put(term, reached);
+            }
+        }
+        
+        return reached;
+    }
+    
+    private static <T> void add(Map<Long, Set<T>> map, Long key, T value) {
+        
+        Set<T> values = map.get(key);
+        
+        if(values == null) {
+            values = new HashSet<>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+}
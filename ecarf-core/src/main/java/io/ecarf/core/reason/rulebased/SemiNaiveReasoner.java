@@ -0,0 +1,370 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.reason.rulebased;
+
+import io.ecarf.core.triple.ETripleReader;
+import io.ecarf.core.triple.ETripleWriter;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.LongTripleBuffer;
+import io.ecarf.core.utils.LongTripleSet;
+import io.ecarf.core.utils.LongTripleSink;
+import io.ecarf.core.utils.Utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Semi-naive forward chaining of the RDFS rules cax-sco, prp-dom, prp-rng and prp-spo1 over encoded triples held 
+ * in memory. Each of these rules joins a single instance triple with the schema, so every iteration only needs to 
+ * apply the rules to the triples derived in the previous iteration (the delta), the reasoning stops once an iteration 
+ * derives nothing new.
+ * 
+ * Each iteration runs in two parallel phases, first the delta is split between the threads and the rules are applied 
+ * to each chunk, the derived triples are partitioned by their hash. Then each partition is checked against the known 
+ * triples of that partition, this way the known triples sets are never shared between threads.
+ * 
+ * Encoded terms are non negative, objects with a negative value refer to literals (see {@link #getLiteral(long)})
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SemiNaiveReasoner {
+    
+    private final static Log log = LogFactory.getLog(SemiNaiveReasoner.class);
+    
+    private final RuleTable rules;
+    
+    private final int threads;
+    
+    private final List<String> literals = new ArrayList<>();
+    
+    private final Map<String, Long> literalIds = new HashMap<>();
+    
+    private LongTripleSet[] known;
+    
+    private int cycles;
+
+    /**
+     * @param schemaTerms - the schema triples keyed by the term that triggers them, see {@link GenericRule#getRule(Triple)}
+     * @param threads - the number of threads to use
+     */
+    public SemiNaiveReasoner(Map<Long, Set<Triple>> schemaTerms, int threads) {
+        
+        this.threads = Math.max(threads, 1);
+        this.rules = new RuleTable(schemaTerms);
+    }
+    
+    /**
+     * Compute the closure of the provided triples
+     * @param triples - the instance triples
+     * @return the triples inferred from the instance triples, excluding the instance triples themselves
+     * @throws IOException if any of the reasoning threads fails
+     */
+    public LongTripleBuffer reason(LongTripleBuffer triples) throws IOException {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        this.known = new LongTripleSet[threads];
+        
+        for(int i = 0; i < threads; i++) {
+            this.known[i] = new LongTripleSet(triples.size() / threads);
+        }
+        
+        LongTripleBuffer inferred = new LongTripleBuffer();
+        
+        ExecutorService executor = Utils.createFixedThreadPool(threads);
+        
+        try {
+            
+            // the instance triples are the first delta
+            LongTripleBuffer delta = this.merge(executor, new LongTripleBuffer[][] {this.partition(triples)});
+            
+            this.cycles = 0;
+            
+            while(!delta.isEmpty()) {
+                
+                delta = this.merge(executor, this.derive(executor, delta));
+                
+                inferred.addAll(delta);
+                
+                this.cycles++;
+                
+                log.info("Cycle " + cycles + ", inferred: " + delta.size() + ", total inferred: " + inferred.size());
+            }
+            
+        } finally {
+            executor.shutdown();
+        }
+        
+        log.info("TIMER# Semi-naive closure completed in: " + stopwatch + ", cycles: " + cycles + 
+                ", inferred: " + inferred.size() + ", memory usage: " + Utils.getMemoryUsageInGB() + "GB");
+        
+        return inferred;
+    }
+    
+    /**
+     * Apply the rules to the delta in parallel
+     * @param executor
+     * @param delta
+     * @return the derived triples of each chunk split into partitions
+     * @throws IOException
+     */
+    private LongTripleBuffer[][] derive(ExecutorService executor, final LongTripleBuffer delta) throws IOException {
+        
+        List<Callable<LongTripleBuffer[]>> tasks = new ArrayList<>();
+        
+        int chunk = (delta.size() + threads - 1) / threads;
+        
+        for(int i = 0; i < delta.size(); i += chunk) {
+            
+            final int start = i;
+            final int end = Math.min(i + chunk, delta.size());
+            
+            tasks.add(new Callable<LongTripleBuffer[]>() {
+                @Override
+                public LongTripleBuffer[] call() {
+                    Partitioner partitioner = new Partitioner();
+                    
+                    for(int j = start; j < end; j++) {
+                        rules.apply(delta.getSubject(j), delta.getPredicate(j), delta.getObject(j), partitioner);
+                    }
+                    return partitioner.partitions;
+                }
+            });
+        }
+        
+        List<LongTripleBuffer[]> derived = invokeAll(executor, tasks);
+        
+        return derived.toArray(new LongTripleBuffer[derived.size()][]);
+    }
+    
+    private int partition(long subject, long predicate, long object) {
+        return (int) ((LongTripleSet.hash(subject, predicate, object) >>> 1) % threads);
+    }
+    
+    /**
+     * Split the provided triples into partitions
+     * @param triples
+     * @return
+     */
+    private LongTripleBuffer[] partition(LongTripleBuffer triples) {
+        
+        Partitioner partitioner = new Partitioner();
+        
+        for(int i = 0; i < triples.size(); i++) {
+            partitioner.add(triples.getSubject(i), triples.getPredicate(i), triples.getObject(i));
+        }
+        return partitioner.partitions;
+    }
+    
+    /**
+     * Splits the triples it receives between the partitions
+     */
+    private class Partitioner implements LongTripleSink {
+        
+        private final LongTripleBuffer[] partitions = new LongTripleBuffer[threads];
+        
+        Partitioner() {
+            for(int i = 0; i < threads; i++) {
+                partitions[i] = new LongTripleBuffer();
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.utils.LongTripleSink#add(long, long, long)
+         */
+        @Override
+        public void add(long subject, long predicate, long object) {
+            partitions[partition(subject, predicate, object)].add(subject, predicate, object);
+        }
+    }
+    
+    /**
+     * Add the derived triples to the known triples, each partition is merged by its own thread
+     * @param executor
+     * @param derived - the partitions derived by each chunk
+     * @return the triples that were not already known, i.e. the next delta
+     * @throws IOException
+     */
+    private LongTripleBuffer merge(ExecutorService executor, final LongTripleBuffer[][] derived) throws IOException {
+        
+        List<Callable<LongTripleBuffer>> tasks = new ArrayList<>();
+        
+        for(int i = 0; i < threads; i++) {
+            
+            final int partition = i;
+            
+            tasks.add(new Callable<LongTripleBuffer>() {
+                @Override
+                public LongTripleBuffer call() {
+                    LongTripleSet set = known[partition];
+                    LongTripleBuffer delta = new LongTripleBuffer();
+                    
+                    for(LongTripleBuffer[] chunk: derived) {
+                        
+                        LongTripleBuffer triples = chunk[partition];
+                        
+                        for(int j = 0; j < triples.size(); j++) {
+                            
+                            long subject = triples.getSubject(j);
+                            long predicate = triples.getPredicate(j);
+                            long object = triples.getObject(j);
+                            
+                            if(set.add(subject, predicate, object)) {
+                                delta.add(subject, predicate, object);
+                            }
+                        }
+                    }
+                    return delta;
+                }
+            });
+        }
+        
+        LongTripleBuffer delta = new LongTripleBuffer();
+        
+        for(LongTripleBuffer partition: invokeAll(executor, tasks)) {
+            delta.addAll(partition);
+        }
+        
+        return delta;
+    }
+    
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) throws IOException {
+        
+        List<T> results = new ArrayList<>();
+        
+        try {
+            for(Future<T> result: executor.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            
+        } catch(Exception e) {
+            log.error("Failed to run reasoning in parallel", e);
+            throw new IOException(e);
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Compute the closure of the instance triples in the provided query results files and save the inferred triples 
+     * in outFile as compressed CSV or binary if it has a {@link Constants#DOT_BIN} extension
+     * @param files - the query results files
+     * @param compressed - true if the files are compressed with a header row
+     * @param outFile
+     * @return the number of inferred triples
+     * @throws IOException
+     */
+    public int reason(List<String> files, boolean compressed, String outFile) throws IOException {
+        
+        LongTripleBuffer triples = new LongTripleBuffer(1024);
+        
+        for(String file: files) {
+            this.load(file, compressed, triples);
+        }
+        
+        log.info("Loaded " + triples.size() + " instance triples, memory usage: " + Utils.getMemoryUsageInGB() + "GB");
+        
+        LongTripleBuffer inferred = this.reason(triples);
+        
+        try(ETripleWriter writer = TripleUtils.createEncodedTriplesWriter(outFile)) {
+            
+            for(int i = 0; i < inferred.size(); i++) {
+                
+                long object = inferred.getObject(i);
+                
+                if(object < 0) {
+                    writer.setLiteral(this.getLiteral(object));
+                }
+                
+                writer.add(inferred.getSubject(i), inferred.getPredicate(i), object);
+            }
+        }
+        
+        return inferred.size();
+    }
+    
+    /**
+     * Load the encoded triples in the provided query results file
+     * @param file
+     * @param compressed - true if the file is compressed with a header row
+     * @param triples
+     * @throws IOException
+     */
+    private void load(String file, boolean compressed, LongTripleBuffer triples) throws IOException {
+        
+        try(ETripleReader reader = TripleUtils.openEncodedTriples(file, compressed)) {
+            
+            while(reader.next()) {
+                triples.add(reader.getSubject(), reader.getPredicate(), 
+                        reader.hasObject() ? reader.getObject() : this.addLiteral(reader.getLiteral()));
+            }
+        }
+    }
+    
+    /**
+     * Add a literal object, equal literals are given the same value so their triples are de-duplicated
+     * @param literal
+     * @return the negative value used in place of the object
+     */
+    public long addLiteral(String literal) {
+        
+        Long id = this.literalIds.get(literal);
+        
+        if(id == null) {
+            this.literals.add(literal);
+            id = (long) -this.literals.size();
+            this.literalIds.put(literal, id);
+        }
+        
+        return id;
+    }
+    
+    /**
+     * @param object - a negative object value returned by {@link #addLiteral(String)}
+     * @return the literal
+     */
+    public String getLiteral(long object) {
+        return this.literals.get((int) (-object - 1));
+    }
+
+    /**
+     * @return the number of iterations of the last reasoning run, including the final one that derived nothing new
+     */
+    public int getCycles() {
+        return cycles;
+    }
+
+}
@@ -24,10 +24,15 @@ import io.ecarf.core.triple.TermType;
 import io.ecarf.core.triple.Triple;
 import io.ecarf.core.utils.Utils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -35,11 +40,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 
 /**
  * This class takes in schema terms and their triples and generates a combined query for all the rules.
- * The query is split according to size if it's too large
+ * The query is split according to size if it's too large, and when the number of rows each schema term matches
+ * is known the terms are split between several queries of similar result sizes
  * 
  * @author Omer Dawelbeit (omerio)
  *
@@ -54,8 +59,12 @@ public class QueryGenerator<T> {
 	
 	private static final String FROM = " from ";
 	
+	// the maximum length of a BigQuery query text
+	public static final int DEFAULT_MAX_QUERY_LENGTH = 256 * 1024;
+	
 	private String decoratedTable;
 	private Map<T, Set<Triple>> schemaTerms; 
+	private int maxQueryLength = DEFAULT_MAX_QUERY_LENGTH;
 
 	/**
 	 * 
@@ -65,18 +74,187 @@ public class QueryGenerator<T> {
 		this.schemaTerms = schemaTerms;
 	}
 	
+	/**
+	 * Get the queries for all the schema terms, the terms are only split between several queries if 
+	 * a single query is longer than the maximum query length
+	 * @return
+	 */
 	public List<String> getQueries() {
-	    return Lists.newArrayList(this.getQuery());
+	    return this.getQueries(null, 0);
+	}
+	
+	/**
+	 * Get the fewest queries that cover all the schema terms with an estimated result size of no more than 
+	 * maxRows each, every extra query scans the table again so the terms are only split when needed. 
+	 * The terms are bin packed largest first into the least loaded query so that the results are of similar 
+	 * sizes and the queries finish at about the same time. The largest queries are returned first
+	 * @param termStats - the number of triples each term appears in, terms without stats are estimated as zero rows
+	 * @param maxRows - the maximum estimated result rows of each query, zero or less for no limit. A single term with 
+	 * more rows than this is given a query of its own
+	 * @return
+	 */
+	public List<String> getQueries(Map<T, Long> termStats, long maxRows) {
+	    
+	    List<String> queries = new ArrayList<>();
+	    
+	    for(List<T> terms: this.partition(termStats, maxRows)) {
+	        this.addQueries(terms, queries);
+	    }
+	    
+	    return queries;
+	}
+	
+	/**
+	 * Split the schema terms into bins with an estimated result size of no more than maxRows each
+	 * @see #getQueries(Map, long)
+	 * @param termStats
+	 * @param maxRows
+	 * @return the terms of each bin, the terms of a bin are in descending order of their estimated rows
+	 */
+	List<List<T>> partition(final Map<T, Long> termStats, long maxRows) {
+	    
+	    List<T> terms = new ArrayList<>(schemaTerms.keySet());
+	    
+	    if(terms.isEmpty()) {
+	        return Collections.emptyList();
+	    }
+	    
+	    final Map<T, Long> estimates = new HashMap<>();
+	    long totalRows = 0;
+	    
+	    for(T term: terms) {
+	        Long rows = (termStats != null) ? termStats.get(term) : null;
+	        rows = (rows != null) ? rows : 0L;
+	        estimates.put(term, rows);
+	        totalRows += rows;
+	    }
+	    
+	    int numberOfBins = 1;
+	    
+	    if((maxRows > 0) && (totalRows > maxRows)) {
+	        numberOfBins = (int) Math.min((totalRows + maxRows - 1) / maxRows, terms.size());
+	    }
+	    
+	    if(numberOfBins == 1) {
+	        return Collections.singletonList(terms);
+	    }
+	    
+	    Collections.sort(terms, new Comparator<T>() {
+	        @Override
+	        public int compare(T term1, T term2) {
+	            return Long.compare(estimates.get(term2), estimates.get(term1));
+	        }
+	    });
+	    
+	    List<Bin<T>> sorted = this.pack(terms, estimates, numberOfBins);
+	    
+	    // the bins are balanced but the total might not divide evenly, use more until each fits or has a single term
+	    while((numberOfBins < terms.size()) && !this.fits(sorted, maxRows)) {
+	        numberOfBins++;
+	        sorted = this.pack(terms, estimates, numberOfBins);
+	    }
+	    
+	    List<List<T>> partitions = new ArrayList<>();
+	    
+	    for(Bin<T> bin: sorted) {
+	        log.info("Query terms: " + bin.terms.size() + ", estimated rows: " + bin.rows);
+	        partitions.add(bin.terms);
+	    }
+	    
+	    return partitions;
+	}
+	
+	/**
+	 * Pack the terms largest first into the least loaded of the provided number of bins
+	 * @param terms - in descending order of their estimated rows
+	 * @param estimates
+	 * @param numberOfBins
+	 * @return the bins in descending order of their estimated rows
+	 */
+	private List<Bin<T>> pack(List<T> terms, Map<T, Long> estimates, int numberOfBins) {
+	    
+	    PriorityQueue<Bin<T>> bins = new PriorityQueue<>(numberOfBins);
+	    
+	    for(int i = 0; i < numberOfBins; i++) {
+	        bins.add(new Bin<T>(i));
+	    }
+	    
+	    for(T term: terms) {
+	        Bin<T> bin = bins.poll();
+	        bin.terms.add(term);
+	        bin.rows += estimates.get(term);
+	        bins.add(bin);
+	    }
+	    
+	    List<Bin<T>> sorted = new ArrayList<>(bins);
+	    Collections.sort(sorted, Collections.reverseOrder());
+	    
+	    return sorted;
 	}
 	
+	/**
+	 * @param bins
+	 * @param maxRows
+	 * @return true if each bin has no more than maxRows or only a single term
+	 */
+	private boolean fits(List<Bin<T>> bins, long maxRows) {
+	    
+	    for(Bin<T> bin: bins) {
+	        if((bin.rows > maxRows) && (bin.terms.size() > 1)) {
+	            return false;
+	        }
+	    }
+	    
+	    return true;
+	}
+	
+	/**
+	 * Add the query for the provided terms, if it's too long then the terms are split in two 
+	 * alternately so both halves have similar result sizes
+	 * @param terms
+	 * @param queries
+	 */
+	private void addQueries(List<T> terms, List<String> queries) {
+	    
+	    String query = this.getQuery(terms);
+	    
+	    if((query.length() <= this.maxQueryLength) || (terms.size() == 1)) {
+	        queries.add(query);
+	        
+	    } else {
+	        
+	        List<T> first = new ArrayList<>();
+	        List<T> second = new ArrayList<>();
+	        
+	        for(int i = 0; i < terms.size(); i++) {
+	            ((i % 2 == 0) ? first : second).add(terms.get(i));
+	        }
+	        
+	        this.addQueries(first, queries);
+	        this.addQueries(second, queries);
+	    }
+	}
+	
+	/**
+	 * Get a single query for all the schema terms
+	 * @return
+	 */
 	public String getQuery() {
-		//List<String> queries = new ArrayList<String>();
+	    return this.getQuery(schemaTerms.keySet());
+	}
+	
+	/**
+	 * Get a single query for the provided schema terms
+	 * @param queryTerms
+	 * @return
+	 */
+	private String getQuery(Collection<T> queryTerms) {
 		
 		Map<Integer, Map<String, Set<String>>> parts = new HashMap<Integer, Map<String, Set<String>>>();
 		Set<String> selects = new HashSet<>();
 		boolean encoded = false;
 				
-		for(T term: schemaTerms.keySet()) {
+		for(T term: queryTerms) {
 			Set<Triple> triples = schemaTerms.get(term);
 			
 			Triple schemaTriple = null;
@@ -158,8 +336,6 @@ public class QueryGenerator<T> {
 		query.append(joiner.join(conditions)).append(';');
 		
 		log.debug("Query size: " + Utils.getStringSize(query.toString()));
-		//queries.add(query.toString());
-		// TODO take care of query size
 		
 		return query.toString();
 	}
@@ -170,6 +346,38 @@ public class QueryGenerator<T> {
 	public void setDecoratedTable(String decoratedTable) {
 		this.decoratedTable = decoratedTable;
 	}
+
+	/**
+	 * @param maxQueryLength the maximum length of the query text, longer queries are split
+	 */
+	public void setMaxQueryLength(int maxQueryLength) {
+		this.maxQueryLength = maxQueryLength;
+	}
+	
+	/**
+	 * The terms of a query and their estimated rows, ordered by rows then by creation order
+	 */
+	private static class Bin<T> implements Comparable<Bin<T>> {
+	    
+	    private final int index;
+	    
+	    private final List<T> terms = new ArrayList<>();
+	    
+	    private long rows;
+
+	    Bin(int index) {
+	        this.index = index;
+	    }
+
+	    /* (non-Javadoc)
+	     * @see java.lang.Comparable#compareTo(java.lang.Object)
+	     */
+	    @Override
+	    public int compareTo(Bin<T> other) {
+	        int result = Long.compare(this.rows, other.rows);
+	        return (result != 0) ? result : Integer.compare(this.index, other.index);
+	    }
+	}
 	
 
 }
@@ -0,0 +1,164 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+/**
+ * A mutable, reusable window over a range of chars in another {@link CharSequence}, e.g. a term within a
+ * raw N-Triples line. The hash code is the same as the hash code of a String with the same chars and 
+ * equals compares chars with any CharSequence, so a window can be used to lookup String keyed maps 
+ * and sets without creating a substring, i.e. map.get(window) finds the entry for window.toString().
+ * 
+ * Windows are not thread safe, each thread should use its own.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class CharWindow implements CharSequence {
+    
+    private CharSequence chars;
+    
+    private int start;
+    
+    private int end;
+    
+    private int hash;
+    
+    /**
+     * Create an empty window
+     */
+    public CharWindow() {
+        this.chars = "";
+    }
+    
+    /**
+     * Move this window to the provided range
+     * @param chars
+     * @param start - inclusive
+     * @param end - exclusive
+     * @return this window
+     */
+    public CharWindow set(CharSequence chars, int start, int end) {
+        this.chars = chars;
+        this.start = start;
+        this.end = end;
+        
+        // same as String.hashCode
+        int h = 0;
+        for(int i = start; i < end; i++) {
+            h = 31 * h + chars.charAt(i);
+        }
+        this.hash = h;
+        
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#length()
+     */
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#charAt(int)
+     */
+    @Override
+    public char charAt(int index) {
+        return chars.charAt(start + index);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return chars.subSequence(this.start + start, this.start + end);
+    }
+    
+    /**
+     * @return the underlying chars
+     */
+    public CharSequence getChars() {
+        return chars;
+    }
+
+    /**
+     * @return the start of this window in the underlying chars
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the end of this window in the underlying chars
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        
+        if(!(obj instanceof CharSequence)) {
+            return false;
+        }
+        
+        CharSequence other = (CharSequence) obj;
+        int length = end - start;
+        
+        if(other.length() != length) {
+            return false;
+        }
+        
+        // compare backwards, URIs tend to share their prefix
+        for(int i = length - 1; i >= 0; i--) {
+            if(other.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return chars.subSequence(start, end).toString();
+    }
+
+}
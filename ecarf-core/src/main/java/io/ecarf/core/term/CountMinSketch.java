@@ -0,0 +1,141 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A thread safe Count-Min sketch of term occurrences. Each term increments one counter in each of the rows, the 
+ * estimated count of a term is the smallest of its counters so it's never below the actual count and, with 
+ * a probability of 1 - e^-depth, is over by no more than e * total / width. 
+ * 
+ * The terms are identified by their String hash code, which a {@link CharWindow} also provides without creating 
+ * a String. Terms with the same hash code share their counters.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class CountMinSketch {
+    
+    private final AtomicIntegerArray counters;
+    
+    private final int depth;
+    
+    private final int widthBits;
+    
+    private final int mask;
+    
+    /**
+     * @param width - the number of counters per row, rounded up to a power of 2
+     * @param depth - the number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+        
+        if((width < 1) || (depth < 1) || (depth > 16)) {
+            throw new IllegalArgumentException("Invalid sketch size, width: " + width + ", depth: " + depth);
+        }
+        
+        int size = Integer.highestOneBit(Math.max(width - 1, 1) << 1);
+        
+        if(((long) size * depth) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sketch is too large, width: " + width + ", depth: " + depth);
+        }
+        
+        this.depth = depth;
+        this.widthBits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.counters = new AtomicIntegerArray(size * depth);
+    }
+    
+    /**
+     * The second hash used to select the counters of the following rows
+     * @param hash
+     * @return an odd number
+     */
+    private static int hash2(int hash) {
+        hash *= 0x9E3779B9;
+        hash ^= hash >>> 15;
+        hash *= 0x85ebca6b;
+        return (hash ^ (hash >>> 13)) | 1;
+    }
+    
+    /**
+     * Add an occurrence of the term with the provided String hash code
+     * @param hash
+     * @return the estimated count of the term after it's added
+     */
+    public int add(int hash) {
+        return this.add(hash, 1);
+    }
+    
+    /**
+     * Add a number of occurrences of the term with the provided String hash code
+     * @param hash
+     * @param occurrences
+     * @return the estimated count of the term after it's added
+     */
+    public int add(int hash, int occurrences) {
+        
+        int step = hash2(hash);
+        int min = Integer.MAX_VALUE;
+        
+        for(int i = 0; i < depth; i++) {
+            
+            int count = counters.addAndGet((i << widthBits) + ((hash + i * step) & mask), occurrences);
+            
+            if(count < min) {
+                min = count;
+            }
+        }
+        
+        return min;
+    }
+    
+    /**
+     * The estimated count of the term with the provided String hash code
+     * @param hash
+     * @return
+     */
+    public int estimate(int hash) {
+        
+        int step = hash2(hash);
+        int min = Integer.MAX_VALUE;
+        
+        for(int i = 0; i < depth; i++) {
+            
+            int count = counters.get((i << widthBits) + ((hash + i * step) & mask));
+            
+            if(count < min) {
+                min = count;
+            }
+        }
+        
+        return min;
+    }
+    
+    /**
+     * @return the size of this sketch in bytes
+     */
+    public long getMemoryUsage() {
+        return counters.length() * 4L;
+    }
+
+}
@@ -0,0 +1,326 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A read only {@link UriTrie} that is memory mapped from a file created by {@link UriTrieWriter}, nothing
+ * is loaded on the heap, lookups and cursors read the nodes straight from the OS page cache. The file is mapped 
+ * in chunks of 1GB and read a byte at a time, so values can cross the chunk boundaries. Safe to share between
+ * threads, each cursor must only be used by one thread.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class MappedUriTrie {
+    
+    private static final int HEADER_SIZE = 8;
+    
+    private static final int TRAILER_SIZE = 16;
+    
+    private static final int CHUNK_BITS = 30;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    private final String file;
+    
+    private final MappedByteBuffer [] chunks;
+    
+    private final long size;
+    
+    private final long root;
+
+    /**
+     * Use {@link MappedUriTrie#fromFile(String)}
+     * @param file
+     * @throws IOException
+     */
+    private MappedUriTrie(String file) throws IOException {
+        
+        this.file = file;
+        
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+
+            long length = channel.size();
+
+            if(length < (HEADER_SIZE + TRAILER_SIZE)) {
+                throw new IOException("Invalid trie file: " + file);
+            }
+
+            int numChunks = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+            this.chunks = new MappedByteBuffer[numChunks];
+
+            for(int i = 0; i < numChunks; i++) {
+                long position = ((long) i) << CHUNK_BITS;
+                this.chunks[i] = channel.map(MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, length - position));
+            }
+            
+            if((chunks[0].getInt(0) != UriTrieWriter.MAGIC) || (chunks[0].getInt(4) != UriTrieWriter.VERSION)) {
+                throw new IOException("Invalid trie file or version: " + file);
+            }
+            
+            this.size = this.getLong(length - TRAILER_SIZE);
+            this.root = this.getLong(length - 8);
+        }
+    }
+    
+    /**
+     * Map an existing trie file
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static MappedUriTrie fromFile(String file) throws IOException {
+        return new MappedUriTrie(file);
+    }
+    
+    /**
+     * The occurrences of the provided key
+     * @param key
+     * @return the count or 0 if the key is not in this trie
+     */
+    public long getCount(String key) {
+        
+        byte [] bytes = key.getBytes(StandardCharsets.UTF_8);
+        
+        long node = root;
+        int depth = 0;
+        
+        long [] value = new long[1];
+        
+        while(true) {
+            
+            long position = this.readVarint(node, value);
+            long count = value[0];
+            
+            if(depth == bytes.length) {
+                return count;
+            }
+            
+            position = this.readVarint(position, value);
+            long numChildren = value[0];
+            
+            long child = -1;
+            
+            for(long i = 0; (i < numChildren) && (child < 0); i++) {
+                
+                position = this.readVarint(position, value);
+                int edgeLength = (int) value[0];
+                
+                int first = this.getByte(position) & 0xFF;
+                int b = bytes[depth] & 0xFF;
+                
+                if(first > b) {
+                    // the children are sorted by their first byte
+                    return 0;
+                }
+                
+                if(first == b) {
+                    
+                    if((bytes.length - depth) < edgeLength) {
+                        return 0;
+                    }
+                    
+                    for(int j = 0; j < edgeLength; j++) {
+                        if(this.getByte(position + j) != bytes[depth + j]) {
+                            return 0;
+                        }
+                    }
+                    
+                    depth += edgeLength;
+                    position = this.readVarint(position + edgeLength, value);
+                    child = node - value[0];
+                    
+                } else {
+                    // skip the edge and the child distance
+                    position = this.readVarint(position + edgeLength, value);
+                }
+            }
+            
+            if(child < 0) {
+                return 0;
+            }
+            
+            node = child;
+        }
+    }
+    
+    /**
+     * @return a cursor over the keys in unsigned byte order
+     */
+    public UriTrie.Cursor cursor() {
+        return new MappedCursor();
+    }
+    
+    private byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+    
+    private long getLong(long position) {
+        long value = 0;
+        for(int i = 0; i < 8; i++) {
+            value = (value << 8) | (this.getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+    
+    /**
+     * Read the varint at the provided position into value[0]
+     * @return the position after the varint
+     */
+    private long readVarint(long position, long [] value) {
+        
+        long result = 0;
+        int shift = 0;
+        byte b;
+        
+        do {
+            b = this.getByte(position++);
+            result |= ((long) (b & 0x7F)) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        value[0] = result;
+        return position;
+    }
+
+    /**
+     * @return the number of keys
+     */
+    public long size() {
+        return size;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).
+                append("file", this.file).
+                append("size", this.size).
+                toString();
+    }
+    
+    /**
+     * Depth first, pre-order cursor over the mapped nodes
+     */
+    private final class MappedCursor extends UriTrie.Cursor {
+        
+        private long [] nodes = new long[16];
+        
+        // the position of the next child entry and the number of children left of each open node
+        private long [] positions = new long[16];
+        
+        private long [] remaining = new long[16];
+        
+        private int [] keyLengths = new int[16];
+        
+        private int depth = -1;
+        
+        private boolean started;
+        
+        private final long [] value = new long[1];
+
+        /* (non-Javadoc)
+         * @see io.ecarf.core.term.UriTrie.Cursor#next()
+         */
+        @Override
+        public boolean next() {
+            
+            if(!started) {
+                started = true;
+                
+                if(this.visit(root, 0)) {
+                    return true;
+                }
+            }
+            
+            while(depth >= 0) {
+                
+                if(remaining[depth] == 0) {
+                    depth--;
+                    continue;
+                }
+                
+                remaining[depth]--;
+                
+                long position = readVarint(positions[depth], value);
+                int edgeLength = (int) value[0];
+                int length = keyLengths[depth];
+                
+                this.ensureKeyCapacity(length + edgeLength);
+                
+                for(int i = 0; i < edgeLength; i++) {
+                    key[length + i] = getByte(position + i);
+                }
+                
+                positions[depth] = readVarint(position + edgeLength, value);
+                
+                if(this.visit(nodes[depth] - value[0], length + edgeLength)) {
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        /**
+         * Push the node
+         * @return true if a key ends at the node
+         */
+        private boolean visit(long node, int length) {
+            
+            if(++depth == nodes.length) {
+                this.nodes = Arrays.copyOf(nodes, depth << 1);
+                this.positions = Arrays.copyOf(positions, depth << 1);
+                this.remaining = Arrays.copyOf(remaining, depth << 1);
+                this.keyLengths = Arrays.copyOf(keyLengths, depth << 1);
+            }
+            
+            long position = readVarint(node, value);
+            this.count = value[0];
+            
+            positions[depth] = readVarint(position, value);
+            remaining[depth] = value[0];
+            nodes[depth] = node;
+            keyLengths[depth] = length;
+            
+            this.keyLength = length;
+            
+            return this.count > 0;
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import io.ecarf.core.triple.SchemaURIType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Builds {@link SplitRules} from a sample of URIs. The sampled URIs are grouped by host and for each host 
+ * every split location is tried, the location that gives the smallest total size of the unique parts is 
+ * chosen. A rule is only added for hosts where that location is better than the default last slash split, 
+ * so the table stays small. The unique parts are evaluated per host, parts shared between hosts are not
+ * taken into account.
+ * 
+ * The number of sampled URIs per host and in total is capped. Not thread safe.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SplitRuleAnalyser {
+    
+    private final static Log log = LogFactory.getLog(SplitRuleAnalyser.class);
+    
+    public static final int DEFAULT_MAX_TERMS_PER_HOST = 2000;
+    
+    public static final int DEFAULT_MAX_TERMS = 1_000_000;
+    
+    /**
+     * Hosts with fewer sampled URIs than this don't get a rule
+     */
+    public static final int MIN_TERMS_PER_HOST = 16;
+    
+    // deeper split locations are not tried
+    private static final int MAX_TRIED_LOCATION = 16;
+    
+    // approximate bytes used by a dictionary entry in addition to its chars, i.e. the id and the references
+    private static final int ENTRY_OVERHEAD = 8;
+    
+    private final Map<String, List<String>> samples = new HashMap<>();
+    
+    private final CharWindow window = new CharWindow();
+    
+    private final int maxTermsPerHost;
+    
+    private final int maxTerms;
+    
+    private int numTerms;
+    
+    /**
+     * Use the default caps
+     */
+    public SplitRuleAnalyser() {
+        this(DEFAULT_MAX_TERMS_PER_HOST, DEFAULT_MAX_TERMS);
+    }
+
+    /**
+     * @param maxTermsPerHost - the maximum number of URIs sampled for each host
+     * @param maxTerms - the maximum number of URIs sampled in total
+     */
+    public SplitRuleAnalyser(int maxTermsPerHost, int maxTerms) {
+        super();
+        this.maxTermsPerHost = maxTermsPerHost;
+        this.maxTerms = maxTerms;
+    }
+    
+    /**
+     * Sample a URI in the format <http://dbpedia.org/resource/Alexander_II_of_Russia>
+     * @param term
+     * @return true if the URI was added to the sample
+     */
+    public boolean addTerm(String term) {
+        return this.addTerm(term, 0, term.length());
+    }
+    
+    /**
+     * Sample the URI within the provided chars, a String is only created if the URI is added to the sample
+     * @param chars
+     * @param start - the start of the URI, inclusive
+     * @param end - the end of the URI, exclusive
+     * @return true if the URI was added to the sample
+     */
+    public boolean addTerm(CharSequence chars, int start, int end) {
+        
+        if(this.isFull() || ((end - start) < 2) || (chars.charAt(start) != '<') || 
+                SchemaURIType.RDF_OWL_TERMS.contains(window.set(chars, start, end))) {
+            return false;
+        }
+        
+        int hostStart = start + 1;
+        int hostEnd = end - 1;
+        
+        if(TermUtils.startsWith(chars, hostStart, hostEnd, TermUtils.HTTP)) {
+            hostStart += TermUtils.HTTP.length();
+            
+        } else if(TermUtils.startsWith(chars, hostStart, hostEnd, TermUtils.HTTPS)) {
+            hostStart += TermUtils.HTTPS.length();
+        }
+        
+        int slashIdx = TermUtils.indexOf(chars, hostStart, hostEnd, TermUtils.URI_SEP);
+        
+        if(slashIdx > -1) {
+            hostEnd = slashIdx;
+        }
+        
+        List<String> terms = this.samples.get(window.set(chars, hostStart, hostEnd));
+        
+        if(terms == null) {
+            terms = new ArrayList<>();
+            this.samples.put(window.toString(), terms);
+            
+        } else if(terms.size() >= this.maxTermsPerHost) {
+            return false;
+        }
+        
+        terms.add(chars.subSequence(start, end).toString());
+        this.numTerms++;
+        
+        return true;
+    }
+    
+    /**
+     * @return true if the total number of sampled URIs has been reached
+     */
+    public boolean isFull() {
+        return this.numTerms >= this.maxTerms;
+    }
+    
+    /**
+     * Choose the split location of each sampled host
+     * @return the rules of the hosts where the default split is not the best
+     */
+    public SplitRules analyse() {
+        
+        SplitRules rules = new SplitRules();
+        
+        int [] bounds = new int[4];
+        
+        long defaultSize = 0;
+        long size = 0;
+        
+        for(Entry<String, List<String>> entry: this.samples.entrySet()) {
+            
+            String host = entry.getKey();
+            List<String> terms = entry.getValue();
+            
+            long hostDefaultSize = getDictionarySize(terms, null, bounds);
+            
+            defaultSize += hostDefaultSize;
+            
+            if(terms.size() < MIN_TERMS_PER_HOST) {
+                size += hostDefaultSize;
+                continue;
+            }
+            
+            int maxLocation = Math.min(getMaxSlashes(terms) - 1, MAX_TRIED_LOCATION);
+            
+            long bestSize = hostDefaultSize;
+            int bestLocation = SplitRules.NO_RULE;
+            
+            for(int location = 0; location <= maxLocation; location++) {
+                
+                SplitRules candidate = new SplitRules();
+                candidate.put(host, location);
+                
+                long candidateSize = getDictionarySize(terms, candidate, bounds);
+                
+                // ties are left to the default split
+                if(candidateSize < bestSize) {
+                    bestSize = candidateSize;
+                    bestLocation = location;
+                }
+            }
+            
+            if(bestLocation != SplitRules.NO_RULE) {
+                rules.put(host, bestLocation);
+            }
+            
+            size += bestSize;
+        }
+        
+        log.info("Analysed " + this.numTerms + " URIs of " + this.samples.size() + " hosts, rules: " + rules.size() + 
+                ", sample dictionary size with default split: " + defaultSize + ", with rules: " + size);
+        
+        return rules;
+    }
+    
+    /**
+     * The approximate size of the dictionary entries needed for the unique parts of the provided URIs
+     * @param terms
+     * @param rules - null to use the default split
+     * @param bounds
+     * @return
+     */
+    private static long getDictionarySize(List<String> terms, SplitRules rules, int [] bounds) {
+        
+        Set<String> parts = new HashSet<>();
+        
+        long size = 0;
+        
+        for(String term: terms) {
+            
+            int count = TermUtils.splitIntoTwo(term, 0, term.length(), true, -1, rules, bounds);
+            
+            for(int i = 0; i < count; i++) {
+                
+                String part = term.substring(bounds[i << 1], bounds[(i << 1) + 1]);
+                
+                if(parts.add(part)) {
+                    size += part.length() + ENTRY_OVERHEAD;
+                }
+            }
+        }
+        
+        return size;
+    }
+    
+    /**
+     * The maximum number of slashes after the host in the provided URIs, a trailing slash is not counted
+     * @param terms
+     * @return
+     */
+    private static int getMaxSlashes(List<String> terms) {
+        
+        int max = 0;
+        
+        for(String term: terms) {
+            
+            int idx = 1;
+            int end = term.length() - 1;
+            
+            // skip the slashes of the protocol
+            if(TermUtils.startsWith(term, idx, end, TermUtils.HTTP)) {
+                idx += TermUtils.HTTP.length();
+                
+            } else if(TermUtils.startsWith(term, idx, end, TermUtils.HTTPS)) {
+                idx += TermUtils.HTTPS.length();
+            }
+            
+            if((end > idx) && (term.charAt(end - 1) == TermUtils.URI_SEP)) {
+                end--;
+            }
+            
+            int slashes = 0;
+            
+            while((idx = TermUtils.indexOf(term, idx, end, TermUtils.URI_SEP)) > -1) {
+                slashes++;
+                idx++;
+            }
+            
+            max = Math.max(max, slashes);
+        }
+        
+        return max;
+    }
+
+    /**
+     * @return the number of sampled URIs
+     */
+    public int getNumberOfTerms() {
+        return numTerms;
+    }
+    
+    /**
+     * @return the number of sampled hosts
+     */
+    public int getNumberOfHosts() {
+        return samples.size();
+    }
+
+}
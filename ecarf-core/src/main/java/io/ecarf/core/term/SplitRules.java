@@ -0,0 +1,247 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import io.ecarf.core.utils.Utils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A compact table of per host split rules, each rule overrides the default split location used by
+ * {@link TermUtils#splitIntoTwo(CharSequence, int, int, boolean, int, SplitRules, int[])} for the URIs of 
+ * one host. A rule is the number of path segments kept with the host in the first part, 0 splits at the 
+ * first slash, 1 at the second slash and so on. URIs with fewer slashes are split at their last slash.
+ * 
+ * The hosts are kept in an open addressing table that can be looked up with a range of chars, so applying 
+ * the rules while encoding doesn't create any substrings. The rules are created by {@link SplitRuleAnalyser} 
+ * and must be the same when extracting the parts of a dictionary and when encoding with that dictionary.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SplitRules implements Serializable {
+
+    private static final long serialVersionUID = -4512066351908771234L;
+    
+    /**
+     * Returned for hosts that have no rule, their URIs are split using the default split location
+     */
+    public static final int NO_RULE = -1;
+    
+    public static final int MAX_SPLIT_LOCATION = Byte.MAX_VALUE;
+
+    private String [] hosts;
+    
+    private byte [] locations;
+    
+    private int size;
+    
+    /**
+     * Create an empty rules table
+     */
+    public SplitRules() {
+        this.allocate(16);
+    }
+    
+    /**
+     * Add or replace the rule for the provided host
+     * @param host - the host without the protocol, e.g. dbpedia.org
+     * @param location - 0 to {@link SplitRules#MAX_SPLIT_LOCATION}
+     */
+    public void put(String host, int location) {
+        
+        if((location < 0) || (location > MAX_SPLIT_LOCATION)) {
+            throw new IllegalArgumentException("Invalid split location: " + location + ", for host: " + host);
+        }
+        
+        int slot = this.find(host, 0, host.length());
+        
+        if(hosts[slot] == null) {
+            hosts[slot] = host;
+            size++;
+        }
+        
+        locations[slot] = (byte) location;
+        
+        // keep the table at most half full
+        if((size << 1) > hosts.length) {
+            this.rehash();
+        }
+    }
+    
+    /**
+     * The rule for the host within the provided chars
+     * @param chars
+     * @param start - the start of the host, inclusive
+     * @param end - the end of the host, exclusive
+     * @return the split location or {@link SplitRules#NO_RULE} if the host has no rule
+     */
+    public int getSplitLocation(CharSequence chars, int start, int end) {
+        
+        if(size == 0) {
+            return NO_RULE;
+        }
+        
+        int slot = this.find(chars, start, end);
+        
+        return (hosts[slot] == null) ? NO_RULE : locations[slot];
+    }
+    
+    /**
+     * The rule for the provided host
+     * @param host
+     * @return the split location or {@link SplitRules#NO_RULE} if the host has no rule
+     */
+    public int getSplitLocation(String host) {
+        return this.getSplitLocation(host, 0, host.length());
+    }
+    
+    /**
+     * Find the slot of the host or the empty slot where it should be added
+     */
+    private int find(CharSequence chars, int start, int end) {
+        
+        // same as String.hashCode
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        
+        int mask = hosts.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        
+        String host;
+        while(((host = hosts[slot]) != null) && !matches(host, chars, start, end)) {
+            slot = (slot + 1) & mask;
+        }
+        
+        return slot;
+    }
+    
+    /**
+     * Compare the host with the chars in the range
+     */
+    private static boolean matches(String host, CharSequence chars, int start, int end) {
+        
+        int length = host.length();
+        
+        if(length != (end - start)) {
+            return false;
+        }
+        
+        for(int i = 0; i < length; i++) {
+            if(host.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void allocate(int capacity) {
+        this.hosts = new String[capacity];
+        this.locations = new byte[capacity];
+    }
+    
+    /**
+     * Double the capacity of the table
+     */
+    private void rehash() {
+        
+        String [] oldHosts = this.hosts;
+        byte [] oldLocations = this.locations;
+        
+        this.allocate(oldHosts.length << 1);
+        
+        for(int i = 0; i < oldHosts.length; i++) {
+            
+            String host = oldHosts[i];
+            
+            if(host != null) {
+                int slot = this.find(host, 0, host.length());
+                hosts[slot] = host;
+                locations[slot] = oldLocations[i];
+            }
+        }
+    }
+
+    /**
+     * @return the number of hosts that have a rule
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return a copy of the rules keyed by host
+     */
+    public Map<String, Integer> getRules() {
+        Map<String, Integer> rules = new HashMap<>();
+        
+        for(int i = 0; i < hosts.length; i++) {
+            if(hosts[i] != null) {
+                rules.put(hosts[i], (int) locations[i]);
+            }
+        }
+        return rules;
+    }
+    
+    /**
+     * Serialize these rules to a compressed file
+     * @param file
+     * @return the file
+     * @throws IOException
+     */
+    public String toFile(String file) throws IOException {
+        Utils.objectToFile(file, this, true, false);
+        return file;
+    }
+    
+    /**
+     * De-serialize the rules from a compressed file created by {@link SplitRules#toFile(String)}
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static SplitRules fromFile(String file) throws IOException {
+        try {
+            return Utils.objectFromFile(file, SplitRules.class, true, false);
+            
+        } catch(ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).
+                append("size", this.size).
+                toString();
+    }
+
+}
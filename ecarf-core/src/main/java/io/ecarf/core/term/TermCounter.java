@@ -16,119 +16,675 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
+
 package io.ecarf.core.term;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Counts the occurrences of terms, either every term or only the terms to count, e.g. the schema terms. The counts 
+ * are primitive int slots in open addressing tables keyed by the String hash code of the terms, so counting an 
+ * occurrence is one probe with no boxing, and a {@link CharWindow} is only turned into a String the first time its 
+ * term is seen.
+ * 
+ * A counter is thread safe, so one counter can be shared by all the threads that process the files of a load:
+ * <ul>
+ * <li>With terms to count the table is fixed once the terms are set and the counts are incremented lock free.</li>
+ * <li>Otherwise every term is counted in lock striped segments that grow independently.</li>
+ * <li>An approximate counter counts every term with bounded memory. The occurrences are added to a 
+ * {@link CountMinSketch} and only the terms with the largest estimated counts, the heavy hitters, are kept 
+ * (as in Space-Saving) in a min heap, so replacing the smallest heavy hitter costs O(log k).</li>
+ * </ul>
+ * 
  * @author Omer Dawelbeit (omerio)
  *
  */
 public class TermCounter {
-	
-	// count only these terms
-	private Set<String> termsToCount;
-	
-	// total count
-	private Map<String, Integer> count = new HashMap<>();
-	
-	//private Set<String> allTerms = new HashSet<>();
-	
-	/**
-	 * Count the terms for the provided triple terms
-	 * @param terms
-	 */
-	public void count(String [] terms) {
-		if(terms != null) {
-
-			for(String term: terms) {
-				
-				// either selective count or count everything
-				if((this.termsToCount == null) || 
-						((termsToCount != null) && this.termsToCount.contains(term))) {
-					this.countTerm(term);					
-				} 
-			}
-			
-		}
-	}
-	
-	/**
-	 * Count a single term
-	 * @param term
-	 */
-	public void count(String term) {
-	    // either selective count or count everything
-	    if((this.termsToCount == null) || 
-	            ((termsToCount != null) && this.termsToCount.contains(term))) {
-	        this.countTerm(term);                   
-	    } 
-	}
-	
-	/**
-	 * count the provided term 
-	 * @param term
-	 */
-	private void countTerm(String term) {
-
-		if(!count.containsKey(term)) {
-			count.put(term, 0);
-		}
-
-		count.put(term, count.get(term) + 1);
-	}
-
-	/**
-	 * Add a term to this counter's allTerms set
-	 * @param term
-	 */
-	/*public void addTerm(String term) {
-	    this.allTerms.add(term);
-	}*/
-	
-	/**
-	 * @return the termsToCount
-	 */
-	public Set<String> getTermsToCount() {
-		return termsToCount;
-	}
+    
+    private static final int SEGMENTS = 16;
+    
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private static final int SKETCH_DEPTH = 4;
+    
+    // 4 rows of 1M counters, 16MB
+    private static final int DEFAULT_SKETCH_WIDTH = 1 << 20;
+    
+    // the number of heavy hitters refreshed one at a time before the whole heap is rebuilt
+    private static final int MAX_REFRESH = 32;
+    
+    // count only these terms
+    private Set<String> termsToCount;
+    
+    // the table of the terms to count, fixed once the terms are set
+    private String [] keys;
+    
+    private int [] hashes;
+    
+    private AtomicIntegerArray counts;
+    
+    // the counts of all the terms, null if approximate
+    private final Segment [] segments;
+    
+    // the estimated counts of all the terms, null if exact
+    private final CountMinSketch sketch;
+    
+    private final int maxHeavyHitters;
+    
+    // the heavy hitters by term, looked up without taking the lock
+    private final Map<String, HeavyHitter> heavyHitters;
+    
+    // min heap of the heavy hitters by their estimates when last refreshed, guarded by this
+    private final HeavyHitter [] heap;
+    
+    private int heapSize;
+    
+    // the smallest estimated count of the heavy hitters once there are maxHeavyHitters of them
+    private volatile int minHeavyHitter;
+    
+    /**
+     * Create a counter with exact counts
+     */
+    public TermCounter() {
+        this.segments = new Segment[SEGMENTS];
+        
+        for(int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+        
+        this.sketch = null;
+        this.maxHeavyHitters = 0;
+        this.heavyHitters = null;
+        this.heap = null;
+    }
+    
+    /**
+     * Create an approximate counter with the default sketch size
+     * @param heavyHitters - the number of terms with the largest counts to keep
+     */
+    public TermCounter(int heavyHitters) {
+        this(heavyHitters, DEFAULT_SKETCH_WIDTH);
+    }
+    
+    /**
+     * Create an approximate counter, unless there are terms to count in which case their counts are exact. The 
+     * memory used is bounded by the size of the sketch and the number of heavy hitters
+     * @param heavyHitters - the number of terms with the largest counts to keep
+     * @param sketchWidth - the number of counters in each row of the sketch, the estimates are more accurate 
+     * the wider the sketch is
+     */
+    public TermCounter(int heavyHitters, int sketchWidth) {
+        
+        if(heavyHitters < 1) {
+            throw new IllegalArgumentException("Invalid number of heavy hitters: " + heavyHitters);
+        }
+        
+        this.segments = null;
+        this.sketch = new CountMinSketch(sketchWidth, SKETCH_DEPTH);
+        this.maxHeavyHitters = heavyHitters;
+        this.heavyHitters = new ConcurrentHashMap<>();
+        this.heap = new HeavyHitter[heavyHitters];
+    }
+    
+    /**
+     * Count the terms for the provided triple terms
+     * @param terms
+     */
+    public void count(String [] terms) {
+        if(terms != null) {
 
-	/**
-	 * @param termsToCount the termsToCount to set
-	 */
-	public void setTermsToCount(Set<String> termsToCount) {
-		this.termsToCount = termsToCount;
-	}
+            for(String term: terms) {
+                
+                if(term != null) {
+                    this.add(term, term.hashCode(), 1);
+                } 
+            }
+            
+        }
+    }
+    
+    /**
+     * Count a single term
+     * @param term
+     */
+    public void count(String term) {
+        this.add(term, term.hashCode(), 1);
+    }
+    
+    /**
+     * Count a single term that is within a larger sequence, the term is only turned into a String 
+     * if it's counted for the first time
+     * @param term
+     */
+    public void count(CharWindow term) {
+        this.add(term, term.hashCode(), 1);
+    }
+    
+    /**
+     * Add the provided counts to the counts of this counter
+     * @param counts
+     */
+    public void add(Map<String, Integer> counts) {
+        for(Entry<String, Integer> entry: counts.entrySet()) {
+            String term = entry.getKey();
+            this.add(term, term.hashCode(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Add occurrences of a term, either selective count or count everything
+     * @param term
+     * @param hash - the String hash code of the term
+     * @param occurrences
+     */
+    private void add(CharSequence term, int hash, int occurrences) {
+        
+        if(this.keys != null) {
+            
+            int slot = this.slot(term, hash);
+            
+            if(slot >= 0) {
+                this.counts.addAndGet(slot, occurrences);
+            }
+            
+        } else if(this.sketch != null) {
+            
+            int estimate = this.sketch.add(hash, occurrences);
+            
+            if(estimate > this.minHeavyHitter) {
+                
+                HeavyHitter hitter = this.heavyHitters.get(term);
+                
+                if(hitter == null) {
+                    this.addHeavyHitter(term, hash, estimate);
+                    
+                } else if(estimate > hitter.current) {
+                    hitter.current = estimate;
+                }
+            }
+            
+        } else {
+            
+            int mixed = mix(hash);
+            this.segments[mixed >>> 28].add(term, hash, mixed, occurrences);
+        }
+    }
+    
+    /**
+     * Find the slot of a term to count
+     * @param term
+     * @param hash
+     * @return the slot or -1 if the term is not counted
+     */
+    private int slot(CharSequence term, int hash) {
+        
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        String key;
+        
+        while((key = keys[slot]) != null) {
+            
+            if((hashes[slot] == hash) && key.contentEquals(term)) {
+                return slot;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Add a term to the heavy hitters, once full it replaces a heavy hitter whose estimate is smaller than the term's
+     * @param term
+     * @param hash
+     * @param estimate
+     */
+    private synchronized void addHeavyHitter(CharSequence term, int hash, int estimate) {
+        
+        // another thread might have raised the minimum or added the term while this one was waiting
+        if((estimate <= this.minHeavyHitter) || this.heavyHitters.containsKey(term)) {
+            return;
+        }
+        
+        if(this.heapSize < this.maxHeavyHitters) {
+            
+            HeavyHitter hitter = new HeavyHitter(term.toString(), hash, estimate);
+            this.heavyHitters.put(hitter.term, hitter);
+            
+            this.heap[this.heapSize] = hitter;
+            this.siftUp(this.heapSize++);
+            
+            if(this.heapSize == this.maxHeavyHitters) {
+                this.minHeavyHitter = this.heap[0].estimate;
+            }
+            
+            return;
+        }
+        
+        // the heap is ordered by the estimates when the heavy hitters were last placed, these never decrease so 
+        // each is a lower bound of the current estimate. Only the heavy hitters that might be below the term are 
+        // refreshed, from the estimate they record as they occur
+        HeavyHitter top;
+        int refreshed = 0;
+        
+        while((top = this.heap[0]).estimate < estimate) {
+            
+            if(++refreshed == MAX_REFRESH) {
+                // most of the heap is stale, cheaper to refresh all and rebuild it
+                this.rebuildHeap();
+                continue;
+            }
+            
+            int current = top.current;
+            
+            if(current < estimate) {
+                // confirm with the sketch, the recorded estimate can lag behind under contention
+                current = Math.max(current, this.sketch.estimate(top.hash));
+            }
+            
+            if(current < estimate) {
+                
+                // smaller than the term, so replace it
+                HeavyHitter hitter = new HeavyHitter(term.toString(), hash, estimate);
+                
+                this.heavyHitters.remove(top.term);
+                this.heavyHitters.put(hitter.term, hitter);
+                
+                this.heap[0] = hitter;
+                this.siftDown(0);
+                break;
+            }
+            
+            top.estimate = current;
+            this.siftDown(0);
+        }
+        
+        this.minHeavyHitter = this.heap[0].estimate;
+    }
+    
+    /**
+     * Move the heavy hitter at index up the heap until its parent's estimate is no larger
+     * @param index
+     */
+    private void siftUp(int index) {
+        
+        HeavyHitter hitter = this.heap[index];
+        
+        while(index > 0) {
+            
+            int parent = (index - 1) >>> 1;
+            
+            if(this.heap[parent].estimate <= hitter.estimate) {
+                break;
+            }
+            
+            this.heap[index] = this.heap[parent];
+            index = parent;
+        }
+        
+        this.heap[index] = hitter;
+    }
+    
+    /**
+     * Refresh the estimates of all the heavy hitters from the ones they recorded and restore the heap in linear time
+     */
+    private void rebuildHeap() {
+        
+        for(int i = 0; i < this.heapSize; i++) {
+            HeavyHitter hitter = this.heap[i];
+            hitter.estimate = Math.max(hitter.estimate, hitter.current);
+        }
+        
+        for(int i = (this.heapSize >>> 1) - 1; i >= 0; i--) {
+            this.siftDown(i);
+        }
+    }
+    
+    /**
+     * Move the heavy hitter at index down the heap until its children's estimates are no smaller
+     * @param index
+     */
+    private void siftDown(int index) {
+        
+        HeavyHitter hitter = this.heap[index];
+        int half = this.heapSize >>> 1;
+        
+        while(index < half) {
+            
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            
+            if((right < this.heapSize) && (this.heap[right].estimate < this.heap[child].estimate)) {
+                child = right;
+            }
+            
+            if(hitter.estimate <= this.heap[child].estimate) {
+                break;
+            }
+            
+            this.heap[index] = this.heap[child];
+            index = child;
+        }
+        
+        this.heap[index] = hitter;
+    }
+    
+    /**
+     * Spread the bits of the String hash code, the top 4 bits select the segment
+     * @param hash
+     * @return
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+    
+    /**
+     * The count of a single term
+     * @param term
+     * @return the count, an estimate for an approximate counter, 0 if the term is not counted
+     */
+    public int getCount(String term) {
+        
+        int hash = term.hashCode();
+        
+        if(this.keys != null) {
+            int slot = this.slot(term, hash);
+            return (slot >= 0) ? this.counts.get(slot) : 0;
+            
+        } else if(this.sketch != null) {
+            return this.sketch.estimate(hash);
+            
+        } else {
+            int mixed = mix(hash);
+            return this.segments[mixed >>> 28].get(term, hash, mixed);
+        }
+    }
+    
+    /**
+     * @return true if the counts of all the terms are estimated
+     */
+    public boolean isApproximate() {
+        return (this.sketch != null) && (this.keys == null);
+    }
+    
+    /**
+     * @return the termsToCount
+     */
+    public Set<String> getTermsToCount() {
+        return termsToCount;
+    }
 
-	/**
-	 * @return the count
-	 */
-	public Map<String, Integer> getCount() {
-		return count;
-	}
+    /**
+     * Set the terms to count, this builds a fixed table for the terms so must be done before any term is counted
+     * @param termsToCount the termsToCount to set, null to count everything
+     */
+    public void setTermsToCount(Set<String> termsToCount) {
+        this.termsToCount = termsToCount;
+        
+        if(termsToCount == null) {
+            this.keys = null;
+            this.hashes = null;
+            this.counts = null;
+            
+        } else {
+            
+            int capacity = Integer.highestOneBit((int) (Math.max(termsToCount.size(), 8) / LOAD_FACTOR)) << 1;
+            int mask = capacity - 1;
+            
+            String [] keys = new String[capacity];
+            int [] hashes = new int[capacity];
+            
+            for(String term: termsToCount) {
+                
+                int hash = term.hashCode();
+                int slot = mix(hash) & mask;
+                
+                while(keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                
+                keys[slot] = term;
+                hashes[slot] = hash;
+            }
+            
+            this.hashes = hashes;
+            this.counts = new AtomicIntegerArray(capacity);
+            this.keys = keys;
+        }
+    }
 
-	/**
-	 * @param count the count to set
-	 */
-	public void setCount(Map<String, Integer> count) {
-		this.count = count;
-	}
+    /**
+     * A copy of the counts, for an approximate counter these are the estimated counts of the heavy hitters
+     * @return the count
+     */
+    public Map<String, Integer> getCount() {
+        
+        Map<String, Integer> count = new HashMap<>();
+        
+        if(this.keys != null) {
+            
+            for(int i = 0; i < keys.length; i++) {
+                
+                int value = this.counts.get(i);
+                
+                if(value > 0) {
+                    count.put(keys[i], value);
+                }
+            }
+            
+        } else if(this.sketch != null) {
+            
+            for(HeavyHitter hitter: this.heavyHitters.values()) {
+                count.put(hitter.term, this.sketch.estimate(hitter.hash));
+            }
+            
+        } else {
+            
+            for(Segment segment: this.segments) {
+                segment.copyTo(count);
+            }
+        }
+        
+        return count;
+    }
 
     /**
-     * @return the allTerms
+     * Replace the counts of an exact counter
+     * @param count the count to set
      */
- /*   public Set<String> getAllTerms() {
-        return allTerms;
-    }*/
+    public void setCount(Map<String, Integer> count) {
+        
+        if(this.sketch != null) {
+            throw new UnsupportedOperationException("The counts of an approximate counter can't be replaced");
+        }
+        
+        if(this.keys != null) {
+            this.counts = new AtomicIntegerArray(this.keys.length);
+        }
+        
+        for(Segment segment: this.segments) {
+            segment.clear();
+        }
+        
+        this.add(count);
+    }
+    
+    /**
+     * A heavy hitter, its estimate when last placed in the heap and the latest estimate seen when it occurred
+     */
+    private static final class HeavyHitter {
+        
+        private final String term;
+        
+        private final int hash;
+        
+        // the heap key, guarded by the counter
+        private int estimate;
+        
+        // written without synchronization, so only a hint that evictions confirm with the sketch
+        private int current;
 
+        HeavyHitter(String term, int hash, int estimate) {
+            this.term = term;
+            this.hash = hash;
+            this.estimate = estimate;
+            this.current = estimate;
+        }
+    }
+    
     /**
-     * @param allTerms the allTerms to set
+     * One lock striped part of the counts of all the terms
+     * @author Omer Dawelbeit (omerio)
+     *
      */
-/*    public void setAllTerms(Set<String> allTerms) {
-        this.allTerms = allTerms;
-    }*/
+    private static final class Segment extends ReentrantLock {
+
+        private static final long serialVersionUID = -2936245309016520419L;
 
+        private String [] keys;
+        
+        private int [] hashes;
+        
+        private int [] counts;
+        
+        private int size;
+        
+        private int threshold;
+        
+        Segment() {
+            this.allocate(64);
+        }
+        
+        private void allocate(int capacity) {
+            this.keys = new String[capacity];
+            this.hashes = new int[capacity];
+            this.counts = new int[capacity];
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+        
+        void add(CharSequence term, int hash, int mixed, int occurrences) {
+            
+            this.lock();
+            
+            try {
+                
+                int mask = keys.length - 1;
+                int slot = mixed & mask;
+                String key;
+                
+                while((key = keys[slot]) != null) {
+                    
+                    if((hashes[slot] == hash) && key.contentEquals(term)) {
+                        counts[slot] += occurrences;
+                        return;
+                    }
+                    
+                    slot = (slot + 1) & mask;
+                }
+                
+                keys[slot] = term.toString();
+                hashes[slot] = hash;
+                counts[slot] = occurrences;
+                
+                if(++size > threshold) {
+                    this.rehash();
+                }
+                
+            } finally {
+                this.unlock();
+            }
+        }
+        
+        int get(CharSequence term, int hash, int mixed) {
+            
+            this.lock();
+            
+            try {
+                
+                int mask = keys.length - 1;
+                int slot = mixed & mask;
+                String key;
+                
+                while((key = keys[slot]) != null) {
+                    
+                    if((hashes[slot] == hash) && key.contentEquals(term)) {
+                        return counts[slot];
+                    }
+                    
+                    slot = (slot + 1) & mask;
+                }
+                
+                return 0;
+                
+            } finally {
+                this.unlock();
+            }
+        }
+        
+        /**
+         * Double the capacity, must be called while holding the lock
+         */
+        private void rehash() {
+            
+            String [] oldKeys = this.keys;
+            int [] oldHashes = this.hashes;
+            int [] oldCounts = this.counts;
+            
+            this.allocate(oldKeys.length << 1);
+            
+            int mask = keys.length - 1;
+            
+            for(int i = 0; i < oldKeys.length; i++) {
+                
+                if(oldKeys[i] != null) {
+                    
+                    int slot = mix(oldHashes[i]) & mask;
+                    
+                    while(keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    
+                    keys[slot] = oldKeys[i];
+                    hashes[slot] = oldHashes[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+        
+        void copyTo(Map<String, Integer> count) {
+            this.lock();
+            try {
+                for(int i = 0; i < keys.length; i++) {
+                    if(keys[i] != null) {
+                        count.put(keys[i], counts[i]);
+                    }
+                }
+            } finally {
+                this.unlock();
+            }
+        }
+        
+        void clear() {
+            this.lock();
+            try {
+                this.allocate(64);
+                this.size = 0;
+            } finally {
+                this.unlock();
+            }
+        }
+    }
 
 }
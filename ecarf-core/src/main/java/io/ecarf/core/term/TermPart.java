@@ -30,8 +30,9 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /**
  * @author Omer Dawelbeit (omerio)
- *
+ * @deprecated use {@link UriTrie}, kept to read previously serialized trees
  */
+@Deprecated
 public class TermPart implements Serializable {
     
     private static final long serialVersionUID = -1364590982447745055L;
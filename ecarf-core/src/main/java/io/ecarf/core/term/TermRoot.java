@@ -34,8 +34,9 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /**
  * @author Omer Dawelbeit (omerio)
- *
+ * @deprecated use {@link UriTrie}, kept to read previously serialized trees
  */
+@Deprecated
 public class TermRoot implements Serializable {
 
     private static final long serialVersionUID = 4875556040280460364L;
@@ -146,19 +146,6 @@ public class TermUtils {
 	    return rdfOrOwlTerm;
 	}*/
 	
-	private static int getCharIdxBeforeOrAfterIdx(String text, int idx, char chr) {
-        // try before
-        int index = text.substring(0, idx).lastIndexOf(chr);
-        if(index < 0) {
-            // try after
-            index = text.substring(idx, text.length()).indexOf(chr);
-            if(index > -1) {
-                index += idx;
-            }
-        }
-        return index;
-    }
-	
 	/**
 	 * Split into two
 	 * @param term
@@ -221,87 +208,234 @@ public class TermUtils {
 	 * @return
 	 */
     public static List<String> splitIntoTwo(String term, boolean hasProtocol, int splitLocation) {
+        return splitIntoTwo(term, hasProtocol, splitLocation, null);
+    }
+    
+    /**
+     * Split the provided term into 2 parts using the rule of its host or the split location if the host
+     * has no rule
+     * @param term
+     * @param hasProtocol
+     * @param splitLocation - the location of the slash
+     * @param rules - per host split rules, can be null
+     * @return
+     */
+    public static List<String> splitIntoTwo(String term, boolean hasProtocol, int splitLocation, SplitRules rules) {
+        
+        int [] bounds = new int[4];
         
-        String path;
+        int count = splitIntoTwo(term, 0, term.length(), hasProtocol, splitLocation, rules, bounds);
+        
+        List<String> parts = new ArrayList<>(count);
+        
+        for(int i = 0; i < count; i++) {
+            parts.add(term.substring(bounds[i << 1], bounds[(i << 1) + 1]));
+        }
+        
+        return parts;
+    }
+    
+    /**
+     * Range version of {@link TermUtils#splitIntoTwo(String, boolean, int)} that works on the chars of the term
+     * within a larger sequence (e.g. an N-Triples line) without creating any substrings, the start and end
+     * of each part are written to the bounds array instead.
+     * @param chars
+     * @param start - the start of the term, inclusive
+     * @param end - the end of the term, exclusive
+     * @param hasProtocol
+     * @param splitLocation - the location of the slash
+     * @param bounds - at least 4 ints, receives start0, end0, start1, end1
+     * @return the number of parts, 0, 1 or 2
+     */
+    public static int splitIntoTwo(CharSequence chars, int start, int end, boolean hasProtocol, 
+            int splitLocation, int [] bounds) {
+        return splitIntoTwo(chars, start, end, hasProtocol, splitLocation, null, bounds);
+    }
+    
+    /**
+     * Range version of {@link TermUtils#splitIntoTwo(String, boolean, int, SplitRules)}, the host of the term
+     * is looked up in the rules without creating a substring
+     * @param chars
+     * @param start - the start of the term, inclusive
+     * @param end - the end of the term, exclusive
+     * @param hasProtocol
+     * @param splitLocation - the location of the slash, used if the host has no rule
+     * @param rules - per host split rules, can be null
+     * @param bounds - at least 4 ints, receives start0, end0, start1, end1
+     * @return the number of parts, 0, 1 or 2
+     */
+    public static int splitIntoTwo(CharSequence chars, int start, int end, boolean hasProtocol, 
+            int splitLocation, SplitRules rules, int [] bounds) {
         
         if(hasProtocol) {
-            String url = term.substring(1, term.length() - 1);
-            path = StringUtils.removeStart(url, TermUtils.HTTP);
-
-            if(path.length() == url.length()) {
-                path = StringUtils.removeStart(path, TermUtils.HTTPS);
-            }
+            // remove < and >
+            start++;
+            end--;
             
-        } else {
-            path = term;
+            if(startsWith(chars, start, end, HTTP)) {
+                start += HTTP.length();
+                
+            } else if(startsWith(chars, start, end, HTTPS)) {
+                start += HTTPS.length();
+            }
         }
         
         // remove trailing slash
-        if(StringUtils.endsWith(path, URI_SEP_STR)) {
-            path = StringUtils.removeEnd(path, URI_SEP_STR);
+        if((end > start) && (chars.charAt(end - 1) == URI_SEP)) {
+            end--;
         }
         
-        //System.out.println(path);
-        List<String> parts = new ArrayList<>();
+        int slashIdx = indexOf(chars, start, end, URI_SEP);
         
-        int slashIdx = path.indexOf(TermUtils.URI_SEP);;
+        // the host is everything before the first slash
+        int rule = (rules == null) ? SplitRules.NO_RULE : 
+            rules.getSplitLocation(chars, start, (slashIdx > -1) ? slashIdx : end);
         
-        switch(splitLocation) {
+        if(rule != SplitRules.NO_RULE) {
+            
+            // keep rule number of path segments with the host, or as many as the term has
+            for(int i = 0; (i < rule) && (slashIdx > -1); i++) {
+                
+                int idx = indexOf(chars, slashIdx + 1, end, URI_SEP);
+                
+                if(idx < 0) {
+                    break;
+                }
+                slashIdx = idx;
+            }
+            
+        } else {
+
+            switch(splitLocation) {
         
-        case 0: 
-            // the first slash
-            break;
+            case 0: 
+                // the first slash
+                break;
         
-        case 1:
-            // the second slash
-            slashIdx = path.indexOf(TermUtils.URI_SEP, slashIdx + 1);
-            break;
+            case 1:
+                // the second slash
+                if(slashIdx > -1) {
+                    slashIdx = indexOf(chars, slashIdx + 1, end, URI_SEP);
+                }
+                break;
 
-        case -1:
-        default:
-            // the last slash
-            slashIdx = path.lastIndexOf(TermUtils.URI_SEP);
+            case -1:
+            default:
+                // the last slash
+                slashIdx = lastIndexOf(chars, start, end, URI_SEP);
             
-            int colonIdx = path.indexOf(':');
-            int questionIdx = path.indexOf('?');
+                int colonIdx = indexOf(chars, start, end, ':');
+                int questionIdx = indexOf(chars, start, end, '?');
             
-            if(((colonIdx > -1) && (slashIdx > colonIdx)) || ((questionIdx > -1) && (slashIdx > questionIdx))) {
+                if(((colonIdx > -1) && (slashIdx > colonIdx)) || ((questionIdx > -1) && (slashIdx > questionIdx))) {
                 
-                int idx = -1;
+                    int idx = -1;
                 
-                boolean colonAndQuestion = (colonIdx > -1) && (questionIdx > -1);
+                    boolean colonAndQuestion = (colonIdx > -1) && (questionIdx > -1);
                 
-                if((colonAndQuestion && (colonIdx < questionIdx)) || (colonIdx > -1)) {
+                    if((colonAndQuestion && (colonIdx < questionIdx)) || (colonIdx > -1)) {
                     
-                    idx = getCharIdxBeforeOrAfterIdx(path, colonIdx, TermUtils.URI_SEP);
+                        idx = getCharIdxBeforeOrAfterIdx(chars, start, end, colonIdx, URI_SEP);
                     
-                } else if((colonAndQuestion && (colonIdx > questionIdx)) || (questionIdx > -1)) {
+                    } else if((colonAndQuestion && (colonIdx > questionIdx)) || (questionIdx > -1)) {
                     
-                    idx = getCharIdxBeforeOrAfterIdx(path, questionIdx, TermUtils.URI_SEP);
-                }
+                        idx = getCharIdxBeforeOrAfterIdx(chars, start, end, questionIdx, URI_SEP);
+                    }
                 
-                if(idx > -1) {
-                    slashIdx = idx;
-                } 
+                    if(idx > -1) {
+                        slashIdx = idx;
+                    } 
+                }
             }
         }
+        
+        int count = 0;
          
         if(slashIdx > -1) {
-            String part = path.substring(0, slashIdx);
-            if(part.length() > 0) {
-                parts.add(part);
+            
+            if(slashIdx > start) {
+                bounds[0] = start;
+                bounds[1] = slashIdx;
+                count++;
             }
+            
             slashIdx++;
             
-            if(slashIdx < path.length()) {
-                parts.add(path.substring(slashIdx));
+            if(slashIdx < end) {
+                bounds[count << 1] = slashIdx;
+                bounds[(count << 1) + 1] = end;
+                count++;
             }
             
         } else {
-            parts.add(path);
+            bounds[0] = start;
+            bounds[1] = end;
+            count = 1;
         }
         
-        return parts;
+        return count;
+    }
+    
+    /**
+     * The index of chr before idx or if not found the index of chr after idx
+     */
+    private static int getCharIdxBeforeOrAfterIdx(CharSequence chars, int start, int end, int idx, char chr) {
+        // try before
+        int index = lastIndexOf(chars, start, idx, chr);
+        if(index < 0) {
+            // try after
+            index = indexOf(chars, idx, end, chr);
+        }
+        return index;
+    }
+    
+    /**
+     * Check if the chars in the range start with the provided prefix
+     * @param chars
+     * @param start
+     * @param end
+     * @param prefix
+     * @return
+     */
+    public static boolean startsWith(CharSequence chars, int start, int end, String prefix) {
+        int length = prefix.length();
+        
+        if((end - start) < length) {
+            return false;
+        }
+        
+        for(int i = 0; i < length; i++) {
+            if(chars.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The index of the first occurrence of chr in the range
+     * @return the index within chars or -1 if not found
+     */
+    public static int indexOf(CharSequence chars, int start, int end, char chr) {
+        for(int i = start; i < end; i++) {
+            if(chars.charAt(i) == chr) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * The index of the last occurrence of chr in the range
+     * @return the index within chars or -1 if not found
+     */
+    public static int lastIndexOf(CharSequence chars, int start, int end, char chr) {
+        for(int i = end - 1; i >= start; i--) {
+            if(chars.charAt(i) == chr) {
+                return i;
+            }
+        }
+        return -1;
     }
 	
 	/**
@@ -0,0 +1,607 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import io.ecarf.core.triple.SchemaURIType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * An adaptive radix trie of URIs with occurrence counts, a compact replacement for the {@link TermRoot}
+ * tree of {@link TermPart}s. The keys are the UTF-8 bytes of the URIs, chains of nodes with a single child
+ * are collapsed into a prefix on the node (path compression) and each node stores its children in the smallest 
+ * of four layouts:
+ * <pre>
+ * 4, 16    - sorted arrays of key bytes and children, searched linearly
+ * 48       - a 256 byte index into an array of 48 children
+ * 256      - an array of children indexed by the key byte
+ * </pre>
+ * A node grows to the next layout when it's full, so most of the nodes of a URI trie, which have a few children, 
+ * only need two small arrays instead of a hash map per node.
+ * 
+ * The trie is saved with {@link UriTrieWriter} in a flat form that can be memory mapped with {@link MappedUriTrie}, 
+ * the flat tries of many files are merged by a linear scan of their sorted {@link Cursor}s. Not thread safe.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class UriTrie {
+    
+    private static final byte [] EMPTY = new byte[0];
+    
+    private final Node root = new Node(EMPTY);
+    
+    private long size;
+    
+    private long nodeCount = 1;
+    
+    private byte [] buffer = new byte[256];
+    
+    /**
+     * Add one occurrence of a term in the format <http://dblp.uni-trier.de/rec/bibtex/books/mk/WidomC96>,
+     * schema terms and RDF list expansion terms are ignored
+     * @param term
+     * @return true if the term was added
+     */
+    public boolean addTerm(String term) {
+        
+        if(SchemaURIType.RDF_OWL_TERMS.contains(term) || term.contains(SchemaURIType.LIST_EXPANSION_URI)) {
+            return false;
+        }
+        
+        int start = 0;
+        int end = term.length();
+        
+        if(term.startsWith("<") && term.endsWith(">")) {
+            start++;
+            end--;
+        }
+        
+        this.add(term.substring(start, end), 1);
+        
+        return true;
+    }
+    
+    /**
+     * Add the provided occurrences of a key
+     * @param key
+     * @param count - must be positive
+     */
+    public void add(String key, long count) {
+        int length = this.encode(key);
+        this.add(this.buffer, length, count);
+    }
+    
+    /**
+     * Add the provided occurrences of a key
+     * @param key - the UTF-8 bytes of the key
+     * @param length - the number of bytes of the key
+     * @param count - must be positive
+     */
+    public void add(byte [] key, int length, long count) {
+        
+        if(count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        
+        Node parent = null;
+        int parentByte = 0;
+        
+        Node node = root;
+        int depth = 0;
+        
+        while(true) {
+            
+            byte [] prefix = node.prefix;
+            int matched = 0;
+            
+            while((matched < prefix.length) && ((depth + matched) < length) && (prefix[matched] == key[depth + matched])) {
+                matched++;
+            }
+            
+            if(matched < prefix.length) {
+                // split the compressed path where the key differs, the root has no prefix so parent is set
+                Node split = new Node(Arrays.copyOf(prefix, matched));
+                split.addChild(prefix[matched] & 0xFF, node);
+                node.prefix = Arrays.copyOfRange(prefix, matched + 1, prefix.length);
+                
+                parent.replaceChild(parentByte, split);
+                
+                nodeCount++;
+                node = split;
+            }
+            
+            depth += matched;
+            
+            if(depth == length) {
+                
+                if(node.count == 0) {
+                    size++;
+                }
+                node.count += count;
+                return;
+            }
+            
+            int b = key[depth] & 0xFF;
+            Node child = node.findChild(b);
+            
+            if(child == null) {
+                
+                Node leaf = new Node(Arrays.copyOfRange(key, depth + 1, length));
+                leaf.count = count;
+                node.addChild(b, leaf);
+                
+                size++;
+                nodeCount++;
+                return;
+            }
+            
+            parent = node;
+            parentByte = b;
+            node = child;
+            depth++;
+        }
+    }
+    
+    /**
+     * The occurrences of the provided key
+     * @param key
+     * @return the count or 0 if the key is not in this trie
+     */
+    public long getCount(String key) {
+        
+        int length = this.encode(key);
+        byte [] bytes = this.buffer;
+        
+        Node node = root;
+        int depth = 0;
+        
+        while(node != null) {
+            
+            byte [] prefix = node.prefix;
+            
+            if((length - depth) < prefix.length) {
+                return 0;
+            }
+            
+            for(int i = 0; i < prefix.length; i++) {
+                if(prefix[i] != bytes[depth + i]) {
+                    return 0;
+                }
+            }
+            
+            depth += prefix.length;
+            
+            if(depth == length) {
+                return node.count;
+            }
+            
+            node = node.findChild(bytes[depth++] & 0xFF);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * UTF-8 encode the key into the reusable buffer
+     * @return the number of bytes
+     */
+    private int encode(String key) {
+        
+        // only allocate if the key is not ASCII
+        int length = key.length();
+        
+        for(int i = 0; i < length; i++) {
+            if(key.charAt(i) >= 0x80) {
+                byte [] bytes = key.getBytes(StandardCharsets.UTF_8);
+                this.buffer = bytes;
+                return bytes.length;
+            }
+        }
+        
+        if(this.buffer.length < length) {
+            this.buffer = new byte[Math.max(length, this.buffer.length << 1)];
+        }
+        
+        for(int i = 0; i < length; i++) {
+            this.buffer[i] = (byte) key.charAt(i);
+        }
+        
+        return length;
+    }
+    
+    /**
+     * @return a cursor over the keys of this trie in unsigned byte order, the trie must not be changed 
+     * while the cursor is used
+     */
+    public Cursor cursor() {
+        return new TrieCursor(root);
+    }
+    
+    /**
+     * Write this trie to a flat file that can be memory mapped with {@link MappedUriTrie}
+     * @param file
+     * @return the file
+     * @throws IOException
+     */
+    public String toFile(String file) throws IOException {
+        UriTrieWriter.write(file, this.cursor());
+        return file;
+    }
+
+    /**
+     * @return the number of unique keys
+     */
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * @return the number of nodes
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).
+                append("size", this.size).
+                append("nodeCount", this.nodeCount).
+                toString();
+    }
+    
+    /**
+     * A node, the layout of the children is given by the length of the children array
+     */
+    private static final class Node {
+        
+        byte [] prefix;
+        
+        long count;
+        
+        // the sorted key bytes of the 4 and 16 layouts or the 256 byte index of the 48 layout
+        byte [] keys;
+        
+        Node [] children;
+        
+        int numChildren;
+        
+        Node(byte [] prefix) {
+            this.prefix = prefix;
+        }
+        
+        Node findChild(int b) {
+            
+            if(children == null) {
+                return null;
+            }
+            
+            switch(children.length) {
+            
+            case 256:
+                return children[b];
+                
+            case 48:
+                int index = keys[b] & 0xFF;
+                return (index == 0) ? null : children[index - 1];
+                
+            default:
+                for(int i = 0; i < numChildren; i++) {
+                    if((keys[i] & 0xFF) == b) {
+                        return children[i];
+                    }
+                }
+                return null;
+            }
+        }
+        
+        void replaceChild(int b, Node child) {
+            
+            switch(children.length) {
+            
+            case 256:
+                children[b] = child;
+                break;
+                
+            case 48:
+                children[(keys[b] & 0xFF) - 1] = child;
+                break;
+                
+            default:
+                for(int i = 0; i < numChildren; i++) {
+                    if((keys[i] & 0xFF) == b) {
+                        children[i] = child;
+                        return;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Add a child that is not already in this node, growing to the next layout if needed
+         */
+        void addChild(int b, Node child) {
+            
+            if(children == null) {
+                this.keys = new byte[4];
+                this.children = new Node[4];
+                
+            } else if(numChildren == children.length) {
+                this.grow();
+            }
+            
+            switch(children.length) {
+            
+            case 256:
+                children[b] = child;
+                break;
+                
+            case 48:
+                children[numChildren] = child;
+                keys[b] = (byte) (numChildren + 1);
+                break;
+                
+            default:
+                // keep the keys sorted
+                int i = numChildren;
+                while((i > 0) && ((keys[i - 1] & 0xFF) > b)) {
+                    keys[i] = keys[i - 1];
+                    children[i] = children[i - 1];
+                    i--;
+                }
+                keys[i] = (byte) b;
+                children[i] = child;
+            }
+            
+            numChildren++;
+        }
+        
+        private void grow() {
+            
+            switch(children.length) {
+            
+            case 4:
+                this.keys = Arrays.copyOf(keys, 16);
+                this.children = Arrays.copyOf(children, 16);
+                break;
+                
+            case 16:
+                byte [] index = new byte[256];
+                for(int i = 0; i < numChildren; i++) {
+                    index[keys[i] & 0xFF] = (byte) (i + 1);
+                }
+                this.keys = index;
+                this.children = Arrays.copyOf(children, 48);
+                break;
+                
+            case 48:
+                Node [] direct = new Node[256];
+                for(int b = 0; b < 256; b++) {
+                    int i = keys[b] & 0xFF;
+                    if(i > 0) {
+                        direct[b] = children[i - 1];
+                    }
+                }
+                this.keys = null;
+                this.children = direct;
+                break;
+            }
+        }
+        
+        /**
+         * The position of the first child at or after the provided position, positions are array indexes for 
+         * the sorted layouts and key bytes for the others
+         * @return the position or -1 if there are no more children
+         */
+        int nextChild(int position) {
+            
+            if(children == null) {
+                return -1;
+            }
+            
+            switch(children.length) {
+            
+            case 256:
+                for(; position < 256; position++) {
+                    if(children[position] != null) {
+                        return position;
+                    }
+                }
+                return -1;
+                
+            case 48:
+                for(; position < 256; position++) {
+                    if(keys[position] != 0) {
+                        return position;
+                    }
+                }
+                return -1;
+                
+            default:
+                return (position < numChildren) ? position : -1;
+            }
+        }
+        
+        int keyAt(int position) {
+            return (children.length >= 48) ? position : (keys[position] & 0xFF);
+        }
+        
+        Node childAt(int position) {
+            return (children.length == 48) ? children[(keys[position] & 0xFF) - 1] : children[position];
+        }
+    }
+    
+    /**
+     * Iterates over the keys of a trie, or of a flat trie, in unsigned byte order. The key array is reused 
+     * so it's only valid until the next call to {@link Cursor#next()}
+     * 
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    public abstract static class Cursor {
+        
+        protected byte [] key = new byte[256];
+        
+        protected int keyLength;
+        
+        protected long count;
+        
+        /**
+         * Move to the next key
+         * @return false if there are no more keys
+         */
+        public abstract boolean next();
+        
+        /**
+         * @return the UTF-8 bytes of the current key, up to {@link Cursor#getKeyLength()}
+         */
+        public byte [] getKey() {
+            return key;
+        }
+        
+        /**
+         * @return the number of bytes of the current key
+         */
+        public int getKeyLength() {
+            return keyLength;
+        }
+        
+        /**
+         * @return the current key decoded from UTF-8
+         */
+        public String getKeyAsString() {
+            return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+        }
+        
+        /**
+         * @return the occurrences of the current key
+         */
+        public long getCount() {
+            return count;
+        }
+        
+        /**
+         * Make sure the key array can hold the provided number of bytes
+         */
+        protected void ensureKeyCapacity(int capacity) {
+            if(key.length < capacity) {
+                this.key = Arrays.copyOf(key, Math.max(capacity, key.length << 1));
+            }
+        }
+    }
+    
+    /**
+     * Depth first, pre-order cursor over the nodes
+     */
+    private static final class TrieCursor extends Cursor {
+        
+        private Node [] nodes = new Node[16];
+        
+        private int [] positions = new int[16];
+        
+        private int [] keyLengths = new int[16];
+        
+        private int depth = -1;
+        
+        private Node start;
+        
+        TrieCursor(Node root) {
+            this.start = root;
+        }
+        
+        /* (non-Javadoc)
+         * @see io.ecarf.core.term.UriTrie.Cursor#next()
+         */
+        @Override
+        public boolean next() {
+            
+            if(start != null) {
+                Node root = start;
+                start = null;
+                
+                if(this.visit(root, 0)) {
+                    return true;
+                }
+            }
+            
+            while(depth >= 0) {
+                
+                Node node = nodes[depth];
+                int position = node.nextChild(positions[depth]);
+                
+                if(position < 0) {
+                    // release the node
+                    nodes[depth--] = null;
+                    continue;
+                }
+                
+                positions[depth] = position + 1;
+                
+                int length = keyLengths[depth];
+                this.ensureKeyCapacity(length + 1);
+                key[length] = (byte) node.keyAt(position);
+                
+                if(this.visit(node.childAt(position), length + 1)) {
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        /**
+         * Push the node and append its prefix to the key
+         * @return true if a key ends at the node
+         */
+        private boolean visit(Node node, int length) {
+            
+            byte [] prefix = node.prefix;
+            
+            this.ensureKeyCapacity(length + prefix.length);
+            System.arraycopy(prefix, 0, key, length, prefix.length);
+            length += prefix.length;
+            
+            if(++depth == nodes.length) {
+                this.nodes = Arrays.copyOf(nodes, depth << 1);
+                this.positions = Arrays.copyOf(positions, depth << 1);
+                this.keyLengths = Arrays.copyOf(keyLengths, depth << 1);
+            }
+            
+            nodes[depth] = node;
+            positions[depth] = 0;
+            keyLengths[depth] = length;
+            
+            this.keyLength = length;
+            this.count = node.count;
+            
+            return node.count > 0;
+        }
+    }
+
+}
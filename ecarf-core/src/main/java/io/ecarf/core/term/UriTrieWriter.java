@@ -0,0 +1,391 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the flat form of a {@link UriTrie} from keys that are added in unsigned byte order, the order of a 
+ * {@link UriTrie.Cursor}. Only the nodes on the path of the last added key are kept in memory, every other node 
+ * is written as soon as all of its children are known, so children are always written before their parent 
+ * and tries of any size can be written or merged in a single pass. The file layout is:
+ * <pre>
+ * header   - int magic, int version
+ * nodes    - varint count (0 if no key ends at the node), varint number of children and for each child 
+ *            in key order: varint edge length, edge bytes, varint distance back to the child node
+ * trailer  - long number of keys, long root node offset
+ * </pre>
+ * The edge of a child holds the whole compressed path to it, so a node is only written for a key end or a branch.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class UriTrieWriter implements Closeable {
+    
+    public static final int MAGIC = 0x45435554;
+    
+    public static final int VERSION = 1;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final Comparator<UriTrie.Cursor> CURSOR_ORDER = new Comparator<UriTrie.Cursor>() {
+        @Override
+        public int compare(UriTrie.Cursor c1, UriTrie.Cursor c2) {
+            return compareKeys(c1.getKey(), c1.getKeyLength(), c2.getKey(), c2.getKeyLength());
+        }
+    };
+    
+    private final DataOutputStream out;
+    
+    private long position;
+    
+    // the open nodes, one per byte of the previous key
+    private Frame [] frames = new Frame[64];
+    
+    private byte [] previous = new byte[256];
+    
+    private int previousLength;
+    
+    private boolean empty = true;
+    
+    private long size;
+    
+    private boolean closed;
+    
+    /**
+     * @param file - the trie file to create
+     * @throws IOException
+     */
+    public UriTrieWriter(String file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.position = 8;
+        
+        this.frames[0] = new Frame();
+    }
+    
+    /**
+     * Add a key, adding the same key as the previous one adds to its count
+     * @param key
+     * @param count
+     * @throws IOException
+     */
+    public void add(String key, long count) throws IOException {
+        byte [] bytes = key.getBytes(StandardCharsets.UTF_8);
+        this.add(bytes, bytes.length, count);
+    }
+    
+    /**
+     * Add a key, adding the same key as the previous one adds to its count
+     * @param key - the UTF-8 bytes of the key
+     * @param length - the number of bytes of the key
+     * @param count - must be positive
+     * @throws IOException
+     * @throws IllegalArgumentException if the key is smaller than the previous key
+     */
+    public void add(byte [] key, int length, long count) throws IOException {
+        
+        if(count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        
+        int lcp = 0;
+        
+        if(!empty) {
+            
+            int max = Math.min(length, previousLength);
+            
+            while((lcp < max) && (key[lcp] == previous[lcp])) {
+                lcp++;
+            }
+            
+            if((lcp == length) && (lcp == previousLength)) {
+                frames[length].count += count;
+                return;
+            }
+            
+            if((lcp == length) || ((lcp < previousLength) && ((key[lcp] & 0xFF) < (previous[lcp] & 0xFF)))) {
+                throw new IllegalArgumentException("Keys must be added in unsigned byte order");
+            }
+            
+            this.closeFrames(lcp);
+        }
+        
+        if(frames.length <= length) {
+            this.frames = Arrays.copyOf(frames, Math.max(length + 1, frames.length << 1));
+        }
+        
+        for(int d = lcp + 1; d <= length; d++) {
+            
+            if(frames[d] == null) {
+                frames[d] = new Frame();
+            } else {
+                frames[d].reset();
+            }
+        }
+        
+        if(previous.length < length) {
+            this.previous = Arrays.copyOf(previous, Math.max(length, previous.length << 1));
+        }
+        
+        System.arraycopy(key, lcp, previous, lcp, length - lcp);
+        this.previousLength = length;
+        
+        frames[length].count = count;
+        
+        this.empty = false;
+        this.size++;
+    }
+    
+    /**
+     * Write the open nodes deeper than the provided depth, nodes with a single child and no key are not written,
+     * their key byte is added to the edge of the child instead
+     * @param depth
+     * @throws IOException
+     */
+    private void closeFrames(int depth) throws IOException {
+        
+        // the pending edge is previous[edgeStart, edgeEnd) and leads to the node at edgeOffset
+        boolean pending = false;
+        int edgeStart = 0;
+        int edgeEnd = 0;
+        long edgeOffset = 0;
+        
+        for(int d = previousLength; d > depth; d--) {
+            
+            Frame frame = frames[d];
+            
+            if(pending && (frame.count == 0) && (frame.numChildren == 0)) {
+                edgeStart = d - 1;
+                
+            } else {
+                
+                if(pending) {
+                    frame.addChild(previous, edgeStart, edgeEnd, edgeOffset);
+                }
+                
+                edgeOffset = this.writeNode(frame);
+                edgeStart = d - 1;
+                edgeEnd = d;
+                pending = true;
+            }
+        }
+        
+        if(pending) {
+            frames[depth].addChild(previous, edgeStart, edgeEnd, edgeOffset);
+        }
+    }
+    
+    /**
+     * @return the offset of the node
+     * @throws IOException
+     */
+    private long writeNode(Frame frame) throws IOException {
+        
+        long offset = this.position;
+        
+        this.writeVarint(frame.count);
+        this.writeVarint(frame.numChildren);
+        
+        int start = 0;
+        
+        for(int i = 0; i < frame.numChildren; i++) {
+            
+            int end = frame.edgeEnds[i];
+            
+            this.writeVarint(end - start);
+            this.out.write(frame.edges, start, end - start);
+            this.position += end - start;
+            
+            this.writeVarint(offset - frame.offsets[i]);
+            
+            start = end;
+        }
+        
+        return offset;
+    }
+    
+    private void writeVarint(long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            position++;
+        }
+        out.write((int) value);
+        position++;
+    }
+    
+    /**
+     * @return the number of keys added so far
+     */
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * Write the remaining nodes and the trailer
+     */
+    @Override
+    public void close() throws IOException {
+        
+        if(closed) {
+            return;
+        }
+        
+        this.closed = true;
+        
+        try {
+            
+            this.closeFrames(0);
+            
+            long root = this.writeNode(frames[0]);
+            
+            out.writeLong(size);
+            out.writeLong(root);
+            
+        } finally {
+            out.close();
+        }
+    }
+    
+    /**
+     * Write all the keys of the cursor to a flat trie file
+     * @param file
+     * @param cursor
+     * @return the number of keys
+     * @throws IOException
+     */
+    public static long write(String file, UriTrie.Cursor cursor) throws IOException {
+        
+        try(UriTrieWriter writer = new UriTrieWriter(file)) {
+            
+            while(cursor.next()) {
+                writer.add(cursor.getKey(), cursor.getKeyLength(), cursor.getCount());
+            }
+            
+            return writer.getSize();
+        }
+    }
+    
+    /**
+     * Merge the keys of the provided cursors into one flat trie file with a linear, k-way merge, the counts 
+     * of the keys that are in more than one cursor are summed
+     * @param cursors - e.g. of {@link MappedUriTrie}s created on different nodes
+     * @param file
+     * @return the number of keys
+     * @throws IOException
+     */
+    public static long merge(List<UriTrie.Cursor> cursors, String file) throws IOException {
+        
+        PriorityQueue<UriTrie.Cursor> queue = new PriorityQueue<>(Math.max(cursors.size(), 1), CURSOR_ORDER);
+        
+        for(UriTrie.Cursor cursor: cursors) {
+            if(cursor.next()) {
+                queue.add(cursor);
+            }
+        }
+        
+        try(UriTrieWriter writer = new UriTrieWriter(file)) {
+            
+            while(!queue.isEmpty()) {
+                
+                UriTrie.Cursor cursor = queue.poll();
+                
+                writer.add(cursor.getKey(), cursor.getKeyLength(), cursor.getCount());
+                
+                if(cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            
+            return writer.getSize();
+        }
+    }
+    
+    /**
+     * Compare two keys in unsigned byte order
+     */
+    static int compareKeys(byte [] key1, int length1, byte [] key2, int length2) {
+        
+        int max = Math.min(length1, length2);
+        
+        for(int i = 0; i < max; i++) {
+            int diff = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+            if(diff != 0) {
+                return diff;
+            }
+        }
+        
+        return length1 - length2;
+    }
+    
+    /**
+     * A node on the path of the previous key, the edges of its children are kept in one array
+     */
+    private static final class Frame {
+        
+        long count;
+        
+        int numChildren;
+        
+        byte [] edges = new byte[16];
+        
+        int [] edgeEnds = new int[4];
+        
+        long [] offsets = new long[4];
+        
+        void reset() {
+            this.count = 0;
+            this.numChildren = 0;
+        }
+        
+        void addChild(byte [] key, int start, int end, long offset) {
+            
+            int edgeStart = (numChildren == 0) ? 0 : edgeEnds[numChildren - 1];
+            int edgeEnd = edgeStart + (end - start);
+            
+            if(edges.length < edgeEnd) {
+                this.edges = Arrays.copyOf(edges, Math.max(edgeEnd, edges.length << 1));
+            }
+            
+            if(numChildren == edgeEnds.length) {
+                this.edgeEnds = Arrays.copyOf(edgeEnds, numChildren << 1);
+                this.offsets = Arrays.copyOf(offsets, numChildren << 1);
+            }
+            
+            System.arraycopy(key, start, edges, edgeStart, end - start);
+            edgeEnds[numChildren] = edgeEnd;
+            offsets[numChildren] = offset;
+            numChildren++;
+        }
+    }
+
+}
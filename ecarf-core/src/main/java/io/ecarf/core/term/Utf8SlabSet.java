@@ -0,0 +1,792 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact set of Strings, e.g. the millions of URI parts extracted from a file. Rather than a String and a 
+ * hash map node per entry, the entries are appended to large byte array slabs as a varint length followed by the
+ * encoded chars and are indexed with an open addressing table of slab addresses and String hash codes. This takes 
+ * around 20 bytes per entry on top of the chars, which mostly take one byte each.
+ * 
+ * Each char is encoded on its own using 1 to 3 bytes (the CESU-8 flavour of UTF-8) so an entry can be compared 
+ * char by char with a key, and so the byte order of the entries is the same as the String order. Entries can be 
+ * added and looked up with a range of chars, e.g. a {@link CharWindow}, without creating a String. When counted the 
+ * set also keeps the number of times each entry is added.
+ * 
+ * The entries are iterated in insertion order or, with {@link #sortedIterator()}, in ascending order. Entries can't 
+ * be removed. This set is not thread safe. It is serialized as a {@link HashSet}, which is how the existing 
+ * readers expect the sets of terms.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class Utf8SlabSet extends AbstractSet<String> implements Serializable {
+
+    private static final long serialVersionUID = 5517093442715309652L;
+
+    private static final int SLAB_BITS = 20;
+    
+    private static final int SLAB_SIZE = 1 << SLAB_BITS;
+    
+    private static final long SLAB_MASK = SLAB_SIZE - 1;
+    
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private static final int COUNT_SIZE = 4;
+    
+    private final boolean counted;
+    
+    private byte [][] slabs = new byte[4][];
+    
+    // the number of bytes used by each slab
+    private int [] slabEnds = new int[4];
+    
+    private int slabCount;
+    
+    // the slab address of the entry + 1, 0 for an empty slot
+    private long [] addresses;
+    
+    private int [] hashes;
+    
+    private int size;
+    
+    private int threshold;
+    
+    /**
+     * Create an empty set that is not counted
+     */
+    public Utf8SlabSet() {
+        this(16, false);
+    }
+    
+    /**
+     * @param expectedSize - the expected number of entries
+     * @param counted - true to count the number of times each entry is added
+     */
+    public Utf8SlabSet(int expectedSize, boolean counted) {
+        this.counted = counted;
+        this.allocate(Math.max(Integer.highestOneBit((int) (Math.max(expectedSize, 16) / LOAD_FACTOR)) << 1, 32));
+    }
+    
+    /**
+     * Allocate the index table
+     * @param capacity - a power of 2
+     */
+    private void allocate(int capacity) {
+        this.addresses = new long[capacity];
+        this.hashes = new int[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    /**
+     * The String hash code of the provided chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private static int hash(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+    }
+    
+    /**
+     * Spread the bits of the String hash code
+     * @param hash
+     * @return
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(String value) {
+        return this.add(value, 0, value.length(), value.hashCode());
+    }
+    
+    /**
+     * Add the provided chars, for a {@link CharWindow} the chars of the window are added
+     * @param chars
+     * @return true if the chars were not already in this set
+     */
+    public boolean add(CharSequence chars) {
+        
+        if(chars instanceof CharWindow) {
+            CharWindow window = (CharWindow) chars;
+            return this.add(window.getChars(), window.getStart(), window.getEnd(), window.hashCode());
+        }
+        
+        return this.add(chars, 0, chars.length(), hash(chars, 0, chars.length()));
+    }
+    
+    /**
+     * Add a range of chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return true if the chars were not already in this set
+     */
+    public boolean add(CharSequence chars, int start, int end) {
+        return this.add(chars, start, end, hash(chars, start, end));
+    }
+    
+    /**
+     * Add a range of chars given its String hash code, if counted the count of the entry is incremented
+     * @param chars
+     * @param start
+     * @param end
+     * @param hash
+     * @return true if the chars were not already in this set
+     */
+    private boolean add(CharSequence chars, int start, int end, int hash) {
+        
+        int mask = addresses.length - 1;
+        int slot = mix(hash) & mask;
+        long address;
+        
+        while((address = addresses[slot]) != 0) {
+            
+            if((hashes[slot] == hash) && this.matches(address - 1, chars, start, end)) {
+                
+                if(counted) {
+                    this.increment(address - 1);
+                }
+                return false;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        addresses[slot] = this.append(chars, start, end) + 1;
+        hashes[slot] = hash;
+        
+        if(++size > threshold) {
+            this.rehash();
+        }
+        
+        return true;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#contains(java.lang.Object)
+     */
+    @Override
+    public boolean contains(Object value) {
+        
+        if(!(value instanceof CharSequence)) {
+            return false;
+        }
+        
+        return this.find((CharSequence) value) != -1;
+    }
+    
+    /**
+     * The number of times the provided chars were added to this set
+     * @param chars
+     * @return the count, 0 if not in this set
+     * @throws IllegalStateException if this set is not counted
+     */
+    public int getCount(CharSequence chars) {
+        
+        if(!counted) {
+            throw new IllegalStateException("Set is not counted");
+        }
+        
+        long address = this.find(chars);
+        
+        return (address == -1) ? 0 : this.count(address);
+    }
+    
+    /**
+     * Find the address of the provided chars
+     * @param chars
+     * @return the address or -1 if not in this set
+     */
+    private long find(CharSequence chars) {
+        
+        CharSequence sequence = chars;
+        int start = 0;
+        int end = chars.length();
+        int hash;
+        
+        if(chars instanceof CharWindow) {
+            CharWindow window = (CharWindow) chars;
+            sequence = window.getChars();
+            start = window.getStart();
+            end = window.getEnd();
+            hash = window.hashCode();
+            
+        } else if(chars instanceof String) {
+            hash = chars.hashCode();
+            
+        } else {
+            hash = hash(chars, 0, end);
+        }
+        
+        int mask = addresses.length - 1;
+        int slot = mix(hash) & mask;
+        long address;
+        
+        while((address = addresses[slot]) != 0) {
+            
+            if((hashes[slot] == hash) && this.matches(address - 1, sequence, start, end)) {
+                return address - 1;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Append an entry to the slabs
+     * @param chars
+     * @param start
+     * @param end
+     * @return the address of the new entry
+     */
+    private long append(CharSequence chars, int start, int end) {
+        
+        int length = 0;
+        for(int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            length += (c < 0x80) ? 1 : ((c < 0x800) ? 2 : 3);
+        }
+        
+        int entrySize = (counted ? COUNT_SIZE : 0) + varIntSize(length) + length;
+        
+        if((slabCount == 0) || ((slabEnds[slabCount - 1] + entrySize) > slabs[slabCount - 1].length)) {
+            this.newSlab(entrySize);
+        }
+        
+        int index = slabCount - 1;
+        byte [] slab = slabs[index];
+        int position = slabEnds[index];
+        
+        long address = (((long) index) << SLAB_BITS) | position;
+        
+        if(counted) {
+            // big endian count of 1
+            slab[position + 3] = 1;
+            position += COUNT_SIZE;
+        }
+        
+        int value = length;
+        while((value & ~0x7F) != 0) {
+            slab[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        slab[position++] = (byte) value;
+        
+        for(int i = start; i < end; i++) {
+            
+            char c = chars.charAt(i);
+            
+            if(c < 0x80) {
+                slab[position++] = (byte) c;
+                
+            } else if(c < 0x800) {
+                slab[position++] = (byte) (0xC0 | (c >> 6));
+                slab[position++] = (byte) (0x80 | (c & 0x3F));
+                
+            } else {
+                slab[position++] = (byte) (0xE0 | (c >> 12));
+                slab[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                slab[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        
+        slabEnds[index] = position;
+        
+        return address;
+    }
+    
+    /**
+     * Start a new slab, entries larger than a slab get a slab of their own
+     * @param entrySize
+     */
+    private void newSlab(int entrySize) {
+        
+        if(slabCount == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabCount << 1);
+            slabEnds = Arrays.copyOf(slabEnds, slabCount << 1);
+        }
+        
+        slabs[slabCount++] = new byte[Math.max(SLAB_SIZE, entrySize)];
+    }
+    
+    /**
+     * The number of bytes needed to write the provided value as a varint
+     * @param value
+     * @return
+     */
+    private static int varIntSize(int value) {
+        int size = 1;
+        while((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * The position of the length of the entry at the provided address
+     * @param address
+     * @return
+     */
+    private int lengthPosition(long address) {
+        return ((int) (address & SLAB_MASK)) + (counted ? COUNT_SIZE : 0);
+    }
+    
+    /**
+     * Compare the entry at the provided address with the provided chars
+     * @param address
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private boolean matches(long address, CharSequence chars, int start, int end) {
+        
+        byte [] slab = slabs[(int) (address >>> SLAB_BITS)];
+        int index = this.lengthPosition(address);
+        
+        int length = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = slab[index++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        // at least one byte per char
+        if((length < (end - start)) || (length > 3 * (end - start))) {
+            return false;
+        }
+        
+        int limit = index + length;
+        int i = start;
+        
+        while(index < limit) {
+            
+            if(i == end) {
+                return false;
+            }
+            
+            b = slab[index++] & 0xFF;
+            char c;
+            
+            if(b < 0x80) {
+                c = (char) b;
+                
+            } else if(b < 0xE0) {
+                c = (char) (((b & 0x1F) << 6) | (slab[index++] & 0x3F));
+                
+            } else {
+                c = (char) (((b & 0x0F) << 12) | ((slab[index++] & 0x3F) << 6) | (slab[index++] & 0x3F));
+            }
+            
+            if(c != chars.charAt(i++)) {
+                return false;
+            }
+        }
+        
+        return i == end;
+    }
+    
+    /**
+     * The count of the entry at the provided address
+     * @param address
+     * @return
+     */
+    private int count(long address) {
+        byte [] slab = slabs[(int) (address >>> SLAB_BITS)];
+        int index = (int) (address & SLAB_MASK);
+        return ((slab[index] & 0xFF) << 24) | ((slab[index + 1] & 0xFF) << 16) | 
+                ((slab[index + 2] & 0xFF) << 8) | (slab[index + 3] & 0xFF);
+    }
+    
+    /**
+     * Increment the count of the entry at the provided address, the count saturates at Integer.MAX_VALUE
+     * @param address
+     */
+    private void increment(long address) {
+        
+        int count = this.count(address);
+        
+        if(count < Integer.MAX_VALUE) {
+            count++;
+            byte [] slab = slabs[(int) (address >>> SLAB_BITS)];
+            int index = (int) (address & SLAB_MASK);
+            slab[index] = (byte) (count >>> 24);
+            slab[index + 1] = (byte) (count >>> 16);
+            slab[index + 2] = (byte) (count >>> 8);
+            slab[index + 3] = (byte) count;
+        }
+    }
+    
+    /**
+     * Decode the entry at the provided address
+     * @param address
+     * @return
+     */
+    private String decode(long address) {
+        
+        byte [] slab = slabs[(int) (address >>> SLAB_BITS)];
+        int index = this.lengthPosition(address);
+        
+        int length = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = slab[index++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        int limit = index + length;
+        char [] chars = new char[length];
+        int count = 0;
+        
+        while(index < limit) {
+            
+            b = slab[index++] & 0xFF;
+            
+            if(b < 0x80) {
+                chars[count++] = (char) b;
+                
+            } else if(b < 0xE0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (slab[index++] & 0x3F));
+                
+            } else {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((slab[index++] & 0x3F) << 6) | (slab[index++] & 0x3F));
+            }
+        }
+        
+        return new String(chars, 0, count);
+    }
+    
+    /**
+     * The address of the entry that follows the entry at the provided address in the same slab
+     * @param address
+     * @return
+     */
+    private long nextAddress(long address) {
+        
+        byte [] slab = slabs[(int) (address >>> SLAB_BITS)];
+        int index = this.lengthPosition(address);
+        
+        int length = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = slab[index++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        return (address & ~SLAB_MASK) | (index + length);
+    }
+    
+    /**
+     * Compare the entries at the provided addresses byte by byte, which is the same as comparing the Strings
+     * @param address1
+     * @param address2
+     * @return
+     */
+    private int compare(long address1, long address2) {
+        
+        byte [] slab1 = slabs[(int) (address1 >>> SLAB_BITS)];
+        byte [] slab2 = slabs[(int) (address2 >>> SLAB_BITS)];
+        
+        int index1 = this.lengthPosition(address1);
+        int index2 = this.lengthPosition(address2);
+        
+        int length1 = 0;
+        int length2 = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = slab1[index1++];
+            length1 |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        shift = 0;
+        
+        do {
+            b = slab2[index2++];
+            length2 |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        int limit = Math.min(length1, length2);
+        
+        for(int i = 0; i < limit; i++) {
+            int difference = (slab1[index1 + i] & 0xFF) - (slab2[index2 + i] & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        
+        return length1 - length2;
+    }
+    
+    /**
+     * Double the capacity of the index table
+     */
+    private void rehash() {
+        
+        long [] oldAddresses = this.addresses;
+        int [] oldHashes = this.hashes;
+        
+        this.allocate(oldAddresses.length << 1);
+        
+        int mask = addresses.length - 1;
+        
+        for(int i = 0; i < oldAddresses.length; i++) {
+            
+            if(oldAddresses[i] != 0) {
+                
+                int slot = mix(oldHashes[i]) & mask;
+                
+                while(addresses[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                
+                addresses[slot] = oldAddresses[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+    
+    /**
+     * The addresses of all the entries in insertion order
+     * @return
+     */
+    private long [] addresses() {
+        
+        long [] all = new long[size];
+        int count = 0;
+        
+        for(int i = 0; i < slabCount; i++) {
+            
+            long address = ((long) i) << SLAB_BITS;
+            long end = address | slabEnds[i];
+            
+            while(address < end) {
+                all[count++] = address;
+                address = this.nextAddress(address);
+            }
+        }
+        
+        return all;
+    }
+    
+    /**
+     * Merge sort the provided addresses by their entries
+     * @param addresses
+     * @param buffer
+     * @param from
+     * @param to
+     */
+    private void sort(long [] addresses, long [] buffer, int from, int to) {
+        
+        if((to - from) < 16) {
+            // insertion sort small ranges
+            for(int i = from + 1; i < to; i++) {
+                long address = addresses[i];
+                int j = i - 1;
+                while((j >= from) && (this.compare(addresses[j], address) > 0)) {
+                    addresses[j + 1] = addresses[j];
+                    j--;
+                }
+                addresses[j + 1] = address;
+            }
+            return;
+        }
+        
+        int middle = (from + to) >>> 1;
+        
+        this.sort(addresses, buffer, from, middle);
+        this.sort(addresses, buffer, middle, to);
+        
+        if(this.compare(addresses[middle - 1], addresses[middle]) <= 0) {
+            return;
+        }
+        
+        System.arraycopy(addresses, from, buffer, from, to - from);
+        
+        int i = from;
+        int j = middle;
+        
+        for(int k = from; k < to; k++) {
+            
+            if((j >= to) || ((i < middle) && (this.compare(buffer[i], buffer[j]) <= 0))) {
+                addresses[k] = buffer[i++];
+                
+            } else {
+                addresses[k] = buffer[j++];
+            }
+        }
+    }
+    
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Entries(this.addresses());
+    }
+    
+    /**
+     * @return an iterator over the entries in ascending order, the order of {@link String#compareTo(String)}
+     */
+    public Entries sortedIterator() {
+        
+        long [] sorted = this.addresses();
+        this.sort(sorted, new long[sorted.length], 0, sorted.length);
+        
+        return new Entries(sorted);
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#clear()
+     */
+    @Override
+    public void clear() {
+        this.slabs = new byte[4][];
+        this.slabEnds = new int[4];
+        this.slabCount = 0;
+        this.size = 0;
+        this.allocate(32);
+    }
+    
+    /**
+     * @return true if the number of times each entry is added is counted
+     */
+    public boolean isCounted() {
+        return counted;
+    }
+    
+    /**
+     * @return the approximate number of bytes used by this set
+     */
+    public long getMemoryUsage() {
+        return (((long) slabCount) << SLAB_BITS) + (addresses.length * 12L);
+    }
+    
+    /**
+     * Java serialization writes the entries as a HashSet
+     * @return
+     */
+    private Object writeReplace() {
+        return new HashSet<>(this);
+    }
+    
+    /**
+     * Iterates over the entries at a list of addresses
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    public class Entries implements Iterator<String> {
+        
+        private final long [] entries;
+        
+        private int index;
+        
+        Entries(long [] entries) {
+            this.entries = entries;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return index < entries.length;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public String next() {
+            
+            if(index >= entries.length) {
+                throw new NoSuchElementException();
+            }
+            
+            return decode(entries[index++]);
+        }
+        
+        /**
+         * @return the count of the entry last returned by {@link #next()}, 1 if the set is not counted
+         */
+        public int getCount() {
+            return counted ? count(entries[index - 1]) : 1;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Entries can't be removed");
+        }
+    }
+
+}
@@ -0,0 +1,395 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A minimal perfect hash function that maps each of n distinct keys to a unique slot between 0 and n - 1. 
+ * Keys are placed in levels of bits (the BBHash scheme), at each level a key is hashed to a bit and is placed if 
+ * no other remaining key hashes to the same bit, otherwise it moves on to the next level. The slot of a key is 
+ * the number of set bits before its bit, worked out from a sampled rank index. This takes around 3 bits per key.
+ * 
+ * Keys that are not placed after {@link #MAX_LEVELS} levels, if any, are kept in a small map. A key that was not
+ * used to build the function either gets an arbitrary slot or -1, so callers must verify the key in the slot.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class MinimalPerfectHash implements Serializable {
+
+    private static final long serialVersionUID = -3147713716325581337L;
+
+    private static final int MAX_LEVELS = 32;
+    
+    // a rank sample every 8 words
+    private static final int RANK_SHIFT = 3;
+    
+    private final int size;
+    
+    // the number of bits of each level, a multiple of 64
+    private final int [] levelSizes;
+    
+    // the offset in bits of each level
+    private final long [] levelOffsets;
+    
+    private final long [] bits;
+    
+    // the number of set bits before each rank sample
+    private final int [] ranks;
+    
+    private final Map<String, Integer> overflow;
+    
+    /**
+     * Use {@link MinimalPerfectHash#create(List)} or {@link MinimalPerfectHash#read(DataInput)}
+     * @param size
+     * @param levelSizes
+     * @param bits
+     * @param overflow
+     */
+    private MinimalPerfectHash(int size, int [] levelSizes, long [] bits, Map<String, Integer> overflow) {
+        
+        this.size = size;
+        this.levelSizes = levelSizes;
+        this.bits = bits;
+        this.overflow = overflow;
+        
+        this.levelOffsets = new long[levelSizes.length];
+        
+        long offset = 0;
+        
+        for(int i = 0; i < levelSizes.length; i++) {
+            levelOffsets[i] = offset;
+            offset += levelSizes[i];
+        }
+        
+        this.ranks = new int[(bits.length >>> RANK_SHIFT) + 1];
+        
+        int rank = 0;
+        
+        for(int i = 0; i < bits.length; i++) {
+            
+            if((i & ((1 << RANK_SHIFT) - 1)) == 0) {
+                ranks[i >>> RANK_SHIFT] = rank;
+            }
+            rank += Long.bitCount(bits[i]);
+        }
+    }
+    
+    /**
+     * Build a minimal perfect hash function for the provided distinct keys
+     * @param keys
+     * @return
+     */
+    public static MinimalPerfectHash create(List<? extends CharSequence> keys) {
+        
+        int size = keys.size();
+        
+        long [] hashes = new long[size];
+        
+        for(int i = 0; i < size; i++) {
+            CharSequence key = keys.get(i);
+            hashes[i] = hash(key, 0, key.length());
+        }
+        
+        // the indexes of the keys that are not placed yet
+        int [] remaining = new int[size];
+        for(int i = 0; i < size; i++) {
+            remaining[i] = i;
+        }
+        
+        int count = size;
+        
+        List<long []> levels = new ArrayList<>();
+        
+        while((count > 0) && (levels.size() < MAX_LEVELS)) {
+            
+            int level = levels.size();
+            int levelSize = levelSize(count);
+            
+            long [] seen = new long[levelSize >>> 6];
+            long [] collided = new long[levelSize >>> 6];
+            
+            for(int i = 0; i < count; i++) {
+                
+                int position = position(hashes[remaining[i]], level, levelSize);
+                int word = position >>> 6;
+                long mask = 1L << position;
+                
+                if((seen[word] & mask) != 0) {
+                    collided[word] |= mask;
+                    
+                } else {
+                    seen[word] |= mask;
+                }
+            }
+            
+            for(int i = 0; i < seen.length; i++) {
+                seen[i] &= ~collided[i];
+            }
+            
+            int next = 0;
+            
+            for(int i = 0; i < count; i++) {
+                
+                int position = position(hashes[remaining[i]], level, levelSize);
+                
+                if((seen[position >>> 6] & (1L << position)) == 0) {
+                    remaining[next++] = remaining[i];
+                }
+            }
+            
+            levels.add(seen);
+            count = next;
+        }
+        
+        int [] levelSizes = new int[levels.size()];
+        long total = 0;
+        
+        for(int i = 0; i < levelSizes.length; i++) {
+            levelSizes[i] = levels.get(i).length << 6;
+            total += levels.get(i).length;
+        }
+        
+        if(total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many keys for a minimal perfect hash: " + size);
+        }
+        
+        long [] bits = new long[(int) total];
+        int offset = 0;
+        
+        for(long [] level: levels) {
+            System.arraycopy(level, 0, bits, offset, level.length);
+            offset += level.length;
+        }
+        
+        // the keys that are not placed take the last slots
+        Map<String, Integer> overflow = new HashMap<>();
+        
+        for(int i = 0; i < count; i++) {
+            overflow.put(keys.get(remaining[i]).toString(), size - count + i);
+        }
+        
+        return new MinimalPerfectHash(size, levelSizes, bits, overflow);
+    }
+    
+    /**
+     * The number of bits of a level for the provided number of keys
+     * @param count
+     * @return
+     */
+    private static int levelSize(int count) {
+        return (int) Math.min(((count + 63L) >>> 6) << 6, 1L << 30);
+    }
+    
+    /**
+     * The bit position of a key hash within a level
+     * @param hash
+     * @param level
+     * @param levelSize
+     * @return
+     */
+    private static int position(long hash, int level, int levelSize) {
+        long mixed = mix(hash + (level * 0x9E3779B97F4A7C15L));
+        return (int) (((mixed >>> 32) * levelSize) >>> 32);
+    }
+    
+    /**
+     * A 64 bit hash of the provided chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    public static long hash(CharSequence chars, int start, int end) {
+        
+        long hash = 0xcbf29ce484222325L;
+        
+        for(int i = start; i < end; i++) {
+            hash = (hash ^ chars.charAt(i)) * 0x100000001b3L;
+        }
+        
+        return mix(hash ^ (end - start));
+    }
+    
+    /**
+     * Spread the bits of a 64 bit value
+     * @param value
+     * @return
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+    
+    /**
+     * Get the slot of the provided key
+     * @param chars
+     * @param start
+     * @param end
+     * @return the slot, or -1 if the key is known not to be one of the keys of this function
+     */
+    public int get(CharSequence chars, int start, int end) {
+        return this.get(hash(chars, start, end), chars, start, end);
+    }
+    
+    /**
+     * Get the slot of a key given its hash, see {@link #hash(CharSequence, int, int)}
+     * @param hash
+     * @param chars
+     * @param start
+     * @param end
+     * @return the slot, or -1 if the key is known not to be one of the keys of this function
+     */
+    public int get(long hash, CharSequence chars, int start, int end) {
+        
+        for(int level = 0; level < levelSizes.length; level++) {
+            
+            long position = levelOffsets[level] + position(hash, level, levelSizes[level]);
+            
+            int word = (int) (position >>> 6);
+            long mask = 1L << position;
+            
+            if((bits[word] & mask) != 0) {
+                
+                // the set bits before this one
+                int rank = ranks[word >>> RANK_SHIFT];
+                
+                for(int i = word & ~((1 << RANK_SHIFT) - 1); i < word; i++) {
+                    rank += Long.bitCount(bits[i]);
+                }
+                
+                return rank + Long.bitCount(bits[word] & (mask - 1));
+            }
+        }
+        
+        if(overflow.isEmpty()) {
+            return -1;
+        }
+        
+        Integer slot = overflow.get(chars.subSequence(start, end).toString());
+        
+        return (slot == null) ? -1 : slot;
+    }
+    
+    /**
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return the number of bits used by this function, excluding the overflow keys
+     */
+    public long getBitCount() {
+        return (((long) bits.length) << 6) + (((long) ranks.length) << 5);
+    }
+    
+    /**
+     * Write this function
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        
+        out.writeInt(size);
+        out.writeInt(levelSizes.length);
+        
+        for(int levelSize: levelSizes) {
+            out.writeInt(levelSize);
+        }
+        
+        for(long word: bits) {
+            out.writeLong(word);
+        }
+        
+        out.writeInt(overflow.size());
+        
+        for(Entry<String, Integer> entry: overflow.entrySet()) {
+            out.writeInt(entry.getKey().length());
+            out.writeChars(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+    
+    /**
+     * Read a function written with {@link #write(DataOutput)}
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static MinimalPerfectHash read(DataInput in) throws IOException {
+        
+        int size = in.readInt();
+        int [] levelSizes = new int[in.readInt()];
+        
+        if((size < 0) || (levelSizes.length > MAX_LEVELS)) {
+            throw new IOException("Invalid minimal perfect hash");
+        }
+        
+        long total = 0;
+        
+        for(int i = 0; i < levelSizes.length; i++) {
+            levelSizes[i] = in.readInt();
+            
+            if((levelSizes[i] <= 0) || ((levelSizes[i] & 63) != 0)) {
+                throw new IOException("Invalid minimal perfect hash level size: " + levelSizes[i]);
+            }
+            total += levelSizes[i] >>> 6;
+        }
+        
+        long [] bits = new long[(int) total];
+        
+        for(int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        
+        int count = in.readInt();
+        
+        Map<String, Integer> overflow = new HashMap<>();
+        
+        for(int i = 0; i < count; i++) {
+            
+            char [] key = new char[in.readInt()];
+            
+            for(int j = 0; j < key.length; j++) {
+                key[j] = in.readChar();
+            }
+            
+            overflow.put(new String(key), in.readInt());
+        }
+        
+        return new MinimalPerfectHash(size, levelSizes, bits, overflow);
+    }
+
+}
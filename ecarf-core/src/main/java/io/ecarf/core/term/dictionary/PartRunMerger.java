@@ -0,0 +1,305 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * K-way merges sorted part runs into one sorted stream of unique parts. Only the current part of each run is 
+ * held in memory, so memory usage is proportional to the number of runs rather than the number of parts. 
+ * When there are more runs than the maximum fan-in use {@link PartRunMerger#reduce(List, int, String)} first.
+ * The occurrences of a part are summed across all the runs it's in.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PartRunMerger implements Closeable {
+    
+    private final static Log log = LogFactory.getLog(PartRunMerger.class);
+    
+    public static final int DEFAULT_FAN_IN = 256;
+    
+    private final PriorityQueue<PartRunReader> queue;
+    
+    private final List<PartRunReader> readers = new ArrayList<>();
+    
+    private long count;
+    
+    private boolean counted = true;
+    
+    /**
+     * Open all the provided runs
+     * @param runs - the run files
+     * @throws IOException
+     */
+    public PartRunMerger(List<String> runs) throws IOException {
+        
+        this.queue = new PriorityQueue<>(Math.max(runs.size(), 1), new Comparator<PartRunReader>() {
+            @Override
+            public int compare(PartRunReader reader1, PartRunReader reader2) {
+                return reader1.peek().compareTo(reader2.peek());
+            }
+        });
+        
+        try {
+            for(String run: runs) {
+                
+                PartRunReader reader = new PartRunReader(run);
+                readers.add(reader);
+                
+                counted &= reader.isCounted();
+                
+                if(reader.peek() != null) {
+                    queue.add(reader);
+                }
+            }
+            
+        } catch(IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * @return the next part in ascending order, parts that are in more than one run are only returned once, 
+     * null once all the runs are exhausted
+     * @throws IOException
+     */
+    public String next() throws IOException {
+        
+        if(queue.isEmpty()) {
+            return null;
+        }
+        
+        String part = this.smallest();
+        
+        count = 0;
+        
+        while(true) {
+            
+            PartRunReader reader = queue.poll();
+            reader.next();
+            count += reader.getCount();
+            
+            if(reader.peek() != null) {
+                queue.add(reader);
+            }
+            
+            if(queue.isEmpty() || !part.equals(this.smallest())) {
+                return part;
+            }
+        }
+    }
+    
+    /**
+     * @return the smallest current part of all the runs
+     */
+    private String smallest() {
+        return queue.peek().peek();
+    }
+    
+    /**
+     * Add all the remaining parts to the provided dictionary. The parts are either added in ascending order or 
+     * in descending order of their occurrences, so the most frequent parts get the smallest ids. Parts with the 
+     * same occurrences are added in ascending order. Once ids are assigned by frequency no more parts should be 
+     * added to the dictionary
+     * @param dictionary
+     * @param frequencyOrdered - true to add the most frequent parts first
+     * @return the number of parts added
+     * @throws IOException
+     */
+    public int addTo(TermDictionary dictionary, boolean frequencyOrdered) throws IOException {
+        
+        String part;
+        int added = 0;
+        
+        if(!frequencyOrdered) {
+            
+            while((part = this.next()) != null) {
+                dictionary.add(part);
+                added++;
+            }
+            
+            return added;
+        }
+        
+        if(!counted) {
+            log.warn("Not all the part runs are counted, parts in uncounted runs only count once per run");
+        }
+        
+        List<String> parts = new ArrayList<>();
+        
+        // descending occurrences in the high 32 bits, ascending part index in the low 32 bits
+        long [] keys = new long[1024];
+        
+        while((part = this.next()) != null) {
+            
+            if(added == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length << 1);
+            }
+            
+            keys[added] = ((0xFFFFFFFFL - Math.min(count, 0xFFFFFFFFL)) << 32) | added;
+            parts.add(part);
+            added++;
+        }
+        
+        Arrays.sort(keys, 0, added);
+        
+        for(int i = 0; i < added; i++) {
+            int index = (int) keys[i];
+            dictionary.add(parts.get(index));
+            parts.set(index, null);
+        }
+        
+        return added;
+    }
+    
+    /**
+     * @return the total number of occurrences of the part last returned by {@link #next()}
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return true if all the runs have the occurrences of their parts
+     */
+    public boolean isCounted() {
+        return counted;
+    }
+    
+    /**
+     * Merge the provided runs into a new run, the new run is counted if all the provided runs are counted
+     * @param runs
+     * @param file - the merged run file
+     * @return the number of unique parts
+     * @throws IOException
+     */
+    public static int merge(List<String> runs, String file) throws IOException {
+        
+        try(PartRunMerger merger = new PartRunMerger(runs);
+                PartRunWriter writer = new PartRunWriter(file, merger.isCounted())) {
+            
+            String part;
+            
+            while((part = merger.next()) != null) {
+                writer.add(part, merger.getCount());
+            }
+            
+            return writer.getCount();
+        }
+    }
+    
+    /**
+     * Merge groups of runs into intermediate runs until there are no more than fanIn runs. The intermediate runs 
+     * are named prefix + sequence and are deleted once merged again, the provided runs are left as is
+     * @param runs
+     * @param fanIn - the maximum number of runs to merge at once
+     * @param prefix - the prefix of the intermediate run files
+     * @return runs if it has no more than fanIn runs, otherwise the intermediate runs
+     * @throws IOException
+     */
+    public static List<String> reduce(List<String> runs, int fanIn, String prefix) throws IOException {
+        
+        if(fanIn < 2) {
+            throw new IllegalArgumentException("fanIn must be at least 2: " + fanIn);
+        }
+        
+        int sequence = 0;
+        
+        Set<String> intermediate = new HashSet<>();
+        
+        while(runs.size() > fanIn) {
+            
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            
+            List<String> merged = new ArrayList<>();
+            
+            for(int i = 0; i < runs.size(); i += fanIn) {
+                
+                List<String> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                
+                if(group.size() == 1) {
+                    merged.add(group.get(0));
+                    
+                } else {
+                    String file = prefix + (sequence++) + FilenameUtils.PART_RUN_EXT;
+                    merge(group, file);
+                    merged.add(file);
+                    intermediate.add(file);
+                    
+                    for(String run: group) {
+                        if(intermediate.remove(run)) {
+                            new File(run).delete();
+                        }
+                    }
+                }
+            }
+            
+            log.info("Merged " + runs.size() + " part runs into " + merged.size() + ", timer: " + stopwatch);
+            
+            runs = merged;
+        }
+        
+        return runs;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        
+        IOException error = null;
+        
+        for(PartRunReader reader: readers) {
+            try {
+                reader.close();
+                
+            } catch(IOException e) {
+                error = e;
+            }
+        }
+        
+        queue.clear();
+        
+        if(error != null) {
+            throw error;
+        }
+    }
+
+}
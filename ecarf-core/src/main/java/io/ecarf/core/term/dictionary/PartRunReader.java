@@ -0,0 +1,233 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the sorted parts of a run written by {@link PartRunWriter}, one part at a time. The parts of a run that is
+ * not counted all have a count of 1
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PartRunReader implements Closeable {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final String file;
+    
+    private final DataInputStream in;
+    
+    private final StringBuilder part = new StringBuilder();
+    
+    private byte [] suffix = new byte[256];
+    
+    private String current;
+    
+    private long currentCount;
+    
+    private long count;
+    
+    private final boolean counted;
+    
+    /**
+     * Open the run and read its first part
+     * @param file
+     * @throws IOException
+     */
+    public PartRunReader(String file) throws IOException {
+        
+        this.file = file;
+        this.in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+        
+        try {
+            int magic = this.in.readInt();
+            
+            if((magic != PartRunWriter.MAGIC) && (magic != PartRunWriter.MAGIC_COUNTED)) {
+                throw new IOException("Invalid part run file: " + file);
+            }
+            
+            this.counted = (magic == PartRunWriter.MAGIC_COUNTED);
+            
+            this.advance();
+            
+        } catch(IOException e) {
+            this.in.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * @return the current part without moving to the next one, null if the end of the run is reached
+     */
+    public String peek() {
+        return current;
+    }
+    
+    /**
+     * @return the current part then move to the next one, null if the end of the run is reached
+     * @throws IOException
+     */
+    public String next() throws IOException {
+        String value = current;
+        
+        if(value != null) {
+            this.count = currentCount;
+            this.advance();
+        }
+        return value;
+    }
+    
+    /**
+     * Read the next part
+     * @throws IOException
+     */
+    private void advance() throws IOException {
+        
+        int prefix = in.read();
+        
+        if(prefix == -1) {
+            current = null;
+            return;
+        }
+        
+        prefix = this.readVarInt(prefix);
+        
+        int length = this.readVarInt(in.readUnsignedByte());
+        
+        if(prefix > part.length()) {
+            throw new IOException("Corrupt part run file: " + file);
+        }
+        
+        if(suffix.length < length) {
+            suffix = new byte[Math.max(length, suffix.length << 1)];
+        }
+        
+        in.readFully(suffix, 0, length);
+        
+        part.setLength(prefix);
+        part.append(new String(suffix, 0, length, StandardCharsets.UTF_8));
+        
+        current = part.toString();
+        currentCount = counted ? this.readVarLong() : 1;
+    }
+    
+    /**
+     * Read a varint given its first byte
+     * @param first
+     * @return
+     * @throws IOException
+     */
+    private int readVarInt(int first) throws IOException {
+        
+        int value = first & 0x7F;
+        int shift = 7;
+        int read = first;
+        
+        while((read & 0x80) != 0) {
+            
+            if(shift > 28) {
+                throw new IOException("Corrupt part run file: " + file);
+            }
+            
+            read = in.read();
+            
+            if(read == -1) {
+                throw new EOFException("Truncated part run file: " + file);
+            }
+            
+            value |= (read & 0x7F) << shift;
+            shift += 7;
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Read a varint long
+     * @return
+     * @throws IOException
+     */
+    private long readVarLong() throws IOException {
+        
+        long value = 0;
+        int shift = 0;
+        int read;
+        
+        do {
+            
+            if(shift > 63) {
+                throw new IOException("Corrupt part run file: " + file);
+            }
+            
+            read = in.read();
+            
+            if(read == -1) {
+                throw new EOFException("Truncated part run file: " + file);
+            }
+            
+            value |= ((long) (read & 0x7F)) << shift;
+            shift += 7;
+            
+        } while((read & 0x80) != 0);
+        
+        return value;
+    }
+    
+    /**
+     * @return the number of occurrences of the part last returned by {@link #next()}
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return true if this run has the occurrences of each part
+     */
+    public boolean isCounted() {
+        return counted;
+    }
+    
+    /**
+     * @return the run file
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
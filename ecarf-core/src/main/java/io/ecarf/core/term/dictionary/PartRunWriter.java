@@ -0,0 +1,277 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import io.ecarf.core.term.Utf8SlabSet;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a run of term parts (or blank nodes) that are sorted by {@link String#compareTo(String)} and deduplicated 
+ * to a gzip compressed file. Sorted parts share long prefixes, so each part is front coded against the previous 
+ * one, the file layout is:
+ * <pre>
+ * header   - magic
+ * parts    - varint shared prefix length (chars), varint suffix length (bytes), suffix UTF-8 bytes
+ *            [, varint count - only in counted runs]
+ * </pre>
+ * A counted run also records how many times each part occurs, these counts are used to give the smallest ids to 
+ * the most frequent parts.
+ * Runs are read with {@link PartRunReader} and merged with {@link PartRunMerger}.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PartRunWriter implements Closeable {
+    
+    public static final int MAGIC = 0x45435052;
+    
+    public static final int MAGIC_COUNTED = 0x45435043;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final DataOutputStream out;
+    
+    private String previous = "";
+    
+    private int count;
+    
+    private final boolean counted;
+    
+    // the occurrences of the previous part, only written once the next part is added
+    private long occurrences;
+    
+    /**
+     * @param file - the gzip run file to create
+     * @throws IOException
+     */
+    public PartRunWriter(String file) throws IOException {
+        this(file, false);
+    }
+    
+    /**
+     * @param file - the gzip run file to create
+     * @param counted - true to also write the number of occurrences of each part
+     * @throws IOException
+     */
+    public PartRunWriter(String file, boolean counted) throws IOException {
+        this.counted = counted;
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+        this.out.writeInt(counted ? MAGIC_COUNTED : MAGIC);
+    }
+    
+    /**
+     * Sort the provided parts and write them to a new run file
+     * @param file
+     * @param parts
+     * @return the number of parts written
+     * @throws IOException
+     */
+    public static int write(String file, Collection<String> parts) throws IOException {
+        
+        String [] sorted = parts.toArray(new String[parts.size()]);
+        Arrays.sort(sorted);
+        
+        try(PartRunWriter writer = new PartRunWriter(file)) {
+            
+            for(String part: sorted) {
+                writer.add(part);
+            }
+            
+            return writer.getCount();
+        }
+    }
+    
+    /**
+     * Sort the provided parts and write them with their occurrences to a new counted run file
+     * @param file
+     * @param parts
+     * @param counts - the occurrences of each part, parts with no count are written with a count of 1
+     * @return the number of parts written
+     * @throws IOException
+     */
+    public static int write(String file, Collection<String> parts, Map<String, ? extends Number> counts) 
+            throws IOException {
+        
+        String [] sorted = parts.toArray(new String[parts.size()]);
+        Arrays.sort(sorted);
+        
+        try(PartRunWriter writer = new PartRunWriter(file, true)) {
+            
+            for(String part: sorted) {
+                Number count = counts.get(part);
+                writer.add(part, (count == null) ? 1 : count.longValue());
+            }
+            
+            return writer.getCount();
+        }
+    }
+    
+    /**
+     * Write the provided parts to a new run file, the set sorts its entries without decoding them so only one part 
+     * at a time is turned into a String. A counted set is written as a counted run
+     * @param file
+     * @param parts
+     * @return the number of parts written
+     * @throws IOException
+     */
+    public static int write(String file, Utf8SlabSet parts) throws IOException {
+        
+        try(PartRunWriter writer = new PartRunWriter(file, parts.isCounted())) {
+            
+            Utf8SlabSet.Entries entries = parts.sortedIterator();
+            
+            while(entries.hasNext()) {
+                writer.add(entries.next(), entries.getCount());
+            }
+            
+            return writer.getCount();
+        }
+    }
+    
+    /**
+     * Add a part, the parts must be added in ascending order, a part equal to the previous one is ignored
+     * @param part
+     * @return true if the part was written
+     * @throws IOException
+     */
+    public boolean add(String part) throws IOException {
+        return this.add(part, 1);
+    }
+    
+    /**
+     * Add a part that occurs the provided number of times, the parts must be added in ascending order. The 
+     * occurrences of a part equal to the previous one are added to the previous part
+     * @param part
+     * @param occurrences - ignored if this run is not counted
+     * @return true if the part was written
+     * @throws IOException
+     */
+    public boolean add(String part, long occurrences) throws IOException {
+        
+        int compare = part.compareTo(previous);
+        
+        if(compare < 0) {
+            throw new IllegalArgumentException("Parts must be added in order, " + part + " is before " + previous);
+        }
+        
+        if((compare == 0) && (count > 0)) {
+            this.occurrences += occurrences;
+            return false;
+        }
+        
+        this.writeOccurrences();
+        
+        int max = Math.min(part.length(), previous.length());
+        int prefix = 0;
+        
+        while((prefix < max) && (part.charAt(prefix) == previous.charAt(prefix))) {
+            prefix++;
+        }
+        
+        // don't split a surrogate pair between the prefix and the suffix
+        if((prefix > 0) && Character.isHighSurrogate(part.charAt(prefix - 1))) {
+            prefix--;
+        }
+        
+        byte [] suffix = part.substring(prefix).getBytes(StandardCharsets.UTF_8);
+        
+        writeVarInt(prefix);
+        writeVarInt(suffix.length);
+        out.write(suffix);
+        
+        previous = part;
+        count++;
+        
+        this.occurrences = occurrences;
+        
+        return true;
+    }
+    
+    /**
+     * Write a non negative int using 7 bits per byte
+     * @param value
+     * @throws IOException
+     */
+    private void writeVarInt(int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    /**
+     * Write the occurrences of the previous part if this run is counted
+     * @throws IOException
+     */
+    private void writeOccurrences() throws IOException {
+        
+        if(counted && (count > 0)) {
+            
+            long value = Math.max(occurrences, 0);
+            
+            while((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+    
+    /**
+     * @return true if the occurrences of each part are written
+     */
+    public boolean isCounted() {
+        return counted;
+    }
+    
+    /**
+     * @return the number of parts written so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.writeOccurrences();
+            
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -21,6 +21,8 @@
 package io.ecarf.core.term.dictionary;
 
 import io.cloudex.framework.utils.ObjectUtils;
+import io.ecarf.core.term.CharWindow;
+import io.ecarf.core.term.SplitRules;
 import io.ecarf.core.term.TermUtils;
 import io.ecarf.core.triple.SchemaURIType;
 import io.ecarf.core.utils.BiMapJsonDeserializer;
@@ -32,8 +34,6 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
@@ -78,6 +78,12 @@ public abstract class TermDictionary implements Serializable {
      
     private int largestResourceId = RESOURCE_ID_START;
     
+    /**
+     * Optional per host split rules, these must be the rules used to extract the parts of this dictionary.
+     * The rules are not serialized with the dictionary, they are kept in their own file
+     */
+    private transient SplitRules splitRules;
+    
     /**
      * The default number of bits used to store information about the parts of an encoded dictionary entry
      * 0, to specify a blank node, 1 to n to specify n number of parts
@@ -107,17 +113,40 @@ public abstract class TermDictionary implements Serializable {
     protected abstract void putAll(Map<? extends String, ? extends Integer> map);
     
     
+    /**
+     * Lookup the term within the window, subclasses backed by a hash table should override this to avoid 
+     * creating a String for each lookup. {@link CharWindow} hashes and compares like a String, so it can
+     * be used directly with any String keyed map
+     * @param window
+     * @return
+     */
+    public Integer get(CharWindow window) {
+        return this.get(window.toString());
+    }
+    
     /**
      * Encode a blank node
      * @param blankNode
      * @return
      */
     public long encodeBlankNode(String blankNode) {
+        return this.encodeBlankNode(blankNode, 0, blankNode.length(), new CharWindow());
+    }
+    
+    /**
+     * Encode a blank node that is within the provided chars
+     * @param chars
+     * @param start - the start of the blank node, inclusive
+     * @param end - the end of the blank node, exclusive
+     * @param window - a reusable window used for the lookup
+     * @return
+     */
+    public long encodeBlankNode(CharSequence chars, int start, int end, CharWindow window) {
         long value = 0;
         
-        Integer enc = this.get(blankNode);
+        Integer enc = this.get(window.set(chars, start, end));
         if(enc == null) {
-            throw new IllegalArgumentException("Term part not found in the dictionary: " + blankNode);
+            throw new IllegalArgumentException("Term part not found in the dictionary: " + window);
         }
         
         value = (enc <<= 3) | 0b001;
@@ -131,56 +160,61 @@ public abstract class TermDictionary implements Serializable {
      * @return
      */
     public long encode(String term) {
+        return this.encode(term, 0, term.length(), new CharWindow(), new int[4]);
+    }
+    
+    /**
+     * Encode a term in the format <http://dbpedia.org/resource/Alexander_II_of_Russia> that is within the 
+     * provided chars, e.g. a raw N-Triples line. The term parts are looked up through the window, so no
+     * substrings or other objects are created, callers encoding many terms should reuse the window and bounds
+     * @param chars
+     * @param start - the start of the term, inclusive
+     * @param end - the end of the term, exclusive
+     * @param window - a reusable window used for the lookups
+     * @param bounds - a reusable array of at least 4 ints used to split the term
+     * @return
+     */
+    public long encode(CharSequence chars, int start, int end, CharWindow window, int [] bounds) {
         
         long value = 0;
         
-        if(SchemaURIType.RDF_OWL_TERMS.contains(term)) {
+        if(SchemaURIType.RDF_OWL_TERMS.contains(window.set(chars, start, end))) {
             
-            value = this.get(term);
+            value = this.get(window);
             
         } else {
             
             // TODO why I'm using this code here instead of TermUtils.split?
             // because I need to efficiently check for https
-            String url = term.substring(1, term.length() - 1);
-            String path = StringUtils.removeStart(url, TermUtils.HTTP);
-            boolean https = false;
+            int urlStart = start + 1;
+            int urlEnd = end - 1;
             
-            if(path.length() == url.length()) {
-                path = StringUtils.removeStart(path, TermUtils.HTTPS);
-                https = true;
-            }
+            boolean https = !TermUtils.startsWith(chars, urlStart, urlEnd, TermUtils.HTTP);
             
             //String [] parts = StringUtils.split(path, URI_SEP);
             // this is alot faster than String.split or StringUtils.split
             
-            List<String> parts = TermUtils.splitIntoTwo(term);
+            int numParts = TermUtils.splitIntoTwo(chars, start, end, true, -1, this.splitRules, bounds);
             
-            if(!parts.isEmpty()) {
+            if(numParts > 0) {
                 
                 // 1- encode parts
-                long[] values = new long[parts.size()];
-                int index = 0;
-                Integer enc;
-                for(String part: parts) {
-                    enc = this.get(part);
-                    if(enc == null) {
-                        throw new IllegalArgumentException("Term part not found in the dictionary: " + part);
-                    }
-                    
-                    values[index] = enc;
-                    index++;
-                }
+                long first = this.encodePart(chars, bounds[0], bounds[1], window);
                 
                 // 2- compose
-                value = NumberUtils.join(values);
+                if(numParts == 1) {
+                    value = first;
+                    
+                } else {
+                    value = NumberUtils.join(first, this.encodePart(chars, bounds[2], bounds[3], window));
+                }
                 
                 // 3- add flags
                 //              1                               1                           1 
                 // has  / at the end (1) or not (0)     http (0) or https (1)     one (1) or two (0) parts
                 int flags = 0;
                 
-                if(parts.size() == 1) {
+                if(numParts == 1) {
                     flags = 1;
                 }
                 
@@ -189,7 +223,7 @@ public abstract class TermDictionary implements Serializable {
                 }
                 
                 // do we have a slash at the end of the URL or not
-                if(url.lastIndexOf(TermUtils.URI_SEP) == (url.length() - 1)) {
+                if((urlEnd == urlStart) || (chars.charAt(urlEnd - 1) == TermUtils.URI_SEP)) {
                     flags |= 0b100;
                 }
                 
@@ -204,6 +238,22 @@ public abstract class TermDictionary implements Serializable {
         return value;
     }
     
+    /**
+     * Lookup a term part
+     * @param chars
+     * @param start
+     * @param end
+     * @param window
+     * @return
+     */
+    private long encodePart(CharSequence chars, int start, int end, CharWindow window) {
+        Integer enc = this.get(window.set(chars, start, end));
+        if(enc == null) {
+            throw new IllegalArgumentException("Term part not found in the dictionary: " + window);
+        }
+        return enc;
+    }
+    
     /**
      * Decode the value provided into a term
      * @param value
@@ -250,16 +300,11 @@ public abstract class TermDictionary implements Serializable {
 
             } else {
 
-                // 2- decompose
-                long [] values = NumberUtils.disjoin(n, value);
+                // 2- decompose & 3- decode parts
+                String first = this.get((int) NumberUtils.disjoinFirst(value));
+                String second = this.get((int) NumberUtils.disjoinSecond(value));
 
-                // 3- decode parts
-                List<String> parts = new ArrayList<>();
-                for(long partv: values) {
-                    parts.add(this.get((int) partv));
-                }
-
-                term = StringUtils.join(parts, TermUtils.URI_SEP);
+                term = StringUtils.join(first, TermUtils.URI_SEP_STR, second);
             }
             
             if(!blank) {
@@ -439,6 +484,22 @@ public abstract class TermDictionary implements Serializable {
         this.largestResourceId = largestResourceId;
     }
 
+    /**
+     * @return the splitRules
+     */
+    public SplitRules getSplitRules() {
+        return splitRules;
+    }
+
+    /**
+     * The parts are always split at a slash, so the rules are only needed to encode, decoding is the same
+     * with or without rules
+     * @param splitRules the splitRules to set
+     */
+    public void setSplitRules(SplitRules splitRules) {
+        this.splitRules = splitRules;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
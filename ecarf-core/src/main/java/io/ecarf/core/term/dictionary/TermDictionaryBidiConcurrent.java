@@ -20,6 +20,7 @@
 
 package io.ecarf.core.term.dictionary;
 
+import io.ecarf.core.term.CharWindow;
 import io.ecarf.core.utils.Utils;
 
 import java.io.Serializable;
@@ -70,6 +71,15 @@ public class TermDictionaryBidiConcurrent extends TermDictionary implements Seri
         return (Integer) this.dictionary.get(key);
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        return (Integer) this.dictionary.get(window);
+    }
+
 
     @Override
     public String get(Integer value) {
@@ -20,6 +20,8 @@
 
 package io.ecarf.core.term.dictionary;
 
+import io.ecarf.core.term.CharWindow;
+
 import java.util.Map;
 
 import org.apache.commons.collections4.BidiMap;
@@ -41,6 +43,15 @@ public class TermDictionaryCommons extends TermDictionary {
         return this.dictionary.get(key);
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        return this.dictionary.get(window);
+    }
+
     @Override
     public String get(Integer value) {
         
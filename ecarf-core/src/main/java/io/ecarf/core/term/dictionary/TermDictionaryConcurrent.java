@@ -20,6 +20,7 @@
 
 package io.ecarf.core.term.dictionary;
 
+import io.ecarf.core.term.CharWindow;
 import io.ecarf.core.utils.Utils;
 
 import java.io.Serializable;
@@ -69,6 +70,15 @@ public class TermDictionaryConcurrent extends TermDictionary implements Serializ
         return this.dictionary.get(key);
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        return this.dictionary.get(window);
+    }
+
 
     @Override
     public String get(Integer value) {
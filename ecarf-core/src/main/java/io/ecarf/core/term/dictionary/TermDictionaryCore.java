@@ -20,6 +20,9 @@
 
 package io.ecarf.core.term.dictionary;
 
+import io.ecarf.core.term.CharWindow;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,6 +44,15 @@ public class TermDictionaryCore extends TermDictionary {
         
         return this.dictionary.get(key);
     }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        return this.dictionary.get(window);
+    }
     
     /**
      * Create an inverse of the dictionary map for decoding
@@ -84,4 +96,11 @@ public class TermDictionaryCore extends TermDictionary {
         this.dictionary.putAll(map);
     }
 
+    /**
+     * @return an unmodifiable view of the term to id mappings
+     */
+    public Map<String, Integer> getDictionary() {
+        return Collections.unmodifiableMap(this.dictionary);
+    }
+
 }
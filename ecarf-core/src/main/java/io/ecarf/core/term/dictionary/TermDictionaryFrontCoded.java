@@ -0,0 +1,1063 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import io.ecarf.core.term.CharWindow;
+import io.ecarf.core.utils.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * An immutable dictionary that keeps all the terms sorted by {@link String#compareTo(String)} in a single
+ * byte array. The terms are grouped in blocks of {@link #BLOCK_SIZE}, the first term of each block is stored in
+ * full and every other term only stores the number of chars it shares with the previous term and the remaining
+ * suffix. Each entry is laid out as:
+ * <pre>
+ * varint shared prefix length (chars), varint suffix length (bytes), suffix chars
+ * </pre>
+ * Chars are encoded on their own using 1 to 3 bytes (the CESU-8 flavour of UTF-8), this keeps the byte order the same
+ * as the String order and allows comparing against a key char by char without decoding the terms first.
+ * 
+ * A lookup binary searches the first terms of the blocks then scans a single block, a decode goes from the id to the 
+ * term rank and reconstructs the term from the start of its block. Apart from the terms only an int per term is kept
+ * for the ids and an int per id for the ranks, so the dictionary is a fraction of the size of a map based one both in 
+ * memory and on disk. Lookups don't modify any state so a single instance can be shared by all the processing threads.
+ * 
+ * Optionally a {@link MinimalPerfectHash} index is built over the terms, it maps each term to a slot of a bit packed
+ * array of term ranks with an 8 bit fingerprint of the term hash per slot. An indexed lookup is a single probe 
+ * followed by a check of the term at that rank, rather than a binary search.
+ * 
+ * The file layout (gzip compressed when the file name ends with .gz) is:
+ * <pre>
+ * header   - magic, version, size, largest resource id, block size, max id, max term length, data length
+ * data     - the front coded blocks
+ * ids      - the ids in term order, zigzag varint deltas
+ * index    - indexed flag [, minimal perfect hash, rank bits, packed ranks, fingerprints]
+ * </pre>
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class TermDictionaryFrontCoded extends TermDictionary {
+
+    private static final long serialVersionUID = 2947013316532485309L;
+    
+    private final static Log log = LogFactory.getLog(TermDictionaryFrontCoded.class);
+    
+    public static final int MAGIC = 0x45434643;
+
+    public static final int VERSION = 2;
+    
+    public static final int BLOCK_SIZE = 16;
+    
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    
+    private static final int NO_RANK = -1;
+    
+    private final int size;
+    
+    private final int blockSize;
+    
+    private final int maxLength;
+    
+    // the front coded blocks
+    private final byte [] data;
+    
+    // the offset of each block in data
+    private final int [] blocks;
+    
+    // the id of each term in term order
+    private final int [] ids;
+    
+    // the term rank for each id, or -1
+    private final int [] ranks;
+    
+    // the optional perfect hash index, from a term to the slot of its rank
+    private MinimalPerfectHash index;
+    
+    private long [] slotRanks;
+    
+    private int rankBits;
+    
+    private byte [] fingerprints;
+    
+    /**
+     * Use {@link TermDictionaryFrontCoded#create(Map, int)} or {@link TermDictionaryFrontCoded#fromFile(String)}
+     * @param data
+     * @param ids
+     * @param blockSize
+     * @param maxLength
+     * @param largestResourceId
+     */
+    private TermDictionaryFrontCoded(byte [] data, int [] ids, int blockSize, int maxLength, int largestResourceId) {
+        
+        this.data = data;
+        this.ids = ids;
+        this.size = ids.length;
+        this.blockSize = blockSize;
+        this.maxLength = maxLength;
+        this.setLargestResourceId(largestResourceId);
+        
+        int maxId = -1;
+        for(int id: ids) {
+            maxId = Math.max(maxId, id);
+        }
+        
+        this.ranks = new int[maxId + 1];
+        Arrays.fill(this.ranks, NO_RANK);
+        
+        for(int i = 0; i < ids.length; i++) {
+            this.ranks[ids[i]] = i;
+        }
+        
+        // find the block offsets by skipping over the entries
+        this.blocks = new int[(size + blockSize - 1) / blockSize];
+        
+        int position = 0;
+        
+        for(int i = 0; i < size; i++) {
+            
+            if((i % blockSize) == 0) {
+                this.blocks[i / blockSize] = position;
+            }
+            
+            position = this.skipVarInt(position);
+            
+            int length = 0;
+            int shift = 0;
+            int b;
+            
+            do {
+                b = data[position++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            position += length;
+        }
+        
+        if(position != data.length) {
+            throw new IllegalArgumentException("Invalid front coded dictionary data");
+        }
+    }
+    
+    /**
+     * Create a front coded dictionary from the entries of a dictionary
+     * @param dictionary
+     * @return
+     */
+    public static TermDictionaryFrontCoded create(TermDictionaryCore dictionary) {
+        return create(dictionary.getDictionary(), dictionary.getLargestResourceId(), false);
+    }
+    
+    /**
+     * Create a front coded dictionary from the entries of a dictionary
+     * @param dictionary
+     * @param indexed - true to also build a perfect hash index
+     * @return
+     */
+    public static TermDictionaryFrontCoded create(TermDictionaryCore dictionary, boolean indexed) {
+        return create(dictionary.getDictionary(), dictionary.getLargestResourceId(), indexed);
+    }
+    
+    /**
+     * Create a front coded dictionary from the provided term to id mappings
+     * @param entries
+     * @param largestResourceId
+     * @param indexed - true to also build a perfect hash index
+     * @return
+     */
+    public static TermDictionaryFrontCoded create(Map<String, Integer> entries, int largestResourceId, boolean indexed) {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        int size = entries.size();
+        
+        String [] terms = entries.keySet().toArray(new String[size]);
+        Arrays.sort(terms);
+        
+        int [] ids = new int[size];
+        
+        ByteArray data = new ByteArray(Math.max(size * 16, 16));
+        
+        String previous = "";
+        int maxLength = 0;
+        
+        for(int i = 0; i < size; i++) {
+            
+            String term = terms[i];
+            Integer id = entries.get(term);
+            
+            if(id < 0 || id == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid dictionary id: " + id);
+            }
+            
+            ids[i] = id;
+            
+            int prefix = 0;
+            
+            // the first term of each block is stored in full
+            if((i % BLOCK_SIZE) != 0) {
+                int max = Math.min(term.length(), previous.length());
+                while((prefix < max) && (term.charAt(prefix) == previous.charAt(prefix))) {
+                    prefix++;
+                }
+            }
+            
+            data.writeVarInt(prefix);
+            data.writeVarInt(encodedLength(term, prefix, term.length()));
+            
+            for(int j = prefix; j < term.length(); j++) {
+                data.writeChar(term.charAt(j));
+            }
+            
+            maxLength = Math.max(maxLength, term.length());
+            previous = term;
+        }
+        
+        TermDictionaryFrontCoded dictionary = new TermDictionaryFrontCoded(
+                data.toByteArray(), ids, BLOCK_SIZE, maxLength, largestResourceId);
+        
+        if(indexed) {
+            dictionary.index(terms);
+        }
+        
+        log.debug("TIMER# created front coded dictionary, size: " + size + ", bytes: " + 
+                dictionary.data.length + ", in: " + stopwatch);
+        
+        return dictionary;
+    }
+    
+    /**
+     * Write the provided dictionary in the front coded format
+     * @param dictionary
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static String toFile(TermDictionaryCore dictionary, String file) throws IOException {
+        return create(dictionary).toFile(file);
+    }
+    
+    /**
+     * Write the provided dictionary in the front coded format
+     * @param dictionary
+     * @param file
+     * @param indexed - true to also build and write a perfect hash index
+     * @return
+     * @throws IOException
+     */
+    public static String toFile(TermDictionaryCore dictionary, String file, boolean indexed) throws IOException {
+        return create(dictionary, indexed).toFile(file);
+    }
+    
+    /**
+     * Build the perfect hash index from the sorted terms of this dictionary
+     * @param terms
+     */
+    private void index(String [] terms) {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        this.index = MinimalPerfectHash.create(Arrays.asList(terms));
+        this.rankBits = Math.max(32 - Integer.numberOfLeadingZeros(size - 1), 1);
+        this.slotRanks = new long[(int) ((((long) size) * rankBits + 63) >>> 6)];
+        this.fingerprints = new byte[size];
+        
+        for(int rank = 0; rank < size; rank++) {
+            
+            String term = terms[rank];
+            long hash = MinimalPerfectHash.hash(term, 0, term.length());
+            
+            int slot = index.get(hash, term, 0, term.length());
+            
+            fingerprints[slot] = (byte) hash;
+            
+            long position = ((long) slot) * rankBits;
+            int word = (int) (position >>> 6);
+            int shift = (int) (position & 63);
+            
+            slotRanks[word] |= ((long) rank) << shift;
+            
+            if((shift + rankBits) > 64) {
+                slotRanks[word + 1] |= ((long) rank) >>> (64 - shift);
+            }
+        }
+        
+        log.debug("TIMER# indexed front coded dictionary, size: " + size + ", hash bits: " + 
+                index.getBitCount() + ", in: " + stopwatch);
+    }
+    
+    /**
+     * Read the rank stored in the provided slot of the index
+     * @param slot
+     * @return
+     */
+    private int slotRank(int slot) {
+        
+        long position = ((long) slot) * rankBits;
+        int word = (int) (position >>> 6);
+        int shift = (int) (position & 63);
+        
+        long value = slotRanks[word] >>> shift;
+        
+        if((shift + rankBits) > 64) {
+            value |= slotRanks[word + 1] << (64 - shift);
+        }
+        
+        return (int) (value & ((1L << rankBits) - 1));
+    }
+    
+    /**
+     * Read a front coded dictionary file, the file is gunziped if the name ends with .gz
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static TermDictionaryFrontCoded fromFile(String file) throws IOException {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        InputStream stream = new FileInputStream(file);
+        
+        if(file.endsWith(Constants.GZIP_EXT)) {
+            stream = new GZIPInputStream(stream, BUFFER_SIZE);
+        }
+        
+        TermDictionaryFrontCoded dictionary;
+        
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE))) {
+            
+            int magic = in.readInt();
+            int version = in.readInt();
+            
+            // version 1 files have no index
+            if((magic != MAGIC) || (version < 1) || (version > VERSION)) {
+                throw new IOException("Invalid front coded dictionary file or version: " + file);
+            }
+            
+            int size = in.readInt();
+            int largestResourceId = in.readInt();
+            int blockSize = in.readInt();
+            // max id, the ranks are sized from the ids
+            in.readInt();
+            int maxLength = in.readInt();
+            
+            byte [] data = new byte[in.readInt()];
+            in.readFully(data);
+            
+            int [] ids = new int[size];
+            int previous = 0;
+            
+            for(int i = 0; i < size; i++) {
+                int delta = readVarInt(in);
+                previous += (delta >>> 1) ^ -(delta & 1);
+                ids[i] = previous;
+            }
+            
+            try {
+                dictionary = new TermDictionaryFrontCoded(data, ids, blockSize, maxLength, largestResourceId);
+                
+                if((version > 1) && in.readBoolean()) {
+                    
+                    dictionary.index = MinimalPerfectHash.read(in);
+                    dictionary.rankBits = in.readInt();
+                    dictionary.slotRanks = new long[in.readInt()];
+                    
+                    for(int i = 0; i < dictionary.slotRanks.length; i++) {
+                        dictionary.slotRanks[i] = in.readLong();
+                    }
+                    
+                    dictionary.fingerprints = new byte[size];
+                    in.readFully(dictionary.fingerprints);
+                    
+                    if((dictionary.index.size() != size) || (dictionary.rankBits < 1) || (dictionary.rankBits > 32)) {
+                        throw new IOException("Invalid front coded dictionary index: " + file);
+                    }
+                }
+                
+            } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Invalid front coded dictionary file: " + file, e);
+            }
+        }
+        
+        log.debug("TIMER# read front coded dictionary from file: " + file + ", size: " + dictionary.size + 
+                ", in: " + stopwatch);
+        
+        return dictionary;
+    }
+    
+    /**
+     * Write this dictionary to a file, the file is gziped if the name ends with .gz
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public String toFile(String file) throws IOException {
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        OutputStream stream = new FileOutputStream(file);
+        
+        if(file.endsWith(Constants.GZIP_EXT)) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE))) {
+            
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(this.getLargestResourceId());
+            out.writeInt(blockSize);
+            out.writeInt(ranks.length - 1);
+            out.writeInt(maxLength);
+            out.writeInt(data.length);
+            out.write(data);
+            
+            // ids are mostly assigned in term order, so the deltas are tiny
+            int previous = 0;
+            
+            for(int id: ids) {
+                int delta = id - previous;
+                writeVarInt(out, (delta << 1) ^ (delta >> 31));
+                previous = id;
+            }
+            
+            out.writeBoolean(index != null);
+            
+            if(index != null) {
+                
+                index.write(out);
+                out.writeInt(rankBits);
+                out.writeInt(slotRanks.length);
+                
+                for(long word: slotRanks) {
+                    out.writeLong(word);
+                }
+                
+                out.write(fingerprints);
+            }
+        }
+        
+        log.debug("TIMER# written front coded dictionary file: " + file + ", size: " + size + 
+                ", in: " + stopwatch);
+        
+        return file;
+    }
+    
+    /**
+     * Lookup the id of the provided chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return the id or -1 if not found
+     */
+    protected int lookup(CharSequence chars, int start, int end) {
+        
+        if(size == 0) {
+            return -1;
+        }
+        
+        if(index != null) {
+            return this.indexLookup(chars, start, end);
+        }
+        
+        // find the last block with a first term that is less than or equal to the key
+        int low = 0;
+        int high = blocks.length - 1;
+        
+        while(low < high) {
+            
+            int mid = (low + high + 1) >>> 1;
+            
+            if(this.compareFirst(mid, chars, start, end) <= 0) {
+                low = mid;
+                
+            } else {
+                high = mid - 1;
+            }
+        }
+        
+        int rank = low * blockSize;
+        int limit = Math.min(rank + blockSize, size);
+        int position = blocks[low];
+        int length = end - start;
+        
+        // the number of chars the previous term has in common with the key, the previous term is always less than the key
+        int matched = 0;
+        
+        for(; rank < limit; rank++) {
+            
+            int prefix = 0;
+            int shift = 0;
+            int b;
+            
+            do {
+                b = data[position++];
+                prefix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int suffix = 0;
+            shift = 0;
+            
+            do {
+                b = data[position++];
+                suffix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int index = position;
+            position += suffix;
+            
+            if(prefix < matched) {
+                // differs from the previous term before the key does, so it's greater than the key
+                return -1;
+            }
+            
+            if(prefix > matched) {
+                // shares the chars where the previous term is less than the key
+                continue;
+            }
+            
+            int i = prefix;
+            boolean less = false;
+            
+            while((index < position) && (i < length)) {
+                
+                b = data[index++] & 0xFF;
+                char c;
+                
+                if(b < 0x80) {
+                    c = (char) b;
+                    
+                } else if(b < 0xE0) {
+                    c = (char) (((b & 0x1F) << 6) | (data[index++] & 0x3F));
+                    
+                } else {
+                    c = (char) (((b & 0x0F) << 12) | ((data[index++] & 0x3F) << 6) | (data[index++] & 0x3F));
+                }
+                
+                char k = chars.charAt(start + i);
+                
+                if(c != k) {
+                    
+                    if(c > k) {
+                        return -1;
+                    }
+                    
+                    less = true;
+                    break;
+                }
+                
+                i++;
+            }
+            
+            if(!less) {
+                
+                if(index == position) {
+                    
+                    if(i == length) {
+                        return ids[rank];
+                    }
+                    
+                    // the term is a prefix of the key
+                    
+                } else {
+                    // the key is a prefix of the term
+                    return -1;
+                }
+            }
+            
+            matched = i;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Lookup the id of the provided chars through the perfect hash index
+     * @param chars
+     * @param start
+     * @param end
+     * @return the id or -1 if not found
+     */
+    private int indexLookup(CharSequence chars, int start, int end) {
+        
+        long hash = MinimalPerfectHash.hash(chars, start, end);
+        
+        int slot = index.get(hash, chars, start, end);
+        
+        if((slot == -1) || (fingerprints[slot] != (byte) hash)) {
+            return -1;
+        }
+        
+        int rank = this.slotRank(slot);
+        
+        return this.matches(rank, chars, start, end) ? ids[rank] : -1;
+    }
+    
+    /**
+     * Check if the term at the provided rank is equal to the provided chars. The block is scanned up to the rank 
+     * while tracking how many chars each term has in common with the chars
+     * @param rank
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private boolean matches(int rank, CharSequence chars, int start, int end) {
+        
+        int first = rank - (rank % blockSize);
+        int position = blocks[first / blockSize];
+        int length = end - start;
+        
+        int matched = 0;
+        
+        for(int i = first; i <= rank; i++) {
+            
+            int prefix = 0;
+            int shift = 0;
+            int b;
+            
+            do {
+                b = data[position++];
+                prefix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int suffix = 0;
+            shift = 0;
+            
+            do {
+                b = data[position++];
+                suffix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int index = position;
+            position += suffix;
+            
+            if(prefix != matched) {
+                
+                // the term differs from the chars at the smaller of the two
+                matched = Math.min(prefix, matched);
+                
+                if(i == rank) {
+                    return false;
+                }
+                continue;
+            }
+            
+            boolean differs = false;
+            
+            while((index < position) && (matched < length)) {
+                
+                b = data[index++] & 0xFF;
+                char c;
+                
+                if(b < 0x80) {
+                    c = (char) b;
+                    
+                } else if(b < 0xE0) {
+                    c = (char) (((b & 0x1F) << 6) | (data[index++] & 0x3F));
+                    
+                } else {
+                    c = (char) (((b & 0x0F) << 12) | ((data[index++] & 0x3F) << 6) | (data[index++] & 0x3F));
+                }
+                
+                if(c != chars.charAt(start + matched)) {
+                    differs = true;
+                    break;
+                }
+                
+                matched++;
+            }
+            
+            if(i == rank) {
+                return !differs && (index == position) && (matched == length);
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * @return true if this dictionary has a perfect hash index
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+    
+    /**
+     * Compare the first term of the provided block with the provided chars
+     * @param block
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private int compareFirst(int block, CharSequence chars, int start, int end) {
+        
+        // the shared prefix is always 0
+        int index = blocks[block] + 1;
+        
+        int limit = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = data[index++];
+            limit |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        limit += index;
+        
+        int i = start;
+        
+        while((index < limit) && (i < end)) {
+            
+            b = data[index++] & 0xFF;
+            char c;
+            
+            if(b < 0x80) {
+                c = (char) b;
+                
+            } else if(b < 0xE0) {
+                c = (char) (((b & 0x1F) << 6) | (data[index++] & 0x3F));
+                
+            } else {
+                c = (char) (((b & 0x0F) << 12) | ((data[index++] & 0x3F) << 6) | (data[index++] & 0x3F));
+            }
+            
+            char k = chars.charAt(i++);
+            
+            if(c != k) {
+                return c - k;
+            }
+        }
+        
+        return (index < limit) ? 1 : ((i < end) ? -1 : 0);
+    }
+    
+    /**
+     * Decode the term stored for the provided id
+     * @param id
+     * @return the term or null if no term is stored for this id
+     */
+    private String term(int id) {
+        
+        if(id < 0 || id >= ranks.length || ranks[id] == NO_RANK) {
+            return null;
+        }
+        
+        int rank = ranks[id];
+        int first = rank - (rank % blockSize);
+        int position = blocks[first / blockSize];
+        
+        char [] chars = new char[maxLength];
+        int length = 0;
+        
+        for(int i = first; i <= rank; i++) {
+            
+            int prefix = 0;
+            int shift = 0;
+            int b;
+            
+            do {
+                b = data[position++];
+                prefix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int suffix = 0;
+            shift = 0;
+            
+            do {
+                b = data[position++];
+                suffix |= (b & 0x7F) << shift;
+                shift += 7;
+                
+            } while(b < 0);
+            
+            int limit = position + suffix;
+            length = prefix;
+            
+            while(position < limit) {
+                
+                b = data[position++] & 0xFF;
+                
+                if(b < 0x80) {
+                    chars[length++] = (char) b;
+                    
+                } else if(b < 0xE0) {
+                    chars[length++] = (char) (((b & 0x1F) << 6) | (data[position++] & 0x3F));
+                    
+                } else {
+                    chars[length++] = (char) (((b & 0x0F) << 12) | 
+                            ((data[position++] & 0x3F) << 6) | (data[position++] & 0x3F));
+                }
+            }
+        }
+        
+        return new String(chars, 0, length);
+    }
+    
+    /**
+     * Return the position after the varint that starts at the provided position
+     * @param position
+     * @return
+     */
+    private int skipVarInt(int position) {
+        while(data[position++] < 0);
+        return position;
+    }
+    
+    /**
+     * The number of bytes needed to encode the provided chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private static int encodedLength(CharSequence chars, int start, int end) {
+        int length = 0;
+        for(int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            length += (c < 0x80) ? 1 : ((c < 0x800) ? 2 : 3);
+        }
+        return length;
+    }
+    
+    /**
+     * Write a non negative int using 7 bits per byte
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    /**
+     * Read an int written using 7 bits per byte
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        
+        do {
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        return value;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(java.lang.String)
+     */
+    @Override
+    public Integer get(String key) {
+        
+        int id = this.lookup(key, 0, key.length());
+        
+        return (id == -1) ? null : id;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        int id = this.lookup(window.getChars(), window.getStart(), window.getEnd());
+        
+        return (id == -1) ? null : id;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(java.lang.Integer)
+     */
+    @Override
+    public String get(Integer value) {
+        
+        return this.term(value);
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#size()
+     */
+    @Override
+    public int size() {
+        
+        return this.size;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#put(java.lang.String, java.lang.Integer)
+     */
+    @Override
+    public void put(String key, Integer value) {
+        throw new UnsupportedOperationException("Front coded dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#containsKey(java.lang.String)
+     */
+    @Override
+    public boolean containsKey(String key) {
+        
+        return this.lookup(key, 0, key.length()) != -1;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#putAll(java.util.Map)
+     */
+    @Override
+    protected void putAll(Map<? extends String, ? extends Integer> map) {
+        throw new UnsupportedOperationException("Front coded dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#add(java.lang.String)
+     */
+    @Override
+    public void add(String part) {
+        throw new UnsupportedOperationException("Front coded dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#add(java.lang.String, java.lang.Integer)
+     */
+    @Override
+    protected void add(String term, Integer id) {
+        throw new UnsupportedOperationException("Front coded dictionary is immutable");
+    }
+    
+    /**
+     * @return the size of the front coded terms in bytes
+     */
+    public int getDataLength() {
+        return data.length;
+    }
+    
+    /**
+     * A growable byte array used to build the front coded blocks
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static final class ByteArray {
+        
+        private byte [] bytes;
+        
+        private int count;
+        
+        ByteArray(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+        
+        private void ensureCapacity(int extra) {
+            
+            if((count + extra) > bytes.length) {
+                
+                long capacity = Math.max(((long) bytes.length) << 1, ((long) count) + extra);
+                
+                if(capacity > Integer.MAX_VALUE - 8) {
+                    capacity = Integer.MAX_VALUE - 8;
+                    
+                    if((count + extra) > capacity) {
+                        throw new IllegalArgumentException("Dictionary is too large to be front coded");
+                    }
+                }
+                
+                bytes = Arrays.copyOf(bytes, (int) capacity);
+            }
+        }
+        
+        void writeVarInt(int value) {
+            this.ensureCapacity(5);
+            while((value & ~0x7F) != 0) {
+                bytes[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[count++] = (byte) value;
+        }
+        
+        void writeChar(char c) {
+            this.ensureCapacity(3);
+            if(c < 0x80) {
+                bytes[count++] = (byte) c;
+                
+            } else if(c < 0x800) {
+                bytes[count++] = (byte) (0xC0 | (c >> 6));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+                
+            } else {
+                bytes[count++] = (byte) (0xE0 | (c >> 12));
+                bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        
+        byte [] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+    }
+
+}
@@ -20,6 +20,8 @@
 
 package io.ecarf.core.term.dictionary;
 
+import io.ecarf.core.term.CharWindow;
+
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.Map;
@@ -59,6 +61,15 @@ public class TermDictionaryGuava extends TermDictionary implements Serializable
         return this.dictionary.get(key);
     }
 
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+        
+        return this.dictionary.get(window);
+    }
+
 
     @Override
     public String get(Integer value) {
@@ -0,0 +1,606 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.term.dictionary;
+
+import io.ecarf.core.term.CharWindow;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * An immutable dictionary that lives outside the Java heap in a memory mapped file. Rather than
+ * de-serializing millions of boxed map entries the file is mapped with {@link FileChannel#map}
+ * and lookups read straight from the OS page cache, so loading takes milliseconds and a single
+ * instance can be shared by all the processing threads without any locking.
+ *
+ * The file layout (big endian) is:
+ * <pre>
+ * header   - magic, version, size, largest resource id, slot count, max id,
+ *            slots offset, ids offset, data offset, file length
+ * slots    - open addressing hash table of longs, (hash << 32) | (id + 1), 0 for an empty slot
+ * ids      - one long per id from 0 to max id, the file offset of the term record or -1
+ * data     - term records, an int length followed by the term chars
+ * </pre>
+ * Each char of a term is encoded on its own using 1 to 3 bytes (the CESU-8 flavour of UTF-8)
+ * so that terms can be compared char by char against a key without decoding them first.
+ * The file is mapped in chunks of 1GB, the writer makes sure that no value or record crosses
+ * a chunk boundary.
+ *
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class TermDictionaryMapped extends TermDictionary {
+
+    private static final long serialVersionUID = -4395462264432146575L;
+
+    private final static Log log = LogFactory.getLog(TermDictionaryMapped.class);
+
+    public static final int MAGIC = 0x45434446;
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int CHUNK_BITS = 30;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final long NO_OFFSET = -1L;
+
+    private final String file;
+
+    private transient MappedByteBuffer[] chunks;
+
+    private transient int size;
+
+    private transient int slotMask;
+
+    private transient int maxId;
+
+    private transient long slotsOffset;
+
+    private transient long idsOffset;
+
+    /**
+     * Map the provided dictionary file, use {@link TermDictionaryMapped#fromFile(String)}
+     * @param file
+     * @throws IOException
+     */
+    private TermDictionaryMapped(String file) throws IOException {
+        this.file = file;
+        this.map();
+    }
+
+    /**
+     * Memory map the dictionary file and read the header
+     * @throws IOException
+     */
+    private void map() throws IOException {
+
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+
+            long length = channel.size();
+
+            if(length < HEADER_SIZE) {
+                throw new IOException("Invalid mapped dictionary file: " + file);
+            }
+
+            int numChunks = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+            this.chunks = new MappedByteBuffer[numChunks];
+
+            for(int i = 0; i < numChunks; i++) {
+                long position = ((long) i) << CHUNK_BITS;
+                this.chunks[i] = channel.map(MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, length - position));
+            }
+
+            MappedByteBuffer header = this.chunks[0];
+
+            if((header.getInt(0) != MAGIC) || (header.getInt(4) != VERSION)) {
+                throw new IOException("Invalid mapped dictionary file or version: " + file);
+            }
+
+            this.size = header.getInt(8);
+            this.setLargestResourceId(header.getInt(12));
+            this.slotMask = header.getInt(16) - 1;
+            this.maxId = header.getInt(20);
+            this.slotsOffset = header.getLong(24);
+            this.idsOffset = header.getLong(32);
+
+            if(header.getLong(48) != length) {
+                throw new IOException("Truncated mapped dictionary file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Re-map the file when de-serialized
+     * @return
+     * @throws ObjectStreamException
+     */
+    private Object readResolve() throws ObjectStreamException {
+        try {
+            this.map();
+
+        } catch (IOException e) {
+            log.error("Failed to map dictionary file: " + file, e);
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Map an existing dictionary file
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static TermDictionaryMapped fromFile(String file) throws IOException {
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        TermDictionaryMapped dictionary = new TermDictionaryMapped(file);
+
+        log.debug("TIMER# mapped dictionary from file: " + file + ", in: " + stopwatch);
+
+        return dictionary;
+    }
+
+    /**
+     * Write the entries of a dictionary to a file that can be memory mapped
+     * @param dictionary
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static String toFile(TermDictionaryCore dictionary, String file) throws IOException {
+        return toFile(dictionary.getDictionary(), dictionary.getLargestResourceId(), file);
+    }
+
+    /**
+     * Write the provided term to id mappings to a file that can be memory mapped
+     * @param entries
+     * @param largestResourceId
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static String toFile(Map<String, Integer> entries, int largestResourceId, String file) throws IOException {
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        int size = entries.size();
+
+        // keep the load factor at or below 0.5
+        int slotCount = Integer.highestOneBit(Math.max(size, 1)) << 2;
+
+        if(slotCount <= 0) {
+            throw new IllegalArgumentException("Dictionary is too large to be mapped: " + size);
+        }
+
+        int slotMask = slotCount - 1;
+
+        int maxId = -1;
+        for(Integer id: entries.values()) {
+            if(id < 0 || id == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid dictionary id: " + id);
+            }
+            maxId = Math.max(maxId, id);
+        }
+
+        long slotsOffset = HEADER_SIZE;
+        long idsOffset = slotsOffset + (((long) slotCount) << 3);
+        long dataOffset = idsOffset + (((long) maxId + 1) << 3);
+
+        long[] slots = new long[slotCount];
+        long[] offsets = new long[maxId + 1];
+
+        for(int i = 0; i < offsets.length; i++) {
+            offsets[i] = NO_OFFSET;
+        }
+
+        // first pass, work out the record offsets and fill the hash table
+        long position = dataOffset;
+
+        for(Entry<String, Integer> entry: entries.entrySet()) {
+
+            String term = entry.getKey();
+            int id = entry.getValue();
+
+            int length = encodedLength(term, 0, term.length());
+
+            position = align(position, length + 4);
+
+            offsets[id] = position;
+            position += length + 4;
+
+            int hash = term.hashCode();
+            int slot = mix(hash) & slotMask;
+
+            while(slots[slot] != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+
+            slots[slot] = (((long) hash) << 32) | ((id + 1) & 0xFFFFFFFFL);
+        }
+
+        long length = position;
+
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024))) {
+
+            // header
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(largestResourceId);
+            out.writeInt(slotCount);
+            out.writeInt(maxId);
+            out.writeLong(slotsOffset);
+            out.writeLong(idsOffset);
+            out.writeLong(dataOffset);
+            out.writeLong(length);
+
+            for(int i = out.size(); i < HEADER_SIZE; i++) {
+                out.write(0);
+            }
+
+            for(long slot: slots) {
+                out.writeLong(slot);
+            }
+            slots = null;
+
+            for(long offset: offsets) {
+                out.writeLong(offset);
+            }
+
+            // second pass, write the records, the iteration order is the same as the first pass
+            position = dataOffset;
+
+            for(String term: entries.keySet()) {
+
+                int termLength = encodedLength(term, 0, term.length());
+                long aligned = align(position, termLength + 4);
+
+                for(; position < aligned; position++) {
+                    out.write(0);
+                }
+
+                out.writeInt(termLength);
+
+                for(int i = 0; i < term.length(); i++) {
+                    writeChar(out, term.charAt(i));
+                }
+
+                position += termLength + 4;
+            }
+        }
+
+        log.debug("TIMER# written mapped dictionary file: " + file + ", size: " + size +
+                ", bytes: " + length + ", in: " + stopwatch);
+
+        return file;
+    }
+
+    /**
+     * Return a position at which a record of the provided length doesn't cross a chunk boundary
+     * @param position
+     * @param length
+     * @return
+     */
+    private static long align(long position, int length) {
+
+        if(length > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Term is too large to be mapped: " + length);
+        }
+
+        if((position >>> CHUNK_BITS) != ((position + length - 1) >>> CHUNK_BITS)) {
+            position = ((position >>> CHUNK_BITS) + 1) << CHUNK_BITS;
+        }
+        return position;
+    }
+
+    /**
+     * Spread the bits of the String hash code, to avoid clustering of the open addressing table
+     * @param hash
+     * @return
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The number of bytes needed to encode the provided chars
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private static int encodedLength(CharSequence chars, int start, int end) {
+        int length = 0;
+        for(int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            length += (c < 0x80) ? 1 : ((c < 0x800) ? 2 : 3);
+        }
+        return length;
+    }
+
+    /**
+     * Write a single char using 1, 2 or 3 bytes
+     * @param out
+     * @param c
+     * @throws IOException
+     */
+    private static void writeChar(DataOutputStream out, char c) throws IOException {
+        if(c < 0x80) {
+            out.write(c);
+
+        } else if(c < 0x800) {
+            out.write(0xC0 | (c >> 6));
+            out.write(0x80 | (c & 0x3F));
+
+        } else {
+            out.write(0xE0 | (c >> 12));
+            out.write(0x80 | ((c >> 6) & 0x3F));
+            out.write(0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Read a long that lives at the provided file position
+     * @param position
+     * @return
+     */
+    private long getLong(long position) {
+        return this.chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Lookup the id of the provided chars, the String hash code of the chars must be provided
+     * @param chars
+     * @param start
+     * @param end
+     * @param hash
+     * @return the id or -1 if not found
+     */
+    protected int lookup(CharSequence chars, int start, int end, int hash) {
+
+        int slot = mix(hash) & slotMask;
+
+        long entry;
+
+        while((entry = this.getLong(slotsOffset + (((long) slot) << 3))) != 0) {
+
+            if((int) (entry >>> 32) == hash) {
+
+                int id = ((int) entry) - 1;
+
+                if(this.matches(id, chars, start, end)) {
+                    return id;
+                }
+            }
+
+            slot = (slot + 1) & slotMask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Compare the term stored for the provided id with the provided chars
+     * @param id
+     * @param chars
+     * @param start
+     * @param end
+     * @return
+     */
+    private boolean matches(int id, CharSequence chars, int start, int end) {
+
+        long offset = this.getLong(idsOffset + (((long) id) << 3));
+
+        MappedByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_BITS)];
+        int index = (int) (offset & CHUNK_MASK);
+        int limit = index + 4 + chunk.getInt(index);
+        index += 4;
+
+        int i = start;
+
+        while(index < limit) {
+
+            if(i == end) {
+                return false;
+            }
+
+            int b = chunk.get(index++) & 0xFF;
+            char c;
+
+            if(b < 0x80) {
+                c = (char) b;
+
+            } else if(b < 0xE0) {
+                c = (char) (((b & 0x1F) << 6) | (chunk.get(index++) & 0x3F));
+
+            } else {
+                c = (char) (((b & 0x0F) << 12) | ((chunk.get(index++) & 0x3F) << 6) | (chunk.get(index++) & 0x3F));
+            }
+
+            if(c != chars.charAt(i++)) {
+                return false;
+            }
+        }
+
+        return i == end;
+    }
+
+    /**
+     * Decode the term stored for the provided id
+     * @param id
+     * @return the term or null if no term is stored for this id
+     */
+    private String term(int id) {
+
+        if(id < 0 || id > maxId) {
+            return null;
+        }
+
+        long offset = this.getLong(idsOffset + (((long) id) << 3));
+
+        if(offset == NO_OFFSET) {
+            return null;
+        }
+
+        MappedByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_BITS)];
+        int index = (int) (offset & CHUNK_MASK);
+        int length = chunk.getInt(index);
+        int limit = index + 4 + length;
+        index += 4;
+
+        char[] chars = new char[length];
+        int count = 0;
+
+        while(index < limit) {
+
+            int b = chunk.get(index++) & 0xFF;
+
+            if(b < 0x80) {
+                chars[count++] = (char) b;
+
+            } else if(b < 0xE0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (chunk.get(index++) & 0x3F));
+
+            } else {
+                chars[count++] = (char) (((b & 0x0F) << 12) |
+                        ((chunk.get(index++) & 0x3F) << 6) | (chunk.get(index++) & 0x3F));
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(java.lang.String)
+     */
+    @Override
+    public Integer get(String key) {
+
+        int id = this.lookup(key, 0, key.length(), key.hashCode());
+
+        return (id == -1) ? null : id;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(io.ecarf.core.term.CharWindow)
+     */
+    @Override
+    public Integer get(CharWindow window) {
+
+        int id = this.lookup(window.getChars(), window.getStart(), window.getEnd(), window.hashCode());
+
+        return (id == -1) ? null : id;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#get(java.lang.Integer)
+     */
+    @Override
+    public String get(Integer value) {
+
+        return this.term(value);
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#size()
+     */
+    @Override
+    public int size() {
+
+        return this.size;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#put(java.lang.String, java.lang.Integer)
+     */
+    @Override
+    public void put(String key, Integer value) {
+        throw new UnsupportedOperationException("Mapped dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#containsKey(java.lang.String)
+     */
+    @Override
+    public boolean containsKey(String key) {
+
+        return this.lookup(key, 0, key.length(), key.hashCode()) != -1;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#putAll(java.util.Map)
+     */
+    @Override
+    protected void putAll(Map<? extends String, ? extends Integer> map) {
+        throw new UnsupportedOperationException("Mapped dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#add(java.lang.String)
+     */
+    @Override
+    public void add(String part) {
+        throw new UnsupportedOperationException("Mapped dictionary is immutable");
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.term.dictionary.TermDictionary#add(java.lang.String, java.lang.Integer)
+     */
+    @Override
+    protected void add(String term, Integer id) {
+        throw new UnsupportedOperationException("Mapped dictionary is immutable");
+    }
+
+    /**
+     * @return the file
+     */
+    public String getFile() {
+        return file;
+    }
+
+}
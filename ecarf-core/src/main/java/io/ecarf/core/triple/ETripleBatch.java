@@ -0,0 +1,172 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import java.util.Arrays;
+
+/**
+ * An in memory batch of encoded triples, e.g. a page of query results, read with the same cursor as the 
+ * encoded triple files.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleBatch implements ETripleReader {
+    
+    private long[] subjects;
+    
+    private long[] predicates;
+    
+    private long[] objects;
+    
+    private String[] literals;
+    
+    private int size;
+    
+    private int row = -1;
+
+    /**
+     * @param capacity - the expected number of triples
+     */
+    public ETripleBatch(int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.subjects = new long[capacity];
+        this.predicates = new long[capacity];
+        this.objects = new long[capacity];
+        this.literals = new String[capacity];
+    }
+    
+    /**
+     * Add a triple with a resource object
+     * @param subject
+     * @param predicate
+     * @param object - must not be negative
+     */
+    public void add(long subject, long predicate, long object) {
+        this.add(subject, predicate, object, null);
+    }
+    
+    /**
+     * Add a triple with a literal object
+     * @param subject
+     * @param predicate
+     * @param literal - null or blank for an empty literal
+     */
+    public void addLiteral(long subject, long predicate, String literal) {
+        this.add(subject, predicate, -1, ((literal == null) || literal.trim().isEmpty()) ? null : literal);
+    }
+    
+    private void add(long subject, long predicate, long object, String literal) {
+        
+        if(size == subjects.length) {
+            int capacity = size << 1;
+            subjects = Arrays.copyOf(subjects, capacity);
+            predicates = Arrays.copyOf(predicates, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+            literals = Arrays.copyOf(literals, capacity);
+        }
+        
+        subjects[size] = subject;
+        predicates[size] = predicate;
+        objects[size] = object;
+        literals[size] = literal;
+        size++;
+    }
+    
+    /**
+     * @return the number of triples in this batch
+     */
+    public int size() {
+        return size;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#next()
+     */
+    @Override
+    public boolean next() {
+        
+        if(row + 1 < size) {
+            row++;
+            return true;
+        }
+        
+        row = size;
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getSubject()
+     */
+    @Override
+    public long getSubject() {
+        return subjects[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getPredicate()
+     */
+    @Override
+    public long getPredicate() {
+        return predicates[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getObject()
+     */
+    @Override
+    public long getObject() {
+        return objects[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#hasObject()
+     */
+    @Override
+    public boolean hasObject() {
+        return objects[row] >= 0;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getLiteral()
+     */
+    @Override
+    public String getLiteral() {
+        return literals[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getTriple()
+     */
+    @Override
+    public ETriple getTriple() {
+        return new ETriple(subjects[row], predicates[row], this.hasObject() ? objects[row] : null, literals[row]);
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+}
@@ -0,0 +1,351 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the encoded triples written by {@link ETripleBinaryWriter}, one block is decoded at a time into primitive 
+ * columns. If the file is sorted by subject the block index is used to {@link #seek(long)} to a subject.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleBinaryReader implements ETripleReader {
+    
+    private final RandomAccessFile file;
+    
+    private final boolean sorted;
+    
+    private final long size;
+    
+    private final long[] blockOffsets;
+    
+    private final int[] blockCounts;
+    
+    private final long[] firstSubjects;
+    
+    private int nextBlock;
+    
+    private byte[] block = new byte[64 * 1024];
+    
+    private int position;
+    
+    private long[] subjects = new long[0];
+    
+    private long[] predicates = new long[0];
+    
+    private long[] objects = new long[0];
+    
+    private String[] literals = new String[0];
+    
+    private int blockSize;
+    
+    private int row = -1;
+
+    /**
+     * @param filename - a file written by {@link ETripleBinaryWriter}
+     * @throws IOException if the file can't be read or is not a complete encoded triples file
+     */
+    public ETripleBinaryReader(String filename) throws IOException {
+        
+        this.file = new RandomAccessFile(filename, "r");
+        
+        try {
+            
+            long length = file.length();
+            
+            if((length < 6 + ETripleBinaryWriter.FOOTER_BYTES) || (file.readInt() != ETripleBinaryWriter.MAGIC)) {
+                throw new IOException("Not an encoded triples file: " + filename);
+            }
+            
+            int version = file.readByte();
+            
+            if(version != ETripleBinaryWriter.VERSION) {
+                throw new IOException("Unsupported encoded triples file version: " + version + ", file: " + filename);
+            }
+            
+            this.sorted = (file.readByte() & ETripleBinaryWriter.FLAG_SORTED) != 0;
+            
+            file.seek(length - ETripleBinaryWriter.FOOTER_BYTES);
+            
+            long indexOffset = file.readLong();
+            this.size = file.readLong();
+            
+            if((file.readInt() != ETripleBinaryWriter.MAGIC) || (indexOffset < 6) || 
+                    (indexOffset > length - ETripleBinaryWriter.FOOTER_BYTES)) {
+                throw new IOException("Incomplete encoded triples file: " + filename);
+            }
+            
+            this.read(indexOffset, (int) (length - ETripleBinaryWriter.FOOTER_BYTES - indexOffset));
+            
+            int numBlocks = (int) this.getVarint();
+            
+            this.blockOffsets = new long[numBlocks];
+            this.blockCounts = new int[numBlocks];
+            this.firstSubjects = new long[numBlocks];
+            
+            for(int i = 0; i < numBlocks; i++) {
+                blockOffsets[i] = this.getVarint();
+                blockCounts[i] = (int) this.getVarint();
+                firstSubjects[i] = this.getZigzag();
+            }
+            
+        } catch(IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Read the provided number of bytes into the block buffer
+     */
+    private void read(long offset, int bytes) throws IOException {
+        
+        if(bytes > block.length) {
+            block = new byte[Math.max(bytes, block.length << 1)];
+        }
+        
+        file.seek(offset);
+        file.readFully(block, 0, bytes);
+        position = 0;
+    }
+    
+    /**
+     * Read and decode a block
+     * @param index
+     * @throws IOException
+     */
+    private void readBlock(int index) throws IOException {
+        
+        // the count and the number of bytes, 20 bytes at most
+        this.read(blockOffsets[index], (int) Math.min(20, file.length() - blockOffsets[index]));
+        
+        int count = (int) this.getVarint();
+        int bytes = (int) this.getVarint();
+        
+        this.read(blockOffsets[index] + position, bytes);
+        
+        if(count > subjects.length) {
+            subjects = new long[count];
+            predicates = new long[count];
+            objects = new long[count];
+            literals = new String[count];
+        }
+        
+        this.getColumn(subjects, count);
+        this.getColumn(predicates, count);
+        this.getColumn(objects, count);
+        
+        for(int i = 0; i < count; i++) {
+            
+            literals[i] = null;
+            
+            if(objects[i] < 0) {
+                
+                int length = (int) this.getVarint();
+                
+                if(length > 0) {
+                    literals[i] = new String(block, position, length - 1, StandardCharsets.UTF_8);
+                    position += length - 1;
+                }
+            }
+        }
+        
+        blockSize = count;
+        row = -1;
+    }
+    
+    private void getColumn(long[] values, int count) {
+        
+        long value = 0;
+        
+        for(int i = 0; i < count; i++) {
+            value += this.getZigzag();
+            values[i] = value;
+        }
+    }
+    
+    private long getZigzag() {
+        long value = this.getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private long getVarint() {
+        
+        long value = 0;
+        int shift = 0;
+        byte b;
+        
+        do {
+            b = block[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            
+        } while(b < 0);
+        
+        return value;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#next()
+     */
+    @Override
+    public boolean next() throws IOException {
+        
+        if(row + 1 < blockSize) {
+            row++;
+            return true;
+        }
+        
+        while(nextBlock < blockOffsets.length) {
+            
+            this.readBlock(nextBlock++);
+            
+            if(blockSize > 0) {
+                row = 0;
+                return true;
+            }
+        }
+        
+        row = blockSize;
+        
+        return false;
+    }
+    
+    /**
+     * Position this reader so the next call to {@link #next()} moves to the first triple with a subject 
+     * greater than or equal to the provided subject
+     * @param subject
+     * @throws IOException
+     * @throws IllegalStateException if the file is not sorted by subject
+     */
+    public void seek(long subject) throws IOException {
+        
+        if(!sorted) {
+            throw new IllegalStateException("Only files sorted by subject can be searched");
+        }
+        
+        // the last block that starts before the subject, the triples of a subject can span blocks
+        int low = 0;
+        int high = firstSubjects.length - 1;
+        int start = 0;
+        
+        while(low <= high) {
+            
+            int mid = (low + high) >>> 1;
+            
+            if(firstSubjects[mid] < subject) {
+                start = mid;
+                low = mid + 1;
+                
+            } else {
+                high = mid - 1;
+            }
+        }
+        
+        nextBlock = start;
+        blockSize = 0;
+        row = -1;
+        
+        while(this.next()) {
+            
+            if(subjects[row] >= subject) {
+                row--;
+                return;
+            }
+        }
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getSubject()
+     */
+    @Override
+    public long getSubject() {
+        return subjects[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getPredicate()
+     */
+    @Override
+    public long getPredicate() {
+        return predicates[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getObject()
+     */
+    @Override
+    public long getObject() {
+        return this.hasObject() ? objects[row] : -1;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#hasObject()
+     */
+    @Override
+    public boolean hasObject() {
+        return objects[row] >= 0;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getLiteral()
+     */
+    @Override
+    public String getLiteral() {
+        return literals[row];
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getTriple()
+     */
+    @Override
+    public ETriple getTriple() {
+        return new ETriple(this.getSubject(), this.getPredicate(), this.hasObject() ? objects[row] : null, 
+                this.getLiteral());
+    }
+    
+    /**
+     * @return the number of triples in the file
+     */
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * @return true if the triples in the file are sorted by subject
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
@@ -0,0 +1,375 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Writes encoded triples to a binary file, which is much cheaper to write and read than compressed CSV when both 
+ * ends of a local hop are ECARF code. CSV is still needed for the files loaded into BigQuery, see 
+ * {@link TripleUtils#convertToCsv(String, String)}.
+ * 
+ * The triples are written in blocks, each block stores the subject, predicate and object columns one after the 
+ * other as zigzag varints of the difference from the previous value in the column, followed by the literals of 
+ * the triples with a negative object. Sorted subjects and repeated predicates mostly take one byte each.
+ * 
+ * <pre>
+ * header - int magic, byte version, byte flags (1 if sorted by subject)
+ * blocks - varint number of triples, varint number of bytes, the columns
+ * index  - varint number of blocks and for each block: varint offset, varint number of triples, 
+ *          zigzag varint first subject
+ * footer - long index offset, long number of triples, int magic
+ * </pre>
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleBinaryWriter implements ETripleWriter {
+    
+    static final int MAGIC = 0x45544246;
+    
+    static final int VERSION = 1;
+    
+    static final int FLAG_SORTED = 1;
+    
+    static final int FOOTER_BYTES = 20;
+    
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    
+    private final OutputStream out;
+    
+    private final boolean sorted;
+    
+    private final long[] subjects;
+    
+    private final long[] predicates;
+    
+    private final long[] objects;
+    
+    private final byte[][] literals;
+    
+    private int size;
+    
+    private byte[] block = new byte[64 * 1024];
+    
+    private int length;
+    
+    private long position;
+    
+    // the index
+    private long[] blockOffsets = new long[16];
+    
+    private int[] blockCounts = new int[16];
+    
+    private long[] firstSubjects = new long[16];
+    
+    private int numBlocks;
+    
+    private String literal;
+    
+    private byte[] literalBytes;
+    
+    private long lastSubject;
+    
+    private int count;
+    
+    private IOException error;
+    
+    private boolean closed;
+
+    /**
+     * @param outFile - the file to write to
+     * @throws IOException
+     */
+    public ETripleBinaryWriter(String outFile) throws IOException {
+        this(outFile, false, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * @param outFile - the file to write to
+     * @param sorted - true if the triples will be added in subject order, which allows the reader to seek
+     * @throws IOException
+     */
+    public ETripleBinaryWriter(String outFile, boolean sorted) throws IOException {
+        this(outFile, sorted, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * @param outFile - the file to write to
+     * @param sorted - true if the triples will be added in subject order, which allows the reader to seek
+     * @param blockSize - the number of triples per block
+     * @throws IOException
+     */
+    public ETripleBinaryWriter(String outFile, boolean sorted, int blockSize) throws IOException {
+        
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        
+        this.sorted = sorted;
+        this.subjects = new long[blockSize];
+        this.predicates = new long[blockSize];
+        this.objects = new long[blockSize];
+        this.literals = new byte[blockSize][];
+        
+        this.out = new BufferedOutputStream(new FileOutputStream(outFile), 64 * 1024);
+        
+        this.putInt(MAGIC);
+        this.put(VERSION);
+        this.put(sorted ? FLAG_SORTED : 0);
+        this.writeBlockBytes();
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleWriter#setLiteral(java.lang.String)
+     */
+    @Override
+    public void setLiteral(String literal) {
+        if(literal != this.literal) {
+            this.literal = literal;
+            this.literalBytes = null;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.utils.LongTripleSink#add(long, long, long)
+     */
+    @Override
+    public void add(long subject, long predicate, long object) {
+        
+        if(sorted && (count > 0) && (subject < lastSubject)) {
+            throw new IllegalArgumentException("Subjects must be added in order, " + subject + " after " + lastSubject);
+        }
+        
+        lastSubject = subject;
+        
+        subjects[size] = subject;
+        predicates[size] = predicate;
+        objects[size] = object;
+        
+        if(object < 0) {
+            
+            if((literalBytes == null) && StringUtils.isNotBlank(literal)) {
+                literalBytes = literal.getBytes(StandardCharsets.UTF_8);
+            }
+            literals[size] = literalBytes;
+        }
+        
+        size++;
+        count++;
+        
+        if(size == subjects.length) {
+            this.flushBlock();
+        }
+    }
+    
+    /**
+     * Encode the buffered triples as a block and write it
+     */
+    private void flushBlock() {
+        
+        if(size == 0) {
+            return;
+        }
+        
+        if(numBlocks == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, numBlocks << 1);
+            blockCounts = Arrays.copyOf(blockCounts, numBlocks << 1);
+            firstSubjects = Arrays.copyOf(firstSubjects, numBlocks << 1);
+        }
+        
+        blockOffsets[numBlocks] = position;
+        blockCounts[numBlocks] = size;
+        firstSubjects[numBlocks] = subjects[0];
+        numBlocks++;
+        
+        length = 0;
+        this.putColumn(subjects);
+        this.putColumn(predicates);
+        this.putColumn(objects);
+        
+        for(int i = 0; i < size; i++) {
+            
+            if(objects[i] < 0) {
+                
+                byte[] bytes = literals[i];
+                
+                if(bytes == null) {
+                    this.putVarint(0);
+                    
+                } else {
+                    this.putVarint(bytes.length + 1);
+                    this.ensureCapacity(bytes.length);
+                    System.arraycopy(bytes, 0, block, length, bytes.length);
+                    length += bytes.length;
+                }
+                
+                literals[i] = null;
+            }
+        }
+        
+        int bytes = length;
+        
+        // the block header is put after the columns but written before them
+        this.putVarint(size);
+        this.putVarint(bytes);
+        
+        if(error == null) {
+            try {
+                out.write(block, bytes, length - bytes);
+                out.write(block, 0, bytes);
+                
+            } catch(IOException e) {
+                error = e;
+            }
+        }
+        
+        position += length;
+        length = 0;
+        size = 0;
+    }
+    
+    private void putColumn(long[] values) {
+        
+        long previous = 0;
+        
+        for(int i = 0; i < size; i++) {
+            long value = values[i];
+            long delta = value - previous;
+            this.putVarint((delta << 1) ^ (delta >> 63));
+            previous = value;
+        }
+    }
+    
+    private void putVarint(long value) {
+        
+        this.ensureCapacity(10);
+        
+        while((value & ~0x7FL) != 0) {
+            block[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[length++] = (byte) value;
+    }
+    
+    private void putInt(int value) {
+        this.put(value >>> 24);
+        this.put(value >>> 16);
+        this.put(value >>> 8);
+        this.put(value);
+    }
+    
+    private void putLong(long value) {
+        this.putInt((int) (value >>> 32));
+        this.putInt((int) value);
+    }
+    
+    private void put(int value) {
+        this.ensureCapacity(1);
+        block[length++] = (byte) value;
+    }
+    
+    private void ensureCapacity(int bytes) {
+        if(length + bytes > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length << 1, length + bytes));
+        }
+    }
+    
+    /**
+     * Write the bytes put so far, used for the header and the index where the block buffer is free
+     */
+    private void writeBlockBytes() throws IOException {
+        out.write(block, 0, length);
+        position += length;
+        length = 0;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleWriter#getCount()
+     */
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Write the remaining triples, the index and the footer
+     */
+    @Override
+    public void close() throws IOException {
+        
+        if(closed) {
+            return;
+        }
+        
+        closed = true;
+        
+        this.flushBlock();
+        
+        try {
+            
+            if(error == null) {
+                
+                long indexOffset = position;
+                
+                this.putVarint(numBlocks);
+                
+                for(int i = 0; i < numBlocks; i++) {
+                    this.putVarint(blockOffsets[i]);
+                    this.putVarint(blockCounts[i]);
+                    this.putVarint((firstSubjects[i] << 1) ^ (firstSubjects[i] >> 63));
+                }
+                
+                this.putLong(indexOffset);
+                this.putLong(count);
+                this.putInt(MAGIC);
+                
+                this.writeBlockBytes();
+            }
+            
+        } catch(IOException e) {
+            error = e;
+            
+        } finally {
+            
+            try {
+                out.close();
+                
+            } catch(IOException e) {
+                if(error == null) {
+                    error = e;
+                }
+            }
+        }
+        
+        if(error != null) {
+            throw error;
+        }
+    }
+
+}
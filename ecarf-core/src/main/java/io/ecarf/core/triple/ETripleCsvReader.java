@@ -0,0 +1,340 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import io.ecarf.core.utils.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads encoded triples from CSV files with the subject,predicate,object[,literal] columns, e.g. the query results 
+ * exported from BigQuery and the files written by {@link ETripleCsvWriter}. The ids are parsed straight from the 
+ * bytes into the primitive fields of this reader, which acts as a cursor moved by {@link #next()}. Only the 
+ * literal column is decoded with the CSV quoting rules and creates a String.
+ * 
+ * Empty lines are ignored like {@link org.apache.commons.csv.CSVFormat#DEFAULT}, extra columns after the literal
+ * are skipped.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleCsvReader implements ETripleReader {
+    
+    private static final int EOF = -1;
+    
+    private final InputStream in;
+    
+    private final byte[] buffer = new byte[64 * 1024];
+    
+    private int position;
+    
+    private int limit;
+    
+    private boolean header;
+    
+    // the bytes of the literal column
+    private byte[] field = new byte[256];
+    
+    // the character that ended the last column
+    private int delimiter;
+    
+    private long number;
+    
+    private long line;
+    
+    private long subject;
+    
+    private long predicate;
+    
+    private long object;
+    
+    private String literal;
+
+    /**
+     * @param in - the stream to read, closed when this reader is closed
+     * @param header - true if the first line is a header row to ignore
+     */
+    public ETripleCsvReader(InputStream in, boolean header) {
+        this.in = in;
+        this.header = header;
+    }
+    
+    /**
+     * @param file - the CSV file
+     * @param compressed - true if the file is gzip compressed
+     * @param header - true if the first line is a header row to ignore
+     * @throws IOException
+     */
+    public ETripleCsvReader(String file, boolean compressed, boolean header) throws IOException {
+        this(compressed ? new GZIPInputStream(new FileInputStream(file), Constants.GZIP_BUF_SIZE) : 
+            new BufferedInputStream(new FileInputStream(file), Constants.GZIP_BUF_SIZE), header);
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#next()
+     */
+    @Override
+    public boolean next() throws IOException {
+        
+        int c = this.read();
+        
+        if(header) {
+            header = false;
+            
+            while((c != '\n') && (c != EOF)) {
+                c = this.read();
+            }
+            line++;
+        }
+        
+        while((c == '\n') || (c == '\r')) {
+            
+            if(c == '\n') {
+                line++;
+            }
+            c = this.read();
+        }
+        
+        if(c == EOF) {
+            return false;
+        }
+        
+        line++;
+        
+        if(!this.readNumber(c) || (delimiter != ',')) {
+            throw this.invalid();
+        }
+        subject = number;
+        
+        if(!this.readNumber(this.read()) || (delimiter != ',')) {
+            throw this.invalid();
+        }
+        predicate = number;
+        
+        object = this.readNumber(this.read()) ? number : -1;
+        literal = null;
+        
+        if(delimiter == ',') {
+            
+            literal = this.readLiteral();
+        }
+        
+        // skip any extra columns
+        while((delimiter != '\n') && (delimiter != EOF)) {
+            
+            if(delimiter == ',') {
+                this.readLiteral();
+                
+            } else if(delimiter == '\r') {
+                delimiter = this.read();
+                
+            } else {
+                throw this.invalid();
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Parse a long starting with the provided character, the character after the digits is kept in delimiter
+     * @param c
+     * @return false if the column is empty
+     * @throws IOException
+     */
+    private boolean readNumber(int c) throws IOException {
+        
+        boolean negative = (c == '-');
+        
+        if(negative) {
+            c = this.read();
+        }
+        
+        long value = 0;
+        int digits = 0;
+        
+        while((c >= '0') && (c <= '9')) {
+            value = (value * 10) + (c - '0');
+            digits++;
+            c = this.read();
+        }
+        
+        // more than 19 digits or a wrapped 19 digits value don't fit in a long
+        if((digits > 19) || (value < 0) || (negative && (digits == 0))) {
+            throw this.invalid();
+        }
+        
+        if((c != ',') && (c != '\n') && (c != '\r') && (c != EOF)) {
+            throw this.invalid();
+        }
+        
+        this.delimiter = c;
+        this.number = negative ? -value : value;
+        
+        return digits > 0;
+    }
+    
+    /**
+     * Read a column that may be quoted, quotes inside a quoted column are escaped by doubling them
+     * @return the value or null if the column is blank
+     * @throws IOException
+     */
+    private String readLiteral() throws IOException {
+        
+        int length = 0;
+        int c = this.read();
+        
+        if(c == '"') {
+            
+            while(true) {
+                
+                c = this.read();
+                
+                if(c == EOF) {
+                    throw this.invalid();
+                    
+                } else if(c == '"') {
+                    
+                    c = this.read();
+                    
+                    if(c != '"') {
+                        break;
+                    }
+                    
+                } else if(c == '\n') {
+                    line++;
+                }
+                
+                length = this.append(length, c);
+            }
+            
+            if((c != ',') && (c != '\n') && (c != '\r') && (c != EOF)) {
+                throw this.invalid();
+            }
+            
+        } else {
+            
+            while((c != ',') && (c != '\n') && (c != '\r') && (c != EOF)) {
+                length = this.append(length, c);
+                c = this.read();
+            }
+        }
+        
+        this.delimiter = c;
+        
+        String value = new String(field, 0, length, StandardCharsets.UTF_8);
+        
+        return value.trim().isEmpty() ? null : value;
+    }
+    
+    private int append(int length, int c) {
+        
+        if(length == field.length) {
+            field = Arrays.copyOf(field, length << 1);
+        }
+        field[length] = (byte) c;
+        
+        return length + 1;
+    }
+    
+    private int read() throws IOException {
+        
+        if(position == limit) {
+            
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            
+            if(limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        
+        return buffer[position++] & 0xFF;
+    }
+    
+    private IOException invalid() {
+        return new IOException("Invalid encoded triple at line: " + line);
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getSubject()
+     */
+    @Override
+    public long getSubject() {
+        return subject;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getPredicate()
+     */
+    @Override
+    public long getPredicate() {
+        return predicate;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getObject()
+     */
+    @Override
+    public long getObject() {
+        return object;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#hasObject()
+     */
+    @Override
+    public boolean hasObject() {
+        return object >= 0;
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getLiteral()
+     */
+    @Override
+    public String getLiteral() {
+        return literal;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleReader#getTriple()
+     */
+    @Override
+    public ETriple getTriple() {
+        return new ETriple(subject, predicate, this.hasObject() ? object : null, literal);
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
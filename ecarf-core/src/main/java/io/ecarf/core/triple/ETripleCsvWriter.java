@@ -0,0 +1,213 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import io.ecarf.core.utils.Constants;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Writes encoded triples to a compressed CSV file in the same format as {@link ETriple#toCsv()}. The digits are 
+ * written straight into a reusable char buffer, so writing a triple creates no objects.
+ * 
+ * A negative object stands for the literal set by {@link #setLiteral(String)}. Like a {@link java.io.PrintWriter} 
+ * the add method doesn't throw, the first error is reported when the writer is closed.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleCsvWriter implements ETripleWriter {
+    
+    private final Writer writer;
+    
+    // the output stream is already buffered, this only batches the calls to the writer
+    private final char[] buffer = new char[8 * 1024];
+    
+    private int position;
+    
+    private String literal;
+    
+    private String escapedLiteral;
+    
+    private int count;
+    
+    private IOException error;
+
+    /**
+     * @param outFile - the gzip compressed file to write to
+     * @throws IOException
+     */
+    public ETripleCsvWriter(String outFile) throws IOException {
+        this.writer = new OutputStreamWriter(new BufferedOutputStream(new GZIPOutputStream(
+                new FileOutputStream(outFile), Constants.GZIP_BUF_SIZE), Constants.GZIP_BUF_SIZE), Constants.UTF8);
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleWriter#setLiteral(java.lang.String)
+     */
+    @Override
+    public void setLiteral(String literal) {
+        if(literal != this.literal) {
+            this.literal = literal;
+            this.escapedLiteral = null;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.ecarf.core.utils.LongTripleSink#add(long, long, long)
+     */
+    @Override
+    public void add(long subject, long predicate, long object) {
+        
+        // the longest line without the literal
+        if(position + 64 > buffer.length) {
+            this.flushBuffer();
+        }
+        
+        this.append(subject);
+        buffer[position++] = ',';
+        this.append(predicate);
+        buffer[position++] = ',';
+        
+        if(object >= 0) {
+            this.append(object);
+            buffer[position++] = ',';
+            
+        } else {
+            buffer[position++] = ',';
+            
+            if(StringUtils.isNotBlank(literal)) {
+                
+                if(escapedLiteral == null) {
+                    escapedLiteral = StringEscapeUtils.escapeCsv(literal);
+                }
+                
+                this.append(escapedLiteral);
+            }
+        }
+        
+        buffer[position++] = '\n';
+        count++;
+    }
+    
+    /**
+     * Write the digits of a long, the least significant first from the end
+     * @param value
+     */
+    private void append(long value) {
+        
+        if(value < 0) {
+            this.append(Long.toString(value));
+            return;
+        }
+        
+        int digits = 1;
+        for(long bound = 10; (digits < 19) && (value >= bound); bound *= 10) {
+            digits++;
+        }
+        
+        int end = position + digits;
+        
+        for(int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        
+        position = end;
+    }
+    
+    private void append(String value) {
+        
+        int length = value.length();
+        
+        if(position + length + 1 > buffer.length) {
+            this.flushBuffer();
+            
+            if(length + 1 > buffer.length) {
+                this.write(value);
+                return;
+            }
+        }
+        
+        value.getChars(0, length, buffer, position);
+        position += length;
+    }
+    
+    private void write(String value) {
+        if(error == null) {
+            try {
+                writer.write(value);
+            } catch(IOException e) {
+                error = e;
+            }
+        }
+    }
+    
+    private void flushBuffer() {
+        if((error == null) && (position > 0)) {
+            try {
+                writer.write(buffer, 0, position);
+            } catch(IOException e) {
+                error = e;
+            }
+        }
+        position = 0;
+    }
+    
+    /* (non-Javadoc)
+     * @see io.ecarf.core.triple.ETripleWriter#getCount()
+     */
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        
+        this.flushBuffer();
+        
+        try {
+            writer.close();
+            
+        } catch(IOException e) {
+            if(error == null) {
+                error = e;
+            }
+        }
+        
+        if(error != null) {
+            throw error;
+        }
+    }
+
+}
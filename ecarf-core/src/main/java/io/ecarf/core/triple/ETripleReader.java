@@ -0,0 +1,74 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A cursor over a file of encoded triples, the values of the current triple are kept in primitive fields
+ * so moving to the next triple creates no objects except for literals.
+ * 
+ * @see TripleUtils#openEncodedTriples(String, boolean)
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public interface ETripleReader extends Closeable {
+    
+    /**
+     * Move to the next triple
+     * @return false if there are no more triples
+     * @throws IOException
+     */
+    public boolean next() throws IOException;
+    
+    /**
+     * @return the subject of the current triple
+     */
+    public long getSubject();
+    
+    /**
+     * @return the predicate of the current triple
+     */
+    public long getPredicate();
+    
+    /**
+     * @return the object of the current triple or -1 if the object is a literal
+     */
+    public long getObject();
+    
+    /**
+     * @return true if the object of the current triple is a resource rather than a literal
+     */
+    public boolean hasObject();
+    
+    /**
+     * @return the literal object of the current triple, null if the object is a resource or the literal is blank
+     */
+    public String getLiteral();
+    
+    /**
+     * @return a new triple with the values of the current triple
+     */
+    public ETriple getTriple();
+
+}
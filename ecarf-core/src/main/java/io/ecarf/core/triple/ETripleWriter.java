@@ -0,0 +1,49 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.triple;
+
+import io.ecarf.core.utils.LongTripleSink;
+
+import java.io.Closeable;
+
+/**
+ * Writes encoded triples to a file, a negative object stands for the literal set by {@link #setLiteral(String)}.
+ * The add method doesn't throw, the first error is reported when the writer is closed.
+ * 
+ * @see TripleUtils#createEncodedTriplesWriter(String)
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public interface ETripleWriter extends LongTripleSink, Closeable {
+    
+    /**
+     * Set the literal to write for negative objects
+     * @param literal
+     */
+    public void setLiteral(String literal);
+    
+    /**
+     * @return the number of triples written so far
+     */
+    public int getCount();
+
+}
@@ -7,6 +7,8 @@ import io.ecarf.core.utils.Constants;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -161,9 +163,20 @@ public class TripleUtils {
 	    
 	    List<Triple> triples = new ArrayList<>();
 	    
-	    try (BufferedReader r = new BufferedReader(new FileReader(triplesFile), Constants.GZIP_BUF_SIZE)) {
-
-	        triples.addAll(csvToTriples(r, encoded));
+	    if(encoded) {
+	        
+	        try(ETripleReader reader = openEncodedTriples(triplesFile, false)) {
+	            while(reader.next()) {
+	                triples.add(reader.getTriple());
+	            }
+	        }
+	        
+	    } else {
+	        
+	        try (BufferedReader r = new BufferedReader(new FileReader(triplesFile), Constants.GZIP_BUF_SIZE)) {
+	            
+	            triples.addAll(csvToTriples(r, encoded));
+	        }
 	    }
 	    
 	    return triples;
@@ -195,6 +208,68 @@ public class TripleUtils {
         return triples;
 	}
 	
+	/**
+	 * Open a reader for a file of encoded triples, the binary format or gzip compression are detected from the
+	 * first bytes of the file
+	 * @param triplesFile
+	 * @param header - true if the file is CSV with a header row to ignore
+	 * @return
+	 * @throws IOException
+	 */
+	public static ETripleReader openEncodedTriples(String triplesFile, boolean header) throws IOException {
+	    
+	    int magic = 0;
+	    
+	    try(DataInputStream in = new DataInputStream(new FileInputStream(triplesFile))) {
+	        magic = in.readInt();
+	        
+	    } catch(EOFException e) {
+	        // less than 4 bytes, an empty CSV file
+	    }
+	    
+	    if(magic == ETripleBinaryWriter.MAGIC) {
+	        return new ETripleBinaryReader(triplesFile);
+	    }
+	    
+	    return new ETripleCsvReader(triplesFile, (magic >>> 16) == 0x1f8b, header);
+	}
+	
+	/**
+	 * Create a writer for encoded triples, binary if the file has a {@link Constants#DOT_BIN} extension 
+	 * otherwise compressed CSV
+	 * @param triplesFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static ETripleWriter createEncodedTriplesWriter(String triplesFile) throws IOException {
+	    return triplesFile.endsWith(Constants.DOT_BIN) ? 
+	            new ETripleBinaryWriter(triplesFile) : new ETripleCsvWriter(triplesFile);
+	}
+	
+	/**
+	 * Convert a file of encoded triples to compressed CSV, e.g. before loading a binary file into BigQuery
+	 * @param triplesFile - a binary or CSV encoded triples file
+	 * @param csvFile - the compressed CSV file to create
+	 * @return the number of triples converted
+	 * @throws IOException
+	 */
+	public static int convertToCsv(String triplesFile, String csvFile) throws IOException {
+	    
+	    try(ETripleReader reader = openEncodedTriples(triplesFile, false);
+	        ETripleCsvWriter writer = new ETripleCsvWriter(csvFile)) {
+	        
+	        while(reader.next()) {
+	            
+	            if(!reader.hasObject()) {
+	                writer.setLiteral(reader.getLiteral());
+	            }
+	            writer.add(reader.getSubject(), reader.getPredicate(), reader.getObject());
+	        }
+	        
+	        return writer.getCount();
+	    }
+	}
+	
 	/**
 	 * Populate the provided collection with the loaded triples
 	 * @param triplesFile
@@ -271,23 +346,23 @@ public class TripleUtils {
 	        triples = new HashSet<>();
 	    }
 	    
-		try(Reader reader = new InputStreamReader(new GZIPInputStream(
-				new FileInputStream(triplesFile), Constants.GZIP_BUF_SIZE), Constants.UTF8)) {
-			
-			Iterable<CSVRecord> records = CSVFormat.DEFAULT.parse(reader);
-
-			if(encoded) {
-			    for (CSVRecord record : records) {
-                    triples.add(ETriple.fromCSV(record.values()));
-                }
-			    
-			} else {
-			    
-			    for (CSVRecord record : records) {
-			        triples.add(NTriple.fromCSV(record.values()));
-			    }
-			}
-
+		if(encoded) {
+		    
+		    try(ETripleReader reader = openEncodedTriples(triplesFile, false)) {
+		        while(reader.next()) {
+		            triples.add(reader.getTriple());
+		        }
+		    }
+		    
+		} else {
+		    
+		    try(Reader reader = new InputStreamReader(new GZIPInputStream(
+		            new FileInputStream(triplesFile), Constants.GZIP_BUF_SIZE), Constants.UTF8)) {
+		        
+		        for (CSVRecord record : CSVFormat.DEFAULT.parse(reader)) {
+		            triples.add(NTriple.fromCSV(record.values()));
+		        }
+		    }
 		}
 		
 		return triples;
@@ -0,0 +1,127 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe, fixed size Bloom filter for (long, long) pairs. All the bits of a pair are set within one
+ * 512 bit block (a cache line) so a lookup touches a single block. Bits are set with compare and swap
+ * so concurrent puts never lose an update.
+ *
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class BlockedBloomFilter {
+
+    // 8 longs, 512 bits per block
+    private static final int BLOCK_WORDS_BITS = 3;
+
+    private static final int NUM_HASHES = 7;
+
+    private final AtomicLongArray words;
+
+    private final int blockMask;
+
+    /**
+     * @param bytes - the size of the filter in bytes, rounded down to a power of two number of blocks
+     */
+    public BlockedBloomFilter(long bytes) {
+
+        long blocks = Math.max(bytes >> (BLOCK_WORDS_BITS + 3), 1);
+
+        // AtomicLongArray is indexed by an int
+        blocks = Math.min(Long.highestOneBit(blocks), 1L << (30 - BLOCK_WORDS_BITS));
+
+        this.words = new AtomicLongArray((int) (blocks << BLOCK_WORDS_BITS));
+        this.blockMask = (int) blocks - 1;
+    }
+
+    /**
+     * Add the pair to this filter
+     * @param first
+     * @param second
+     * @return true if any bit has changed, i.e. the pair was definitely not in the filter
+     */
+    public boolean put(long first, long second) {
+
+        long hash = ConcurrentLongPairSet.hash(first, second);
+
+        int base = (((int) (hash >>> 32)) & blockMask) << BLOCK_WORDS_BITS;
+
+        // each 9 bits of the second hash select a word within the block and a bit within the word
+        long hash2 = hash * 0x9E3779B97F4A7C15L;
+
+        boolean changed = false;
+
+        for(int i = 0; i < NUM_HASHES; i++) {
+
+            int bits = (int) (hash2 >>> (i * 9));
+            int index = base + ((bits >>> 6) & 0b111);
+            long mask = 1L << (bits & 0x3F);
+
+            long word;
+            while(((word = words.get(index)) & mask) == 0) {
+                if(words.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Check if the pair might have been added to this filter
+     * @param first
+     * @param second
+     * @return false if the pair was definitely not added, true if it might have been added
+     */
+    public boolean mightContain(long first, long second) {
+
+        long hash = ConcurrentLongPairSet.hash(first, second);
+
+        int base = (((int) (hash >>> 32)) & blockMask) << BLOCK_WORDS_BITS;
+
+        long hash2 = hash * 0x9E3779B97F4A7C15L;
+
+        for(int i = 0; i < NUM_HASHES; i++) {
+
+            int bits = (int) (hash2 >>> (i * 9));
+            int index = base + ((bits >>> 6) & 0b111);
+
+            if((words.get(index) & (1L << (bits & 0x3F))) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the size of this filter in bytes
+     */
+    public long getMemoryUsage() {
+        return ((long) words.length()) << 3;
+    }
+
+}
@@ -0,0 +1,309 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent set of (long, long) pairs, e.g. the (subject, object) of an encoded triple. The pairs are
+ * kept in primitive arrays using open addressing with linear probing, no objects are created per entry.
+ * The set is split into lock striped segments selected by the hash of the pair, each segment resizes
+ * independently so threads adding to different segments don't contend.
+ *
+ * The pair (0, 0) is used to mark empty slots and is tracked separately.
+ *
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ConcurrentLongPairSet {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    /**
+     * Create a set with the default number of segments
+     * @param expectedSize
+     */
+    public ConcurrentLongPairSet(int expectedSize) {
+        this(expectedSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param expectedSize - the expected number of pairs
+     * @param concurrency - the number of segments, rounded up to a power of two
+     */
+    public ConcurrentLongPairSet(int expectedSize, int concurrency) {
+
+        int numSegments = Integer.highestOneBit(Math.max(concurrency - 1, 1) << 1);
+
+        this.segments = new Segment[numSegments];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+
+        int segmentSize = Math.max(expectedSize / numSegments, 16);
+
+        for(int i = 0; i < numSegments; i++) {
+            this.segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * 64 bit mix of the two longs, the high bits select the segment and the low bits the slot
+     * @param first
+     * @param second
+     * @return
+     */
+    static long hash(long first, long second) {
+        long hash = first * 0x9E3779B97F4A7C15L + second;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Select the segment for the provided hash
+     * @param hash
+     * @return
+     */
+    private Segment segment(long hash) {
+        return this.segments.length == 1 ? this.segments[0] : this.segments[(int) (hash >>> 32) >>> segmentShift];
+    }
+
+    /**
+     * Add the pair to this set
+     * @param first
+     * @param second
+     * @return true if the pair was not already in this set
+     */
+    public boolean add(long first, long second) {
+        long hash = hash(first, second);
+        return this.segment(hash).add(first, second, (int) hash);
+    }
+
+    /**
+     * Check if the pair is in this set
+     * @param first
+     * @param second
+     * @return
+     */
+    public boolean contains(long first, long second) {
+        long hash = hash(first, second);
+        return this.segment(hash).contains(first, second, (int) hash);
+    }
+
+    /**
+     * @return the number of pairs in this set
+     */
+    public long size() {
+        long size = 0;
+        for(Segment segment: segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Remove all the pairs from this set, the segments keep their current capacity
+     */
+    public void clear() {
+        for(Segment segment: segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return the approximate number of bytes used by the pair arrays
+     */
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for(Segment segment: segments) {
+            bytes += segment.capacity() * 16L;
+        }
+        return bytes;
+    }
+
+    /**
+     * One lock striped part of the set
+     * @author Omer Dawelbeit (omerio)
+     *
+     */
+    private static final class Segment extends ReentrantLock {
+
+        private static final long serialVersionUID = 6432542376463813563L;
+
+        private long[] firsts;
+
+        private long[] seconds;
+
+        private int size;
+
+        private int threshold;
+
+        private boolean containsZero;
+
+        Segment(int expectedSize) {
+            this.allocate(Integer.highestOneBit((int) (expectedSize / LOAD_FACTOR)) << 1);
+        }
+
+        private void allocate(int capacity) {
+            this.firsts = new long[capacity];
+            this.seconds = new long[capacity];
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        boolean add(long first, long second, int hash) {
+
+            this.lock();
+
+            try {
+
+                if(first == 0 && second == 0) {
+                    if(this.containsZero) {
+                        return false;
+                    }
+                    this.containsZero = true;
+                    this.size++;
+                    return true;
+                }
+
+                int mask = firsts.length - 1;
+                int slot = hash & mask;
+
+                while(firsts[slot] != 0 || seconds[slot] != 0) {
+
+                    if(firsts[slot] == first && seconds[slot] == second) {
+                        return false;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+
+                firsts[slot] = first;
+                seconds[slot] = second;
+
+                if(++size > threshold) {
+                    this.rehash();
+                }
+
+                return true;
+
+            } finally {
+                this.unlock();
+            }
+        }
+
+        boolean contains(long first, long second, int hash) {
+
+            this.lock();
+
+            try {
+
+                if(first == 0 && second == 0) {
+                    return this.containsZero;
+                }
+
+                int mask = firsts.length - 1;
+                int slot = hash & mask;
+
+                while(firsts[slot] != 0 || seconds[slot] != 0) {
+
+                    if(firsts[slot] == first && seconds[slot] == second) {
+                        return true;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+
+                return false;
+
+            } finally {
+                this.unlock();
+            }
+        }
+
+        /**
+         * Double the capacity, must be called while holding the lock
+         */
+        private void rehash() {
+
+            long[] oldFirsts = this.firsts;
+            long[] oldSeconds = this.seconds;
+
+            this.allocate(oldFirsts.length << 1);
+
+            int mask = firsts.length - 1;
+
+            for(int i = 0; i < oldFirsts.length; i++) {
+
+                long first = oldFirsts[i];
+                long second = oldSeconds[i];
+
+                if(first != 0 || second != 0) {
+
+                    int slot = ((int) hash(first, second)) & mask;
+
+                    while(firsts[slot] != 0 || seconds[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+
+                    firsts[slot] = first;
+                    seconds[slot] = second;
+                }
+            }
+        }
+
+        int size() {
+            this.lock();
+            try {
+                return this.size;
+            } finally {
+                this.unlock();
+            }
+        }
+
+        int capacity() {
+            this.lock();
+            try {
+                return this.firsts.length;
+            } finally {
+                this.unlock();
+            }
+        }
+
+        void clear() {
+            this.lock();
+            try {
+                Arrays.fill(firsts, 0);
+                Arrays.fill(seconds, 0);
+                this.size = 0;
+                this.containsZero = false;
+            } finally {
+                this.unlock();
+            }
+        }
+    }
+
+}
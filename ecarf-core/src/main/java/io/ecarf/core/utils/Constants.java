@@ -50,6 +50,9 @@ public class Constants {
 	
 	// Kryo serialized file
 	public static final String DOT_KRYO = ".kryo";
+	
+	// sorted, front coded run of term parts
+	public static final String DOT_RUN = ".run";
 		
 	public static final String NODE_TERMS = "node_terms_";
 	
@@ -59,6 +62,9 @@ public class Constants {
 	
 	public static final String DOT_INF = ".inf";
 	
+	// binary encoded triples
+	public static final String DOT_BIN = ".bin";
+	
 	public static final String DOT_LOG = ".log";
 	
 	public static final String OUTPUT = "output_";
@@ -89,6 +95,12 @@ public class Constants {
 	public static final String REASON_SLEEP_KEY = "ecarf.io.reasoning.sleep.time";
 	public static final String REASON_RETRY_KEY = "ecarf.io.reasoning.retry.times";
 	public static final String REASON_DATA_DIRECT_DOWNLOAD_LIMIT = "ecarf.io.reasoning.query.direct.download.limit";
+	public static final String REASON_DUPLICATES_MAX_MEMORY = "ecarf.io.reasoning.duplicates.max.memory.mb";
+	public static final String REASON_STREAM_PAGE_SIZE = "ecarf.io.reasoning.stream.page.size";
+	public static final String REASON_QUERY_MAX_ROWS = "ecarf.io.reasoning.query.max.rows";
+	public static final String REASON_FIXPOINT_POLL_DELAY = "ecarf.io.reasoning.fixpoint.poll.delay";
+	public static final String REASON_FIXPOINT_MAX_POLL_DELAY = "ecarf.io.reasoning.fixpoint.max.poll.delay";
+	public static final String REASON_FIXPOINT_TIMEOUT = "ecarf.io.reasoning.fixpoint.timeout";
 	public static final String OUTPUT_FILE_KEY = "ecarf.io.output.log.file";
 	public static final String OUTPUT_FOLDER_KEY = "ecarf.io.output.log.folder";
 }
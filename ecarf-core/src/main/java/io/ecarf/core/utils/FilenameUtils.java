@@ -36,6 +36,18 @@ public final class FilenameUtils {
     
     public static final String KRYO_SERIALIZED_EXT = ".kryo.gz";
     
+    public static final String MAPPED_DICTIONARY_EXT = ".dict";
+    
+    public static final String FRONT_CODED_DICTIONARY_EXT = ".fcd";
+    
+    public static final String PART_RUN_EXT = Constants.DOT_RUN + Constants.GZIP_EXT;
+    
+    public static final String TERM_STATS_EXT = ".stats" + PART_RUN_EXT;
+    
+    public static final String URI_TRIE_EXT = ".trie";
+    
+    public static final String SPLIT_RULES_FILE = "split_rules" + Constants.DOT_SER + Constants.GZIP_EXT;
+    
     public static final String DICTIONARY = "dictionary";
         
     public static final String DICTIONARY_JSON = DICTIONARY + Constants.DOT_JSON;
@@ -70,6 +82,42 @@ public final class FilenameUtils {
         return DICTIONARY + KRYO_SERIALIZED_EXT;
     }
 
+    /**
+     * The memory mapped and gziped dictionary filename
+     * @return
+     */
+    public static String getMappedGZipedDictionaryFilename() {
+        return DICTIONARY + MAPPED_DICTIONARY_EXT + Constants.GZIP_EXT;
+    }
+    
+    /**
+     * Check if the provided file is a memory mapped dictionary, optionally gziped
+     * @param filename
+     * @return
+     */
+    public static boolean isMappedDictionaryFile(String filename) {
+        return filename.endsWith(MAPPED_DICTIONARY_EXT) || 
+                filename.endsWith(MAPPED_DICTIONARY_EXT + Constants.GZIP_EXT);
+    }
+    
+    /**
+     * The front coded and gziped dictionary filename
+     * @return
+     */
+    public static String getFrontCodedGZipedDictionaryFilename() {
+        return DICTIONARY + FRONT_CODED_DICTIONARY_EXT + Constants.GZIP_EXT;
+    }
+    
+    /**
+     * Check if the provided file is a front coded dictionary, optionally gziped
+     * @param filename
+     * @return
+     */
+    public static boolean isFrontCodedDictionaryFile(String filename) {
+        return filename.endsWith(FRONT_CODED_DICTIONARY_EXT) || 
+                filename.endsWith(FRONT_CODED_DICTIONARY_EXT + Constants.GZIP_EXT);
+    }
+
     /**
      * Return the path to local file that is serialized (java or Kryo) and is compressed
      * @param filename
@@ -91,4 +139,40 @@ public final class FilenameUtils {
     public static String getLocalSerializedGZipedBNFilePath(String filename, boolean java) {
         return getLocalSerializedGZipedFilePath(Constants.BLANK_NODES + filename, java);
     }
+    
+    /**
+     * Return the path to the local sorted run of term parts extracted from the provided file
+     * @param filename
+     * @return
+     */
+    public static String getLocalPartRunFilePath(String filename) {
+        return getLocalFilePath(filename) + PART_RUN_EXT;
+    }
+    
+    /**
+     * Return the path to the local flat URI trie extracted from the provided file
+     * @param filename
+     * @return
+     */
+    public static String getLocalUriTrieFilePath(String filename) {
+        return getLocalFilePath(filename) + URI_TRIE_EXT;
+    }
+    
+    /**
+     * Return the path to the local sorted run of blank nodes extracted from the provided file
+     * @param filename
+     * @return
+     */
+    public static String getLocalPartRunBNFilePath(String filename) {
+        return getLocalPartRunFilePath(Constants.BLANK_NODES + filename);
+    }
+    
+    /**
+     * Return the name of the sorted, counted run of the term stats of the provided instance
+     * @param instanceId
+     * @return
+     */
+    public static String getTermStatsFilename(String instanceId) {
+        return instanceId + TERM_STATS_EXT;
+    }
 }
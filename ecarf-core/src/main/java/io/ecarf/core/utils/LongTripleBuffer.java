@@ -0,0 +1,134 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of (long, long, long) triples, e.g. encoded subject, predicate, object, held in three
+ * primitive arrays. Not thread safe.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LongTripleBuffer implements LongTripleSink {
+    
+    private long[] subjects;
+    
+    private long[] predicates;
+    
+    private long[] objects;
+    
+    private int size;
+    
+    /**
+     * 
+     */
+    public LongTripleBuffer() {
+        this(16);
+    }
+
+    /**
+     * @param capacity - the initial capacity
+     */
+    public LongTripleBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.subjects = new long[capacity];
+        this.predicates = new long[capacity];
+        this.objects = new long[capacity];
+    }
+    
+    /**
+     * Add a triple to the end of this buffer
+     * @param subject
+     * @param predicate
+     * @param object
+     */
+    @Override
+    public void add(long subject, long predicate, long object) {
+        
+        if(size == subjects.length) {
+            this.grow(size + 1);
+        }
+        
+        subjects[size] = subject;
+        predicates[size] = predicate;
+        objects[size] = object;
+        size++;
+    }
+    
+    /**
+     * Add all the triples in the provided buffer to the end of this buffer
+     * @param other
+     */
+    public void addAll(LongTripleBuffer other) {
+        
+        if(size + other.size > subjects.length) {
+            this.grow(size + other.size);
+        }
+        
+        System.arraycopy(other.subjects, 0, subjects, size, other.size);
+        System.arraycopy(other.predicates, 0, predicates, size, other.size);
+        System.arraycopy(other.objects, 0, objects, size, other.size);
+        size += other.size;
+    }
+    
+    private void grow(int minCapacity) {
+        int capacity = Math.max(subjects.length << 1, minCapacity);
+        subjects = Arrays.copyOf(subjects, capacity);
+        predicates = Arrays.copyOf(predicates, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+    
+    public long getSubject(int index) {
+        return subjects[index];
+    }
+    
+    public long getPredicate(int index) {
+        return predicates[index];
+    }
+    
+    public long getObject(int index) {
+        return objects[index];
+    }
+    
+    /**
+     * @return the number of triples in this buffer
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return true if this buffer has no triples
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Remove all the triples, the capacity is kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+}
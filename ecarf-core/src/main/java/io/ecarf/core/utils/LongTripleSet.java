@@ -0,0 +1,194 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.utils;
+
+/**
+ * A set of (long, long, long) triples, e.g. encoded subject, predicate, object, kept in primitive arrays using
+ * open addressing with linear probing. Not thread safe, concurrent users should partition the triples between
+ * multiple sets, e.g. by {@link LongTripleSet#hash(long, long, long)}.
+ * 
+ * The triple (0, 0, 0) is used to mark empty slots and is tracked separately.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LongTripleSet {
+    
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private long[] subjects;
+    
+    private long[] predicates;
+    
+    private long[] objects;
+    
+    private int size;
+    
+    private int threshold;
+    
+    private boolean containsZero;
+
+    /**
+     * @param expectedSize - the expected number of triples
+     */
+    public LongTripleSet(int expectedSize) {
+        this.allocate(Integer.highestOneBit((int) (Math.max(expectedSize, 8) / LOAD_FACTOR)) << 1);
+    }
+    
+    private void allocate(int capacity) {
+        this.subjects = new long[capacity];
+        this.predicates = new long[capacity];
+        this.objects = new long[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    /**
+     * 64 bit mix of the three longs
+     * @param subject
+     * @param predicate
+     * @param object
+     * @return
+     */
+    public static long hash(long subject, long predicate, long object) {
+        return ConcurrentLongPairSet.hash(ConcurrentLongPairSet.hash(subject, predicate), object);
+    }
+    
+    /**
+     * Add the triple to this set
+     * @param subject
+     * @param predicate
+     * @param object
+     * @return true if the triple was not already in this set
+     */
+    public boolean add(long subject, long predicate, long object) {
+        
+        if((subject == 0) && (predicate == 0) && (object == 0)) {
+            
+            if(this.containsZero) {
+                return false;
+            }
+            this.containsZero = true;
+            this.size++;
+            return true;
+        }
+        
+        int mask = subjects.length - 1;
+        int slot = ((int) hash(subject, predicate, object)) & mask;
+        
+        while(!this.isEmpty(slot)) {
+            
+            if((subjects[slot] == subject) && (predicates[slot] == predicate) && (objects[slot] == object)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        subjects[slot] = subject;
+        predicates[slot] = predicate;
+        objects[slot] = object;
+        
+        if(++size > threshold) {
+            this.rehash();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Check if the triple is in this set
+     * @param subject
+     * @param predicate
+     * @param object
+     * @return
+     */
+    public boolean contains(long subject, long predicate, long object) {
+        
+        if((subject == 0) && (predicate == 0) && (object == 0)) {
+            return this.containsZero;
+        }
+        
+        int mask = subjects.length - 1;
+        int slot = ((int) hash(subject, predicate, object)) & mask;
+        
+        while(!this.isEmpty(slot)) {
+            
+            if((subjects[slot] == subject) && (predicates[slot] == predicate) && (objects[slot] == object)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return false;
+    }
+    
+    private boolean isEmpty(int slot) {
+        return (subjects[slot] == 0) && (predicates[slot] == 0) && (objects[slot] == 0);
+    }
+    
+    /**
+     * Double the capacity
+     */
+    private void rehash() {
+        
+        long[] oldSubjects = this.subjects;
+        long[] oldPredicates = this.predicates;
+        long[] oldObjects = this.objects;
+        
+        this.allocate(oldSubjects.length << 1);
+        
+        int mask = subjects.length - 1;
+        
+        for(int i = 0; i < oldSubjects.length; i++) {
+            
+            long subject = oldSubjects[i];
+            long predicate = oldPredicates[i];
+            long object = oldObjects[i];
+            
+            if((subject != 0) || (predicate != 0) || (object != 0)) {
+                
+                int slot = ((int) hash(subject, predicate, object)) & mask;
+                
+                while(!this.isEmpty(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                
+                subjects[slot] = subject;
+                predicates[slot] = predicate;
+                objects[slot] = object;
+            }
+        }
+    }
+    
+    /**
+     * @return the number of triples in this set
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return the approximate number of bytes used by this set
+     */
+    public long getMemoryUsage() {
+        return subjects.length * 24L;
+    }
+
+}
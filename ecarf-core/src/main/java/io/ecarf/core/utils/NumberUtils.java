@@ -99,24 +99,96 @@ public final class NumberUtils {
         if(n == 1) {
             values[0] = value;
             
-        } else {
+        } else if(n == 2) {
             
-            int i = 0;
+            values[0] = disjoinFirst(value);
+            values[1] = disjoinSecond(value);
+            
+        } else if(value > 0) {
+            
+            // n-ary, only loop for the significant bits of value
+            int bits = 64 - Long.numberOfLeadingZeros(value);
+            int rounds = (bits + n - 1) / n;
     
-            while (value > 0) {
+            for(int i = 0; i < rounds; i++) {
     
                 for(int j = 0; j < n; j++) {
                     values[j] |= (value & 1) << i;
                     value >>= 1;
                 }
-    
-                i++;
             }
         }
 
         return values;
     }
     
+    /**
+     * Extract the first of two values joined with {@link NumberUtils#join(long, long)}, 
+     * i.e. the even bits of the provided value
+     * @param value - the joined value
+     * @return the first value
+     */
+    public static long disjoinFirst(long value) {
+        return compact(value);
+    }
+    
+    /**
+     * Extract the second of two values joined with {@link NumberUtils#join(long, long)}, 
+     * i.e. the odd bits of the provided value
+     * @param value - the joined value
+     * @return the second value
+     */
+    public static long disjoinSecond(long value) {
+        return compact(value >>> 1);
+    }
+    
+    /**
+     * Pair two values into one by interleaving their bits, the bits of first take the even positions
+     * and the bits of second the odd positions. Same as {@link NumberUtils#join(long...)} but doesn't loop
+     * through the bits, values with 32 bits or less are spread using magic masks in constant time
+     * @param first
+     * @param second
+     * @return the joined/paired value
+     */
+    public static long join(long first, long second) {
+        
+        if(((first | second) >>> 32) != 0) {
+            // only the lower 32 bits can be spread with the masks
+            return joinBits(new long [] {first, second});
+        }
+        
+        return spread(first) | (spread(second) << 1);
+    }
+    
+    /**
+     * Spread the lower 32 bits of the provided value into the even bit positions
+     * @param value
+     * @return
+     */
+    private static long spread(long value) {
+        value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value << 8))  & 0x00FF00FF00FF00FFL;
+        value = (value | (value << 4))  & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value << 2))  & 0x3333333333333333L;
+        value = (value | (value << 1))  & 0x5555555555555555L;
+        return value;
+    }
+    
+    /**
+     * Compact the even bits of the provided value into the lower 32 bits, the reverse of spread
+     * @param value
+     * @return
+     */
+    private static long compact(long value) {
+        value &= 0x5555555555555555L;
+        value = (value | (value >>> 1))  & 0x3333333333333333L;
+        value = (value | (value >>> 2))  & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value >>> 4))  & 0x00FF00FF00FF00FFL;
+        value = (value | (value >>> 8))  & 0x0000FFFF0000FFFFL;
+        value = (value | (value >>> 16)) & 0x00000000FFFFFFFFL;
+        return value;
+    }
+    
     /**
      * Pair the values provided into one. Use bit interleaving to join them. 
      * @param infobits - the number of bits to reserve for storing the number of values
@@ -130,8 +202,21 @@ public final class NumberUtils {
        
         } else if(values.length == 1) {
             return values[0];
+            
+        } else if(values.length == 2) {
+            return join(values[0], values[1]);
         }
         
+        return joinBits(values.clone());
+    }
+    
+    /**
+     * Interleave the bits of the provided values one bit at a time, the values array is modified
+     * @param values - the values to pair 
+     * @return the joined/paired value
+     */
+    private static long joinBits(long [] values) {
+        
         long p = 0;
         int i = 0;
         int n = values.length;
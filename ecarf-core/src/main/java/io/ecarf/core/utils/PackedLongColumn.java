@@ -0,0 +1,181 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.utils;
+
+/**
+ * An immutable, compressed column of longs with constant time random access. The values are split into
+ * blocks of 128, each block stores the values as unsigned offsets from the block minimum, bit packed using 
+ * the fewest bits needed by the largest offset in the block (frame of reference encoding). Sorted columns 
+ * and columns of ids from a small range compress very well, e.g. a block of 128 sorted subjects that 
+ * span less than 2^16 takes 2 bytes per value rather than 8.
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PackedLongColumn {
+    
+    private static final int BLOCK_BITS = 7;
+    
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    
+    private final int size;
+    
+    // the minimum value of each block
+    private final long[] bases;
+    
+    // the number of bits used by each value of each block
+    private final byte[] widths;
+    
+    // the index of the first word of each block
+    private final int[] offsets;
+    
+    private final long[] words;
+    
+    /**
+     * @param values - the values to pack
+     */
+    public PackedLongColumn(long[] values) {
+        this(values, values.length);
+    }
+
+    /**
+     * @param values - the values to pack
+     * @param size - the number of values to use from the start of the array
+     */
+    public PackedLongColumn(long[] values, int size) {
+        
+        this.size = size;
+        
+        int blocks = (size + BLOCK_MASK) >>> BLOCK_BITS;
+        
+        this.bases = new long[blocks];
+        this.widths = new byte[blocks];
+        this.offsets = new int[blocks];
+        
+        long numWords = 0;
+        
+        for(int block = 0; block < blocks; block++) {
+            
+            int start = block << BLOCK_BITS;
+            int end = Math.min(start + BLOCK_SIZE, size);
+            
+            long min = values[start];
+            long max = values[start];
+            
+            for(int i = start + 1; i < end; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            
+            // max - min might overflow, but as an unsigned value it's still correct
+            int width = 64 - Long.numberOfLeadingZeros(max - min);
+            
+            bases[block] = min;
+            widths[block] = (byte) width;
+            offsets[block] = (int) numWords;
+            
+            numWords += (((long) (end - start) * width) + 63) >>> 6;
+            
+            if(numWords > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many values to pack: " + size);
+            }
+        }
+        
+        this.words = new long[(int) numWords];
+        
+        for(int block = 0; block < blocks; block++) {
+            
+            int width = widths[block];
+            
+            if(width == 0) {
+                continue;
+            }
+            
+            int start = block << BLOCK_BITS;
+            int end = Math.min(start + BLOCK_SIZE, size);
+            
+            long base = bases[block];
+            long bit = ((long) offsets[block]) << 6;
+            
+            for(int i = start; i < end; i++, bit += width) {
+                
+                long delta = values[i] - base;
+                
+                int word = (int) (bit >>> 6);
+                int shift = (int) (bit & 63);
+                
+                words[word] |= delta << shift;
+                
+                if(shift + width > 64) {
+                    words[word + 1] |= delta >>> (64 - shift);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the value at the provided index
+     * @param index
+     * @return
+     */
+    public long get(int index) {
+        
+        int block = index >>> BLOCK_BITS;
+        int width = widths[block];
+        
+        if(width == 0) {
+            return bases[block];
+        }
+        
+        int bit = (index & BLOCK_MASK) * width;
+        int word = offsets[block] + (bit >>> 6);
+        int shift = bit & 63;
+        
+        long delta = words[word] >>> shift;
+        
+        if(shift + width > 64) {
+            delta |= words[word + 1] << (64 - shift);
+        }
+        
+        if(width < 64) {
+            delta &= (1L << width) - 1;
+        }
+        
+        return bases[block] + delta;
+    }
+    
+    /**
+     * @return the number of values in this column
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return the approximate number of bytes used by this column
+     */
+    public long getMemoryUsage() {
+        return (((long) words.length) << 3) + (bases.length * 13L);
+    }
+
+}
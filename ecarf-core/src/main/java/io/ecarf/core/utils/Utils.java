@@ -20,8 +20,8 @@ package io.ecarf.core.utils;
 
 import io.cloudex.framework.cloud.api.ApiUtils;
 import io.cloudex.framework.utils.FileUtils;
-import io.ecarf.core.term.TermPart;
-import io.ecarf.core.term.TermRoot;
+import io.ecarf.core.term.SplitRules;
+import io.ecarf.core.term.Utf8SlabSet;
 import io.ecarf.core.term.dictionary.TermDictionaryCommons;
 import io.ecarf.core.term.dictionary.TermDictionaryConcurrent;
 import io.ecarf.core.term.dictionary.TermDictionaryCore;
@@ -116,6 +116,7 @@ public class Utils {
 	
 	static {
 	    KryoFactory factory = new KryoFactory() {
+	        @SuppressWarnings("deprecation")
 	        public Kryo create () {
 	            Kryo kryo = new Kryo();
 	            // configure kryo instance, customize settings
@@ -136,14 +137,20 @@ public class Utils {
 	                    return HashBiMap.create();
 	                }
 	            });
-	            kryo.register(TermRoot.class);
-	            kryo.register(TermPart.class);
+	            // the deprecated term trees, to read previously serialized trees
+	            kryo.register(io.ecarf.core.term.TermRoot.class);
+	            kryo.register(io.ecarf.core.term.TermPart.class);
 	            kryo.register(TermDictionaryGuava.class);
 	            kryo.register(TermDictionaryCommons.class);
 	            kryo.register(TermDictionaryConcurrent.class);
 	            kryo.register(ConcurrentHashMap.class);
 	            kryo.register(AtomicInteger.class);
 	            kryo.register(DualHashBidiMap.class);
+	            // written in the same format as a HashSet
+	            kryo.register(Utf8SlabSet.class);
+	            kryo.register(SplitRules.class);
+	            kryo.register(String[].class);
+	            kryo.register(byte[].class);
 	            kryo.setRegistrationRequired(true);
 
 	            return kryo;
@@ -0,0 +1,345 @@
+package io.ecarf.core.cloud.impl.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.cloudex.framework.cloud.entities.QueryStats;
+import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
+import io.ecarf.core.reason.rulebased.query.QueryGenerator;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.Constants;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LocalTripleStoreTest {
+    
+    private static final String TABLE = "ontologies.test";
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private static final long SUB_CLASS = SchemaURIType.RDFS_SUBCLASS.id;
+    
+    private static final long SUB_PROPERTY = SchemaURIType.RDFS_SUBPROPERTY.id;
+    
+    private static final long DOMAIN = SchemaURIType.RDFS_DOMAIN.id;
+    
+    private static final long RANGE = SchemaURIType.RDFS_RANGE.id;
+    
+    private List<String> files = new ArrayList<>();
+    
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testQuery() throws IOException {
+        
+        Random random = new Random(20160320L);
+        
+        List<ETriple> triples = new ArrayList<>();
+        
+        // duplicates are kept
+        triples.add(new ETriple(1010L, 1005L, 1004L, null));
+        triples.add(new ETriple(1010L, 1005L, 1004L, null));
+        
+        for(int i = 2; i < 5000; i++) {
+            long predicate = (i % 10 == 0) ? TYPE : 1000 + random.nextInt(10);
+            triples.add(new ETriple(1000L + random.nextInt(100), predicate, 1000L + random.nextInt(50), null));
+        }
+        
+        for(int i = 0; i < 500; i++) {
+            triples.add(new ETriple(1000L + random.nextInt(100), 1000L + random.nextInt(10), null, 
+                    "Literal, \"" + i + "\""));
+        }
+        
+        LocalTripleStore store = new LocalTripleStore(TABLE);
+        
+        assertEquals(4000, store.load(triples.subList(0, 4000)));
+        assertEquals(1500, store.load(triples.subList(4000, triples.size())));
+        assertEquals(5500, store.size());
+        
+        String all = "select subject, predicate, object, object_literal from " + TABLE + " where ";
+        
+        this.validateQuery(store, triples, all + "(predicate IN (1001,1002)) OR (object=1003 and predicate=0);", 
+                new long[] {}, new long[] {1001, 1002}, new long[] {}, new long[] {}, new long[] {TYPE}, new long[] {1003});
+        
+        this.validateQuery(store, triples, all + "(subject IN (1000,1001,1050));", 
+                new long[] {1000, 1001, 1050}, null, null);
+        
+        this.validateQuery(store, triples, all + "(object IN (1001,1002)) OR (predicate=1003);", 
+                new long[] {}, new long[] {}, new long[] {1001, 1002}, new long[] {}, new long[] {1003}, new long[] {});
+        
+        this.validateQuery(store, triples, "select subject, predicate, object, object_literal from [" + TABLE + 
+                "] where object=1004 and predicate=1005 and subject IN (1010,1020,1030,1040);", 
+                new long[] {1010, 1020, 1030, 1040}, new long[] {1005}, new long[] {1004});
+    }
+    
+    @Test
+    public void testSaveCompressed() throws IOException {
+        
+        List<ETriple> triples = new ArrayList<>();
+        
+        for(long i = 0; i < 1000; i++) {
+            triples.add(new ETriple(2000 + i, 1000L, 3000 + (i % 7), null));
+        }
+        
+        LocalTripleStore store = new LocalTripleStore(TABLE);
+        store.load(triples);
+        
+        String query = "select subject, predicate, object from " + TABLE + " where (object=3001);";
+        
+        QueryStats stats = store.saveBigQueryResultsToFile(store.startBigDataQuery(query), "results", 3, 100);
+        files.addAll(stats.getOutputFiles());
+        
+        assertEquals(143, stats.getTotalRows().intValue());
+        assertEquals(3, stats.getOutputFiles().size());
+        
+        List<String> lines = new ArrayList<>();
+        
+        for(String file: stats.getOutputFiles()) {
+            List<String> fileLines = readLines(file, true);
+            assertEquals("subject,predicate,object", fileLines.get(0));
+            lines.addAll(fileLines.subList(1, fileLines.size()));
+        }
+        
+        assertEquals(143, lines.size());
+        
+        for(String line: lines) {
+            assertTrue(line.endsWith(",1000,3001"));
+        }
+    }
+    
+    @Test
+    public void testDecoratedTable() throws Exception {
+        
+        LocalTripleStore store = new LocalTripleStore(TABLE);
+        store.load(Collections.singletonList(new ETriple(1000L, 1001L, 1002L, null)));
+        
+        Thread.sleep(20);
+        
+        long start = System.currentTimeMillis();
+        store.load(Collections.singletonList(new ETriple(1003L, 1001L, 1004L, null)));
+        
+        long elapsed = System.currentTimeMillis() - start + 5;
+        
+        String query = "select subject, predicate, object from [" + TABLE + "@-" + elapsed + "-] where (predicate=1001);";
+        
+        QueryStats stats = store.saveBigQueryResultsToFile(store.startBigDataQuery(query), "results", 1, 100);
+        files.addAll(stats.getOutputFiles());
+        
+        assertEquals(Collections.singletonList("1003,1001,1004"), readLines(stats.getOutputFiles().get(0), false));
+    }
+    
+    /**
+     * Run the same reasoning loop as the reasoning tasks end to end against the local store
+     * @throws Exception
+     */
+    @Test
+    public void testReasoningClosure() throws Exception {
+        
+        long classA = 2000, classB = 2001, classC = 2002, classD = 2003, classE = 2004;
+        long propertyP = 3000, propertyQ = 3001;
+        long x = 4000, y = 4001;
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        addSchemaTriple(schemaTerms, new ETriple(classA, SUB_CLASS, classB, null));
+        addSchemaTriple(schemaTerms, new ETriple(classB, SUB_CLASS, classC, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyP, SUB_PROPERTY, propertyQ, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyQ, DOMAIN, classD, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyQ, RANGE, classE, null));
+        
+        List<ETriple> instance = new ArrayList<>();
+        instance.add(new ETriple(x, TYPE, classA, null));
+        instance.add(new ETriple(x, propertyP, y, null));
+        instance.add(new ETriple(y, propertyP, null, "a literal, with a comma"));
+        
+        LocalTripleStore store = new LocalTripleStore(TABLE);
+        store.load(instance);
+        
+        Set<String> closure = new HashSet<>();
+        for(ETriple triple: instance) {
+            closure.add(triple.toCsv());
+        }
+        
+        QueryGenerator<Long> generator = new QueryGenerator<Long>(schemaTerms, null);
+        
+        String decoratedTable = TABLE;
+        int cycles = 0;
+        
+        while(true) {
+            
+            generator.setDecoratedTable(decoratedTable);
+            
+            String jobId = store.startBigDataQuery(generator.getQuery());
+            
+            // the direct download limit is small so both the plain and the compressed results are used
+            int ddLimit = 3;
+            QueryStats stats = store.saveBigQueryResultsToFile(jobId, "QueryResults_" + cycles, 2, ddLimit);
+            files.addAll(stats.getOutputFiles());
+            
+            boolean compressed = stats.getTotalRows().intValue() > ddLimit;
+            
+            List<String> inferredFiles = new ArrayList<>();
+            
+            for(String file: stats.getOutputFiles()) {
+                
+                String outFile = file + Constants.DOT_INF;
+                files.add(outFile);
+                
+                if(ReasonUtils.reason(file, outFile, compressed, schemaTerms, new HashSet<Long>()) > 0) {
+                    inferredFiles.add(outFile);
+                }
+            }
+            
+            cycles++;
+            
+            if(inferredFiles.isEmpty()) {
+                break;
+            }
+            
+            for(String file: inferredFiles) {
+                for(Triple triple: TripleUtils.loadCompressedCSVTriples(file, true)) {
+                    closure.add(triple.toCsv());
+                }
+            }
+            
+            long start = System.currentTimeMillis();
+            Thread.sleep(5);
+            
+            store.loadFiles(inferredFiles);
+            
+            // only query the triples inferred during this cycle
+            long elapsed = System.currentTimeMillis() - start - 2;
+            decoratedTable = "[" + TABLE + "@-" + elapsed + "-]";
+            
+            assertTrue("Reasoning did not reach a fixpoint", cycles < 10);
+        }
+        
+        Set<String> expected = new HashSet<>();
+        for(ETriple triple: instance) {
+            expected.add(triple.toCsv());
+        }
+        expected.add(new ETriple(x, TYPE, classB, null).toCsv());
+        expected.add(new ETriple(x, TYPE, classC, null).toCsv());
+        expected.add(new ETriple(x, propertyQ, y, null).toCsv());
+        expected.add(new ETriple(y, propertyQ, null, "a literal, with a comma").toCsv());
+        expected.add(new ETriple(x, TYPE, classD, null).toCsv());
+        expected.add(new ETriple(y, TYPE, classD, null).toCsv());
+        expected.add(new ETriple(y, TYPE, classE, null).toCsv());
+        
+        assertEquals(expected, closure);
+        // two productive cycles and an empty one
+        assertEquals(3, cycles);
+    }
+    
+    private static void addSchemaTriple(Map<Long, Set<Triple>> schemaTerms, ETriple triple) {
+        Set<Triple> triples = schemaTerms.get(triple.getSubject());
+        if(triples == null) {
+            triples = new HashSet<>();
+            schemaTerms.put(triple.getSubject(), triples);
+        }
+        triples.add(triple);
+    }
+    
+    /**
+     * Run the query and compare the results with the triples matching any of the provided conditions, each 
+     * condition is 3 arrays of subjects, predicates and objects, an empty or null array matches any value
+     */
+    private void validateQuery(LocalTripleStore store, List<ETriple> triples, String query, long [] ... conditions) 
+            throws IOException {
+        
+        List<String> expected = new ArrayList<>();
+        
+        for(ETriple triple: triples) {
+            
+            for(int i = 0; i < conditions.length; i += 3) {
+                
+                if(matches(conditions[i], triple.getSubject()) && matches(conditions[i + 1], triple.getPredicate()) &&
+                        (((conditions[i + 2] == null) || (conditions[i + 2].length == 0)) || 
+                                ((triple.getObject() != null) && matches(conditions[i + 2], triple.getObject())))) {
+                    
+                    expected.add(triple.getSubject() + "," + triple.getPredicate() + "," + 
+                            ((triple.getObject() == null) ? "" : triple.getObject()) + "," + 
+                            ((triple.getObjectLiteral() == null) ? "" : StringEscapeUtils.escapeCsv(triple.getObjectLiteral())));
+                    break;
+                }
+            }
+        }
+        
+        QueryStats stats = store.saveBigQueryResultsToFile(store.startBigDataQuery(query), "results", 2, 1_000_000);
+        files.addAll(stats.getOutputFiles());
+        
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), stats.getTotalRows().intValue());
+        
+        List<String> actual = readLines(stats.getOutputFiles().get(0), false);
+        
+        Collections.sort(expected);
+        Collections.sort(actual);
+        
+        assertEquals(expected, actual);
+    }
+    
+    private static boolean matches(long [] values, Long value) {
+        
+        if((values == null) || (values.length == 0)) {
+            return true;
+        }
+        
+        for(long candidate: values) {
+            if(candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static List<String> readLines(String file, boolean compressed) throws IOException {
+        
+        List<String> lines = new ArrayList<>();
+        
+        InputStream in = new FileInputStream(file);
+        
+        if(compressed) {
+            in = new GZIPInputStream(in);
+        }
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        
+        return lines;
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.ecarf.core.cloud.task.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.cloudex.framework.partition.entities.Item;
+import io.ecarf.core.term.dictionary.PartRunWriter;
+import io.ecarf.core.utils.FilenameUtils;
+import io.ecarf.core.utils.Utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Merging the term stats runs of the processors, doesn't need the cloud
+ * 
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class CombineTermStatsTaskMergeTest {
+
+    private List<String> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testCombine() throws IOException {
+
+        Map<String, Long> expected = new TreeMap<>();
+        List<String> runs = new ArrayList<>();
+
+        for(int evm = 0; evm < 300; evm++) {
+
+            Map<String, Integer> stats = new HashMap<>();
+
+            for(int i = evm % 7; i < 40; i += 3) {
+                String term = "<http://swat.cse.lehigh.edu/onto/univ-bench.owl#Term" + i + ">";
+                stats.put(term, evm + i);
+
+                Long count = expected.get(term);
+                expected.put(term, ((count == null) ? 0 : count) + evm + i);
+            }
+
+            String run = this.file("evm" + evm + FilenameUtils.TERM_STATS_EXT);
+            PartRunWriter.write(run, stats.keySet(), stats);
+            runs.add(run);
+        }
+
+        String statsFile = this.file("term_stats.json");
+
+        // more runs than the default fan in
+        List<Item> items = CombineTermStatsTask.combine(runs, statsFile, FilenameUtils.getLocalFilePath("stats_test_"));
+
+        Map<String, Long> actual = new TreeMap<>();
+
+        for(Item item: items) {
+            actual.put(item.getKey(), item.getWeight());
+        }
+
+        assertEquals(expected.size(), items.size());
+        assertEquals(expected, actual);
+
+        try(Reader reader = new InputStreamReader(new FileInputStream(statsFile), StandardCharsets.UTF_8)) {
+            Map<String, Long> json = Utils.GSON.fromJson(reader, new TypeToken<Map<String, Long>>(){}.getType());
+            assertEquals(expected, new TreeMap<>(json));
+        }
+
+        // the runs are left for the caller to delete
+        for(String run: runs) {
+            assertTrue(new File(run).exists());
+        }
+    }
+
+    @Test
+    public void testCombineNoRuns() throws IOException {
+        assertTrue(CombineTermStatsTask.combine(new ArrayList<String>(), null, "none").isEmpty());
+    }
+
+    private String file(String name) {
+        String file = FilenameUtils.getLocalFilePath(name);
+        files.add(file);
+        return file;
+    }
+
+}
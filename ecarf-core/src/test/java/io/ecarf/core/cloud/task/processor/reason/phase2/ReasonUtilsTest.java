@@ -0,0 +1,197 @@
+package io.ecarf.core.cloud.task.processor.reason.phase2;
+
+import static org.junit.Assert.assertEquals;
+import io.ecarf.core.cloud.task.processor.reason.phase3.DuplicatesBuster;
+import io.ecarf.core.reason.rulebased.GenericRule;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ReasonUtilsTest {
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private List<String> files = new ArrayList<>();
+    
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testReason() throws IOException {
+        
+        Random random = new Random(20160502L);
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        add(schemaTerms, new ETriple(2000L, (long) SchemaURIType.RDFS_SUBCLASS.id, 2001L, null));
+        add(schemaTerms, new ETriple(2001L, (long) SchemaURIType.RDFS_SUBCLASS.id, 2002L, null));
+        add(schemaTerms, new ETriple(3000L, (long) SchemaURIType.RDFS_SUBPROPERTY.id, 3001L, null));
+        add(schemaTerms, new ETriple(3000L, (long) SchemaURIType.RDFS_DOMAIN.id, 2000L, null));
+        add(schemaTerms, new ETriple(3001L, (long) SchemaURIType.RDFS_RANGE.id, 2001L, null));
+        
+        List<ETriple> instance = new ArrayList<>();
+        
+        for(int i = 0; i < 5000; i++) {
+            
+            long subject = 100_000 + random.nextInt(1000);
+            
+            switch(random.nextInt(4)) {
+                case 0:
+                    instance.add(new ETriple(subject, TYPE, 2000L + random.nextInt(3), null));
+                    break;
+                    
+                case 1:
+                    instance.add(new ETriple(subject, 3000L + random.nextInt(2), 100_000L + random.nextInt(1000), null));
+                    break;
+                    
+                case 2:
+                    instance.add(new ETriple(subject, 3000L, null, "a \"quoted\", literal " + random.nextInt(10)));
+                    break;
+                    
+                default:
+                    instance.add(new ETriple(subject, 3000L, null, null));
+            }
+        }
+        
+        for(boolean compressed: new boolean [] {false, true}) {
+            
+            String inFile = this.writeQueryResults(instance, compressed);
+            String outFile = inFile + ".inf";
+            files.add(outFile);
+            
+            Set<Long> productiveTerms = new HashSet<>();
+            
+            int inferred = ReasonUtils.reason(inFile, outFile, compressed, schemaTerms, productiveTerms);
+            
+            List<String> expected = heads(schemaTerms, instance, null);
+            List<String> actual = readLines(outFile);
+            
+            assertEquals(expected.size(), inferred);
+            assertEquals(expected, actual);
+            assertEquals(Sets.newHashSet(2000L, 2001L, 3000L, 3001L), productiveTerms);
+            
+            // with duplicates removed
+            inferred = ReasonUtils.reason(inFile, outFile, compressed, schemaTerms, productiveTerms, 
+                    new DuplicatesBuster());
+            
+            expected = heads(schemaTerms, instance, new DuplicatesBuster());
+            
+            assertEquals(expected.size(), inferred);
+            assertEquals(expected, readLines(outFile));
+        }
+    }
+    
+    /**
+     * The heads of the rules as created by {@link GenericRule}
+     */
+    private static List<String> heads(Map<Long, Set<Triple>> schemaTerms, List<ETriple> instance, 
+            DuplicatesBuster duplicatesBuster) {
+        
+        List<String> heads = new ArrayList<>();
+        
+        for(ETriple triple: instance) {
+            
+            Long term = (TYPE == triple.getPredicate()) ? triple.getObject() : triple.getPredicate();
+            
+            Set<Triple> schemaTriples = schemaTerms.get(term);
+            
+            if(schemaTriples != null) {
+                for(Triple schemaTriple: schemaTriples) {
+                    
+                    Triple head = GenericRule.getRule(schemaTriple).head(schemaTriple, triple);
+                    
+                    if((head != null) && ((duplicatesBuster == null) || !duplicatesBuster.isDuplicate(head))) {
+                        heads.add(head.toCsv());
+                    }
+                }
+            }
+        }
+        
+        Collections.sort(heads);
+        return heads;
+    }
+    
+    private String writeQueryResults(List<ETriple> instance, boolean compressed) throws IOException {
+        
+        String file = FilenameUtils.getLocalFilePath("ReasonUtilsTest_" + compressed);
+        files.add(file);
+        
+        OutputStream out = new FileOutputStream(file);
+        
+        if(compressed) {
+            out = new GZIPOutputStream(out);
+        }
+        
+        try(PrintWriter writer = new PrintWriter(out)) {
+            
+            if(compressed) {
+                writer.println("subject,predicate,object,object_literal");
+            }
+            
+            for(ETriple triple: instance) {
+                writer.println(triple.toCsv());
+            }
+        }
+        
+        return file;
+    }
+    
+    private static List<String> readLines(String file) throws IOException {
+        
+        List<String> lines = new ArrayList<>();
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        
+        Collections.sort(lines);
+        return lines;
+    }
+    
+    private static void add(Map<Long, Set<Triple>> schemaTerms, ETriple triple) {
+        Set<Triple> triples = schemaTerms.get(triple.getSubject());
+        if(triples == null) {
+            triples = new HashSet<>();
+            schemaTerms.put(triple.getSubject(), triples);
+        }
+        triples.add(triple);
+    }
+
+}
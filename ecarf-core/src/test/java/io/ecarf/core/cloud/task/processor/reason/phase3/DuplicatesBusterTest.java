@@ -99,6 +99,43 @@ public class DuplicatesBusterTest {
         
     }
     
+    /**
+     * Test method for {@link io.ecarf.core.cloud.task.processor.reason.phase3.DuplicatesBuster#isDuplicate(long, long)}
+     * in bounded mode.
+     */
+    @Test
+    public void testIsDuplicateBounded() {
+        
+        long maxMemory = 1024 * 1024;
+        
+        DuplicatesBuster buster = DuplicatesBuster.create(maxMemory);
+        assertTrue(buster.isBounded());
+        
+        // the two window generations get 7/8 of the memory, 14336 pairs each at 32 bytes per pair
+        long windowMemory = 2 * buster.getWindowCapacity() * 32;
+        
+        assertEquals(14336, buster.getWindowCapacity());
+        assertTrue(windowMemory >= (maxMemory * 7) / 8);
+        assertTrue(windowMemory <= maxMemory);
+        
+        for(long i = 0; i < 100_000; i++) {
+            assertFalse(buster.isDuplicate(i, i % 7));
+        }
+        
+        // recent pairs are still in the window
+        for(long i = 99_000; i < 100_000; i++) {
+            assertTrue(buster.isDuplicate(i, i % 7));
+        }
+        
+        // old pairs are never reported as duplicates wrongly
+        for(long i = 100_000; i < 110_000; i++) {
+            assertFalse(buster.isDuplicate(i, 1_000_000 + i));
+        }
+        
+        assertFalse(DuplicatesBuster.create(0).isBounded());
+        assertEquals(0, DuplicatesBuster.create(0).getWindowCapacity());
+    }
+    
     public static void main(String [] args) throws FileNotFoundException, IOException {
         Set<Triple> triples = new HashSet<>();
         
@@ -0,0 +1,168 @@
+package io.ecarf.core.cloud.task.processor.reason.phase3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.ecarf.core.cloud.CycleRecord;
+import io.ecarf.core.cloud.InferenceLedger;
+import io.ecarf.core.cloud.impl.local.LocalInferenceLedger;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class FixpointDetectorTest {
+    
+    private static final String RUN_ID = "job_1";
+    
+    private String folder;
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() {
+        folder = FilenameUtils.getLocalFilePath("ledger_" + System.nanoTime());
+        executor = Executors.newFixedThreadPool(3);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(new File(folder));
+    }
+
+    @Test
+    public void testCycleRecord() {
+        
+        CycleRecord record = new CycleRecord("ecarf_evm_1", 3, 1200, 1462100000000L);
+        
+        String name = record.toName(RUN_ID);
+        
+        assertEquals("job_1_fixpoint_3_1200_1462100000000_ecarf_evm_1", name);
+        assertTrue(name.startsWith(CycleRecord.getPrefix(RUN_ID, 3)));
+        
+        CycleRecord parsed = CycleRecord.parse(RUN_ID, name);
+        
+        assertEquals("ecarf_evm_1", parsed.getNode());
+        assertEquals(3, parsed.getCycle());
+        assertEquals(1200, parsed.getInferred());
+        assertEquals(1462100000000L, parsed.getWatermark());
+        
+        assertNull(CycleRecord.parse("job_2", name));
+        assertNull(CycleRecord.parse(RUN_ID, "job_1_fixpoint_3_many_1_node"));
+        assertNull(CycleRecord.parse(RUN_ID, "job_1_fixpoint_3_1200"));
+    }
+    
+    @Test
+    public void testFixpoint() throws Exception {
+        
+        // the inferred triples of each node in each cycle, the last cycle is empty for all nodes
+        final long [][] inferred = {
+            {120, 0, 35},
+            {0, 0, 4},
+            {0, 0, 0}
+        };
+        
+        List<Future<Integer>> results = new ArrayList<>();
+        
+        for(int i = 0; i < 3; i++) {
+            
+            final int node = i;
+            final FixpointDetector detector = new FixpointDetector(new LocalInferenceLedger(folder, RUN_ID), 
+                    "node-" + i, 3, 10, 5000);
+            
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    
+                    int cycle = 0;
+                    
+                    while(!detector.isFixpoint(cycle, inferred[cycle][node], System.currentTimeMillis())) {
+                        cycle++;
+                    }
+                    
+                    return cycle;
+                }
+            }));
+        }
+        
+        for(Future<Integer> result: results) {
+            assertEquals(2, result.get().intValue());
+        }
+        
+        InferenceLedger ledger = new LocalInferenceLedger(folder, RUN_ID);
+        
+        assertEquals(3, ledger.getRecords(1).size());
+        
+        long total = 0;
+        for(CycleRecord record: ledger.getRecords(0)) {
+            total += record.getInferred();
+        }
+        
+        assertEquals(155, total);
+    }
+    
+    @Test
+    public void testTimeout() throws IOException {
+        
+        FixpointDetector detector = new FixpointDetector(new LocalInferenceLedger(folder, RUN_ID), "node-0", 2, 10, 100);
+        
+        try {
+            detector.isFixpoint(0, 0, System.currentTimeMillis());
+            fail("Expected an IOException");
+            
+        } catch(IOException e) {
+            assertTrue(e.getMessage().startsWith("Timed out waiting for cycle: 0"));
+        }
+        
+        // a record of another run is ignored
+        new LocalInferenceLedger(folder, "job_2").publish(new CycleRecord("node-1", 0, 0, 0));
+        
+        assertEquals(1, new LocalInferenceLedger(folder, RUN_ID).getRecords(0).size());
+    }
+    
+    @Test
+    public void testPollBackoff() throws IOException {
+        
+        final AtomicInteger reads = new AtomicInteger();
+        
+        InferenceLedger ledger = new LocalInferenceLedger(folder, RUN_ID) {
+            @Override
+            public List<CycleRecord> getRecords(int cycle) throws IOException {
+                reads.incrementAndGet();
+                return super.getRecords(cycle);
+            }
+        };
+        
+        // 10, 20, 40, 80, 80... rather than a read every 10ms
+        FixpointDetector detector = new FixpointDetector(ledger, "node-0", 2, 10, 80, 500);
+        
+        try {
+            detector.isFixpoint(0, 0, System.currentTimeMillis());
+            fail("Expected an IOException");
+            
+        } catch(IOException e) {
+            assertTrue(e.getMessage().startsWith("Timed out waiting for cycle: 0"));
+        }
+        
+        assertTrue("reads: " + reads.get(), reads.get() <= 12);
+    }
+
+}
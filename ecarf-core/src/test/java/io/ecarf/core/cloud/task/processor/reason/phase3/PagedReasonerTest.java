@@ -0,0 +1,242 @@
+package io.ecarf.core.cloud.task.processor.reason.phase3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.cloudex.framework.cloud.entities.QueryStats;
+import io.ecarf.core.cloud.QueryResultPages;
+import io.ecarf.core.cloud.impl.local.LocalTripleStore;
+import io.ecarf.core.cloud.task.processor.reason.phase2.ReasonUtils;
+import io.ecarf.core.reason.rulebased.RuleTable;
+import io.ecarf.core.reason.rulebased.query.QueryGenerator;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.ETripleBatch;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PagedReasonerTest {
+    
+    private static final String TABLE = "ontologies.test";
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private static final long SUBCLASS = SchemaURIType.RDFS_SUBCLASS.id;
+    
+    private static final long SUBPROPERTY = SchemaURIType.RDFS_SUBPROPERTY.id;
+    
+    private static final long DOMAIN = SchemaURIType.RDFS_DOMAIN.id;
+    
+    private static final long RANGE = SchemaURIType.RDFS_RANGE.id;
+    
+    private Map<Long, Set<Triple>> schemaTerms;
+    
+    private LocalTripleStore store;
+    
+    private ExecutorService executor;
+    
+    private List<String> files = new ArrayList<>();
+    
+    @Before
+    public void setUp() {
+        
+        schemaTerms = new HashMap<>();
+        
+        for(long i = 0; i < 10; i++) {
+            addSchemaTriple(new ETriple(2000 + i, SUBCLASS, 2100 + i, null));
+            addSchemaTriple(new ETriple(3000 + i, SUBPROPERTY, 3100 + i, null));
+            addSchemaTriple(new ETriple(3000 + i, DOMAIN, 2200 + i, null));
+            addSchemaTriple(new ETriple(3000 + i, RANGE, 2300 + i, null));
+        }
+        
+        Random random = new Random(20160501L);
+        
+        List<ETriple> instance = new ArrayList<>();
+        
+        for(int i = 0; i < 5000; i++) {
+            
+            long subject = 10_000 + random.nextInt(1000);
+            
+            switch(random.nextInt(3)) {
+            case 0:
+                instance.add(new ETriple(subject, TYPE, 2000L + random.nextInt(20), null));
+                break;
+                
+            case 1:
+                instance.add(new ETriple(subject, 3000L + random.nextInt(20), 10_000L + random.nextInt(1000), null));
+                break;
+                
+            default:
+                instance.add(new ETriple(subject, 3000L + random.nextInt(20), null, "literal, " + random.nextInt(10)));
+            }
+        }
+        
+        store = new LocalTripleStore(TABLE);
+        store.load(instance);
+        
+        executor = Executors.newFixedThreadPool(3);
+    }
+    
+    @After
+    public void tearDown() {
+        
+        executor.shutdownNow();
+        
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testReasonOverPages() throws IOException {
+        
+        RuleTable rules = new RuleTable(schemaTerms);
+        
+        String query = new QueryGenerator<Long>(schemaTerms, TABLE).getQuery();
+        
+        // reason over the results saved to a file
+        QueryStats stats = store.saveBigQueryResultsToFile(store.startBigDataQuery(query), "results", 1, 
+                Integer.MAX_VALUE);
+        files.addAll(stats.getOutputFiles());
+        
+        String outFile = stats.getOutputFiles().get(0) + Constants.DOT_INF;
+        files.add(outFile);
+        
+        Set<Long> expectedTerms = new HashSet<>();
+        int expected = ReasonUtils.reason(stats.getOutputFiles().get(0), outFile, false, rules, expectedTerms, null);
+        
+        assertTrue(expected > 1000);
+        
+        // reason over the pages as they are fetched
+        QueryResultPages pages = store.getQueryResultPages(store.startBigDataQuery(query), 97);
+        
+        Set<Long> productiveTerms = new HashSet<>();
+        Set<String> inferredFiles = new HashSet<>();
+        
+        for(int i = 0; i < 3; i++) {
+            files.add(FilenameUtils.getLocalFilePath("paged_" + i + Constants.DOT_INF));
+        }
+        
+        int inferred = new PagedReasoner(rules, null, executor, 3).reason(pages, 
+                FilenameUtils.getLocalFilePath("paged"), productiveTerms, inferredFiles);
+        
+        assertEquals(expected, inferred);
+        assertEquals(stats.getTotalRows(), pages.getQueryStats().getTotalRows());
+        assertEquals(expectedTerms, productiveTerms);
+        
+        List<String> expectedTriples = readTriples(Collections.singleton(outFile));
+        List<String> actualTriples = readTriples(inferredFiles);
+        
+        assertEquals(expectedTriples, actualTriples);
+    }
+    
+    @Test
+    public void testLocalPages() throws IOException {
+        
+        String query = new QueryGenerator<Long>(schemaTerms, TABLE).getQuery();
+        
+        QueryResultPages pages = store.getQueryResultPages(store.startBigDataQuery(query), 100);
+        
+        long rows = 0;
+        ETripleBatch page;
+        
+        while((page = pages.nextPage()) != null) {
+            assertTrue(page.size() <= 100);
+            rows += page.size();
+        }
+        
+        assertEquals(pages.getQueryStats().getTotalRows().longValue(), rows);
+    }
+    
+    @Test
+    public void testFailedPage() throws Exception {
+        
+        QueryResultPages pages = new QueryResultPages() {
+            
+            private int count;
+            
+            @Override
+            public ETripleBatch nextPage() throws IOException {
+                
+                if(++count == 3) {
+                    throw new IOException("Failed to fetch page");
+                }
+                
+                ETripleBatch page = new ETripleBatch(1);
+                page.add(10_000, TYPE, 2000);
+                return page;
+            }
+
+            @Override
+            public QueryStats getQueryStats() {
+                return new QueryStats();
+            }
+        };
+        
+        for(int i = 0; i < 2; i++) {
+            files.add(FilenameUtils.getLocalFilePath("failed_" + i + Constants.DOT_INF));
+        }
+        
+        try {
+            new PagedReasoner(new RuleTable(schemaTerms), null, executor, 2).reason(pages, 
+                    FilenameUtils.getLocalFilePath("failed"), new HashSet<Long>(), new HashSet<String>());
+            fail("Expected an IOException");
+            
+        } catch(IOException e) {
+            assertEquals("Failed to fetch page", e.getMessage());
+        }
+        
+        // the workers waiting for pages have been stopped
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    
+    private void addSchemaTriple(ETriple triple) {
+        Set<Triple> triples = schemaTerms.get(triple.getSubject());
+        if(triples == null) {
+            triples = new HashSet<>();
+            schemaTerms.put(triple.getSubject(), triples);
+        }
+        triples.add(triple);
+    }
+    
+    private static List<String> readTriples(Set<String> files) throws IOException {
+        
+        List<String> triples = new ArrayList<>();
+        
+        for(String file: files) {
+            for(Triple triple: TripleUtils.csvToTriples(file, true)) {
+                triples.add(((ETriple) triple).toCsv());
+            }
+        }
+        
+        Collections.sort(triples);
+        
+        return triples;
+    }
+
+}
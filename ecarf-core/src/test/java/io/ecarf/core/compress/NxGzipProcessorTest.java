@@ -0,0 +1,333 @@
+package io.ecarf.core.compress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.ecarf.core.compress.callback.CommonsCsvCallback;
+import io.ecarf.core.compress.callback.DictionaryEncodeCallback;
+import io.ecarf.core.compress.callback.ExtractTerms2PartCallback;
+import io.ecarf.core.compress.callback.StringEscapeCallback;
+import io.ecarf.core.term.TermCounter;
+import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.yars.nx.Node;
+import org.semanticweb.yars.nx.parser.NxParser;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class NxGzipProcessorTest {
+
+    private static final String IN_FILE = "linkedgeodata_links.nt.gz";
+
+    private String inFile;
+
+    private List<String> files = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        inFile = FilenameUtils.getLocalFilePath(IN_FILE);
+        Files.copy(this.getClass().getResourceAsStream("/" + IN_FILE), Paths.get(inFile),
+                StandardCopyOption.REPLACE_EXISTING);
+        files.add(inFile);
+    }
+
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testProcessPipelinedOrdered() throws IOException {
+
+        List<String> expected = readLines(this.process(new StringEscapeCallback(), "single.gz"));
+
+        List<StringEscapeCallback> callbacks = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            callbacks.add(new StringEscapeCallback());
+        }
+
+        NxGzipProcessor processor = new NxGzipProcessor(inFile, this.outFile("pipelined.gz"));
+        processor.setBatchSize(16 * 1024);
+
+        List<String> actual = readLines(processor.process(callbacks, true));
+
+        assertTrue(expected.size() > 6000);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testProcessPipelinedUnordered() throws IOException {
+
+        List<String> expected = readLines(this.process(new CommonsCsvCallback(), "single.gz"));
+
+        List<CommonsCsvCallback> callbacks = new ArrayList<>();
+        for(int i = 0; i < 4; i++) {
+            callbacks.add(new CommonsCsvCallback());
+        }
+
+        NxGzipProcessor processor = new NxGzipProcessor(inFile, this.outFile("pipelined.gz"));
+        processor.setBatchSize(8 * 1024);
+
+        List<String> actual = readLines(processor.process(callbacks, false));
+
+        Collections.sort(expected);
+        Collections.sort(actual);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test(timeout = 60000)
+    public void testProcessPipelinedFailure() throws IOException {
+        
+        final AtomicInteger count = new AtomicInteger();
+
+        for(boolean ordered: new boolean [] {true, false}) {
+
+            List<StringEscapeCallback> callbacks = new ArrayList<>();
+            
+            for(int i = 0; i < 3; i++) {
+                callbacks.add(new StringEscapeCallback());
+            }
+
+            // fails part way through the file
+            callbacks.add(new StringEscapeCallback() {
+                @Override
+                public String processNTriple(Node[] nodes) throws IOException {
+                    if(count.incrementAndGet() == 500) {
+                        throw new IOException("Failed to process triple");
+                    }
+                    return super.processNTriple(nodes);
+                }
+            });
+
+            NxGzipProcessor processor = new NxGzipProcessor(inFile, this.outFile("failed.gz"));
+            processor.setBatchSize(4 * 1024);
+
+            try {
+                processor.process(callbacks, ordered);
+                fail("Expected an IOException");
+
+            } catch(IOException e) {
+                // expected
+            }
+            
+            count.set(0);
+        }
+    }
+
+    @Test
+    public void testProcessTriples() throws IOException {
+        
+        NxGzipProcessor processor = new NxGzipProcessor(inFile, this.outFile("single.gz"));
+        
+        TermDictionary dictionary = getDictionary(inFile);
+        
+        // the output of the NxParser nodes version
+        DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
+        callback.setDictionary(dictionary);
+        
+        List<String> expected = new ArrayList<>();
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(inFile))))) {
+            
+            NxParser nxp = new NxParser(reader);
+            
+            while(nxp.hasNext()) {
+                Node[] ns = nxp.next();
+                if(ns.length == 3) {
+                    expected.add(callback.processNTriple(ns));
+                }
+            }
+        }
+        
+        assertTrue(expected.size() > 6000);
+        assertEquals(expected, readLines(processor.process(callback)));
+        
+        List<DictionaryEncodeCallback> callbacks = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            callbacks.add(new DictionaryEncodeCallback());
+            callbacks.get(i).setDictionary(dictionary);
+        }
+        
+        processor = new NxGzipProcessor(inFile, this.outFile("pipelined.gz"));
+        processor.setBatchSize(16 * 1024);
+        
+        assertEquals(expected, readLines(processor.process(callbacks, true)));
+    }
+
+    @Test
+    public void testProcessPipelinedNoSpaceBeforeDot() throws IOException {
+        
+        // valid triples that the single threaded and pipelined modes must both encode
+        String extra = "<http://example.org/s> <http://example.org/p> \"lit\".\n" + 
+                "<http://example.org/s> <http://example.org/p> _:b1.\n";
+        
+        List<String> lines = readLines(inFile);
+        String file = this.outFile("no_space_dot.nt.gz");
+        
+        try(Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), 
+                StandardCharsets.UTF_8)) {
+            
+            writer.write(extra);
+            
+            for(int i = 0; i < lines.size(); i++) {
+                
+                writer.write(lines.get(i));
+                writer.write('\n');
+                
+                if(i == (lines.size() >> 1)) {
+                    writer.write(extra);
+                }
+            }
+            
+            writer.write(extra);
+        }
+        
+        TermDictionary dictionary = getDictionary(file);
+        
+        DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
+        callback.setDictionary(dictionary);
+        
+        int triples = readLines(this.process(callback, "original.gz")).size();
+        
+        List<String> expected = readLines(new NxGzipProcessor(file, this.outFile("single.gz")).process(callback));
+        
+        assertEquals(triples + 6, expected.size());
+        
+        List<DictionaryEncodeCallback> callbacks = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            callbacks.add(new DictionaryEncodeCallback());
+            callbacks.get(i).setDictionary(dictionary);
+        }
+        
+        NxGzipProcessor processor = new NxGzipProcessor(file, this.outFile("pipelined.gz"));
+        processor.setBatchSize(16 * 1024);
+        
+        assertEquals(expected, readLines(processor.process(callbacks, true)));
+    }
+
+    @Test
+    public void testReadTriples() throws IOException {
+        
+        // the NxParser nodes version
+        TermCounter expectedCounter = new TermCounter();
+        ExtractTerms2PartCallback expected = new ExtractTerms2PartCallback();
+        expected.setSplitLocation(-1);
+        expected.setCounter(expectedCounter);
+        expected.setCountParts(true);
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(inFile))))) {
+            
+            NxParser nxp = new NxParser(reader);
+            
+            while(nxp.hasNext()) {
+                Node[] ns = nxp.next();
+                if(ns.length == 3) {
+                    expected.processNTriple(ns);
+                }
+            }
+        }
+        
+        TermCounter actualCounter = new TermCounter();
+        ExtractTerms2PartCallback actual = new ExtractTerms2PartCallback();
+        actual.setSplitLocation(-1);
+        actual.setCounter(actualCounter);
+        actual.setCountParts(true);
+        
+        new NxGzipProcessor(inFile).read(actual);
+        
+        assertTrue(expected.getResources().size() > 1000);
+        assertEquals(expected.getResources(), actual.getResources());
+        assertEquals(expected.getBlankNodes(), actual.getBlankNodes());
+        assertEquals(expected.getLiteralCount(), actual.getLiteralCount());
+        assertEquals(expectedCounter.getCount(), actualCounter.getCount());
+        
+        for(String part: expected.getResources()) {
+            assertEquals(expected.getResources().getCount(part), actual.getResources().getCount(part));
+        }
+        
+        for(String bNode: expected.getBlankNodes()) {
+            assertEquals(expected.getBlankNodes().getCount(bNode), actual.getBlankNodes().getCount(bNode));
+        }
+    }
+
+    private String process(NxGzipCallback callback, String name) throws IOException {
+        NxGzipProcessor processor = new NxGzipProcessor(inFile, this.outFile(name));
+        return processor.process(callback);
+    }
+
+    /**
+     * @return a dictionary of all the URIs and blank nodes of the file
+     */
+    private static TermDictionary getDictionary(String file) throws IOException {
+        
+        ExtractTerms2PartCallback extract = new ExtractTerms2PartCallback();
+        extract.setSplitLocation(-1);
+        extract.setCounter(new TermCounter());
+        new NxGzipProcessor(file).read(extract);
+        
+        TermDictionary dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+        
+        for(String part: extract.getResources()) {
+            dictionary.add(part);
+        }
+        
+        for(String bNode: extract.getBlankNodes()) {
+            dictionary.add(bNode);
+        }
+        
+        return dictionary;
+    }
+
+    private String outFile(String name) {
+        String file = FilenameUtils.getLocalFilePath(name);
+        files.add(file);
+        return file;
+    }
+
+    private static List<String> readLines(String file) throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file))))) {
+
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        return lines;
+    }
+
+}
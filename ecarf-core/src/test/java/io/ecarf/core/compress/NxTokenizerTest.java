@@ -0,0 +1,178 @@
+/**
+ * The contents of this file may be used under the terms of the Apache License, Version 2.0
+ * in which case, the provisions of the Apache License Version 2.0 are applicable instead of those above.
+ *
+ * Copyright 2014, Ecarf.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.ecarf.core.compress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class NxTokenizerTest {
+
+    @Test
+    public void testNext() {
+
+        String data = 
+                "# a comment\n" +
+                "<http://example.org/a> <http://example.org/p> <http://example.org/b> .\n" +
+                "\n" +
+                "_:b1\t<http://example.org/p>   \"say \\\"hi\\\"\"@en .\r\n" +
+                "<http://example.org/a> <http://example.org/p> \"10\"^^<http://www.w3.org/2001/XMLSchema#int> .\n" +
+                "<http://example.org/a> <http://example.org/p> <http://example.org/b> <http://example.org/g> .\n" +
+                "\"literal\" <http://example.org/p> <http://example.org/b> .\n" +
+                "<http://example.org/a> <http://example.org/p> \"unterminated .\n" +
+                "  <http://example.org/last> <http://example.org/p> _:b2 .";
+
+        NxTokenizer tokenizer = new NxTokenizer().reset(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "<http://example.org/b>");
+        assertEquals(NxTokenizer.URI, tokenizer.getType(0));
+        assertEquals(NxTokenizer.URI, tokenizer.getType(2));
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "_:b1", "<http://example.org/p>", "\"say \\\"hi\\\"\"@en");
+        assertEquals(NxTokenizer.BLANK_NODE, tokenizer.getType(0));
+        assertEquals(NxTokenizer.LITERAL, tokenizer.getType(2));
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", 
+                "\"10\"^^<http://www.w3.org/2001/XMLSchema#int>");
+
+        // the quad, the literal subject and the unterminated literal are skipped
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/last>", "<http://example.org/p>", "_:b2");
+        assertEquals(NxTokenizer.BLANK_NODE, tokenizer.getType(2));
+
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void testNoSpaceBeforeDot() {
+
+        String data = 
+                "<http://example.org/a> <http://example.org/p> \"x\".\n" +
+                "<http://example.org/a> <http://example.org/p> \"x\"@en. \n" +
+                "<http://example.org/a> <http://example.org/p> \"x\"^^<http://example.org/t>.\n" +
+                "<http://example.org/a> <http://example.org/p> _:b1.\r\n" +
+                "_:b.2 <http://example.org/p> _:b.3.\n" +
+                "<http://example.org/a> <http://example.org/p> <http://example.org/b>.\n" +
+                "<http://example.org/a> <http://example.org/p> _:b4\n" +
+                "<http://example.org/a> <http://example.org/p> _:b5 <http://example.org/g>.";
+
+        NxTokenizer tokenizer = new NxTokenizer().reset(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "\"x\"");
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "\"x\"@en");
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "\"x\"^^<http://example.org/t>");
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "_:b1");
+
+        // only the final dot ends a blank node label
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "_:b.2", "<http://example.org/p>", "_:b.3");
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, "<http://example.org/a>", "<http://example.org/p>", "<http://example.org/b>");
+
+        // the unterminated line and the quad are skipped
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void testOffsets() {
+
+        String data = "<http://example.org/a> <http://example.org/p> _:b .\n";
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+
+        // only the range between the position and the limit is tokenized
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length * 3);
+        buffer.put(bytes).put(bytes).put(bytes);
+        buffer.position(bytes.length).limit(bytes.length * 2);
+
+        NxTokenizer tokenizer = new NxTokenizer().reset(buffer);
+
+        assertTrue(tokenizer.next());
+        assertEquals(bytes.length, tokenizer.getStart(0));
+        assertEquals(bytes.length + 22, tokenizer.getEnd(0));
+        assertEquals(bytes.length + 46, tokenizer.getStart(2));
+        assertEquals(bytes.length + 49, tokenizer.getEnd(2));
+        assertFalse(tokenizer.next());
+
+        assertEquals(bytes.length, buffer.position());
+    }
+
+    @Test
+    public void testMultiByteChars() {
+
+        String subject = "<http://dbpedia.org/resource/Caf\u00e9_\u00d6sterreich>";
+        String object = "\"\u65e5\u672c\u8a9e \ud83d\ude00\"@ja";
+
+        String data = subject + " <http://example.org/p> " + object + " .\n" + 
+                "<http://example.org/a> <http://example.org/p> \"bad \u00e9\"^^<http://example.org/t> .\n";
+
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+
+        NxTokenizer tokenizer = new NxTokenizer().reset(ByteBuffer.wrap(bytes));
+
+        assertTrue(tokenizer.next());
+        assertTriple(tokenizer, subject, "<http://example.org/p>", object);
+        assertFalse(tokenizer.isAscii(0));
+        assertTrue(tokenizer.isAscii(1));
+        assertFalse(tokenizer.isAscii(2));
+        assertEquals(subject.length(), tokenizer.getChars(0).length());
+        assertEquals("Caf\u00e9", tokenizer.getChars(0).subSequence(29, 33).toString());
+
+        assertTrue(tokenizer.next());
+        assertEquals("\"bad \u00e9\"^^<http://example.org/t>", tokenizer.getString(2));
+        assertFalse(tokenizer.next());
+
+        // a truncated multi byte char is replaced
+        bytes = "<http://example.org/\u00e9> <http://example.org/p> _:b .".getBytes(StandardCharsets.UTF_8);
+        bytes[20] = bytes[21];
+
+        tokenizer.reset(ByteBuffer.wrap(bytes));
+        assertTrue(tokenizer.next());
+        assertEquals("<http://example.org/\ufffd\ufffd>", tokenizer.getString(0));
+    }
+
+    private static void assertTriple(NxTokenizer tokenizer, String subject, String predicate, String object) {
+        assertEquals(subject, tokenizer.getString(0));
+        assertEquals(predicate, tokenizer.getString(1));
+        assertEquals(object, tokenizer.getString(2));
+        assertEquals(subject, tokenizer.getChars(0).toString());
+    }
+
+}
@@ -0,0 +1,124 @@
+package io.ecarf.core.reason.rulebased;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.utils.LongTripleSink;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class RuleTableTest {
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private static final long [] PREDICATES = {SchemaURIType.RDFS_SUBCLASS.id, SchemaURIType.RDFS_SUBPROPERTY.id, 
+        SchemaURIType.RDFS_DOMAIN.id, SchemaURIType.RDFS_RANGE.id};
+
+    @Test
+    public void testApplyMatchesRuleHeads() {
+        
+        Random random = new Random(20160501L);
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        
+        // term 0 and large ids are valid keys too
+        List<Long> terms = new ArrayList<>();
+        terms.add(0L);
+        terms.add(Long.MAX_VALUE >>> 1);
+        
+        for(int i = 0; i < 300; i++) {
+            terms.add(1000L + random.nextInt(400));
+        }
+        
+        for(int i = 0; i < 1000; i++) {
+            
+            Long subject = terms.get(random.nextInt(terms.size()));
+            
+            ETriple triple = new ETriple(subject, PREDICATES[random.nextInt(PREDICATES.length)], 
+                    terms.get(random.nextInt(terms.size())), null);
+            
+            Set<Triple> triples = schemaTerms.get(subject);
+            if(triples == null) {
+                triples = new HashSet<>();
+                schemaTerms.put(subject, triples);
+            }
+            triples.add(triple);
+        }
+        
+        // an empty set triggers nothing
+        schemaTerms.put(5L, new HashSet<Triple>());
+        
+        RuleTable rules = new RuleTable(schemaTerms);
+        
+        assertEquals(schemaTerms.size() - 1, rules.size());
+        
+        final List<String> actual = new ArrayList<>();
+        
+        LongTripleSink sink = new LongTripleSink() {
+            @Override
+            public void add(long subject, long predicate, long object) {
+                actual.add(subject + "," + predicate + "," + ((object >= 0) ? object : "literal"));
+            }
+        };
+        
+        for(int i = 0; i < 20_000; i++) {
+            
+            long subject = random.nextInt(1_000_000);
+            long predicate = random.nextBoolean() ? TYPE : terms.get(random.nextInt(terms.size()));
+            
+            if(random.nextInt(10) == 0) {
+                // not in the schema
+                predicate = 2000 + random.nextInt(100);
+            }
+            
+            boolean literal = (predicate != TYPE) && random.nextBoolean();
+            long object = literal ? -1 : terms.get(random.nextInt(terms.size()));
+            
+            ETriple instance = new ETriple(subject, predicate, literal ? null : object, literal ? "literal" : null);
+            
+            List<String> expected = new ArrayList<>();
+            Set<Triple> schemaTriples = schemaTerms.get((predicate == TYPE) ? object : predicate);
+            
+            if(schemaTriples != null) {
+                for(Triple schemaTriple: schemaTriples) {
+                    Triple head = GenericRule.getRule(schemaTriple).head(schemaTriple, instance);
+                    
+                    if(head != null) {
+                        expected.add(head.getSubject() + "," + head.getPredicate() + "," + 
+                                ((head.getObject() != null) ? head.getObject() : "literal"));
+                    }
+                }
+            }
+            
+            actual.clear();
+            
+            int slot = rules.apply(subject, predicate, object, sink);
+            
+            if((schemaTriples != null) && !schemaTriples.isEmpty()) {
+                assertTrue(slot >= 0);
+                assertEquals(((predicate == TYPE) ? object : predicate), rules.getTerm(slot));
+                
+            } else {
+                assertEquals(-1, slot);
+            }
+            
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+            assertEquals(expected.size(), actual.size());
+        }
+    }
+
+}
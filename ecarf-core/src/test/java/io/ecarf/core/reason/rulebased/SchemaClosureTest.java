@@ -0,0 +1,77 @@
+package io.ecarf.core.reason.rulebased;
+
+import static org.junit.Assert.assertEquals;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SchemaClosureTest {
+    
+    private static final long SUB_CLASS = SchemaURIType.RDFS_SUBCLASS.id;
+    
+    private static final long SUB_PROPERTY = SchemaURIType.RDFS_SUBPROPERTY.id;
+    
+    private static final long DOMAIN = SchemaURIType.RDFS_DOMAIN.id;
+    
+    private static final long RANGE = SchemaURIType.RDFS_RANGE.id;
+
+    @Test
+    public void testClose() {
+        
+        long classA = 2000, classB = 2001, classC = 2002, classD = 2003;
+        long propertyP = 3000, propertyQ = 3001, propertyR = 3002;
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        add(schemaTerms, new ETriple(classA, SUB_CLASS, classB, null));
+        add(schemaTerms, new ETriple(classB, SUB_CLASS, classC, null));
+        // a cycle
+        add(schemaTerms, new ETriple(classC, SUB_CLASS, classB, null));
+        add(schemaTerms, new ETriple(propertyP, SUB_PROPERTY, propertyQ, null));
+        add(schemaTerms, new ETriple(propertyQ, SUB_PROPERTY, propertyR, null));
+        add(schemaTerms, new ETriple(propertyR, DOMAIN, classB, null));
+        add(schemaTerms, new ETriple(propertyQ, RANGE, classD, null));
+        
+        Map<Long, Set<Triple>> closed = SchemaClosure.close(schemaTerms);
+        
+        assertEquals(Sets.newHashSet(
+                new ETriple(classA, SUB_CLASS, classB, null), 
+                new ETriple(classA, SUB_CLASS, classC, null)), closed.get(classA));
+        
+        // the reflexive B subClassOf B is dropped
+        assertEquals(Sets.newHashSet(new ETriple(classC, SUB_CLASS, classB, null)), closed.get(classC));
+        
+        assertEquals(Sets.newHashSet(
+                new ETriple(propertyP, SUB_PROPERTY, propertyQ, null), 
+                new ETriple(propertyP, SUB_PROPERTY, propertyR, null),
+                new ETriple(propertyP, DOMAIN, classB, null),
+                new ETriple(propertyP, DOMAIN, classC, null),
+                new ETriple(propertyP, RANGE, classD, null)), closed.get(propertyP));
+        
+        assertEquals(Sets.newHashSet(
+                new ETriple(propertyR, DOMAIN, classB, null),
+                new ETriple(propertyR, DOMAIN, classC, null)), closed.get(propertyR));
+    }
+    
+    private static void add(Map<Long, Set<Triple>> schemaTerms, ETriple triple) {
+        Set<Triple> triples = schemaTerms.get(triple.getSubject());
+        if(triples == null) {
+            triples = new HashSet<>();
+            schemaTerms.put(triple.getSubject(), triples);
+        }
+        triples.add(triple);
+    }
+
+}
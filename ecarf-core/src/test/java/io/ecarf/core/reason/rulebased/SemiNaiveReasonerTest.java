@@ -0,0 +1,310 @@
+package io.ecarf.core.reason.rulebased;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.triple.ETriple;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.triple.Triple;
+import io.ecarf.core.triple.TripleUtils;
+import io.ecarf.core.utils.FilenameUtils;
+import io.ecarf.core.utils.LongTripleBuffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SemiNaiveReasonerTest {
+    
+    private static final long TYPE = SchemaURIType.RDF_TYPE.id;
+    
+    private static final long SUB_CLASS = SchemaURIType.RDFS_SUBCLASS.id;
+    
+    private static final long SUB_PROPERTY = SchemaURIType.RDFS_SUBPROPERTY.id;
+    
+    private static final long DOMAIN = SchemaURIType.RDFS_DOMAIN.id;
+    
+    private static final long RANGE = SchemaURIType.RDFS_RANGE.id;
+    
+    private List<String> files = new ArrayList<>();
+    
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testReasonMatchesNaiveClosure() throws IOException {
+        
+        Random random = new Random(20160415L);
+        
+        Map<Long, Set<Triple>> schemaTerms = randomSchema(random);
+        List<ETriple> instance = randomInstance(random);
+        
+        Set<String> expected = naiveClosure(schemaTerms, instance);
+        
+        for(int threads: new int [] {1, 4}) {
+            
+            SemiNaiveReasoner reasoner = new SemiNaiveReasoner(schemaTerms, threads);
+            
+            LongTripleBuffer triples = new LongTripleBuffer();
+            
+            for(ETriple triple: instance) {
+                triples.add(triple.getSubject(), triple.getPredicate(), (triple.getObject() != null) ? 
+                        triple.getObject() : reasoner.addLiteral(triple.getObjectLiteral()));
+            }
+            
+            LongTripleBuffer inferred = reasoner.reason(triples);
+            
+            Set<String> actual = new HashSet<>();
+            
+            for(int i = 0; i < inferred.size(); i++) {
+                
+                long object = inferred.getObject(i);
+                
+                ETriple triple = (object >= 0) ? 
+                        new ETriple(inferred.getSubject(i), inferred.getPredicate(i), object, null) : 
+                        new ETriple(inferred.getSubject(i), inferred.getPredicate(i), null, reasoner.getLiteral(object));
+                
+                // each inferred triple is only reported once
+                assertTrue(actual.add(triple.toCsv()));
+            }
+            
+            assertTrue(expected.size() > 1000);
+            assertEquals(expected, actual);
+        }
+    }
+    
+    @Test
+    public void testReasonFiles() throws IOException {
+        
+        long classA = 2000, classB = 2001, classC = 2002, classD = 2003, classE = 2004;
+        long propertyP = 3000, propertyQ = 3001;
+        long x = 4000, y = 4001;
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        addSchemaTriple(schemaTerms, new ETriple(classA, SUB_CLASS, classB, null));
+        addSchemaTriple(schemaTerms, new ETriple(classB, SUB_CLASS, classC, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyP, SUB_PROPERTY, propertyQ, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyQ, DOMAIN, classD, null));
+        addSchemaTriple(schemaTerms, new ETriple(propertyQ, RANGE, classE, null));
+        
+        String inFile = this.file("QueryResults_0.csv.gz");
+        
+        // compressed query results have a header row
+        try(PrintWriter writer = new PrintWriter(new GZIPOutputStream(new FileOutputStream(inFile)))) {
+            writer.println("subject,predicate,object,object_literal");
+            writer.println(new ETriple(x, TYPE, classA, null).toCsv());
+            writer.println(new ETriple(x, propertyP, y, null).toCsv());
+            writer.println(new ETriple(y, propertyP, null, "a literal, with a comma").toCsv());
+        }
+        
+        String outFile = this.file("QueryResults_0.csv.gz.inf");
+        
+        SemiNaiveReasoner reasoner = new SemiNaiveReasoner(schemaTerms, 2);
+        
+        assertEquals(7, reasoner.reason(Collections.singletonList(inFile), true, outFile));
+        
+        Set<String> expected = new HashSet<>();
+        expected.add(new ETriple(x, TYPE, classB, null).toCsv());
+        expected.add(new ETriple(x, TYPE, classC, null).toCsv());
+        expected.add(new ETriple(x, propertyQ, y, null).toCsv());
+        expected.add(new ETriple(y, propertyQ, null, "a literal, with a comma").toCsv());
+        expected.add(new ETriple(x, TYPE, classD, null).toCsv());
+        expected.add(new ETriple(y, TYPE, classD, null).toCsv());
+        expected.add(new ETriple(y, TYPE, classE, null).toCsv());
+        
+        Set<String> actual = new HashSet<>();
+        for(Triple triple: TripleUtils.loadCompressedCSVTriples(outFile, true)) {
+            actual.add(triple.toCsv());
+        }
+        
+        assertEquals(expected, actual);
+        // two productive cycles and an empty one
+        assertEquals(3, reasoner.getCycles());
+    }
+    
+    @Test
+    public void testClosedSchemaSinglePass() throws IOException {
+        
+        Random random = new Random(20160416L);
+        
+        Map<Long, Set<Triple>> schemaTerms = randomSchema(random);
+        List<ETriple> instance = randomInstance(random);
+        
+        Set<String> expected = naiveClosure(schemaTerms, instance);
+        
+        Map<Long, Set<Triple>> closed = SchemaClosure.close(schemaTerms);
+        
+        // one pass over the instance triples with the closed schema
+        Set<String> actual = new HashSet<>();
+        Set<String> instanceCsv = new HashSet<>();
+        
+        for(ETriple triple: instance) {
+            instanceCsv.add(triple.toCsv());
+        }
+        
+        for(ETriple triple: instance) {
+            
+            Set<Triple> schemaTriples = closed.get((TYPE == triple.getPredicate()) ? triple.getObject() : triple.getPredicate());
+            
+            if(schemaTriples != null) {
+                for(Triple schemaTriple: schemaTriples) {
+                    
+                    Triple head = GenericRule.getRule(schemaTriple).head(schemaTriple, triple);
+                    
+                    if((head != null) && !instanceCsv.contains(head.toCsv())) {
+                        actual.add(head.toCsv());
+                    }
+                }
+            }
+        }
+        
+        assertEquals(expected, actual);
+        
+        SemiNaiveReasoner reasoner = new SemiNaiveReasoner(closed, 2);
+        
+        LongTripleBuffer triples = new LongTripleBuffer();
+        
+        for(ETriple triple: instance) {
+            triples.add(triple.getSubject(), triple.getPredicate(), (triple.getObject() != null) ? 
+                    triple.getObject() : reasoner.addLiteral(triple.getObjectLiteral()));
+        }
+        
+        assertEquals(expected.size(), reasoner.reason(triples).size());
+        // one productive cycle and an empty one
+        assertEquals(2, reasoner.getCycles());
+    }
+    
+    /**
+     * Classes 2000 - 2039 and properties 3000 - 3019 with random hierarchies, including cycles
+     */
+    private static Map<Long, Set<Triple>> randomSchema(Random random) {
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        
+        for(int i = 0; i < 60; i++) {
+            addSchemaTriple(schemaTerms, new ETriple(2000L + random.nextInt(40), SUB_CLASS, 
+                    2000L + random.nextInt(40), null));
+        }
+        
+        for(int i = 0; i < 20; i++) {
+            long property = 3000L + random.nextInt(20);
+            
+            addSchemaTriple(schemaTerms, new ETriple(property, SUB_PROPERTY, 3000L + random.nextInt(20), null));
+            
+            if(random.nextBoolean()) {
+                addSchemaTriple(schemaTerms, new ETriple(property, DOMAIN, 2000L + random.nextInt(40), null));
+            } else {
+                addSchemaTriple(schemaTerms, new ETriple(property, RANGE, 2000L + random.nextInt(40), null));
+            }
+        }
+        
+        return schemaTerms;
+    }
+    
+    private static List<ETriple> randomInstance(Random random) {
+        
+        List<ETriple> instance = new ArrayList<>();
+        
+        for(int i = 0; i < 2000; i++) {
+            
+            long subject = 10_000 + random.nextInt(500);
+            
+            switch(random.nextInt(3)) {
+                case 0:
+                    instance.add(new ETriple(subject, TYPE, 2000L + random.nextInt(45), null));
+                    break;
+                    
+                case 1:
+                    instance.add(new ETriple(subject, 3000L + random.nextInt(25), 10_000L + random.nextInt(500), null));
+                    break;
+                    
+                default:
+                    instance.add(new ETriple(subject, 3000L + random.nextInt(25), null, "literal " + random.nextInt(50)));
+            }
+        }
+        
+        return instance;
+    }
+    
+    /**
+     * Apply the rules to all the triples until nothing new is inferred
+     * @return the inferred triples as CSV
+     */
+    private static Set<String> naiveClosure(Map<Long, Set<Triple>> schemaTerms, List<ETriple> instance) {
+        
+        Set<String> closure = new HashSet<>();
+        List<Triple> triples = new ArrayList<>();
+        
+        for(ETriple triple: instance) {
+            if(closure.add(triple.toCsv())) {
+                triples.add(triple);
+            }
+        }
+        
+        Set<String> inferred = new HashSet<>();
+        boolean changed = true;
+        
+        while(changed) {
+            
+            changed = false;
+            
+            for(Triple triple: new ArrayList<>(triples)) {
+                
+                Long term = (TYPE == (Long) triple.getPredicate()) ? (Long) triple.getObject() : (Long) triple.getPredicate();
+                
+                Set<Triple> schemaTriples = schemaTerms.get(term);
+                
+                if(schemaTriples != null) {
+                    for(Triple schemaTriple: schemaTriples) {
+                        
+                        Triple head = GenericRule.getRule(schemaTriple).head(schemaTriple, triple);
+                        
+                        if((head != null) && closure.add(head.toCsv())) {
+                            inferred.add(head.toCsv());
+                            triples.add(head);
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        
+        return inferred;
+    }
+    
+    private static void addSchemaTriple(Map<Long, Set<Triple>> schemaTerms, ETriple triple) {
+        Set<Triple> triples = schemaTerms.get(triple.getSubject());
+        if(triples == null) {
+            triples = new HashSet<>();
+            schemaTerms.put(triple.getSubject(), triples);
+        }
+        triples.add(triple);
+    }
+    
+    private String file(String name) {
+        String file = FilenameUtils.getLocalFilePath(name);
+        files.add(file);
+        return file;
+    }
+
+}
@@ -21,7 +21,9 @@
 package io.ecarf.core.reason.rulebased.query;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.triple.ETriple;
 import io.ecarf.core.triple.SchemaURIType;
 import io.ecarf.core.triple.Triple;
 import io.ecarf.core.triple.TripleUtils;
@@ -29,6 +31,8 @@ import io.ecarf.core.triple.TripleUtils;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -182,6 +186,144 @@ public class QueryGeneratorTest {
         
     }
     
+    /**
+     * Test that the terms are bin packed into the fewest queries of similar estimated rows
+     */
+    @Test
+    public void testGetQueriesWithTermStats() {
+        
+        Map<Long, Set<Triple>> schemaTerms = this.getSchemaTerms(10);
+        Map<Long, Long> termStats = new HashMap<>();
+        
+        for(long i = 0; i < 10; i++) {
+            termStats.put(3000 + i, (i + 1) * 10);
+        }
+        
+        QueryGenerator<Long> generator = new QueryGenerator<>(schemaTerms, "my-table-5");
+        
+        // 550 rows in total
+        List<List<Long>> partitions = generator.partition(termStats, 200);
+        
+        assertEquals(3, partitions.size());
+        
+        Set<Long> terms = new HashSet<>();
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        
+        for(List<Long> partition: partitions) {
+            
+            long rows = 0;
+            for(Long term: partition) {
+                rows += termStats.get(term);
+                assertTrue(terms.add(term));
+            }
+            
+            min = Math.min(min, rows);
+            max = Math.max(max, rows);
+        }
+        
+        assertEquals(schemaTerms.keySet(), terms);
+        assertTrue(max - min <= 10);
+        
+        assertEquals(3, generator.getQueries(termStats, 200).size());
+        
+        // no limit, or no stats then a single query
+        assertEquals(1, generator.getQueries(termStats, 0).size());
+        assertEquals(1, generator.getQueries(null, 200).size());
+        assertEquals(generator.getQuery(), generator.getQueries().get(0));
+        
+        // a term larger than the limit gets a query of its own
+        assertEquals(10, generator.getQueries(termStats, 5).size());
+        
+        // the limit holds even when the total rows would fit in fewer queries, 150 rows would fit in 3 of 50 
+        // but 30 + 30 can't share one
+        schemaTerms = this.getSchemaTerms(4);
+        termStats.clear();
+        termStats.put(3000L, 60L);
+        termStats.put(3001L, 30L);
+        termStats.put(3002L, 30L);
+        termStats.put(3003L, 30L);
+        
+        generator = new QueryGenerator<>(schemaTerms, "my-table-5");
+        partitions = generator.partition(termStats, 50);
+        
+        assertEquals(4, partitions.size());
+        
+        for(List<Long> partition: partitions) {
+            assertEquals(1, partition.size());
+        }
+        
+        // the largest query is a single term over the limit, the other queries must still fit
+        schemaTerms = this.getSchemaTerms(5);
+        termStats.clear();
+        termStats.put(3000L, 80L);
+        
+        for(long i = 1; i < 5; i++) {
+            termStats.put(3000 + i, 30L);
+        }
+        
+        generator = new QueryGenerator<>(schemaTerms, "my-table-5");
+        partitions = generator.partition(termStats, 50);
+        
+        assertEquals(5, partitions.size());
+        
+        for(List<Long> partition: partitions) {
+            
+            long rows = 0;
+            for(Long term: partition) {
+                rows += termStats.get(term);
+            }
+            
+            assertTrue((partition.size() == 1) || (rows <= 50));
+        }
+    }
+    
+    /**
+     * Test that queries longer than the maximum length are split
+     */
+    @Test
+    public void testGetQueriesMaxLength() {
+        
+        Map<Long, Set<Triple>> schemaTerms = this.getSchemaTerms(100);
+        
+        QueryGenerator<Long> generator = new QueryGenerator<>(schemaTerms, "my-table-6");
+        
+        int length = generator.getQuery().length();
+        
+        generator.setMaxQueryLength(length / 3);
+        
+        List<String> queries = generator.getQueries();
+        
+        assertTrue(queries.size() >= 4);
+        
+        int total = 0;
+        
+        for(String query: queries) {
+            assertTrue(query.length() <= length / 3);
+            
+            for(long i = 0; i < 100; i++) {
+                if(query.contains(Long.toString(3000 + i))) {
+                    total++;
+                }
+            }
+        }
+        
+        assertEquals(100, total);
+    }
+    
+    private Map<Long, Set<Triple>> getSchemaTerms(int count) {
+        
+        Map<Long, Set<Triple>> schemaTerms = new HashMap<>();
+        
+        for(long i = 0; i < count; i++) {
+            Set<Triple> triples = new HashSet<>();
+            triples.add(new ETriple(3000 + i, (long) SchemaURIType.RDFS_DOMAIN.id, 2000 + i, null));
+            schemaTerms.put(3000 + i, triples);
+        }
+        
+        return schemaTerms;
+    }
+    
     private void validateQuery(List<String> queries, String expQuery) {
         System.out.println(queries);
         
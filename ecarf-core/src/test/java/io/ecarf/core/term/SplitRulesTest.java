@@ -0,0 +1,164 @@
+package io.ecarf.core.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.term.dictionary.TermDictionary;
+import io.ecarf.core.term.dictionary.TermDictionaryCore;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class SplitRulesTest {
+    
+    private static final String LONG_HOST = "www.a-very-long-host-name.University4000.example.edu";
+
+    @Test
+    public void testPutGet() throws IOException {
+        
+        SplitRules rules = new SplitRules();
+        
+        // force a few resizes
+        for(int i = 0; i < 1000; i++) {
+            rules.put("host" + i + ".org", i % 3);
+        }
+        
+        rules.put("host7.org", 5);
+        
+        assertEquals(1000, rules.size());
+        assertEquals(5, rules.getSplitLocation("host7.org"));
+        assertEquals(SplitRules.NO_RULE, rules.getSplitLocation("host7.com"));
+        
+        String term = "<http://host42.org/resource/x>";
+        assertEquals(0, rules.getSplitLocation(term, 8, 18));
+        
+        for(int i = 0; i < 1000; i++) {
+            if(i != 7) {
+                assertEquals(i % 3, rules.getSplitLocation("host" + i + ".org"));
+            }
+        }
+        
+        String file = FilenameUtils.getLocalFilePath("test_" + FilenameUtils.SPLIT_RULES_FILE);
+        
+        try {
+            SplitRules read = SplitRules.fromFile(rules.toFile(file));
+            assertEquals(rules.getRules(), read.getRules());
+            assertEquals(0, read.getSplitLocation(term, 8, 18));
+            
+        } finally {
+            new File(file).delete();
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLocation() {
+        new SplitRules().put("dbpedia.org", SplitRules.MAX_SPLIT_LOCATION + 1);
+    }
+    
+    @Test
+    public void testSplitIntoTwo() {
+        
+        SplitRules rules = new SplitRules();
+        rules.put("a.org", 0);
+        rules.put("b.org", 1);
+        rules.put("c.org", 3);
+        
+        assertEquals(Arrays.asList("a.org", "x/y/z"), TermUtils.splitIntoTwo("<http://a.org/x/y/z>", true, -1, rules));
+        assertEquals(Arrays.asList("b.org/x", "y/z"), TermUtils.splitIntoTwo("<https://b.org/x/y/z/>", true, -1, rules));
+        
+        // fewer slashes than the rule, split at the last one
+        assertEquals(Arrays.asList("c.org/x/y", "z"), TermUtils.splitIntoTwo("<http://c.org/x/y/z>", true, -1, rules));
+        assertEquals(Arrays.asList("c.org"), TermUtils.splitIntoTwo("<http://c.org>", true, -1, rules));
+        
+        // no rule, the default split
+        assertEquals(Arrays.asList("d.org/x/y", "z"), TermUtils.splitIntoTwo("<http://d.org/x/y/z>", true, -1, rules));
+        assertEquals(TermUtils.splitIntoTwo("<http://d.org/x/y/z>", true, 1), 
+                TermUtils.splitIntoTwo("<http://d.org/x/y/z>", true, 1, rules));
+    }
+    
+    @Test
+    public void testAnalyseEncodeDecode() {
+        
+        List<String> terms = new ArrayList<>();
+        
+        for(int i = 0; i < 200; i++) {
+            // the default split repeats the long host in every first part
+            terms.add("<http://" + LONG_HOST + "/" + i + "/index>");
+            // the default split is already the best
+            terms.add("<http://dbpedia.org/resource/Resource" + i + ">");
+            terms.add("<https://dbpedia.org/ontology/property" + (i % 10) + "/>");
+        }
+        
+        SplitRuleAnalyser analyser = new SplitRuleAnalyser(1000, 10_000);
+        
+        for(String term: terms) {
+            assertTrue(analyser.addTerm(term));
+        }
+        
+        // schema terms and blank nodes are not sampled
+        assertTrue(!analyser.addTerm("<http://www.w3.org/2000/01/rdf-schema#subClassOf>"));
+        assertTrue(!analyser.addTerm("_:node1"));
+        
+        assertEquals(2, analyser.getNumberOfHosts());
+        
+        SplitRules rules = analyser.analyse();
+        
+        assertEquals(1, rules.size());
+        assertEquals(0, rules.getSplitLocation(LONG_HOST));
+        assertEquals(SplitRules.NO_RULE, rules.getSplitLocation("dbpedia.org"));
+        
+        TermDictionary dictionary = createDictionary(terms, rules);
+        TermDictionary defaultDictionary = createDictionary(terms, null);
+        
+        assertTrue(dictionary.size() <= defaultDictionary.size());
+        assertTrue(getPartsLength(terms, rules) < getPartsLength(terms, null));
+        
+        for(String term: terms) {
+            assertEquals(term, dictionary.decode(dictionary.encode(term)));
+        }
+    }
+    
+    private static TermDictionary createDictionary(List<String> terms, SplitRules rules) {
+        
+        TermDictionaryCore dictionary = new TermDictionaryCore();
+        TermDictionary.populateRDFOWLData(dictionary);
+        dictionary.setSplitRules(rules);
+        
+        for(String term: terms) {
+            for(String part: TermUtils.splitIntoTwo(term, true, -1, rules)) {
+                dictionary.add(part);
+            }
+        }
+        
+        dictionary.inverse();
+        
+        return dictionary;
+    }
+    
+    private static int getPartsLength(List<String> terms, SplitRules rules) {
+        
+        Set<String> parts = new HashSet<>();
+        
+        for(String term: terms) {
+            parts.addAll(TermUtils.splitIntoTwo(term, true, -1, rules));
+        }
+        
+        int length = 0;
+        for(String part: parts) {
+            length += part.length();
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,206 @@
+package io.ecarf.core.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class TermCounterTest {
+
+    private static final String [] TERMS = {
+        "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>", 
+        "<http://www.w3.org/2000/01/rdf-schema#subClassOf>",
+        "<http://swat.cse.lehigh.edu/onto/univ-bench.owl#Person>",
+        "<http://swat.cse.lehigh.edu/onto/univ-bench.owl#worksFor>",
+        "_:node1", ""
+    };
+
+    @Test
+    public void testCountTermsToCount() {
+
+        Set<String> termsToCount = new HashSet<>();
+        termsToCount.add(TERMS[0]);
+        termsToCount.add(TERMS[2]);
+        termsToCount.add(TERMS[5]);
+
+        TermCounter counter = new TermCounter();
+        counter.setTermsToCount(termsToCount);
+
+        Map<String, Integer> expected = this.countAll(counter);
+        expected.keySet().retainAll(termsToCount);
+
+        assertEquals(3, expected.size());
+        assertEquals(expected, counter.getCount());
+        assertEquals(0, counter.getCount(TERMS[1]));
+        assertEquals((int) expected.get(TERMS[2]), counter.getCount(TERMS[2]));
+        assertFalse(counter.isApproximate());
+
+        counter.setCount(expected);
+        assertEquals(expected, counter.getCount());
+    }
+
+    @Test
+    public void testCountAll() {
+
+        TermCounter counter = new TermCounter();
+
+        Map<String, Integer> expected = this.countAll(counter);
+
+        // force the segments to resize
+        for(int i = 0; i < 20_000; i++) {
+            String term = "<http://example.org/" + i + ">";
+            counter.count(term);
+            expected.put(term, 1);
+        }
+
+        assertEquals(expected, counter.getCount());
+        assertEquals(1, counter.getCount("<http://example.org/19999>"));
+
+        counter.setCount(new HashMap<String, Integer>());
+        assertTrue(counter.getCount().isEmpty());
+
+        counter.add(expected);
+        counter.add(expected);
+        assertEquals(2, counter.getCount("<http://example.org/7>"));
+    }
+
+    @Test
+    public void testConcurrentCount() throws Exception {
+
+        final TermCounter counter = new TermCounter();
+
+        Set<String> termsToCount = new HashSet<>();
+        termsToCount.add(TERMS[0]);
+        termsToCount.add(TERMS[1]);
+
+        final TermCounter schemaCounter = new TermCounter();
+        schemaCounter.setTermsToCount(termsToCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for(int t = 0; t < 4; t++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    CharWindow window = new CharWindow();
+                    for(int i = 0; i < 50_000; i++) {
+                        String term = TERMS[i % 2];
+                        counter.count(term);
+                        counter.count("<http://example.org/" + (i % 1000) + ">");
+                        schemaCounter.count(window.set(term, 0, term.length()));
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for(Future<Void> result: executor.invokeAll(tasks)) {
+                result.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100_000, counter.getCount(TERMS[0]));
+        assertEquals(100_000, counter.getCount(TERMS[1]));
+        assertEquals(200, counter.getCount("<http://example.org/999>"));
+        assertEquals(1002, counter.getCount().size());
+
+        assertEquals(100_000, schemaCounter.getCount(TERMS[0]));
+        assertEquals(100_000, schemaCounter.getCount(TERMS[1]));
+    }
+
+    @Test
+    public void testApproximate() {
+
+        TermCounter counter = new TermCounter(10, 4096);
+        assertTrue(counter.isApproximate());
+
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(20160501L);
+
+        // zipf like, term n occurs about 1/n as often as the first term
+        for(int i = 0; i < 200_000; i++) {
+
+            int rank = (int) Math.floor(Math.pow(100_000, random.nextDouble()));
+            String term = "<http://example.org/term" + rank + ">";
+
+            counter.count(term);
+
+            Integer current = expected.get(term);
+            expected.put(term, (current == null) ? 1 : (current + 1));
+        }
+
+        Map<String, Integer> heavyHitters = counter.getCount();
+
+        assertEquals(10, heavyHitters.size());
+
+        for(int rank = 1; rank <= 5; rank++) {
+
+            String term = "<http://example.org/term" + rank + ">";
+            int actual = expected.get(term);
+
+            assertTrue(term, heavyHitters.containsKey(term));
+
+            // never below the actual count and over by a small fraction of the total
+            assertTrue(heavyHitters.get(term) >= actual);
+            assertTrue(heavyHitters.get(term) <= actual + 200);
+        }
+    }
+
+    /**
+     * Count the terms a few times each, half as Strings and half as windows
+     * @param counter
+     * @return the expected counts of all the terms
+     */
+    private Map<String, Integer> countAll(TermCounter counter) {
+
+        Map<String, Integer> expected = new HashMap<>();
+        CharWindow window = new CharWindow();
+
+        for(int i = 0; i < TERMS.length; i++) {
+
+            String line = "x " + TERMS[i] + " .";
+
+            for(int j = 0; j <= i; j++) {
+
+                if((j % 2) == 0) {
+                    counter.count(TERMS[i]);
+
+                } else {
+                    counter.count(window.set(line, 2, 2 + TERMS[i].length()));
+                }
+            }
+
+            expected.put(TERMS[i], i + 1);
+        }
+
+        counter.count(new String [] {TERMS[0], null, TERMS[1]});
+        expected.put(TERMS[0], expected.get(TERMS[0]) + 1);
+        expected.put(TERMS[1], expected.get(TERMS[1]) + 1);
+
+        return expected;
+    }
+
+}
@@ -0,0 +1,216 @@
+package io.ecarf.core.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class UriTrieTest {
+    
+    private static final Comparator<String> BYTE_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            byte [] b1 = s1.getBytes(StandardCharsets.UTF_8);
+            byte [] b2 = s2.getBytes(StandardCharsets.UTF_8);
+            return UriTrieWriter.compareKeys(b1, b1.length, b2, b2.length);
+        }
+    };
+    
+    private List<String> files = new ArrayList<>();
+    
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testAddGetCount() {
+        
+        Map<String, Long> expected = createKeys(new Random(20160412L), 20_000);
+        
+        UriTrie trie = createTrie(expected);
+        
+        assertEquals(expected.size(), trie.size());
+        
+        for(Map.Entry<String, Long> entry: expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), trie.getCount(entry.getKey()));
+        }
+        
+        assertEquals(0, trie.getCount("http://dbpedia.org/resource/"));
+        assertEquals(0, trie.getCount("http://dbpedia.org/resource/Missing"));
+        assertEquals(0, trie.getCount("ftp://dbpedia.org"));
+        
+        assertCursor(expected, trie.cursor());
+        
+        // schema terms are ignored, the angle brackets are removed
+        assertFalse(trie.addTerm("<http://www.w3.org/2000/01/rdf-schema#subClassOf>"));
+        assertTrue(trie.addTerm("<http://dbpedia.org/resource/Missing>"));
+        assertTrue(trie.addTerm("<http://dbpedia.org/resource/Missing>"));
+        assertEquals(2, trie.getCount("http://dbpedia.org/resource/Missing"));
+        assertEquals(expected.size() + 1, trie.size());
+    }
+    
+    @Test
+    public void testFlatTrie() throws IOException {
+        
+        Map<String, Long> expected = createKeys(new Random(20160413L), 20_000);
+        
+        // the empty key is stored on the root
+        expected.put("", 3L);
+        
+        String file = createFile("test.trie");
+        
+        createTrie(expected).toFile(file);
+        
+        MappedUriTrie mapped = MappedUriTrie.fromFile(file);
+        
+        assertEquals(expected.size(), mapped.size());
+        
+        for(Map.Entry<String, Long> entry: expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), mapped.getCount(entry.getKey()));
+        }
+        
+        assertEquals(0, mapped.getCount("http://dbpedia.org/resource/"));
+        assertEquals(0, mapped.getCount("http://dbpedia.org/resource/Missing"));
+        assertEquals(0, mapped.getCount("ftp://dbpedia.org"));
+        
+        assertCursor(expected, mapped.cursor());
+        
+        // empty trie
+        String emptyFile = createFile("empty.trie");
+        new UriTrie().toFile(emptyFile);
+        
+        mapped = MappedUriTrie.fromFile(emptyFile);
+        assertEquals(0, mapped.size());
+        assertEquals(0, mapped.getCount("http://dbpedia.org"));
+        assertFalse(mapped.cursor().next());
+    }
+    
+    @Test
+    public void testMerge() throws IOException {
+        
+        Random random = new Random(20160414L);
+        
+        Map<String, Long> expected = new HashMap<>();
+        List<UriTrie.Cursor> cursors = new ArrayList<>();
+        
+        for(int i = 0; i < 4; i++) {
+            
+            Map<String, Long> keys = createKeys(random, 5000);
+            
+            for(Map.Entry<String, Long> entry: keys.entrySet()) {
+                Long count = expected.get(entry.getKey());
+                expected.put(entry.getKey(), (count == null) ? entry.getValue() : count + entry.getValue());
+            }
+            
+            String file = createFile("test" + i + ".trie");
+            createTrie(keys).toFile(file);
+            
+            cursors.add(MappedUriTrie.fromFile(file).cursor());
+        }
+        
+        String merged = createFile("merged.trie");
+        
+        assertEquals(expected.size(), UriTrieWriter.merge(cursors, merged));
+        
+        MappedUriTrie mapped = MappedUriTrie.fromFile(merged);
+        
+        assertEquals(expected.size(), mapped.size());
+        assertCursor(expected, mapped.cursor());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedKeys() throws IOException {
+        
+        try(UriTrieWriter writer = new UriTrieWriter(createFile("unsorted.trie"))) {
+            writer.add("http://b.org", 1);
+            writer.add("http://a.org", 1);
+        }
+    }
+    
+    /**
+     * Keys with shared prefixes, nodes with up to 256 children and some non ASCII keys
+     */
+    private static Map<String, Long> createKeys(Random random, int num) {
+        
+        Map<String, Long> keys = new HashMap<>();
+        
+        for(int i = 0; i < num; i++) {
+            
+            String key;
+            
+            switch(random.nextInt(4)) {
+            case 0:
+                key = "http://dbpedia.org/resource/Resource" + random.nextInt(num);
+                break;
+                
+            case 1:
+                key = "http://dbpedia.org/resource/" + ((char) (33 + random.nextInt(94))) + random.nextInt(10);
+                break;
+                
+            case 2:
+                key = "https://www.example.org/café/über/" + random.nextInt(100);
+                break;
+                
+            default:
+                key = "http://host" + random.nextInt(300) + ".org/";
+            }
+            
+            Long count = keys.get(key);
+            keys.put(key, (count == null) ? 1L : count + 1);
+        }
+        
+        return keys;
+    }
+    
+    private static UriTrie createTrie(Map<String, Long> keys) {
+        
+        UriTrie trie = new UriTrie();
+        
+        for(Map.Entry<String, Long> entry: keys.entrySet()) {
+            trie.add(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+    
+    private static void assertCursor(Map<String, Long> expected, UriTrie.Cursor cursor) {
+        
+        List<String> sorted = new ArrayList<>(expected.keySet());
+        Collections.sort(sorted, BYTE_ORDER);
+        
+        for(String key: sorted) {
+            assertTrue(cursor.next());
+            assertEquals(key, cursor.getKeyAsString());
+            assertEquals(expected.get(key).longValue(), cursor.getCount());
+        }
+        
+        assertFalse(cursor.next());
+    }
+    
+    private String createFile(String name) {
+        String file = FilenameUtils.getLocalFilePath(name);
+        files.add(file);
+        return file;
+    }
+
+}
@@ -0,0 +1,196 @@
+package io.ecarf.core.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class Utf8SlabSetTest {
+
+    private static final Random RANDOM = new Random(20160415L);
+
+    private static final String [] TERMS = {
+        "", "http://dbpedia.org/resource/", "Krak\u00f3w", "\u00e9\u00e8", "\u4e2d\u6587", "a\ud83d\ude00b", 
+        "\ud83d\ude00", "\uffff", "_:node1abc", "http://www.w3.org/2002/07/owl#"
+    };
+
+    @Test
+    public void testAddContains() {
+
+        Utf8SlabSet set = new Utf8SlabSet();
+
+        for(String term: TERMS) {
+            assertTrue(set.add(term));
+            assertFalse(set.add(term));
+        }
+
+        assertEquals(TERMS.length, set.size());
+
+        CharWindow window = new CharWindow();
+
+        for(String term: TERMS) {
+
+            assertTrue(set.contains(term));
+            assertTrue(set.contains(new StringBuilder(term)));
+
+            String padded = "<" + term + ">";
+            window.set(padded, 1, padded.length() - 1);
+
+            assertTrue(set.contains(window));
+            assertFalse(set.add(window));
+            assertFalse(set.add(padded, 1, padded.length() - 1));
+            assertFalse(set.contains(padded));
+        }
+
+        assertFalse(set.contains("Krakow"));
+        assertFalse(set.contains(Integer.valueOf(1)));
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains("Krak\u00f3w"));
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void testIterationOrder() {
+
+        // force a few resizes and entries across more than one slab
+        Utf8SlabSet set = new Utf8SlabSet();
+        Set<String> expected = new LinkedHashSet<>();
+
+        StringBuilder large = new StringBuilder();
+        for(int i = 0; i < 300_000; i++) {
+            large.append((char) ('a' + (i % 26)));
+        }
+
+        for(int i = 0; i < 100_000; i++) {
+            String term = randomTerm();
+            assertEquals(expected.add(term), set.add(term));
+
+            if(i == 50_000) {
+                expected.add(large.toString());
+                set.add(large);
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected), toList(set.iterator()));
+
+        List<String> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+
+        assertEquals(sorted, toList(set.sortedIterator()));
+        assertEquals(expected, new HashSet<>(set));
+        assertTrue(set.getMemoryUsage() > (1 << 20));
+    }
+
+    @Test
+    public void testCounts() {
+
+        Utf8SlabSet set = new Utf8SlabSet(4, true);
+
+        for(int i = 0; i < TERMS.length; i++) {
+            for(int j = 0; j <= i; j++) {
+                set.add(TERMS[i]);
+            }
+        }
+
+        for(int i = 0; i < TERMS.length; i++) {
+            assertEquals(i + 1, set.getCount(TERMS[i]));
+        }
+
+        assertEquals(0, set.getCount("missing"));
+
+        Utf8SlabSet.Entries entries = set.sortedIterator();
+        String previous = null;
+
+        while(entries.hasNext()) {
+
+            String term = entries.next();
+
+            if(previous != null) {
+                assertTrue(previous.compareTo(term) < 0);
+            }
+            previous = term;
+
+            assertEquals(set.getCount(term), entries.getCount());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSerializeAsHashSet() throws IOException, ClassNotFoundException {
+
+        Utf8SlabSet set = new Utf8SlabSet();
+
+        for(String term: TERMS) {
+            set.add(term);
+        }
+
+        File file = File.createTempFile("slab_set", ".kryo.gz");
+        file.deleteOnExit();
+
+        Utils.objectToFile(file.getAbsolutePath(), set, true, false);
+        Set<String> kryo = Utils.objectFromFile(file.getAbsolutePath(), HashSet.class, true, false);
+
+        Utils.objectToFile(file.getAbsolutePath(), set, true, true);
+        Set<String> java = Utils.objectFromFile(file.getAbsolutePath(), HashSet.class, true, true);
+
+        assertEquals(set, kryo);
+        assertEquals(set, java);
+
+        file.delete();
+    }
+
+    private static String randomTerm() {
+
+        int length = RANDOM.nextInt(40);
+        StringBuilder term = new StringBuilder("http://example.org/");
+
+        for(int i = 0; i < length; i++) {
+
+            int type = RANDOM.nextInt(20);
+
+            if(type == 0) {
+                term.append((char) (0x80 + RANDOM.nextInt(0x780)));
+
+            } else if(type == 1) {
+                term.append((char) (0x800 + RANDOM.nextInt(0xD000)));
+
+            } else if(type == 2) {
+                term.append("\ud83d\ude00");
+
+            } else {
+                term.append((char) ('a' + RANDOM.nextInt(4)));
+            }
+        }
+
+        return term.toString();
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        while(iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.ecarf.core.term.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.term.CharWindow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class MinimalPerfectHashTest {
+
+    @Test
+    public void testCreate() throws IOException {
+
+        List<String> keys = new ArrayList<>();
+
+        for(int i = 0; i < 100_000; i++) {
+            keys.add("www.Department" + (i % 20) + ".University" + (i / 20) + ".edu/Course" + i);
+        }
+
+        MinimalPerfectHash hash = MinimalPerfectHash.create(keys);
+
+        this.validate(hash, keys);
+
+        // around 3 bits per key
+        assertTrue(hash.getBitCount() < keys.size() * 3.5);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            hash.write(out);
+        }
+
+        MinimalPerfectHash read = MinimalPerfectHash.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(hash.size(), read.size());
+
+        for(String key: keys) {
+            assertEquals(hash.get(key, 0, key.length()), read.get(key, 0, key.length()));
+        }
+
+        // keys within a larger sequence
+        String key = keys.get(500);
+        String padded = "<" + key + ">";
+        CharWindow window = new CharWindow().set(padded, 1, padded.length() - 1);
+
+        assertEquals(hash.get(key, 0, key.length()), hash.get(padded, 1, padded.length() - 1));
+        assertEquals(hash.get(key, 0, key.length()), hash.get(window, 0, window.length()));
+    }
+
+    @Test
+    public void testSmall() {
+
+        this.validate(MinimalPerfectHash.create(Collections.<String>emptyList()), Collections.<String>emptyList());
+
+        List<String> keys = new ArrayList<>();
+        keys.add("");
+
+        for(int i = 0; i < 10; i++) {
+            keys.add(Character.toString((char) ('a' + i)));
+            this.validate(MinimalPerfectHash.create(keys), keys);
+        }
+    }
+
+    private void validate(MinimalPerfectHash hash, List<String> keys) {
+
+        assertEquals(keys.size(), hash.size());
+
+        boolean [] used = new boolean[keys.size()];
+
+        for(String key: keys) {
+
+            int slot = hash.get(key, 0, key.length());
+
+            assertTrue(slot >= 0 && slot < keys.size());
+            assertFalse(used[slot]);
+
+            used[slot] = true;
+        }
+    }
+
+}
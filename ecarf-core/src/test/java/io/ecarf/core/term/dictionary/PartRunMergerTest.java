@@ -0,0 +1,251 @@
+package io.ecarf.core.term.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PartRunMergerTest {
+
+    private List<String> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+
+        List<String> parts = Arrays.asList("dbpedia.org/resource", "dbpedia.org/ontology", "dbpedia.org/resource",
+                "", "Team_handball", "Caf\u00e9_\u00d6sterreich", "Caf\u00e9_\u00d6sterreich_2", 
+                "\ud83d\ude00\ud83d\ude01", "\ud83d\ude00\ud83d\ude02", "x" + new String(new char[300]).replace('\0', 'y'));
+
+        String file = this.file("run");
+
+        assertEquals(9, PartRunWriter.write(file, parts));
+
+        List<String> expected = new ArrayList<>(new TreeSet<>(parts));
+
+        assertEquals(expected, this.read(file));
+
+        // empty run
+        assertEquals(0, PartRunWriter.write(file, Collections.<String>emptySet()));
+        assertTrue(this.read(file).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutOfOrder() throws IOException {
+
+        try(PartRunWriter writer = new PartRunWriter(this.file("run"))) {
+            assertTrue(writer.add("b"));
+            assertFalse(writer.add("b"));
+            writer.add("a");
+        }
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+
+        Random random = new Random(20160301L);
+
+        Set<String> all = new TreeSet<>();
+        List<String> runs = new ArrayList<>();
+
+        for(int i = 0; i < 10; i++) {
+
+            Set<String> parts = new HashSet<>();
+
+            for(int j = 0; j < 1000; j++) {
+                // overlapping parts across the runs
+                parts.add("www.Department" + random.nextInt(50) + ".University" + random.nextInt(20) + ".edu");
+            }
+
+            String run = this.file("run" + i);
+            PartRunWriter.write(run, parts);
+            runs.add(run);
+
+            all.addAll(parts);
+        }
+
+        List<String> expected = new ArrayList<>(all);
+
+        // single merge
+        assertEquals(expected, this.merge(runs));
+
+        // through intermediate runs
+        List<String> reduced = PartRunMerger.reduce(runs, 3, FilenameUtils.getLocalFilePath("part_run_test_"));
+
+        // 10 runs to 3 intermediate + 1 then to 1 intermediate + 1, the first level intermediate runs are deleted
+        assertEquals(2, reduced.size());
+        files.addAll(reduced);
+        
+        for(int i = 0; i < 3; i++) {
+            assertFalse(new File(FilenameUtils.getLocalFilePath("part_run_test_") + i + 
+                    FilenameUtils.PART_RUN_EXT).exists());
+        }
+
+        assertEquals(expected, this.merge(reduced));
+
+        // no intermediate runs are needed
+        assertTrue(runs == PartRunMerger.reduce(runs, 10, FilenameUtils.getLocalFilePath("part_run_test_")));
+
+        String merged = this.file("merged");
+        assertEquals(expected.size(), PartRunMerger.merge(runs, merged));
+        assertEquals(expected, this.read(merged));
+    }
+
+    @Test
+    public void testCountedMerge() throws IOException {
+
+        Map<String, Integer> counts1 = new HashMap<>();
+        counts1.put("dbpedia.org/resource", 1000);
+        counts1.put("dbpedia.org/ontology", 10);
+        counts1.put("www.w3.org/2002/07/owl", 1);
+
+        Map<String, Integer> counts2 = new HashMap<>();
+        counts2.put("dbpedia.org/ontology", 5);
+        counts2.put("xmlns.com/foaf/0.1", 600);
+
+        String run1 = this.file("counted1");
+        String run2 = this.file("counted2");
+        String run3 = this.file("uncounted");
+
+        PartRunWriter.write(run1, counts1.keySet(), counts1);
+        PartRunWriter.write(run2, counts2.keySet(), counts2);
+        PartRunWriter.write(run3, Arrays.asList("dbpedia.org/ontology", "purl.org/dc"));
+
+        // the occurrences of duplicate adds are summed
+        try(PartRunWriter writer = new PartRunWriter(this.file("duplicates"), true)) {
+            assertTrue(writer.add("a", 2));
+            assertFalse(writer.add("a", 3));
+            assertTrue(writer.add("b", 1));
+        }
+
+        try(PartRunReader reader = new PartRunReader(files.get(files.size() - 1))) {
+            assertTrue(reader.isCounted());
+            assertEquals("a", reader.next());
+            assertEquals(5, reader.getCount());
+            assertEquals("b", reader.next());
+            assertEquals(1, reader.getCount());
+        }
+
+        Map<String, Long> merged = new HashMap<>();
+
+        try(PartRunMerger merger = new PartRunMerger(Arrays.asList(run1, run2, run3))) {
+
+            assertFalse(merger.isCounted());
+
+            String part;
+            while((part = merger.next()) != null) {
+                merged.put(part, merger.getCount());
+            }
+        }
+
+        assertEquals(5, merged.size());
+        assertEquals(Long.valueOf(1000), merged.get("dbpedia.org/resource"));
+        // uncounted runs count once
+        assertEquals(Long.valueOf(16), merged.get("dbpedia.org/ontology"));
+        assertEquals(Long.valueOf(1), merged.get("purl.org/dc"));
+
+        // counts are kept through intermediate merges
+        String intermediate = this.file("intermediate");
+        assertEquals(4, PartRunMerger.merge(Arrays.asList(run1, run2), intermediate));
+
+        try(PartRunMerger merger = new PartRunMerger(Arrays.asList(intermediate))) {
+
+            assertTrue(merger.isCounted());
+            assertEquals("dbpedia.org/ontology", merger.next());
+            assertEquals(15, merger.getCount());
+        }
+
+        // the most frequent parts get the smallest ids, ties are in part order
+        TermDictionary dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+
+        try(PartRunMerger merger = new PartRunMerger(Arrays.asList(run1, run2, run3))) {
+            assertEquals(5, merger.addTo(dictionary, true));
+        }
+
+        int start = TermDictionary.RESOURCE_ID_START;
+
+        assertEquals(Integer.valueOf(start + 1), dictionary.get("dbpedia.org/resource"));
+        assertEquals(Integer.valueOf(start + 2), dictionary.get("xmlns.com/foaf/0.1"));
+        assertEquals(Integer.valueOf(start + 3), dictionary.get("dbpedia.org/ontology"));
+        assertEquals(Integer.valueOf(start + 4), dictionary.get("purl.org/dc"));
+        assertEquals(Integer.valueOf(start + 5), dictionary.get("www.w3.org/2002/07/owl"));
+
+        // in part order
+        dictionary = TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+
+        try(PartRunMerger merger = new PartRunMerger(Arrays.asList(run1, run2, run3))) {
+            assertEquals(5, merger.addTo(dictionary, false));
+        }
+
+        assertEquals(Integer.valueOf(start + 1), dictionary.get("dbpedia.org/ontology"));
+        assertEquals(Integer.valueOf(start + 5), dictionary.get("xmlns.com/foaf/0.1"));
+    }
+
+    private List<String> merge(List<String> runs) throws IOException {
+
+        List<String> parts = new ArrayList<>();
+
+        try(PartRunMerger merger = new PartRunMerger(runs)) {
+
+            String part;
+            while((part = merger.next()) != null) {
+                parts.add(part);
+            }
+
+            assertNull(merger.next());
+        }
+
+        return parts;
+    }
+
+    private List<String> read(String file) throws IOException {
+
+        List<String> parts = new ArrayList<>();
+
+        try(PartRunReader reader = new PartRunReader(file)) {
+
+            String part;
+            while((part = reader.next()) != null) {
+                parts.add(part);
+            }
+
+            assertNull(reader.peek());
+        }
+
+        return parts;
+    }
+
+    private String file(String name) {
+        String file = FilenameUtils.getLocalPartRunFilePath("part_run_test_" + name);
+        files.add(file);
+        return file;
+    }
+
+}
@@ -0,0 +1,222 @@
+package io.ecarf.core.term.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.term.CharWindow;
+import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class TermDictionaryFrontCodedTest {
+
+    private static final String [] TERMS = {
+        "<http://dbpedia.org/resource/Andorra>",
+        "<http://dbpedia.org/ontology/wikiPageExternalLink>",
+        "<https://www.cia.gov/library/publications/world-leaders-1/world-leaders-a/andorra.html>",
+        "<http://www.agronomy.org/>",
+        "<http://dblp.uni-trier.de/rec/bibtex/books/acm/kim95/BreitbartGS95>",
+        "<http://dbpedia.org/resource/Zürich>",
+        "<http://dbpedia.org/resource/東京>",
+        "<http://www.w3.org/2000/01/rdf-schema#subClassOf>"
+    };
+
+    private static final int RESOURCE_ID_UNUSED = 99;
+
+    private static final Random RANDOM = new Random(20161018L);
+
+    private TermDictionaryCore core;
+
+    private TermDictionaryFrontCoded dictionary;
+
+    private String file;
+
+    @Before
+    public void setUp() throws Exception {
+
+        core = (TermDictionaryCore) TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+
+        for(String term: TERMS) {
+            if(!SchemaURIType.RDF_OWL_TERMS.contains(term)) {
+                for(String part: TermUtils.splitIntoTwo(term)) {
+                    core.add(part);
+                }
+            }
+        }
+
+        // enough parts with shared prefixes to fill many blocks
+        for(int i = 0; i < 5000; i++) {
+            core.add("dbpedia.org/resource/" + Integer.toString(RANDOM.nextInt(100_000), 36) + 
+                    ((i % 7 == 0) ? "_été" : "") + ((i % 11 == 0) ? "😀" : ""));
+        }
+
+        core.add("_:B54825b3X3A145000e6696X3AX2D7fff");
+        core.inverse();
+
+        file = FilenameUtils.getLocalFilePath("dictionary_test" + FilenameUtils.FRONT_CODED_DICTIONARY_EXT + 
+                Constants.GZIP_EXT);
+
+        TermDictionaryFrontCoded.toFile(core, file);
+
+        dictionary = TermDictionaryFrontCoded.fromFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        new File(file).delete();
+    }
+
+    @Test
+    public void testGet() {
+
+        assertEquals(core.size(), dictionary.size());
+        assertEquals(core.getLargestResourceId(), dictionary.getLargestResourceId());
+
+        CharWindow window = new CharWindow();
+
+        for(Entry<String, Integer> entry: core.getDictionary().entrySet()) {
+            String key = entry.getKey();
+            assertEquals(entry.getValue(), dictionary.get(key));
+            assertEquals(key, dictionary.get(entry.getValue()));
+            assertTrue(dictionary.containsKey(key));
+
+            String padded = "<" + key + ">";
+            assertEquals(entry.getValue(), dictionary.get(window.set(padded, 1, padded.length() - 1)));
+
+            // neighbours of an existing term that sort just before and after it
+            String before = key.substring(0, key.length() - 1);
+            assertEquals(core.get(before), dictionary.get(before));
+            assertEquals(core.get(key + "~"), dictionary.get(key + "~"));
+            assertEquals(core.get(before + "\u0000"), dictionary.get(before + "\u0000"));
+        }
+
+        assertNull(dictionary.get(""));
+        assertNull(dictionary.get("!"));
+        assertNull(dictionary.get("￿"));
+        assertNull(dictionary.get("dbpedia.org/unknown"));
+        assertNull(dictionary.get("dbpedia.org/resource/"));
+        assertFalse(dictionary.containsKey("dbpedia.org/unknown"));
+        assertNull(dictionary.get(RESOURCE_ID_UNUSED));
+        assertNull(dictionary.get(core.getLargestResourceId() + 1));
+        assertNull(dictionary.get(-1));
+    }
+
+    @Test
+    public void testEncodeDecode() {
+
+        for(String term: TERMS) {
+            long id = dictionary.encode(term);
+            assertEquals(core.encode(term), id);
+            assertEquals(term, dictionary.decode(id));
+        }
+
+        String blankNode = "_:B54825b3X3A145000e6696X3AX2D7fff";
+        long id = dictionary.encodeBlankNode(blankNode);
+        assertEquals(core.encodeBlankNode(blankNode), id);
+        assertEquals(blankNode, dictionary.decode(id));
+    }
+
+    @Test
+    public void testToFileUncompressed() throws IOException {
+
+        String plain = FilenameUtils.getLocalFilePath("dictionary_plain" + FilenameUtils.FRONT_CODED_DICTIONARY_EXT);
+
+        try {
+            dictionary.toFile(plain);
+
+            TermDictionaryFrontCoded loaded = TermDictionaryFrontCoded.fromFile(plain);
+
+            assertEquals(dictionary.size(), loaded.size());
+            assertEquals(dictionary.getDataLength(), loaded.getDataLength());
+
+            for(Entry<String, Integer> entry: core.getDictionary().entrySet()) {
+                assertEquals(entry.getValue(), loaded.get(entry.getKey()));
+                assertEquals(entry.getKey(), loaded.get(entry.getValue()));
+            }
+
+        } finally {
+            new File(plain).delete();
+        }
+    }
+
+    @Test
+    public void testIndexed() throws IOException {
+
+        String indexed = FilenameUtils.getLocalFilePath("dictionary_indexed" + FilenameUtils.FRONT_CODED_DICTIONARY_EXT);
+
+        try {
+            TermDictionaryFrontCoded.toFile(core, indexed, true);
+
+            TermDictionaryFrontCoded loaded = TermDictionaryFrontCoded.fromFile(indexed);
+
+            assertTrue(loaded.isIndexed());
+            assertFalse(dictionary.isIndexed());
+            assertEquals(core.size(), loaded.size());
+
+            CharWindow window = new CharWindow();
+
+            for(Entry<String, Integer> entry: core.getDictionary().entrySet()) {
+
+                String key = entry.getKey();
+                assertEquals(entry.getValue(), loaded.get(key));
+                assertEquals(key, loaded.get(entry.getValue()));
+
+                String padded = "<" + key + ">";
+                assertEquals(entry.getValue(), loaded.get(window.set(padded, 1, padded.length() - 1)));
+
+                String before = key.substring(0, key.length() - 1);
+                assertEquals(core.get(before), loaded.get(before));
+                assertEquals(core.get(key + "~"), loaded.get(key + "~"));
+            }
+
+            for(int i = 0; i < 10_000; i++) {
+                String unknown = "dbpedia.org/unknown/" + i;
+                assertNull(loaded.get(unknown));
+            }
+
+            for(String term: TERMS) {
+                assertEquals(core.encode(term), loaded.encode(term));
+            }
+
+        } finally {
+            new File(indexed).delete();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        dictionary.add("dbpedia.org/resource/New");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        String invalid = FilenameUtils.getLocalFilePath("dictionary_invalid" + FilenameUtils.FRONT_CODED_DICTIONARY_EXT);
+        try {
+            dictionary.toFile(invalid);
+            try(RandomAccessFile raf = new RandomAccessFile(invalid, "rw")) {
+                raf.setLength(70);
+            }
+            TermDictionaryFrontCoded.fromFile(invalid);
+
+        } finally {
+            new File(invalid).delete();
+        }
+    }
+
+}
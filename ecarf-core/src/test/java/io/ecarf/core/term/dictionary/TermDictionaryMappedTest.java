@@ -0,0 +1,156 @@
+package io.ecarf.core.term.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.term.TermUtils;
+import io.ecarf.core.triple.SchemaURIType;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map.Entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class TermDictionaryMappedTest {
+
+    private static final String [] TERMS = {
+        "<http://dbpedia.org/resource/Andorra>",
+        "<http://dbpedia.org/ontology/wikiPageExternalLink>",
+        "<https://www.cia.gov/library/publications/world-leaders-1/world-leaders-a/andorra.html>",
+        "<http://www.agronomy.org/>",
+        "<http://dblp.uni-trier.de/rec/bibtex/books/acm/kim95/BreitbartGS95>",
+        "<http://dbpedia.org/resource/Zürich>",
+        "<http://dbpedia.org/resource/東京>",
+        "<http://www.w3.org/2000/01/rdf-schema#subClassOf>"
+    };
+
+    private static final int RESOURCE_ID_UNUSED = 99;
+
+    private TermDictionaryCore core;
+
+    private TermDictionaryMapped dictionary;
+
+    private String file;
+
+    @Before
+    public void setUp() throws Exception {
+
+        core = (TermDictionaryCore) TermDictionary.populateRDFOWLData(new TermDictionaryCore());
+
+        for(String term: TERMS) {
+            if(!SchemaURIType.RDF_OWL_TERMS.contains(term)) {
+                for(String part: TermUtils.splitIntoTwo(term)) {
+                    core.add(part);
+                }
+            }
+        }
+
+        core.add("_:B54825b3X3A145000e6696X3AX2D7fff");
+        core.inverse();
+
+        file = FilenameUtils.getLocalFilePath("dictionary_test" + FilenameUtils.MAPPED_DICTIONARY_EXT);
+
+        TermDictionaryMapped.toFile(core, file);
+
+        dictionary = TermDictionaryMapped.fromFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        new File(file).delete();
+    }
+
+    @Test
+    public void testGet() {
+
+        assertEquals(core.size(), dictionary.size());
+        assertEquals(core.getLargestResourceId(), dictionary.getLargestResourceId());
+
+        for(Entry<String, Integer> entry: core.getDictionary().entrySet()) {
+            assertEquals(entry.getValue(), dictionary.get(entry.getKey()));
+            assertEquals(entry.getKey(), dictionary.get(entry.getValue()));
+            assertTrue(dictionary.containsKey(entry.getKey()));
+        }
+
+        assertNull(dictionary.get("dbpedia.org/unknown"));
+        assertFalse(dictionary.containsKey("dbpedia.org/unknown"));
+        assertNull(dictionary.get(RESOURCE_ID_UNUSED));
+        assertNull(dictionary.get(core.getLargestResourceId() + 1));
+    }
+
+    @Test
+    public void testEncodeDecode() {
+
+        for(String term: TERMS) {
+            long id = dictionary.encode(term);
+            assertEquals(core.encode(term), id);
+            assertEquals(term, dictionary.decode(id));
+        }
+
+        String blankNode = "_:B54825b3X3A145000e6696X3AX2D7fff";
+        long id = dictionary.encodeBlankNode(blankNode);
+        assertEquals(core.encodeBlankNode(blankNode), id);
+        assertEquals(blankNode, dictionary.decode(id));
+    }
+
+    @Test
+    public void testConcurrentGet() throws InterruptedException {
+
+        final boolean [] failed = new boolean[1];
+
+        Thread [] threads = new Thread[4];
+
+        for(int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int j = 0; j < 1000; j++) {
+                        for(String term: TERMS) {
+                            if(!term.equals(dictionary.decode(dictionary.encode(term)))) {
+                                failed[0] = true;
+                            }
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for(Thread thread: threads) {
+            thread.join();
+        }
+
+        assertFalse(failed[0]);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        dictionary.add("dbpedia.org/resource/New");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        String invalid = FilenameUtils.getLocalFilePath("dictionary_invalid" + FilenameUtils.MAPPED_DICTIONARY_EXT);
+        try {
+            TermDictionaryMapped.toFile(core.getDictionary(), core.getLargestResourceId(), invalid);
+            try(RandomAccessFile raf = new RandomAccessFile(invalid, "rw")) {
+                raf.setLength(70);
+            }
+            TermDictionaryMapped.fromFile(invalid);
+
+        } finally {
+            new File(invalid).delete();
+        }
+    }
+
+}
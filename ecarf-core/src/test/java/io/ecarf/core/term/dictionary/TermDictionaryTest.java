@@ -1,7 +1,12 @@
 package io.ecarf.core.term.dictionary;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.compress.NxTokenizer;
+import io.ecarf.core.compress.callback.DictionaryEncodeCallback;
 import io.ecarf.core.compress.callback.ExtractTerms2PartCallback;
+import io.ecarf.core.term.CharWindow;
 import io.ecarf.core.term.TermCounter;
 import io.ecarf.core.triple.SchemaURIType;
 import io.ecarf.core.triple.Triple;
@@ -16,6 +21,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -158,6 +165,65 @@ public class TermDictionaryTest {
         }
     }
 
+    @Test
+    public void testEncodeWindow() {
+        
+        CharWindow window = new CharWindow();
+        int [] bounds = new int[4];
+        
+        for(String term: allTerms) {
+            // the term within a larger line
+            String line = "<http://x.com/a> " + term + " .";
+            
+            long id = dictionary.encode(line, 17, 17 + term.length(), window, bounds);
+            
+            assertEquals(term, dictionary.decode(id));
+        }
+        
+        for(String term: blankNodes) {
+            String line = term + " <http://x.com/a> .";
+            
+            long id = dictionary.encodeBlankNode(line, 0, term.length(), window);
+            
+            assertEquals(term, dictionary.decode(id));
+        }
+    }
+    
+    @Test
+    public void testProcessTriple() throws IOException {
+        
+        DictionaryEncodeCallback callback = new DictionaryEncodeCallback();
+        callback.setDictionary(dictionary);
+        
+        NxTokenizer tokenizer = new NxTokenizer();
+        StringBuilder out = new StringBuilder();
+        
+        for(String line: StringUtils.split(N_TRIPLES, '\n')) {
+            
+            Node[] ns = new NxParser(new StringReader(line)).next();
+            
+            out.setLength(0);
+            
+            tokenizer.reset(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            
+            assertTrue(tokenizer.next());
+            assertTrue(callback.processTriple(tokenizer, out));
+            assertEquals(callback.processNTriple(ns), out.toString());
+        }
+        
+        // comments, blank lines, quads and malformed lines never reach the callback
+        String quad = "<http://dbpedia.org/resource/Andorra> <http://dbpedia.org/ontology/wikiPageExternalLink> "
+                + "<http://www.agronomy.org/> <http://dbpedia.org/resource/Andorra> .";
+        
+        String malformed = "<http://dbpedia.org/resource/Andorra> \"Andorra\" .";
+        
+        String skipped = "# comment\n  \t\n" + quad + "\n" + malformed + "\n";
+        
+        tokenizer.reset(ByteBuffer.wrap(skipped.getBytes(StandardCharsets.UTF_8)));
+        
+        assertFalse(tokenizer.next());
+    }
+
     @Test
     public void testSerialize() throws IOException {
 
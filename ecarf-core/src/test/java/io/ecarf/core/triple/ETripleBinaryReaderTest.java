@@ -0,0 +1,230 @@
+package io.ecarf.core.triple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.ecarf.core.utils.Constants;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleBinaryReaderTest {
+    
+    private List<String> files = new ArrayList<>();
+    
+    @After
+    public void tearDown() {
+        for(String file: files) {
+            new File(file).delete();
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        
+        List<ETriple> expected = createTriples(new Random(20160425L), 10_000);
+        
+        String file = this.createFile("triples" + Constants.DOT_BIN);
+        
+        try(ETripleWriter writer = TripleUtils.createEncodedTriplesWriter(file)) {
+            assertTrue(writer instanceof ETripleBinaryWriter);
+            write(expected, writer);
+            assertEquals(expected.size(), writer.getCount());
+        }
+        
+        try(ETripleReader reader = TripleUtils.openEncodedTriples(file, false)) {
+            assertTrue(reader instanceof ETripleBinaryReader);
+            assertEquals(expected.size(), ((ETripleBinaryReader) reader).getSize());
+            assertEquals(expected, read(reader));
+        }
+        
+        // small blocks
+        try(ETripleWriter writer = new ETripleBinaryWriter(file, false, 7)) {
+            write(expected, writer);
+        }
+        
+        try(ETripleReader reader = new ETripleBinaryReader(file)) {
+            assertEquals(expected, read(reader));
+            assertFalse(reader.next());
+        }
+        
+        // empty file
+        new ETripleBinaryWriter(file).close();
+        
+        try(ETripleBinaryReader reader = new ETripleBinaryReader(file)) {
+            assertEquals(0, reader.getSize());
+            assertFalse(reader.next());
+        }
+    }
+    
+    @Test
+    public void testConvertToCsv() throws IOException {
+        
+        List<ETriple> expected = createTriples(new Random(20160426L), 5000);
+        
+        String file = this.createFile("triples" + Constants.DOT_BIN);
+        String csvFile = this.createFile("triples.csv.gz");
+        
+        try(ETripleWriter writer = new ETripleBinaryWriter(file)) {
+            write(expected, writer);
+        }
+        
+        assertEquals(expected.size(), TripleUtils.convertToCsv(file, csvFile));
+        
+        try(ETripleReader reader = TripleUtils.openEncodedTriples(csvFile, false)) {
+            assertTrue(reader instanceof ETripleCsvReader);
+            assertEquals(expected, read(reader));
+        }
+        
+        List<Triple> loaded = TripleUtils.csvToTriples(file, true);
+        assertEquals(expected, loaded);
+    }
+    
+    @Test
+    public void testSortedSeek() throws IOException {
+        
+        List<ETriple> expected = createTriples(new Random(20160427L), 5000);
+        
+        Collections.sort(expected, new Comparator<ETriple>() {
+            @Override
+            public int compare(ETriple t1, ETriple t2) {
+                return t1.getSubject().compareTo(t2.getSubject());
+            }
+        });
+        
+        String file = this.createFile("sorted" + Constants.DOT_BIN);
+        
+        try(ETripleWriter writer = new ETripleBinaryWriter(file, true, 100)) {
+            write(expected, writer);
+        }
+        
+        try(ETripleBinaryReader reader = new ETripleBinaryReader(file)) {
+            
+            assertTrue(reader.isSorted());
+            
+            for(int i = 0; i < expected.size(); i += 37) {
+                
+                long subject = expected.get(i).getSubject();
+                
+                // the first triple with the subject
+                int first = i;
+                while((first > 0) && (expected.get(first - 1).getSubject() == subject)) {
+                    first--;
+                }
+                
+                reader.seek(subject);
+                assertEquals(expected.subList(first, expected.size()), read(reader));
+                
+                reader.seek(subject + 1);
+                assertTrue(!reader.next() || (reader.getSubject() > subject));
+            }
+            
+            reader.seek(Long.MAX_VALUE);
+            assertFalse(reader.next());
+        }
+        
+        try(ETripleWriter writer = new ETripleBinaryWriter(file, true)) {
+            writer.add(2, 1, 1);
+            writer.add(1, 1, 1);
+            fail("Expected an IllegalArgumentException");
+            
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testInvalidFile() throws IOException {
+        
+        String file = this.createFile("invalid" + Constants.DOT_BIN);
+        
+        try(ETripleWriter writer = new ETripleBinaryWriter(file)) {
+            write(createTriples(new Random(20160428L), 100), writer);
+        }
+        
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        
+        try {
+            new ETripleBinaryReader(file).close();
+            fail("Expected an IOException");
+            
+        } catch(IOException e) {
+            assertTrue(e.getMessage().startsWith("Incomplete encoded triples file"));
+        }
+    }
+    
+    private static List<ETriple> createTriples(Random random, int num) {
+        
+        List<ETriple> triples = new ArrayList<>();
+        
+        for(int i = 0; i < num; i++) {
+            
+            long subject = random.nextBoolean() ? random.nextInt(1000) : (random.nextLong() >>> 1);
+            long predicate = random.nextInt(20);
+            
+            switch(random.nextInt(6)) {
+            case 0:
+                triples.add(new ETriple(subject, predicate, null, "literal, \"é\" " + random.nextInt(100)));
+                break;
+                
+            case 1:
+                triples.add(new ETriple(subject, predicate, null, null));
+                break;
+                
+            default:
+                triples.add(new ETriple(subject, predicate, random.nextLong() >>> 1, null));
+            }
+        }
+        
+        return triples;
+    }
+    
+    private static void write(List<ETriple> triples, ETripleWriter writer) {
+        
+        for(ETriple triple: triples) {
+            
+            if(triple.getObject() == null) {
+                writer.setLiteral(triple.getObjectLiteral());
+                writer.add(triple.getSubject(), triple.getPredicate(), -1);
+                
+            } else {
+                writer.add(triple.getSubject(), triple.getPredicate(), triple.getObject());
+            }
+        }
+    }
+    
+    private static List<ETriple> read(ETripleReader reader) throws IOException {
+        
+        List<ETriple> triples = new ArrayList<>();
+        
+        while(reader.next()) {
+            triples.add(reader.getTriple());
+        }
+        
+        return triples;
+    }
+    
+    private String createFile(String name) {
+        String file = FilenameUtils.getLocalFilePath(name);
+        files.add(file);
+        return file;
+    }
+
+}
@@ -0,0 +1,145 @@
+package io.ecarf.core.triple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.ecarf.core.utils.FilenameUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ETripleCsvReaderTest {
+
+    @Test
+    public void testReadWrittenTriples() throws IOException {
+        
+        Random random = new Random(20160420L);
+        
+        String file = FilenameUtils.getLocalFilePath("test_reader.csv.gz");
+        
+        List<ETriple> expected = new ArrayList<>();
+        
+        try(ETripleCsvWriter writer = new ETripleCsvWriter(file)) {
+            
+            for(int i = 0; i < 10_000; i++) {
+                
+                long subject = Math.abs(random.nextLong());
+                long predicate = random.nextInt(1000);
+                
+                if(random.nextInt(5) == 0) {
+                    String literal = "\"a, \"\"quoted\"\" literal\n" + i + " é\"";
+                    writer.setLiteral(literal);
+                    writer.add(subject, predicate, -1);
+                    expected.add(new ETriple(subject, predicate, null, literal));
+                    
+                } else {
+                    long object = random.nextInt(Integer.MAX_VALUE);
+                    writer.add(subject, predicate, object);
+                    expected.add(new ETriple(subject, predicate, object, null));
+                }
+            }
+        }
+        
+        try {
+            
+            List<ETriple> actual = new ArrayList<>();
+            
+            for(Triple triple: TripleUtils.loadCompressedCSVTriples(file, true)) {
+                actual.add((ETriple) triple);
+            }
+            
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+            
+            for(ETriple triple: actual) {
+                if(triple.getObject() == null) {
+                    assertTrue(triple.getObjectLiteral().startsWith("\"a, \"\"quoted\"\" literal\n"));
+                }
+            }
+            
+        } finally {
+            new File(file).delete();
+        }
+    }
+    
+    @Test
+    public void testReadQueryResults() throws IOException {
+        
+        String csv = "subject,predicate,object\r\n" +
+                "1,2,3\r\n" +
+                "\r\n" +
+                "4,5,,\"literal, with \"\"quotes\"\"\nand a new line\"\r\n" +
+                "6,7,,plain literal\n" +
+                "8,9,,\n" +
+                "10,11,12,\n" +
+                "9223372036854775807,0,1,\"\",extra,\"column\"\n" +
+                "13,14,";
+        
+        List<CSVRecord> records = CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(
+                new StringReader(csv)).getRecords();
+        
+        try(ETripleCsvReader reader = this.reader(csv, true)) {
+            
+            for(CSVRecord record: records) {
+                
+                assertTrue(reader.next());
+                
+                assertEquals(Long.parseLong(record.get(0)), reader.getSubject());
+                assertEquals(Long.parseLong(record.get(1)), reader.getPredicate());
+                
+                if(record.get(2).isEmpty()) {
+                    assertFalse(reader.hasObject());
+                    assertEquals(-1, reader.getObject());
+                    
+                    String literal = (record.size() > 3) && !record.get(3).isEmpty() ? record.get(3) : null;
+                    assertEquals(literal, reader.getLiteral());
+                    
+                } else {
+                    assertTrue(reader.hasObject());
+                    assertEquals(Long.parseLong(record.get(2)), reader.getObject());
+                    assertNull(reader.getLiteral());
+                }
+            }
+            
+            assertFalse(reader.next());
+        }
+    }
+    
+    @Test
+    public void testInvalidLines() throws IOException {
+        
+        String [] invalid = {"1,2\n", "1,a,3\n", "1,2,3x\n", "-,2,3\n", "1,2,,\"unterminated\n", 
+                "1,2,,\"quoted\"x\n", "99999999999999999999,2,3\n", "10000000000000000000,2,3\n"};
+        
+        for(String csv: invalid) {
+            
+            try(ETripleCsvReader reader = this.reader(csv, false)) {
+                reader.next();
+                throw new AssertionError("Expected an IOException for: " + csv);
+                
+            } catch(IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid encoded triple at line: "));
+            }
+        }
+    }
+    
+    private ETripleCsvReader reader(String csv, boolean header) {
+        return new ETripleCsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), header);
+    }
+
+}
@@ -0,0 +1,117 @@
+package io.ecarf.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class ConcurrentLongPairSetTest {
+
+    @Test
+    public void testAddContains() {
+
+        ConcurrentLongPairSet set = new ConcurrentLongPairSet(16, 4);
+
+        assertTrue(set.add(0, 0));
+        assertFalse(set.add(0, 0));
+        assertTrue(set.add(0, 1));
+        assertTrue(set.add(1, 0));
+        assertTrue(set.add(-1, Long.MAX_VALUE));
+
+        // force a few resizes
+        for(long i = 1; i <= 10_000; i++) {
+            assertTrue(set.add(i, i * 31));
+        }
+
+        assertEquals(10_004, set.size());
+
+        for(long i = 1; i <= 10_000; i++) {
+            assertTrue(set.contains(i, i * 31));
+            assertFalse(set.contains(i * 31, i));
+        }
+
+        assertTrue(set.contains(0, 0));
+        assertTrue(set.contains(-1, Long.MAX_VALUE));
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0, 0));
+        assertFalse(set.contains(1, 31));
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+
+        final ConcurrentLongPairSet set = new ConcurrentLongPairSet(1000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for(int t = 0; t < 4; t++) {
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int added = 0;
+                    for(long i = 0; i < 50_000; i++) {
+                        if(set.add(i, 7)) {
+                            added++;
+                        }
+                    }
+                    return added;
+                }
+            });
+        }
+
+        int added = 0;
+
+        try {
+            for(Future<Integer> result: executor.invokeAll(tasks)) {
+                added += result.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        // every pair is only added once across all the threads
+        assertEquals(50_000, added);
+        assertEquals(50_000, set.size());
+    }
+
+    @Test
+    public void testBloomFilter() {
+
+        BlockedBloomFilter filter = new BlockedBloomFilter(64 * 1024);
+
+        for(long i = 0; i < 10_000; i++) {
+            assertTrue(filter.put(i, -i));
+        }
+
+        int falsePositives = 0;
+
+        for(long i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(i, -i));
+            assertFalse(filter.put(i, -i));
+
+            if(filter.mightContain(i, i + 1)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 100);
+    }
+
+}
@@ -0,0 +1,68 @@
+package io.ecarf.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class LongTripleSetTest {
+
+    @Test
+    public void testAddContains() {
+        
+        LongTripleSet set = new LongTripleSet(4);
+        
+        assertTrue(set.add(0, 0, 0));
+        assertFalse(set.add(0, 0, 0));
+        assertTrue(set.add(0, 0, 1));
+        assertTrue(set.add(1, 0, 0));
+        assertTrue(set.add(-1, Long.MAX_VALUE, -5));
+        
+        // force a few resizes
+        for(long i = 1; i <= 10_000; i++) {
+            assertTrue(set.add(i, 7, i * 31));
+        }
+        
+        assertEquals(10_004, set.size());
+        
+        for(long i = 1; i <= 10_000; i++) {
+            assertTrue(set.contains(i, 7, i * 31));
+            assertFalse(set.add(i, 7, i * 31));
+            assertFalse(set.contains(i * 31, 7, i));
+        }
+        
+        assertTrue(set.contains(0, 0, 0));
+        assertTrue(set.contains(-1, Long.MAX_VALUE, -5));
+        assertFalse(set.contains(0, 1, 0));
+    }
+    
+    @Test
+    public void testBuffer() {
+        
+        LongTripleBuffer buffer = new LongTripleBuffer(2);
+        
+        for(long i = 0; i < 100; i++) {
+            buffer.add(i, i + 1, -i);
+        }
+        
+        LongTripleBuffer other = new LongTripleBuffer();
+        other.add(7, 8, 9);
+        
+        buffer.addAll(other);
+        
+        assertEquals(101, buffer.size());
+        assertEquals(50, buffer.getSubject(50));
+        assertEquals(51, buffer.getPredicate(50));
+        assertEquals(-50, buffer.getObject(50));
+        assertEquals(9, buffer.getObject(100));
+        
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+}
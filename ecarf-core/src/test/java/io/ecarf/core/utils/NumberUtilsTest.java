@@ -0,0 +1,104 @@
+package io.ecarf.core.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class NumberUtilsTest {
+
+    private static final Random RANDOM = new Random(20160301L);
+
+    @Test
+    public void testJoinDisjoinTwo() {
+
+        long [][] values = {
+            {0, 0}, {1, 0}, {0, 1}, {101, 102}, {Integer.MAX_VALUE, 1},
+            {Integer.MAX_VALUE, Integer.MAX_VALUE}, {0xFFFFFFFFL, 0xFFFFFFFFL}
+        };
+
+        for(long [] pair: values) {
+            this.validateTwo(pair[0], pair[1]);
+        }
+
+        for(int i = 0; i < 100_000; i++) {
+            // ids are ints, also cover the full 32 bits
+            this.validateTwo(RANDOM.nextInt(Integer.MAX_VALUE), RANDOM.nextInt(Integer.MAX_VALUE));
+            this.validateTwo(RANDOM.nextLong() >>> 32, RANDOM.nextLong() >>> 32);
+        }
+    }
+
+    @Test
+    public void testJoinDisjoinN() {
+
+        for(int i = 0; i < 10_000; i++) {
+
+            long [] values = {RANDOM.nextInt(1 << 21), RANDOM.nextInt(1 << 21), RANDOM.nextInt(1 << 21)};
+
+            long joined = NumberUtils.join(values.clone());
+
+            assertEquals(legacyJoin(values.clone()), joined);
+            assertArrayEquals(values, NumberUtils.disjoin(3, joined));
+            assertArrayEquals(legacyDisjoin(3, joined), NumberUtils.disjoin(3, joined));
+        }
+    }
+
+    private void validateTwo(long first, long second) {
+
+        long joined = NumberUtils.join(first, second);
+
+        // must stay compatible with the values already encoded using the bit loop
+        assertEquals(legacyJoin(new long [] {first, second}), joined);
+        assertEquals(joined, NumberUtils.join(new long [] {first, second}));
+
+        assertEquals(first, NumberUtils.disjoinFirst(joined));
+        assertEquals(second, NumberUtils.disjoinSecond(joined));
+        assertArrayEquals(new long [] {first, second}, NumberUtils.disjoin(2, joined));
+
+        if(joined >= 0) {
+            assertArrayEquals(legacyDisjoin(2, joined), NumberUtils.disjoin(2, joined));
+        }
+    }
+
+    /**
+     * The original bit by bit implementation of join
+     */
+    private static long legacyJoin(long [] values) {
+        long p = 0;
+        int i = 0;
+        int n = values.length;
+
+        while(NumberUtils.sum(values) > 0) {
+            for(int j = 0; j < n; j++) {
+                p |= (values[j] & 1) << (i + j);
+                values[j] >>= 1;
+            }
+            i += n;
+        }
+        return p;
+    }
+
+    /**
+     * The original bit by bit implementation of disjoin
+     */
+    private static long [] legacyDisjoin(int n, long value) {
+        long values [] = new long [n];
+        int i = 0;
+
+        while (value > 0) {
+            for(int j = 0; j < n; j++) {
+                values[j] |= (value & 1) << i;
+                value >>= 1;
+            }
+            i++;
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.ecarf.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Omer Dawelbeit (omerio)
+ *
+ */
+public class PackedLongColumnTest {
+    
+    private static final Random RANDOM = new Random(20160315L);
+
+    @Test
+    public void testGet() {
+        
+        int size = 10_000 + 77;
+        
+        long [][] columns = new long[5][size];
+        
+        for(int i = 0; i < size; i++) {
+            // constant, small ids, sorted, negative and full 64 bit values
+            columns[0][i] = 42;
+            columns[1][i] = 101 + RANDOM.nextInt(5000);
+            columns[2][i] = i * 3L;
+            columns[3][i] = -RANDOM.nextInt(1000);
+            columns[4][i] = RANDOM.nextLong();
+        }
+        
+        columns[4][0] = Long.MIN_VALUE;
+        columns[4][1] = Long.MAX_VALUE;
+        
+        for(long [] values: columns) {
+            
+            PackedLongColumn column = new PackedLongColumn(values);
+            
+            assertEquals(size, column.size());
+            
+            for(int i = 0; i < size; i++) {
+                assertEquals(values[i], column.get(i));
+            }
+        }
+        
+        // sorted values compress well
+        assertTrue(new PackedLongColumn(columns[2]).getMemoryUsage() < (size * 2));
+    }
+    
+    @Test
+    public void testPartialArray() {
+        
+        long [] values = new long[1000];
+        Arrays.fill(values, 7);
+        
+        PackedLongColumn column = new PackedLongColumn(values, 129);
+        
+        assertEquals(129, column.size());
+        assertEquals(7, column.get(128));
+        
+        assertEquals(0, new PackedLongColumn(new long[0]).size());
+    }
+
+}